@@ -0,0 +1,127 @@
+package com.yu.gateway.benchmark;
+
+import com.yu.gateway.common.config.DynamicConfigManager;
+import com.yu.gateway.common.config.Rule;
+import com.yu.gateway.common.config.ServiceDefinition;
+import com.yu.gateway.common.config.ServiceInstance;
+import com.yu.gateway.common.constant.BasicConst;
+import com.yu.gateway.common.constant.FilterConst;
+import com.yu.gateway.common.constant.GatewayConst;
+import com.yu.gateway.core.filter.GatewayFilterChainFactory;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author yu
+ * @description 基准测试公共数据：在 DynamicConfigManager 中注册服务定义、服务实例与规则，并构造请求
+ * @date 2024-05-26
+ */
+public final class BenchmarkFixtures {
+
+	public static final String SERVICE_ID = "benchmark-service";
+
+	public static final String UNIQUE_ID = SERVICE_ID + BasicConst.COLON_SEPARATOR + GatewayConst.DEFAULT_VERSION;
+
+	public static final String RULE_ID = "benchmark-rule";
+
+	public static final String PATH = "/benchmark/user/ping";
+
+	public static final String URI = PATH + "?userId=10001&name=yu";
+
+	private BenchmarkFixtures() {
+	}
+
+	/**
+	 * 注册服务及其实例，并推送规则（与配置中心推送走同一路径）
+	 */
+	public static void registerService(int instanceCount) {
+		DynamicConfigManager manager = DynamicConfigManager.getInstance();
+		manager.putServiceDefinition(UNIQUE_ID, newServiceDefinition());
+
+		Set<ServiceInstance> instances = ConcurrentHashMap.newKeySet();
+		for (int i = 0; i < instanceCount; i++) {
+			instances.add(newInstance(i));
+		}
+		manager.putServiceInstance(UNIQUE_ID, instances);
+
+		List<Rule> rules = List.of(newRule(FilterConst.LOAD_BALANCE_STRATEGY_ROUND_ROBIN));
+		manager.putAllRule(rules);
+		GatewayFilterChainFactory.getInstance().refresh(rules);
+	}
+
+	public static ServiceDefinition newServiceDefinition() {
+		ServiceDefinition definition = new ServiceDefinition();
+		definition.setUniqueId(UNIQUE_ID);
+		definition.setServiceId(SERVICE_ID);
+		definition.setVersion(GatewayConst.DEFAULT_VERSION);
+		definition.setProtocol("http");
+		definition.setEnvType("dev");
+		definition.setAvailable(true);
+		definition.setInvokerMap(Map.of());
+		return definition;
+	}
+
+	public static ServiceInstance newInstance(int index) {
+		ServiceInstance instance = new ServiceInstance();
+		instance.setIp("10.0." + (index / 250) + "." + (index % 250 + 1));
+		instance.setPort(8080);
+		instance.setServiceInstanceId(instance.getIp() + BasicConst.COLON_SEPARATOR + instance.getPort());
+		instance.setUniqueId(UNIQUE_ID);
+		instance.setVersion(GatewayConst.DEFAULT_VERSION);
+		instance.setWeight(GatewayConst.DEFAULT_WEIGHT * (index % 3 + 1));
+		instance.setRegisterTime(System.currentTimeMillis());
+		return instance;
+	}
+
+	public static Rule newRule(String loadBalanceStrategy) {
+		Rule.FilterConfig loadBalance = new Rule.FilterConfig();
+		loadBalance.setId(FilterConst.LOAD_BALANCE_FILTER_ID);
+		loadBalance.setConfig("{\"" + FilterConst.LOAD_BALANCE_KEY + "\":\"" + loadBalanceStrategy + "\"}");
+
+		Rule.FilterConfig auth = new Rule.FilterConfig();
+		auth.setId(FilterConst.AUTH_FILTER_ID);
+		auth.setConfig("{\"" + FilterConst.AUTH_FILTER_KEY + "\":[\"/benchmark/user/private\"]}");
+
+		Rule rule = new Rule();
+		rule.setId(RULE_ID);
+		rule.setName(RULE_ID);
+		rule.setProtocol("http");
+		rule.setServiceId(SERVICE_ID);
+		rule.setPrefix("/benchmark");
+		rule.setPaths(List.of(PATH, "/benchmark/user/{id}/profile"));
+		rule.setOrder(1);
+		rule.addFilterConfig(loadBalance);
+		rule.addFilterConfig(auth);
+		return rule;
+	}
+
+	/**
+	 * 构造客户端请求，携带 X-Forwarded-For 以避免依赖真实的远端地址
+	 */
+	public static FullHttpRequest newRequest() {
+		FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, URI, Unpooled.EMPTY_BUFFER);
+		request.headers()
+				.set(GatewayConst.UNIQUE_ID, UNIQUE_ID)
+				.set(HttpHeaderNames.HOST, "127.0.0.1:8888")
+				.set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON)
+				.set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE)
+				.set(BasicConst.HTTP_FORWARD_SEPARATOR, "192.168.1.10, 10.0.0.1");
+		return request;
+	}
+
+	/**
+	 * 基于 EmbeddedChannel 的 ChannelHandlerContext，不需要真实的网络连接
+	 */
+	public static ChannelHandlerContext newChannelContext() {
+		EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+		return channel.pipeline().firstContext();
+	}
+}
@@ -0,0 +1,73 @@
+package com.yu.gateway.benchmark;
+
+import com.yu.gateway.core.filter.flow.FlowAlgorithmConstant;
+import com.yu.gateway.core.filter.flow.GuavaCountLimiter;
+import com.yu.gateway.core.filter.flow.local.LocalFlowControlEngine;
+import com.yu.gateway.core.filter.flow.local.LocalRateLimiter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author yu
+ * 单机限流基准测试：对比 Guava RateLimiter 与本地限流引擎（令牌桶、固定窗口、滑动窗口）在高并发下的获取许可耗时
+ * 运行：java -jar benchmarks.jar FlowControlBenchmark -prof gc
+ * @date 2024-05-26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlowControlBenchmark {
+
+	private static final String KEY = BenchmarkFixtures.SERVICE_ID + "." + BenchmarkFixtures.PATH;
+
+	private static final String GUAVA = "guava";
+
+	/**
+	 * 足够大的速率，避免测量被限流结果影响
+	 */
+	private static final double RATE = 1_000_000_000D;
+
+	@Param({GUAVA, FlowAlgorithmConstant.VOTE_BUCKET_ALGORITHM, FlowAlgorithmConstant.FIXED_WINDOWS_ALGORITHM,
+			FlowAlgorithmConstant.MOVE_WINDOWS_ALGORITHM})
+	public String algorithm;
+
+	private LocalRateLimiter localLimiter;
+
+	@Setup
+	public void setup() {
+		if (!GUAVA.equals(algorithm)) {
+			localLimiter = LocalFlowControlEngine.getInstance().getLimiter(KEY + "." + algorithm, algorithm, RATE, 1);
+		}
+	}
+
+	@Benchmark
+	public boolean acquire() {
+		return doAcquire();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public boolean acquireConcurrent() {
+		return doAcquire();
+	}
+
+	@Benchmark
+	@Threads(64)
+	public boolean acquireHighContention() {
+		return doAcquire();
+	}
+
+	/**
+	 * Guava 按原有方式每次请求查找限流器，本地限流器在构建过滤器链时已解析
+	 */
+	private boolean doAcquire() {
+		if (localLimiter == null) {
+			return GuavaCountLimiter.getInstance(KEY, RATE).acquire(1);
+		}
+		return localLimiter.tryAcquire();
+	}
+}
@@ -0,0 +1,58 @@
+package com.yu.gateway.benchmark;
+
+import com.yu.gateway.common.config.ServiceInstance;
+import com.yu.gateway.common.constant.FilterConst;
+import com.yu.gateway.core.filter.loadBalance.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author yu
+ * 负载均衡策略基准测试，对比不同实例数量下各策略的耗时与分配
+ * 运行：java -jar benchmarks.jar LoadBalanceBenchmark -prof gc
+ * @date 2024-05-26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadBalanceBenchmark {
+
+	@Param({FilterConst.LOAD_BALANCE_STRATEGY_RANDOM, FilterConst.LOAD_BALANCE_STRATEGY_ROUND_ROBIN, FilterConst.LOAD_BALANCE_STRATEGY_WEIGHT_RANDOM,
+			FilterConst.LOAD_BALANCE_STRATEGY_SMOOTH_WEIGHTED_ROUND_ROBIN, FilterConst.LOAD_BALANCE_STRATEGY_LEAST_REQUESTS,
+			FilterConst.LOAD_BALANCE_STRATEGY_P2C_EWMA, FilterConst.LOAD_BALANCE_STRATEGY_CONSISTENT_HASH})
+	public String strategy;
+
+	@Param({"4", "64"})
+	public int instances;
+
+	private LoadBalanceRule rule;
+
+	@Setup
+	public void setup() {
+		BenchmarkFixtures.registerService(instances);
+		rule = switch (strategy) {
+			case FilterConst.LOAD_BALANCE_STRATEGY_ROUND_ROBIN -> RoundRobinLoadBalanceRule.getInstance(BenchmarkFixtures.SERVICE_ID);
+			case FilterConst.LOAD_BALANCE_STRATEGY_WEIGHT_RANDOM -> WeightedRoundRobinLoadBalanceRule.getInstance(BenchmarkFixtures.SERVICE_ID);
+			case FilterConst.LOAD_BALANCE_STRATEGY_SMOOTH_WEIGHTED_ROUND_ROBIN -> SmoothWeightedRoundRobinLoadBalanceRule.getInstance(BenchmarkFixtures.SERVICE_ID);
+			case FilterConst.LOAD_BALANCE_STRATEGY_LEAST_REQUESTS -> LeastRequestsLoadBalanceRule.getInstance(BenchmarkFixtures.SERVICE_ID);
+			case FilterConst.LOAD_BALANCE_STRATEGY_P2C_EWMA -> P2CEwmaLoadBalanceRule.getInstance(BenchmarkFixtures.SERVICE_ID);
+			case FilterConst.LOAD_BALANCE_STRATEGY_CONSISTENT_HASH -> ConsistentHashLoadBalanceRule.getInstance(BenchmarkFixtures.SERVICE_ID);
+			default -> RandomLoadBalanceRule.getInstance(BenchmarkFixtures.SERVICE_ID);
+		};
+	}
+
+	@Benchmark
+	public ServiceInstance choose() {
+		return rule.chooseByServiceId(BenchmarkFixtures.UNIQUE_ID, false);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public ServiceInstance chooseConcurrent() {
+		return rule.chooseByServiceId(BenchmarkFixtures.UNIQUE_ID, false);
+	}
+}
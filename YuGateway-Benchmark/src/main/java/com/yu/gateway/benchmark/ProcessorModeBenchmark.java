@@ -0,0 +1,113 @@
+package com.yu.gateway.benchmark;
+
+import com.yu.gateway.common.constant.GatewayConst;
+import com.yu.gateway.core.Config;
+import com.yu.gateway.core.context.HttpRequestWrapper;
+import com.yu.gateway.core.netty.processor.DisruptorNettyCoreProcessor;
+import com.yu.gateway.core.netty.processor.NettyCoreProcessor;
+import com.yu.gateway.core.netty.processor.NettyProcessor;
+import com.yu.gateway.core.netty.processor.VirtualThreadNettyCoreProcessor;
+import io.netty.handler.codec.http.FullHttpRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author yu
+ * 请求处理模式基准测试：对比直接处理、Disruptor 队列与虚拟线程三种模式在阻塞过滤器下的吞吐量
+ * 过滤器链替换为固定耗时的阻塞操作（模拟通过 JedisUtil 访问 Redis），每次调用提交一批请求并等待全部完成
+ * 运行：java -jar benchmarks.jar ProcessorModeBenchmark
+ * @date 2024-05-26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProcessorModeBenchmark {
+
+	/**
+	 * 每次调用提交的请求数
+	 */
+	private static final int BATCH = 512;
+
+	private static final String MODE_DIRECT = "direct";
+
+	@Param({MODE_DIRECT, GatewayConst.BUFFER_TYPE_PARALLEL, GatewayConst.BUFFER_TYPE_VIRTUAL})
+	public String mode;
+
+	/**
+	 * 过滤器阻塞耗时（微秒）
+	 */
+	@Param({"200", "2000"})
+	public int blockingMicros;
+
+	private BlockingCoreProcessor coreProcessor;
+
+	private NettyProcessor processor;
+
+	private FullHttpRequest request;
+
+	@Setup
+	public void setup() {
+		BenchmarkFixtures.registerService(4);
+		request = BenchmarkFixtures.newRequest();
+
+		Config config = new Config();
+		config.setVirtualThreadMaxConcurrency(BATCH * 4);
+		config.setVirtualThreadServiceConcurrency(BATCH * 2);
+
+		coreProcessor = new BlockingCoreProcessor(TimeUnit.MICROSECONDS.toNanos(blockingMicros));
+		processor = switch (mode) {
+			case GatewayConst.BUFFER_TYPE_PARALLEL -> new DisruptorNettyCoreProcessor(config, coreProcessor);
+			case GatewayConst.BUFFER_TYPE_VIRTUAL -> new VirtualThreadNettyCoreProcessor(config, coreProcessor);
+			default -> coreProcessor;
+		};
+		processor.start();
+	}
+
+	@TearDown
+	public void tearDown() {
+		processor.shutDown();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void processBatch() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(BATCH);
+		coreProcessor.latch = latch;
+		for (int i = 0; i < BATCH; i++) {
+			HttpRequestWrapper wrapper = new HttpRequestWrapper();
+			wrapper.setRequest(request);
+			processor.process(wrapper);
+		}
+		latch.await();
+	}
+
+	/**
+	 * 以固定耗时的阻塞操作代替过滤器链，完成后计数
+	 * 覆盖带完成回调的 process，单参数版本与虚拟线程模式都会调用到这里；先释放并发许可再计数，下一批请求不会被拒绝
+	 */
+	private static class BlockingCoreProcessor extends NettyCoreProcessor {
+
+		private final long blockingNanos;
+
+		private volatile CountDownLatch latch;
+
+		private BlockingCoreProcessor(long blockingNanos) {
+			this.blockingNanos = blockingNanos;
+		}
+
+		@Override
+		public void process(HttpRequestWrapper wrapper, Runnable onCompleted) {
+			LockSupport.parkNanos(blockingNanos);
+			if (onCompleted != null) {
+				onCompleted.run();
+			}
+			latch.countDown();
+		}
+	}
+}
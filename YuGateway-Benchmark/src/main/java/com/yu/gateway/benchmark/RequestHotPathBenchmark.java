@@ -0,0 +1,76 @@
+package com.yu.gateway.benchmark;
+
+import com.yu.gateway.core.context.GatewayContext;
+import com.yu.gateway.core.filter.GatewayFilterChain;
+import com.yu.gateway.core.filter.GatewayFilterChainFactory;
+import com.yu.gateway.core.helper.RequestHelper;
+import com.yu.gateway.core.request.GatewayRequest;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import org.asynchttpclient.Request;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author yu
+ * 请求热路径基准测试：网关上下文构造、GatewayRequest 构造（QueryStringDecoder、RequestBuilder）、
+ * 下游请求构造以及过滤器链获取
+ * 运行：java -jar benchmarks.jar RequestHotPathBenchmark -prof gc
+ * @date 2024-05-26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestHotPathBenchmark {
+
+	private ChannelHandlerContext channelContext;
+
+	private FullHttpRequest request;
+
+	private GatewayContext gatewayContext;
+
+	@Setup
+	public void setup() {
+		BenchmarkFixtures.registerService(16);
+		channelContext = BenchmarkFixtures.newChannelContext();
+		request = BenchmarkFixtures.newRequest();
+		gatewayContext = RequestHelper.doContext(request, channelContext);
+	}
+
+	@Benchmark
+	public GatewayContext doContext() {
+		return RequestHelper.doContext(request, channelContext);
+	}
+
+	@Benchmark
+	public GatewayRequest newGatewayRequest() {
+		return newGatewayRequest(request);
+	}
+
+	/**
+	 * GatewayRequest.build 会向请求头追加 userId，每次调用使用新的请求避免请求头不断增长
+	 */
+	@Benchmark
+	public Request buildUpstreamRequest() {
+		GatewayRequest gatewayRequest = newGatewayRequest(BenchmarkFixtures.newRequest());
+		gatewayRequest.setModifyHost("10.0.0.1:8080");
+		return gatewayRequest.build();
+	}
+
+	@Benchmark
+	public GatewayFilterChain buildFilterChain() throws Exception {
+		return GatewayFilterChainFactory.getInstance().buildFilterChain(gatewayContext);
+	}
+
+	private static GatewayRequest newGatewayRequest(FullHttpRequest request) {
+		return new GatewayRequest(BenchmarkFixtures.UNIQUE_ID, StandardCharsets.UTF_8, "192.168.1.10", "127.0.0.1:8888",
+				request.uri(), HttpMethod.GET, HttpHeaderValues.APPLICATION_JSON.toString(), request.headers(), request);
+	}
+}
@@ -0,0 +1,77 @@
+package com.yu.gateway.benchmark;
+
+import com.yu.gateway.common.enums.ResponseCode;
+import com.yu.gateway.core.context.GatewayContext;
+import com.yu.gateway.core.helper.RequestHelper;
+import com.yu.gateway.core.helper.ResponseHelper;
+import com.yu.gateway.core.response.GatewayResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.handler.codec.http.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author yu
+ * 响应构造基准测试：错误响应、网关响应对象以及转发下游响应的 FullHttpResponse 构造
+ * 运行：java -jar benchmarks.jar ResponseBenchmark -prof gc
+ * @date 2024-05-26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseBenchmark {
+
+	@Param({"256", "16384"})
+	public int bodySize;
+
+	private GatewayContext gatewayContext;
+
+	private byte[] body;
+
+	@Setup
+	public void setup() {
+		BenchmarkFixtures.registerService(4);
+		gatewayContext = RequestHelper.doContext(BenchmarkFixtures.newRequest(), BenchmarkFixtures.newChannelContext());
+		body = new byte[bodySize];
+		for (int i = 0; i < bodySize; i++) {
+			body[i] = (byte) ('a' + i % 26);
+		}
+	}
+
+	@Benchmark
+	public FullHttpResponse errorResponse() {
+		return ResponseHelper.getHttpResponse(ResponseCode.SERVICE_UNAVAILABLE);
+	}
+
+	@Benchmark
+	public GatewayResponse buildErrorGatewayResponse() {
+		return GatewayResponse.buildGatewayResponse(ResponseCode.REQUEST_TIMEOUT);
+	}
+
+	@Benchmark
+	public GatewayResponse buildDataGatewayResponse() {
+		return GatewayResponse.buildGatewayResponse(new String(body, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * 模拟下游响应转发：池化 ByteBuf 响应体 + 下游响应头，构造后释放响应体
+	 */
+	@Benchmark
+	public int relayResponse() {
+		ByteBuf content = PooledByteBufAllocator.DEFAULT.directBuffer(bodySize).writeBytes(body);
+		HttpHeaders headers = new DefaultHttpHeaders()
+				.set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON)
+				.set(HttpHeaderNames.CONTENT_LENGTH, bodySize);
+		GatewayResponse response = GatewayResponse.buildGatewayResponse(HttpResponseStatus.OK, headers, content);
+		FullHttpResponse httpResponse = ResponseHelper.getHttpResponse(gatewayContext, response);
+		int readable = httpResponse.content().readableBytes();
+		httpResponse.release();
+		return readable;
+	}
+}
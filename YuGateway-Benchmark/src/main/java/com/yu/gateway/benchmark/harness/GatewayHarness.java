@@ -0,0 +1,101 @@
+package com.yu.gateway.benchmark.harness;
+
+import com.yu.gateway.benchmark.BenchmarkFixtures;
+import com.yu.gateway.common.config.ServiceDefinition;
+import com.yu.gateway.common.config.ServiceInstance;
+import com.yu.gateway.common.constant.BasicConst;
+import com.yu.gateway.common.constant.GatewayConst;
+import com.yu.gateway.core.BootStrap;
+import com.yu.gateway.core.Config;
+import com.yu.gateway.core.ConfigLoader;
+import com.yu.gateway.core.Container;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author yu
+ * 单机端到端压测入口，不依赖 Nacos、Redis 与后端 Spring Boot 服务：
+ * 1.启动若干 Netty 桩服务作为下游实例；
+ * 2.使用内存配置中心、内存注册中心启动网关容器，规则与实例的推送路径与生产环境一致；
+ * 3.开环压测客户端按固定速率发起请求，输出吞吐、单核吞吐与延迟分位数。
+ * 运行：java -cp YuGateway-Benchmark/target/benchmarks.jar com.yu.gateway.benchmark.harness.GatewayHarness
+ *      --harness.rate=20000 --harness.latencyMicros=2000 --bufferType=virtual
+ * 对比上游协议时分别使用 --harness.upstreamProtocol=http1 与 --harness.upstreamProtocol=h2c 运行，比较延迟分位数与桩服务连接数。
+ * 测量单核容量时建议用 taskset 将网关与压测客户端绑定到不同的核，并通过 --eventLoopGroupWorkerNum 指定网关线程数。
+ * @date 2024-05-27
+ */
+@Slf4j
+public class GatewayHarness {
+
+	public static void main(String[] args) throws Exception {
+		HarnessOptions options = HarnessOptions.parse(args);
+		Config config = ConfigLoader.getInstance().load(args);
+
+		// 启动桩服务
+		StubUpstream.Profile profile = StubUpstream.Profile.builder()
+				.latencyMicros(options.getLatencyMicros())
+				.latencyJitterMicros(options.getLatencyJitterMicros())
+				.responseSize(options.getResponseSize())
+				.errorRate(options.getErrorRate())
+				.threads(options.getUpstreamThreads())
+				.h2c(GatewayConst.UPSTREAM_PROTOCOL_H2C.equalsIgnoreCase(options.getUpstreamProtocol()))
+				.build();
+		List<StubUpstream> upstreams = new ArrayList<>(options.getUpstreams());
+		for (int i = 0; i < options.getUpstreams(); i++) {
+			StubUpstream upstream = new StubUpstream(options.getUpstreamPort() + i, profile);
+			upstream.start();
+			upstreams.add(upstream);
+		}
+
+		// 配置中心推送规则
+		InMemoryConfigCenter configCenter = new InMemoryConfigCenter();
+		BootStrap.subscribeRulesChange(config, configCenter);
+		configCenter.publish(List.of(BenchmarkFixtures.newRule(options.getLoadBalance())));
+
+		// 启动网关容器
+		Container container = new Container(config);
+		container.start();
+
+		// 注册中心注册网关与桩服务实例
+		InMemoryRegisterCenter registerCenter = new InMemoryRegisterCenter();
+		BootStrap.registerAndSubscribe(config, registerCenter);
+		ServiceDefinition definition = BenchmarkFixtures.newServiceDefinition();
+		definition.setUpstreamProtocol(options.getUpstreamProtocol());
+		definition.setUpstreamConnections(options.getUpstreamConnections());
+		for (StubUpstream upstream : upstreams) {
+			registerCenter.register(definition, newInstance(upstream.getPort()));
+		}
+
+		LoadGenerator generator = new LoadGenerator("127.0.0.1", config.getPort(), BenchmarkFixtures.URI,
+				Map.of(GatewayConst.UNIQUE_ID, BenchmarkFixtures.UNIQUE_ID), options.getConnections(), options.getRate());
+		try {
+			generator.connect(options.getClientThreads());
+			LoadGenerator.Result result = generator.run(options.getWarmupSeconds(), options.getDurationSeconds());
+			result.report(config.getEventLoopGroupWorkerNum());
+			for (StubUpstream upstream : upstreams) {
+				log.info("upstream {} ({}): opened connections {}, open connections {}", upstream.getPort(),
+						options.getUpstreamProtocol(), upstream.getOpenedConnections(), upstream.getOpenConnections());
+			}
+		} finally {
+			generator.shutdown();
+			container.shutdown();
+			upstreams.forEach(StubUpstream::shutdown);
+		}
+		System.exit(0);
+	}
+
+	private static ServiceInstance newInstance(int port) {
+		ServiceInstance instance = new ServiceInstance();
+		instance.setIp("127.0.0.1");
+		instance.setPort(port);
+		instance.setServiceInstanceId(instance.getIp() + BasicConst.COLON_SEPARATOR + port);
+		instance.setUniqueId(BenchmarkFixtures.UNIQUE_ID);
+		instance.setVersion(GatewayConst.DEFAULT_VERSION);
+		instance.setWeight(GatewayConst.DEFAULT_WEIGHT);
+		instance.setRegisterTime(System.currentTimeMillis());
+		return instance;
+	}
+}
@@ -0,0 +1,79 @@
+package com.yu.gateway.benchmark.harness;
+
+import com.yu.gateway.common.constant.FilterConst;
+import com.yu.gateway.common.constant.GatewayConst;
+import com.yu.gateway.common.utils.PropertiesUtils;
+import lombok.Data;
+
+import java.util.Properties;
+
+/**
+ * @author yu
+ * @description 压测参数，通过 --harness.xxx=value 运行参数指定，其余 --xxx=value 参数仍作为网关配置
+ * @date 2024-05-27
+ */
+@Data
+public class HarnessOptions {
+	private static final String PREFIX = "harness.";
+
+	/**
+	 * 目标请求速率（次/秒）
+	 */
+	private int rate = 10000;
+
+	/**
+	 * 压测客户端连接数
+	 */
+	private int connections = 64;
+
+	/**
+	 * 压测客户端 IO 线程数
+	 */
+	private int clientThreads = 2;
+
+	private int warmupSeconds = 10;
+
+	private int durationSeconds = 30;
+
+	/**
+	 * 桩服务实例数及起始端口
+	 */
+	private int upstreams = 2;
+	private int upstreamPort = 19000;
+
+	/**
+	 * 桩服务 IO 线程数
+	 */
+	private int upstreamThreads = 1;
+
+	/**
+	 * 网关到桩服务的协议 http1 / h2c，以及 h2c 时每个实例的连接数（0 使用网关默认配置）
+	 */
+	private String upstreamProtocol = GatewayConst.UPSTREAM_PROTOCOL_HTTP1;
+	private int upstreamConnections = 0;
+
+	/**
+	 * 桩服务响应配置
+	 */
+	private long latencyMicros = 1000;
+	private long latencyJitterMicros = 0;
+	private int responseSize = 256;
+	private double errorRate = 0;
+
+	/**
+	 * 负载均衡策略
+	 */
+	private String loadBalance = FilterConst.LOAD_BALANCE_STRATEGY_ROUND_ROBIN;
+
+	public static HarnessOptions parse(String[] args) {
+		HarnessOptions options = new HarnessOptions();
+		Properties properties = new Properties();
+		for (String arg : args) {
+			if (arg.startsWith("--" + PREFIX) && arg.contains("=")) {
+				properties.put(arg.substring(2, arg.indexOf("=")), arg.substring(arg.indexOf("=") + 1));
+			}
+		}
+		PropertiesUtils.propertiesToObject(properties, options, PREFIX);
+		return options;
+	}
+}
@@ -0,0 +1,47 @@
+package com.yu.gateway.benchmark.harness;
+
+import com.yu.gateway.common.config.Rule;
+import com.yu.gateway.config.center.api.ConfigCenter;
+import com.yu.gateway.config.center.api.RulesChangeListener;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * @author yu
+ * @description 内存配置中心，规则由压测程序直接推送，不依赖 Nacos
+ * @date 2024-05-27
+ */
+@Slf4j
+public class InMemoryConfigCenter implements ConfigCenter {
+
+	/**
+	 * 规则变更监听器
+	 */
+	private final List<RulesChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * 最近一次推送的规则，新的订阅者会立即收到
+	 */
+	private volatile List<Rule> rules = List.of();
+
+	@Override
+	public void init(String serverAddr, String env) {
+		log.info("in-memory config center init, env: {}", env);
+	}
+
+	@Override
+	public void subscribeRulesChange(RulesChangeListener listener) {
+		listeners.add(listener);
+		listener.onRulesChange(rules);
+	}
+
+	/**
+	 * 推送全量规则，与 Nacos 配置变更的语义一致
+	 */
+	public void publish(List<Rule> rules) {
+		this.rules = List.copyOf(rules);
+		listeners.forEach(listener -> listener.onRulesChange(this.rules));
+	}
+}
@@ -0,0 +1,74 @@
+package com.yu.gateway.benchmark.harness;
+
+import com.yu.gateway.common.config.ServiceDefinition;
+import com.yu.gateway.common.config.ServiceInstance;
+import com.yu.gateway.register.center.api.RegisterCenter;
+import com.yu.gateway.register.center.api.RegisterCenterListener;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * @author yu
+ * @description 内存注册中心，每次注册/注销后向订阅者推送该服务的全量实例，与 Nacos 的通知语义一致
+ * @date 2024-05-27
+ */
+@Slf4j
+public class InMemoryRegisterCenter implements RegisterCenter {
+
+	/**
+	 * 服务定义  服务ID —— 服务定义
+	 */
+	private final Map<String, ServiceDefinition> definitionMap = new HashMap<>();
+
+	/**
+	 * 服务实例  服务ID —— 实例集合
+	 */
+	private final Map<String, Set<ServiceInstance>> instanceMap = new HashMap<>();
+
+	private final List<RegisterCenterListener> listeners = new CopyOnWriteArrayList<>();
+
+	@Override
+	public void init(String registerAddress, String env) {
+		log.info("in-memory register center init, env: {}", env);
+	}
+
+	@Override
+	public synchronized void register(ServiceDefinition serviceDefinition, ServiceInstance serviceInstance) {
+		String serviceId = serviceDefinition.getServiceId();
+		definitionMap.put(serviceId, serviceDefinition);
+		instanceMap.computeIfAbsent(serviceId, key -> new HashSet<>()).add(serviceInstance);
+		notifyListeners(serviceId);
+	}
+
+	@Override
+	public synchronized void deregister(ServiceDefinition serviceDefinition, ServiceInstance serviceInstance) {
+		String serviceId = serviceDefinition.getServiceId();
+		Set<ServiceInstance> instances = instanceMap.get(serviceId);
+		if (instances != null && instances.remove(serviceInstance)) {
+			notifyListeners(serviceId);
+		}
+	}
+
+	@Override
+	public synchronized void subscribeAllServices(RegisterCenterListener registerCenterListener) {
+		listeners.add(registerCenterListener);
+		// 订阅时推送已有服务，对应 Nacos 首次订阅时的回调
+		for (String serviceId : definitionMap.keySet()) {
+			registerCenterListener.onChange(definitionMap.get(serviceId), new HashSet<>(instanceMap.get(serviceId)));
+		}
+	}
+
+	private void notifyListeners(String serviceId) {
+		ServiceDefinition definition = definitionMap.get(serviceId);
+		for (RegisterCenterListener listener : listeners) {
+			// 每个订阅者持有独立的实例集合
+			listener.onChange(definition, new HashSet<>(instanceMap.get(serviceId)));
+		}
+	}
+}
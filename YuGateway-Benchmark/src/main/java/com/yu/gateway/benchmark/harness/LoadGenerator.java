@@ -0,0 +1,285 @@
+package com.yu.gateway.benchmark.harness;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.*;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author yu
+ * 开环压测客户端：
+ * 1.按固定速率计算每个请求的计划发送时间，发送节奏不受响应快慢影响；
+ * 2.延迟从计划发送时间开始计算，连接被占用而排队的时间同样计入，避免协调遗漏（coordinated omission）；
+ * 3.每个连接同一时刻只有一个请求在途（网关不保证流水线响应顺序），多出的请求在连接上排队；
+ * 4.延迟记录在 HdrHistogram 中，输出 p50 ~ p99.99 以及最大值。
+ * @date 2024-05-27
+ */
+@Slf4j
+public class LoadGenerator {
+
+	private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+	private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+	private final String host;
+
+	private final int port;
+
+	private final String uri;
+
+	private final Map<String, String> headers;
+
+	private final int connections;
+
+	private final int rate;
+
+	private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_NANOS, 3);
+
+	private final LongAdder errors = new LongAdder();
+
+	private EventLoopGroup group;
+
+	private List<Connection> connectionList;
+
+	public LoadGenerator(String host, int port, String uri, Map<String, String> headers, int connections, int rate) {
+		this.host = host;
+		this.port = port;
+		this.uri = uri;
+		this.headers = headers;
+		this.connections = connections;
+		this.rate = rate;
+	}
+
+	public void connect(int threads) throws InterruptedException {
+		group = new NioEventLoopGroup(threads, new DefaultThreadFactory("load-generator"));
+		Bootstrap bootstrap = new Bootstrap()
+				.group(group)
+				.channel(NioSocketChannel.class)
+				.option(ChannelOption.TCP_NODELAY, true)
+				.handler(new ChannelInitializer<SocketChannel>() {
+					@Override
+					protected void initChannel(SocketChannel ch) {
+						ch.pipeline()
+								.addLast(new HttpClientCodec())
+								.addLast(new HttpObjectAggregator(64 * 1024 * 1024));
+					}
+				});
+
+		connectionList = new ArrayList<>(connections);
+		for (int i = 0; i < connections; i++) {
+			Channel channel = bootstrap.connect(host, port).sync().channel();
+			Connection connection = new Connection(channel);
+			channel.pipeline().addLast(connection);
+			connectionList.add(connection);
+		}
+	}
+
+	/**
+	 * 按固定速率发送请求
+	 *
+	 * @param warmupSeconds  预热时间，期间的延迟不计入结果
+	 * @param durationSeconds 测量时间
+	 */
+	public Result run(int warmupSeconds, int durationSeconds) {
+		long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+		long start = System.nanoTime();
+		long warmupEnd = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+		long end = warmupEnd + TimeUnit.SECONDS.toNanos(durationSeconds);
+		long nextReport = start + TimeUnit.SECONDS.toNanos(1);
+
+		Histogram total = warmupSeconds > 0 ? null : new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+		Histogram interval = null;
+		long errorsBefore = 0;
+		long sent = 0;
+
+		while (true) {
+			long now = System.nanoTime();
+			if (now >= end) {
+				break;
+			}
+			// 补发到当前时刻为止所有应发出的请求，调度抖动不会降低实际速率
+			long due = (now - start) / intervalNanos;
+			while (sent <= due) {
+				long intended = start + sent * intervalNanos;
+				connectionList.get((int) (sent % connections)).submit(intended);
+				sent++;
+			}
+
+			if (now >= nextReport) {
+				interval = recorder.getIntervalHistogram(interval);
+				if (total == null && now >= warmupEnd) {
+					// 预热结束，丢弃之前的记录
+					total = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+					errorsBefore = errors.sum();
+				} else if (total != null) {
+					total.add(interval);
+				}
+				log.info("{} {} req/s, p99 {} us, errors {}", total == null ? "[warmup]" : "[measure]",
+						interval.getTotalCount(), interval.getValueAtPercentile(99) / 1000, errors.sum());
+				nextReport += TimeUnit.SECONDS.toNanos(1);
+			}
+			LockSupport.parkNanos(Math.min(intervalNanos, TimeUnit.MICROSECONDS.toNanos(100)));
+		}
+
+		// 等待在途请求完成，最长一秒
+		long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+		while (System.nanoTime() < drainDeadline && connectionList.stream().anyMatch(Connection::isBusy)) {
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+		}
+		if (total == null) {
+			total = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+		}
+		total.add(recorder.getIntervalHistogram());
+		return new Result(total, errors.sum() - errorsBefore, durationSeconds);
+	}
+
+	public void shutdown() {
+		if (group != null) {
+			group.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * 单个连接，所有状态只在该连接的事件循环线程中访问
+	 */
+	private class Connection extends SimpleChannelInboundHandler<FullHttpResponse> {
+
+		private final Channel channel;
+
+		/**
+		 * 等待发送的请求的计划发送时间
+		 */
+		private final ArrayDeque<Long> pending = new ArrayDeque<>();
+
+		/**
+		 * 在途请求的计划发送时间，0 表示空闲
+		 */
+		private long inFlight;
+
+		private volatile boolean busy;
+
+		private Connection(Channel channel) {
+			this.channel = channel;
+		}
+
+		private void submit(long intended) {
+			channel.eventLoop().execute(() -> {
+				if (inFlight == 0) {
+					send(intended);
+				} else {
+					pending.addLast(intended);
+				}
+			});
+		}
+
+		private void send(long intended) {
+			inFlight = intended;
+			busy = true;
+			FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri, Unpooled.EMPTY_BUFFER);
+			headers.forEach(request.headers()::set);
+			request.headers()
+					.set(HttpHeaderNames.HOST, host + ":" + port)
+					.set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+			HttpUtil.setContentLength(request, 0);
+			channel.writeAndFlush(request);
+		}
+
+		@Override
+		protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse response) {
+			recorder.recordValue(Math.min(System.nanoTime() - inFlight, HIGHEST_TRACKABLE_NANOS));
+			if (response.status().code() >= 400) {
+				errors.increment();
+			}
+			next();
+		}
+
+		private void next() {
+			Long intended = pending.pollFirst();
+			if (intended == null) {
+				inFlight = 0;
+				busy = false;
+			} else {
+				send(intended);
+			}
+		}
+
+		@Override
+		public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+			log.warn("load generator connection error: {}", cause.toString());
+			ctx.close();
+		}
+
+		@Override
+		public void channelInactive(ChannelHandlerContext ctx) {
+			// 连接断开后排队中的请求全部计为错误
+			errors.add(pending.size() + (inFlight == 0 ? 0 : 1));
+			pending.clear();
+			inFlight = 0;
+			busy = false;
+		}
+
+		private boolean isBusy() {
+			return busy;
+		}
+	}
+
+	/**
+	 * 压测结果
+	 */
+	public static class Result {
+
+		private final Histogram histogram;
+
+		private final long errors;
+
+		private final int durationSeconds;
+
+		private Result(Histogram histogram, long errors, int durationSeconds) {
+			this.histogram = histogram;
+			this.errors = errors;
+			this.durationSeconds = durationSeconds;
+		}
+
+		public double getThroughput() {
+			return (double) histogram.getTotalCount() / durationSeconds;
+		}
+
+		/**
+		 * 输出结果
+		 *
+		 * @param cores 网关使用的核数，用于计算单核吞吐
+		 */
+		public void report(int cores) {
+			StringBuilder builder = new StringBuilder();
+			builder.append(String.format("%n  requests      %d%n", histogram.getTotalCount()));
+			builder.append(String.format("  errors        %d%n", errors));
+			builder.append(String.format("  throughput    %.1f req/s%n", getThroughput()));
+			builder.append(String.format("  per core      %.1f req/s (%d cores)%n", getThroughput() / cores, cores));
+			for (double percentile : PERCENTILES) {
+				builder.append(String.format("  p%-11s %.3f ms%n", percentile, histogram.getValueAtPercentile(percentile) / 1e6));
+			}
+			builder.append(String.format("  max           %.3f ms", histogram.getMaxValue() / 1e6));
+			log.info("load test result:{}", builder);
+		}
+	}
+}
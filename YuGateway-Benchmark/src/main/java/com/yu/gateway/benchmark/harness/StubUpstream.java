@@ -0,0 +1,243 @@
+package com.yu.gateway.benchmark.harness;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.*;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author yu
+ * 基于 Netty 的桩服务，模拟下游服务：
+ * 1.响应延迟通过事件循环的定时任务实现，不阻塞 IO 线程；
+ * 2.响应体为预先分配的固定大小内容，写出时只复制引用；
+ * 3.按配置的比例返回 500 错误；
+ * 4.可以以 h2c（prior knowledge）方式提供服务，并统计建立过的连接数与当前连接数。
+ * @date 2024-05-27
+ */
+@Slf4j
+public class StubUpstream {
+
+	private final int port;
+
+	private final Profile profile;
+
+	/**
+	 * 预先分配的响应体，所有响应共享
+	 */
+	private final ByteBuf payload;
+
+	private EventLoopGroup bossGroup;
+
+	private EventLoopGroup workerGroup;
+
+	private Channel serverChannel;
+
+	private final ConnectionCounter connectionCounter = new ConnectionCounter();
+
+	public StubUpstream(int port, Profile profile) {
+		this.port = port;
+		this.profile = profile;
+		byte[] content = new byte[profile.getResponseSize()];
+		Arrays.fill(content, (byte) 'x');
+		this.payload = Unpooled.unreleasableBuffer(Unpooled.directBuffer(content.length).writeBytes(content));
+	}
+
+	public void start() throws InterruptedException {
+		bossGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("stub-boss-" + port));
+		workerGroup = new NioEventLoopGroup(profile.getThreads(), new DefaultThreadFactory("stub-worker-" + port));
+		serverChannel = new ServerBootstrap()
+				.group(bossGroup, workerGroup)
+				.channel(NioServerSocketChannel.class)
+				.option(ChannelOption.SO_BACKLOG, 1024)
+				.childOption(ChannelOption.TCP_NODELAY, true)
+				.childHandler(new ChannelInitializer<SocketChannel>() {
+					@Override
+					protected void initChannel(SocketChannel ch) {
+						ch.pipeline().addLast(connectionCounter);
+						if (profile.isH2c()) {
+							ch.pipeline()
+									.addLast(Http2FrameCodecBuilder.forServer().build())
+									.addLast(new Http2MultiplexHandler(new ChannelInitializer<Channel>() {
+										@Override
+										protected void initChannel(Channel stream) {
+											stream.pipeline()
+													.addLast(new Http2StreamFrameToHttpObjectCodec(true))
+													.addLast(new HttpObjectAggregator(1024 * 1024))
+													.addLast(new StubHandler());
+										}
+									}));
+						} else {
+							ch.pipeline()
+									.addLast(new HttpServerCodec())
+									.addLast(new HttpObjectAggregator(1024 * 1024))
+									.addLast(new StubHandler());
+						}
+					}
+				})
+				.bind(port).sync().channel();
+		log.info("stub upstream started on port {}, profile: {}", port, profile);
+	}
+
+	public void shutdown() {
+		if (serverChannel != null) {
+			serverChannel.close().syncUninterruptibly();
+		}
+		if (bossGroup != null) {
+			bossGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+		}
+		if (workerGroup != null) {
+			workerGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+		}
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	/**
+	 * 启动以来建立过的连接数
+	 */
+	public int getOpenedConnections() {
+		return connectionCounter.opened.get();
+	}
+
+	/**
+	 * 当前打开的连接数
+	 */
+	public int getOpenConnections() {
+		return connectionCounter.open.get();
+	}
+
+	/**
+	 * 桩服务响应配置
+	 */
+	@Getter
+	@Builder
+	public static class Profile {
+		/**
+		 * 固定延迟（微秒）
+		 */
+		private final long latencyMicros;
+
+		/**
+		 * 在固定延迟之上附加的随机延迟上限（微秒）
+		 */
+		private final long latencyJitterMicros;
+
+		/**
+		 * 响应体大小（字节）
+		 */
+		private final int responseSize;
+
+		/**
+		 * 返回 500 的比例 [0, 1]
+		 */
+		private final double errorRate;
+
+		/**
+		 * IO 线程数
+		 */
+		private final int threads;
+
+		/**
+		 * 是否以 h2c 方式提供服务
+		 */
+		private final boolean h2c;
+
+		@Override
+		public String toString() {
+			return "latency=" + latencyMicros + "us+" + latencyJitterMicros + "us, size=" + responseSize
+					+ "B, errorRate=" + errorRate + ", threads=" + threads + ", h2c=" + h2c;
+		}
+	}
+
+	@ChannelHandler.Sharable
+	private static class ConnectionCounter extends ChannelInboundHandlerAdapter {
+
+		private final AtomicInteger opened = new AtomicInteger();
+
+		private final AtomicInteger open = new AtomicInteger();
+
+		@Override
+		public void channelActive(ChannelHandlerContext ctx) throws Exception {
+			opened.incrementAndGet();
+			open.incrementAndGet();
+			super.channelActive(ctx);
+		}
+
+		@Override
+		public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+			open.decrementAndGet();
+			super.channelInactive(ctx);
+		}
+	}
+
+	private class StubHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+
+		@Override
+		protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+			boolean keepAlive = HttpUtil.isKeepAlive(request);
+			long delay = profile.getLatencyMicros();
+			if (profile.getLatencyJitterMicros() > 0) {
+				delay += ThreadLocalRandom.current().nextLong(profile.getLatencyJitterMicros() + 1);
+			}
+
+			if (delay <= 0) {
+				write(ctx, keepAlive);
+			} else {
+				ctx.executor().schedule(() -> write(ctx, keepAlive), delay, TimeUnit.MICROSECONDS);
+			}
+		}
+
+		private void write(ChannelHandlerContext ctx, boolean keepAlive) {
+			FullHttpResponse response;
+			if (profile.getErrorRate() > 0 && ThreadLocalRandom.current().nextDouble() < profile.getErrorRate()) {
+				response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.INTERNAL_SERVER_ERROR, Unpooled.EMPTY_BUFFER);
+			} else {
+				response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, payload.duplicate());
+				response.headers().set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.APPLICATION_JSON);
+			}
+			HttpUtil.setContentLength(response, response.content().readableBytes());
+
+			if (profile.isH2c()) {
+				// HTTP/2 不允许连接级头部，写完响应即结束流
+				ctx.writeAndFlush(response);
+			} else if (keepAlive) {
+				response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+				ctx.writeAndFlush(response);
+			} else {
+				ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+			}
+		}
+
+		@Override
+		public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+			log.warn("stub upstream channel error: {}", cause.toString());
+			ctx.close();
+		}
+	}
+}
@@ -5,6 +5,7 @@ import org.apache.commons.collections.CollectionUtils;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
 /**
@@ -25,6 +26,21 @@ public class DynamicConfigManager {
      */
     private ConcurrentHashMap<String, Set<ServiceInstance>> serviceInstanceMap = new ConcurrentHashMap<>();
 
+    /**
+     * 服务实例快照     uniqueId —> ServiceInstanceSnapshot，实例变更时重建
+     */
+    private ConcurrentHashMap<String, ServiceInstanceSnapshot> instanceSnapshotMap = new ConcurrentHashMap<>();
+
+    /**
+     * 灰度服务实例快照  uniqueId —> ServiceInstanceSnapshot，实例变更时重建
+     */
+    private ConcurrentHashMap<String, ServiceInstanceSnapshot> grayInstanceSnapshotMap = new ConcurrentHashMap<>();
+
+    /**
+     * 服务实例下线监听器
+     */
+    private final List<ServiceInstanceRemovedListener> instanceRemovedListeners = new CopyOnWriteArrayList<>();
+
     /**
      * 规则集合         ruleId —> Rule
      */
@@ -41,6 +57,11 @@ public class DynamicConfigManager {
      */
     private ConcurrentHashMap<String, List<Rule>> serviceRuleMap = new ConcurrentHashMap<>();
 
+    /**
+     * 路由索引集合     serviceId——>RouteIndex，规则变更时整体替换
+     */
+    private volatile Map<String, RouteIndex> routeIndexMap = Collections.emptyMap();
+
     public DynamicConfigManager() {
     }
 
@@ -69,10 +90,69 @@ public class DynamicConfigManager {
     public void putServiceInstance(String uniqueId, ServiceInstance instance) {
         Set<ServiceInstance> instanceSet = serviceInstanceMap.get(uniqueId);
         instanceSet.add(instance);
+        refreshInstanceSnapshot(uniqueId);
     }
 
     public void putServiceInstance(String uniqueId, Set<ServiceInstance> instanceSet) {
         serviceInstanceMap.put(uniqueId, instanceSet);
+        refreshInstanceSnapshot(uniqueId);
+    }
+
+    /**
+     * 获取服务实例快照，负载均衡选择实例时使用
+     */
+    public ServiceInstanceSnapshot getServiceInstanceSnapshot(String uniqueId, boolean gray) {
+        ServiceInstanceSnapshot snapshot = gray ? grayInstanceSnapshotMap.get(uniqueId) : instanceSnapshotMap.get(uniqueId);
+        return snapshot == null ? ServiceInstanceSnapshot.EMPTY : snapshot;
+    }
+
+    /**
+     * 注册服务实例下线监听器
+     */
+    public void addInstanceRemovedListener(ServiceInstanceRemovedListener listener) {
+        instanceRemovedListeners.add(listener);
+    }
+
+    /**
+     * 根据当前实例集合重建快照，加锁保证最后发布的快照与最后一次变更一致，并通知下线的实例
+     */
+    private synchronized void refreshInstanceSnapshot(String uniqueId) {
+        Set<ServiceInstance> instanceSet = serviceInstanceMap.get(uniqueId);
+        ServiceInstanceSnapshot previous;
+        ServiceInstanceSnapshot current;
+        if (instanceSet == null) {
+            previous = instanceSnapshotMap.remove(uniqueId);
+            grayInstanceSnapshotMap.remove(uniqueId);
+            current = ServiceInstanceSnapshot.EMPTY;
+        } else {
+            current = ServiceInstanceSnapshot.of(instanceSet);
+            previous = instanceSnapshotMap.put(uniqueId, current);
+            grayInstanceSnapshotMap.put(uniqueId, ServiceInstanceSnapshot.of(instanceSet, ServiceInstance::isGray));
+        }
+        notifyInstanceRemoved(uniqueId, previous, current);
+    }
+
+    private void notifyInstanceRemoved(String uniqueId, ServiceInstanceSnapshot previous, ServiceInstanceSnapshot current) {
+        if (previous == null || previous.isEmpty() || instanceRemovedListeners.isEmpty()) {
+            return;
+        }
+        Set<String> currentIds = new HashSet<>(current.size() * 2);
+        for (int i = 0; i < current.size(); i++) {
+            currentIds.add(current.get(i).getServiceInstanceId());
+        }
+        Set<String> removedIds = new HashSet<>();
+        for (int i = 0; i < previous.size(); i++) {
+            String id = previous.get(i).getServiceInstanceId();
+            if (!currentIds.contains(id)) {
+                removedIds.add(id);
+            }
+        }
+        if (removedIds.isEmpty()) {
+            return;
+        }
+        for (ServiceInstanceRemovedListener listener : instanceRemovedListeners) {
+            listener.onRemoved(uniqueId, removedIds, current.isEmpty());
+        }
     }
 
     /**
@@ -107,6 +187,7 @@ public class DynamicConfigManager {
         }
 
         instanceSet.add(instance);
+        refreshInstanceSnapshot(uniqueId);
     }
 
     /**
@@ -122,6 +203,7 @@ public class DynamicConfigManager {
                 break;
             }
         }
+        refreshInstanceSnapshot(uniqueId);
     }
 
     /**
@@ -129,6 +211,7 @@ public class DynamicConfigManager {
      */
     public void removeServiceInstanceByUniqueId(String uniqueId) {
         serviceInstanceMap.remove(uniqueId);
+        refreshInstanceSnapshot(uniqueId);
     }
 
     /******* 缓存规则相关操作方法 ********/
@@ -155,9 +238,14 @@ public class DynamicConfigManager {
                 newPathMap.put(key, rule);
             }
         }
+        Map<String, RouteIndex> newRouteIndexMap = new HashMap<>(newServiceMap.size() * 2);
+        for (Map.Entry<String, List<Rule>> entry : newServiceMap.entrySet()) {
+            newRouteIndexMap.put(entry.getKey(), RouteIndex.build(entry.getValue()));
+        }
         ruleMap = newRuleMap;
         pathRuleMap = newPathMap;
         serviceRuleMap = newServiceMap;
+        routeIndexMap = newRouteIndexMap;
     }
 
     public Rule getRule(String ruleId) {
@@ -172,6 +260,14 @@ public class DynamicConfigManager {
         return pathRuleMap.get(path);
     }
 
+    /**
+     * 通过路由索引匹配请求路径对应的规则，未匹配返回 null
+     */
+    public Rule matchRule(String serviceId, String path) {
+        RouteIndex routeIndex = routeIndexMap.get(serviceId);
+        return routeIndex == null ? null : routeIndex.match(path);
+    }
+
     public List<Rule> getRuleByServiceId(String serviceId) {
         return serviceRuleMap.get(serviceId);
     }
@@ -0,0 +1,243 @@
+package com.yu.gateway.common.config;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author yu
+ * 单个服务的路由索引，按路径段构建的前缀树，构建完成后不可变：
+ * 1.精确路径匹配，支持 {param} 形式的路径模板段，字面量段优先于模板段；
+ * 2.前缀匹配，按路径段边界取最长的前缀；
+ * 3.路径中出现 /encrypt 段时，以其之前的部分作为精确路径匹配；
+ * 4.匹配过程直接在请求路径上按下标比较，不产生任何对象分配。
+ * @date 2024-05-23
+ */
+public final class RouteIndex {
+
+    private static final char PATH_SEPARATOR = '/';
+
+    private static final String ENCRYPT_SEGMENT = "encrypt";
+
+    private final Node root;
+
+    private RouteIndex(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * 编译同一服务下的全部规则
+     */
+    public static RouteIndex build(List<Rule> rules) {
+        BuildNode root = new BuildNode();
+        for (Rule rule : rules) {
+            if (rule.getPaths() != null) {
+                for (String path : rule.getPaths()) {
+                    // 与原有 Map 语义一致，重复路径以后加入的规则为准
+                    root.walk(path).exactRule = rule;
+                }
+            }
+            if (StringUtils.isNotEmpty(rule.getPrefix())) {
+                BuildNode node = root.walk(rule.getPrefix());
+                if (node.prefixRule == null) {
+                    node.prefixRule = rule;
+                }
+            }
+        }
+        return new RouteIndex(root.compile());
+    }
+
+    /**
+     * 匹配请求路径，优先精确匹配，其次最长前缀匹配，未匹配返回 null
+     */
+    public Rule match(String path) {
+        Rule rule = matchExact(root, path, 0);
+        if (rule != null) {
+            return rule;
+        }
+        return matchPrefix(path);
+    }
+
+    /**
+     * 精确匹配，字面量段匹配失败时回溯尝试模板段
+     */
+    private static Rule matchExact(Node node, String path, int pos) {
+        int start = skipSeparator(path, pos);
+        if (start == path.length()) {
+            return node.exactRule;
+        }
+        int end = segmentEnd(path, start);
+
+        Node child = node.literal(path, start, end);
+        if (child != null) {
+            Rule rule = matchExact(child, path, end);
+            if (rule != null) {
+                return rule;
+            }
+        }
+        if (node.paramChild != null) {
+            Rule rule = matchExact(node.paramChild, path, end);
+            if (rule != null) {
+                return rule;
+            }
+        }
+        if (end - start == ENCRYPT_SEGMENT.length() && path.regionMatches(start, ENCRYPT_SEGMENT, 0, end - start)) {
+            return node.exactRule;
+        }
+        return null;
+    }
+
+    /**
+     * 前缀匹配，沿字面量段向下查找，记录经过的最深的前缀规则
+     */
+    private Rule matchPrefix(String path) {
+        Node node = root;
+        Rule matched = node.prefixRule;
+        int pos = 0;
+        while (node != null) {
+            int start = skipSeparator(path, pos);
+            if (start == path.length()) {
+                break;
+            }
+            int end = segmentEnd(path, start);
+            node = node.literal(path, start, end);
+            if (node != null && node.prefixRule != null) {
+                matched = node.prefixRule;
+            }
+            pos = end;
+        }
+        return matched;
+    }
+
+    private static int skipSeparator(String path, int pos) {
+        int length = path.length();
+        while (pos < length && path.charAt(pos) == PATH_SEPARATOR) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int segmentEnd(String path, int start) {
+        int end = path.indexOf(PATH_SEPARATOR, start);
+        return end < 0 ? path.length() : end;
+    }
+
+    /**
+     * 与 String.hashCode 一致的区间哈希，避免截取子串
+     */
+    private static int hash(String path, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + path.charAt(i);
+        }
+        return h;
+    }
+
+    private static boolean isParam(String segment) {
+        return segment.length() > 1 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}';
+    }
+
+    /**
+     * 不可变的索引节点，字面量子节点存放在开放寻址的哈希表中
+     */
+    private static final class Node {
+        private final String segment;
+        private final int hash;
+        private final Node[] table;
+        private final int mask;
+        private final Node paramChild;
+        private final Rule exactRule;
+        private final Rule prefixRule;
+
+        private Node(String segment, Node[] table, Node paramChild, Rule exactRule, Rule prefixRule) {
+            this.segment = segment;
+            this.hash = segment == null ? 0 : segment.hashCode();
+            this.table = table;
+            this.mask = table.length - 1;
+            this.paramChild = paramChild;
+            this.exactRule = exactRule;
+            this.prefixRule = prefixRule;
+        }
+
+        private Node literal(String path, int start, int end) {
+            if (table.length == 0) {
+                return null;
+            }
+            int length = end - start;
+            int h = hash(path, start, end);
+            for (int i = h & mask; ; i = (i + 1) & mask) {
+                Node child = table[i];
+                if (child == null) {
+                    return null;
+                }
+                if (child.hash == h && child.segment.length() == length
+                        && path.regionMatches(start, child.segment, 0, length)) {
+                    return child;
+                }
+            }
+        }
+    }
+
+    /**
+     * 构建阶段使用的可变节点
+     */
+    private static final class BuildNode {
+        private final Map<String, BuildNode> children = new HashMap<>();
+        private BuildNode paramChild;
+        private Rule exactRule;
+        private Rule prefixRule;
+
+        private BuildNode walk(String path) {
+            BuildNode node = this;
+            int pos = 0;
+            while (true) {
+                int start = skipSeparator(path, pos);
+                if (start == path.length()) {
+                    return node;
+                }
+                int end = segmentEnd(path, start);
+                String segment = path.substring(start, end);
+                if (isParam(segment)) {
+                    if (node.paramChild == null) {
+                        node.paramChild = new BuildNode();
+                    }
+                    node = node.paramChild;
+                } else {
+                    node = node.children.computeIfAbsent(segment, key -> new BuildNode());
+                }
+                pos = end;
+            }
+        }
+
+        private Node compile() {
+            return compile(null);
+        }
+
+        private Node compile(String segment) {
+            List<Node> literals = new ArrayList<>(children.size());
+            for (Map.Entry<String, BuildNode> entry : children.entrySet()) {
+                literals.add(entry.getValue().compile(entry.getKey()));
+            }
+
+            Node[] table;
+            if (literals.isEmpty()) {
+                table = new Node[0];
+            } else {
+                // 负载因子不超过 0.5，保证线性探测总能遇到空槽
+                int capacity = Integer.highestOneBit(literals.size()) << 2;
+                table = new Node[capacity];
+                for (Node literal : literals) {
+                    int i = literal.hash & (capacity - 1);
+                    while (table[i] != null) {
+                        i = (i + 1) & (capacity - 1);
+                    }
+                    table[i] = literal;
+                }
+            }
+            return new Node(segment, table, paramChild == null ? null : paramChild.compile("*"), exactRule, prefixRule);
+        }
+    }
+}
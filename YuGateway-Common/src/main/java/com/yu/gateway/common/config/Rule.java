@@ -72,6 +72,21 @@ public class Rule implements Comparable<Rule>, Serializable {
      */
     private Set<HystrixConfig> hystrixConfigs = new HashSet<>();
 
+    /**
+     * 流式转发规则
+     */
+    private StreamConfig streamConfig = new StreamConfig();
+
+    /**
+     * 对冲请求规则
+     */
+    private HedgeConfig hedgeConfig = new HedgeConfig();
+
+    /**
+     * 请求合并规则
+     */
+    private CoalesceConfig coalesceConfig = new CoalesceConfig();
+
     /**
      * 规则过滤器
      */
@@ -108,11 +123,34 @@ public class Rule implements Comparable<Rule>, Serializable {
         }
     }
     /**
-     * 重试次数
+     * 重试规则
      */
     @Data
     public static class RetryConfig {
+        /**
+         * 最大重试次数
+         */
         private int times;
+
+        /**
+         * 退避基准时间（毫秒），第 n 次重试的退避上限为 backoffMillis * 2^(n-1)
+         */
+        private int backoffMillis = 20;
+
+        /**
+         * 最大退避时间（毫秒）
+         */
+        private int maxBackoffMillis = 1000;
+
+        /**
+         * 非幂等请求（POST、PATCH）是否重试，关闭时仅在连接建立失败（请求未发出）时重试
+         */
+        private boolean retryNonIdempotent;
+
+        /**
+         * 触发重试的下游响应状态码
+         */
+        private Set<Integer> retryStatusCodes = new HashSet<>(Set.of(502, 503, 504));
     }
 
     /**
@@ -131,7 +169,7 @@ public class Rule implements Comparable<Rule>, Serializable {
         private int timeoutInMilliseconds;
 
         /**
-         * 核心线程数量
+         * 核心线程数量，熔断器中作为最大并发请求数（信号量隔离），小于等于 0 时不限制
          */
         private int coreThreadSize;
 
@@ -139,6 +177,41 @@ public class Rule implements Comparable<Rule>, Serializable {
          * 熔断降级响应
          */
         private String fallbackResponse;
+
+        /**
+         * 失败率阈值（百分比），达到后熔断
+         */
+        private int failureRateThreshold = 50;
+
+        /**
+         * 慢调用阈值（毫秒），小于等于 0 时使用超时时间
+         */
+        private int slowCallDurationThreshold;
+
+        /**
+         * 慢调用率阈值（百分比），达到后熔断，100 及以上表示不按慢调用熔断
+         */
+        private int slowCallRateThreshold = 100;
+
+        /**
+         * 滑动窗口大小（最近的请求数）
+         */
+        private int slidingWindowSize = 100;
+
+        /**
+         * 计算失败率所需的最少请求数
+         */
+        private int minimumNumberOfCalls = 20;
+
+        /**
+         * 熔断持续时间（毫秒），之后进入半开状态
+         */
+        private int waitDurationInOpenState = 5000;
+
+        /**
+         * 半开状态允许通过的探测请求数
+         */
+        private int permittedCallsInHalfOpenState = 10;
     }
 
     /**
@@ -172,6 +245,59 @@ public class Rule implements Comparable<Rule>, Serializable {
         private String config;
     }
 
+    /**
+     * 流式转发配置
+     */
+    @Data
+    public static class StreamConfig {
+        /**
+         * 是否开启流式转发，开启后请求体不经过 HttpObjectAggregator 聚合，边接收边转发给下游服务
+         */
+        private boolean enabled;
+    }
+
+    /**
+     * 对冲请求配置，只对 GET、HEAD、OPTIONS 请求生效
+     */
+    @Data
+    public static class HedgeConfig {
+        /**
+         * 是否开启对冲请求，开启后首个请求超过延迟仍未响应时向另一个实例发送相同请求，取先返回的响应
+         */
+        private boolean enabled;
+
+        /**
+         * 对冲延迟（毫秒），小于等于 0 时使用规则观测到的 p95 延迟
+         */
+        private int delayMillis;
+
+        /**
+         * 使用 p95 延迟时的最小对冲延迟（毫秒）
+         */
+        private int minDelayMillis = 5;
+
+        /**
+         * 对冲请求数占请求数的最大比例（百分比）
+         */
+        private int maxHedgeRatio = 10;
+    }
+
+    /**
+     * 请求合并配置，只对 GET 请求生效
+     */
+    @Data
+    public static class CoalesceConfig {
+        /**
+         * 是否开启请求合并，开启后同时进行中的相同请求只向下游发送一次，响应分发给所有等待的请求
+         */
+        private boolean enabled;
+
+        /**
+         * 除内置的认证、协商类请求头外，额外参与合并键的请求头
+         */
+        private List<String> keyHeaders;
+    }
+
     /**
      * 添加过滤器配置
      */
@@ -57,10 +57,26 @@ public class ServiceDefinition implements Serializable {
      */
     private Map<String, ServiceInvoker> invokerMap;
 
+    /**
+     * 网关到服务实例的传输协议：http1（默认，AsyncHttpClient 连接池）/ h2c（HTTP/2 明文多路复用）
+     */
+    private String upstreamProtocol;
+
+    /**
+     * h2c 模式下每个服务实例的连接数，小于等于 0 时使用网关配置
+     */
+    private int upstreamConnections;
+
+    /**
+     * h2c 模式下每个连接的最大并发流数，小于等于 0 时使用网关配置
+     */
+    private int upstreamMaxStreams;
+
     public ServiceDefinition() {
     }
 
-    public ServiceDefinition(String uniqueId, String serviceId, String version, String protocol, String patternPath, String envType, boolean available, Map<String, ServiceInvoker> invokerMap) {
+    public ServiceDefinition(String uniqueId, String serviceId, String version, String protocol, String patternPath, String envType, boolean available, Map<String, ServiceInvoker> invokerMap,
+                             String upstreamProtocol, int upstreamConnections, int upstreamMaxStreams) {
         this.uniqueId = uniqueId;
         this.serviceId = serviceId;
         this.version = version;
@@ -69,6 +85,9 @@ public class ServiceDefinition implements Serializable {
         this.envType = envType;
         this.available = available;
         this.invokerMap = invokerMap;
+        this.upstreamProtocol = upstreamProtocol;
+        this.upstreamConnections = upstreamConnections;
+        this.upstreamMaxStreams = upstreamMaxStreams;
     }
 
     @Override
@@ -0,0 +1,20 @@
+package com.yu.gateway.common.config;
+
+import java.util.Set;
+
+/**
+ * @author yu
+ * @description 服务实例下线监听器，用于清理按实例维护的本地状态
+ * @date 2024-06-20
+ */
+public interface ServiceInstanceRemovedListener {
+
+    /**
+     * 服务实例从本地缓存中移除时调用
+     *
+     * @param uniqueId           服务唯一ID
+     * @param serviceInstanceIds 被移除的服务实例ID
+     * @param serviceRemoved     服务已没有任何实例
+     */
+    void onRemoved(String uniqueId, Set<String> serviceInstanceIds, boolean serviceRemoved);
+}
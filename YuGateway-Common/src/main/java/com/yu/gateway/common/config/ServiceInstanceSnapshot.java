@@ -0,0 +1,113 @@
+package com.yu.gateway.common.config;
+
+import com.yu.gateway.common.constant.GatewayConst;
+
+import java.util.Collection;
+import java.util.function.Predicate;
+
+/**
+ * @author yu
+ * 服务实例快照，实例变更时整体重建，构建完成后不可变：
+ * 1.实例存放在数组中，负载均衡选择实例时不再复制集合；
+ * 2.预先计算累计权重，加权选择通过二分查找完成；
+ * 3.权重为空时使用默认权重，所有实例权重均为 0 时退化为等权重。
+ * @date 2024-05-28
+ */
+public final class ServiceInstanceSnapshot {
+
+    public static final ServiceInstanceSnapshot EMPTY = new ServiceInstanceSnapshot(new ServiceInstance[0]);
+
+    private final ServiceInstance[] instances;
+
+    /**
+     * 累计权重，cumulativeWeights[i] 为前 i + 1 个实例的权重之和
+     */
+    private final long[] cumulativeWeights;
+
+    private final long totalWeight;
+
+    private ServiceInstanceSnapshot(ServiceInstance[] instances) {
+        this.instances = instances;
+        this.cumulativeWeights = new long[instances.length];
+        long sum = 0;
+        for (int i = 0; i < instances.length; i++) {
+            sum += weightOf(instances[i]);
+            cumulativeWeights[i] = sum;
+        }
+        this.totalWeight = sum;
+    }
+
+    /**
+     * 根据实例集合构建快照，只保留满足条件的实例
+     */
+    public static ServiceInstanceSnapshot of(Collection<ServiceInstance> instanceSet, Predicate<ServiceInstance> predicate) {
+        if (instanceSet == null || instanceSet.isEmpty()) {
+            return EMPTY;
+        }
+        ServiceInstance[] instances = instanceSet.stream().filter(predicate).toArray(ServiceInstance[]::new);
+        return instances.length == 0 ? EMPTY : new ServiceInstanceSnapshot(instances);
+    }
+
+    public static ServiceInstanceSnapshot of(Collection<ServiceInstance> instanceSet) {
+        return of(instanceSet, instance -> true);
+    }
+
+    public int size() {
+        return instances.length;
+    }
+
+    public boolean isEmpty() {
+        return instances.length == 0;
+    }
+
+    public ServiceInstance get(int index) {
+        return instances[index];
+    }
+
+    /**
+     * 第 index 个实例的有效权重，总权重为 0 时每个实例的权重均为 1
+     */
+    public long getWeight(int index) {
+        if (totalWeight == 0) {
+            return 1;
+        }
+        return index == 0 ? cumulativeWeights[0] : cumulativeWeights[index] - cumulativeWeights[index - 1];
+    }
+
+    /**
+     * 按权重选择实例
+     *
+     * @param point 取值范围 [0, totalWeight)，总权重为 0 时按 [0, size) 等权重选择
+     */
+    public ServiceInstance getByWeight(long point) {
+        if (totalWeight == 0) {
+            return instances[(int) point];
+        }
+        int low = 0;
+        int high = instances.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulativeWeights[mid] > point) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return instances[low];
+    }
+
+    /**
+     * 加权选择时的取值上界
+     */
+    public long getWeightBound() {
+        return totalWeight == 0 ? instances.length : totalWeight;
+    }
+
+    private static int weightOf(ServiceInstance instance) {
+        Integer weight = instance.getWeight();
+        if (weight == null) {
+            return GatewayConst.DEFAULT_WEIGHT;
+        }
+        return Math.max(weight, 0);
+    }
+}
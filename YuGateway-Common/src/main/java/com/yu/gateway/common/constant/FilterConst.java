@@ -30,6 +30,12 @@ public interface FilterConst {
     String LOAD_BALANCE_STRATEGY_RANDOM = "Random";
     String LOAD_BALANCE_STRATEGY_ROUND_ROBIN = "RoundRobin";
     String LOAD_BALANCE_STRATEGY_WEIGHT_RANDOM = "WeightRandom";
+    String LOAD_BALANCE_STRATEGY_SMOOTH_WEIGHTED_ROUND_ROBIN = "SmoothWeightedRoundRobin";
+    String LOAD_BALANCE_STRATEGY_LEAST_REQUESTS = "LeastRequests";
+    String LOAD_BALANCE_STRATEGY_P2C_EWMA = "P2CEwma";
+    String LOAD_BALANCE_STRATEGY_CONSISTENT_HASH = "ConsistentHash";
+    String LOAD_BALANCE_HASH_KEY = "hash_key";                  //一致性哈希键：header:名称、cookie:名称、query:名称、userId
+    String LOAD_BALANCE_HASH_LOAD_FACTOR = "hash_load_factor";  //一致性哈希有界负载系数，实例在途请求上限为平均值的倍数
 
     /**
      * 路由过滤器
@@ -38,6 +44,17 @@ public interface FilterConst {
     String ROUTER_FILTER_NAME = "router_filter";
     int ROUTER_FILTER_ORDER = Integer.MAX_VALUE;
 
+    /**
+     * 响应缓存过滤器
+     */
+    String CACHE_FILTER_ID = "cache_filter";
+    String CACHE_FILTER_NAME = "cache_filter";
+    int CACHE_FILTER_ORDER = 90;
+    String CACHE_TTL = "ttl";                       //下游响应未指定有效期时的缓存时间——秒，0 表示只缓存带有效期的响应
+    String CACHE_KEY_QUERIES = "key_queries";       //参与缓存键的查询参数，未配置时使用完整查询串
+    String CACHE_KEY_HEADERS = "key_headers";       //参与缓存键的请求头
+    String CACHE_MAX_BODY_SIZE = "max_body_size";   //可缓存的最大响应体——字节
+
     /**
      * 限流过滤器
      */
@@ -50,6 +67,7 @@ public interface FilterConst {
     String FLOW_CTL_LIMIT_PERMITS = "permits";      //限流请求次数——次
     String FLOW_CTL_MODE_DISTRIBUTED = "distributed"; //分布式场景
     String FLOW_CTL_MODE_SINGLETON = "singleton";     //单例场景
+    String FLOW_CTL_MODE_LEASE = "lease";             //分布式配额租约场景
 
     /**
      * 认证鉴权过滤器
@@ -17,4 +17,14 @@ public interface GatewayConst {
     String META_DATA_KEY = "meta";
 
     String BUFFER_TYPE_PARALLEL = "parallel";
+
+    String BUFFER_TYPE_VIRTUAL = "virtual";
+
+    String HTTP_CLIENT_ASYNC = "async";
+
+    String HTTP_CLIENT_NETTY = "netty";
+
+    String UPSTREAM_PROTOCOL_HTTP1 = "http1";
+
+    String UPSTREAM_PROTOCOL_H2C = "h2c";
 }
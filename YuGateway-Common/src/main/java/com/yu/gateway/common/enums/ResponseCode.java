@@ -33,8 +33,8 @@ public enum ResponseCode {
     BLACKLIST(HttpResponseStatus.FORBIDDEN,10004, "请求IP在黑名单"),
     WHITELIST(HttpResponseStatus.FORBIDDEN,10005, "请求IP不在白名单"),
 
-    GATEWAY_FALLBACK_TIMEOUT(HttpResponseStatus.GATEWAY_TIMEOUT, 10055, "请求超时, cause hystrix fallback"),
-    GATEWAY_FALLBACK_ERROR(HttpResponseStatus.INTERNAL_SERVER_ERROR, 10066, "服务器内部错误, 导致 hystrix fallback");
+    GATEWAY_FALLBACK_TIMEOUT(HttpResponseStatus.GATEWAY_TIMEOUT, 10055, "请求超时, 触发熔断降级"),
+    GATEWAY_FALLBACK_ERROR(HttpResponseStatus.INTERNAL_SERVER_ERROR, 10066, "服务器内部错误, 触发熔断降级");
 
     private HttpResponseStatus status;
     private int code;
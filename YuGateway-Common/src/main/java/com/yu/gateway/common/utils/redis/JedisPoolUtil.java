@@ -50,6 +50,8 @@ public class JedisPoolUtil {
     private boolean testOnBorrow;
     private boolean testOnReturn;
     private String password;
+    private int database;
+    private int timeout;
 
     public static Lock lock = new ReentrantLock();
 
@@ -71,6 +73,8 @@ public class JedisPoolUtil {
             maxIdle = Integer.parseInt(prop.getProperty("redis.maxIdle"));
             minIdle = Integer.parseInt(prop.getProperty("redis.minIdle"));
             password = prop.getProperty("redis.password");
+            database = Integer.parseInt(prop.getProperty("redis.database", "0").trim());
+            timeout = Integer.parseInt(prop.getProperty("redis.timeout", String.valueOf(Protocol.DEFAULT_TIMEOUT)).trim());
         } catch (IOException e) {
             log.error("parse gateway.properties failed", e);
         }
@@ -88,7 +92,9 @@ public class JedisPoolUtil {
                 config.setMaxTotal(maxTotal);
                 config.setMaxWaitMillis(maxWaitTimeMillis);
                 config.setTestOnBorrow(testOnBorrow);
-                jedisPoolWrapper = new JedisPoolWrapper(new JedisPool(config, host, port), password);
+                // 与异步 Redis 客户端使用相同的 redis.* 配置（密码、库）
+                String auth = password == null || password.isBlank() ? null : password;
+                jedisPoolWrapper = new JedisPoolWrapper(new JedisPool(config, host, port, timeout, auth, database), password);
             } catch (Exception e) {
                 log.warn("init jedisPool failed : {}", e.getMessage());
             } finally {
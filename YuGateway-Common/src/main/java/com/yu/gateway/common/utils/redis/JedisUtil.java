@@ -3,6 +3,7 @@ package com.yu.gateway.common.utils.redis;
 import lombok.extern.slf4j.Slf4j;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.Tuple;
+import redis.clients.jedis.exceptions.JedisDataException;
 
 import java.util.*;
 import java.util.concurrent.locks.ReentrantLock;
@@ -19,6 +20,8 @@ public class JedisUtil {
 
     private final String SET_WITH_EXPIRE_TIME = "PX";
 
+    private static final String NO_SCRIPT_ERROR = "NOSCRIPT";
+
     private JedisPoolUtil jedisPool = new JedisPoolUtil();
 
     public boolean isExist(String key) {
@@ -197,6 +200,19 @@ public class JedisUtil {
         }
     }
 
+    public boolean addScoreSet(String key, String mKey, double score) {
+        Jedis jedis = jedisPool.getJedis();
+        try {
+            jedis.zadd(key, score, mKey);
+            return true;
+        } catch (Exception e) {
+            log.debug("addScoreSet key {} throws:{}", key,e.getMessage());
+            return false;
+        } finally {
+            close(jedis);
+        }
+    }
+
     public boolean delScoreSet(String key, String mKey) {
         Jedis jedis = jedisPool.getJedis();
         try {
@@ -329,27 +345,16 @@ public class JedisUtil {
         }
     }
 
+    /**
+     * 计数限流脚本，SHA1 只计算一次
+     */
+    private static final RedisScript COUNT_LIMIT_SCRIPT = RedisScript.of(buildLuaScript());
+
     /**
      * 限流脚本
      */
     public Object executeScript(String key, int limit, int expire) {
-        Jedis jedis = jedisPool.getJedis();
-        String lua = buildLuaScript();
-        String scriptLoad = jedis.scriptLoad(lua);
-        try {
-            Object result = jedis.evalsha(scriptLoad, Arrays.asList(key), Arrays.asList(String.valueOf(expire), String.valueOf(limit)));
-            System.out.println(result);
-            return result;
-        } catch (Exception e) {
-            log.error("executeScript throws:", e);
-        } finally {
-            try {
-                jedis.close();
-            } catch (Exception e) {
-                log.error("executeScript close jedis throws:", e);
-            }
-        }
-        return null;
+        return executeScript(COUNT_LIMIT_SCRIPT, Arrays.asList(key), String.valueOf(expire), String.valueOf(limit));
     }
 
     /**
@@ -405,6 +410,44 @@ public class JedisUtil {
         return null;
     }
 
+    /**
+     * SCRIPT LOAD 预先加载脚本，失败时只记录日志，执行时仍会按 NOSCRIPT 重新加载
+     */
+    public boolean loadScript(RedisScript script) {
+        try (Jedis jedis = jedisPool.getJedis()) {
+            return script.getSha1().equals(jedis.scriptLoad(script.getScript()));
+        } catch (Exception e) {
+            log.warn("loadScript throws:{}", e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * 通过 EVALSHA 执行脚本，只传输脚本摘要：
+     * Redis 中没有该脚本（首次执行、重启或 SCRIPT FLUSH）时返回 NOSCRIPT，此时 SCRIPT LOAD 后重新执行
+     *
+     * @param script 预先加载的 Lua 脚本
+     * @param keys   表示Lua脚本中使用的 key
+     * @param args   表示Lua脚本中使用的参数
+     */
+    public Object executeScript(RedisScript script, List<String> keys, String... args) {
+        try (Jedis jedis = jedisPool.getJedis()) {
+            List<String> argList = Arrays.asList(args);
+            try {
+                return jedis.evalsha(script.getSha1(), keys, argList);
+            } catch (JedisDataException e) {
+                if (e.getMessage() == null || !e.getMessage().startsWith(NO_SCRIPT_ERROR)) {
+                    throw e;
+                }
+                jedis.scriptLoad(script.getScript());
+                return jedis.evalsha(script.getSha1(), keys, argList);
+            }
+        } catch (Exception e) {
+            log.error("executeScript throws:", e);
+        }
+        return null;
+    }
+
     /**
      * 在zset中添加一个成员，分数是当前时间戳
      */
@@ -0,0 +1,64 @@
+package com.yu.gateway.common.utils.redis;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+
+/**
+ * @author yu
+ * @description Redis Lua 脚本，脚本内容只加载一次，并预先计算 SHA1 用于 EVALSHA 调用
+ * @date 2024-05-27
+ */
+public final class RedisScript {
+    private final String script;
+
+    private final String sha1;
+
+    private RedisScript(String script) {
+        this.script = script;
+        this.sha1 = sha1Hex(script);
+    }
+
+    public static RedisScript of(String script) {
+        return new RedisScript(script);
+    }
+
+    /**
+     * 从类路径加载脚本，保留原始换行（Lua 的 -- 注释以换行结束）
+     */
+    public static RedisScript fromClasspath(String path) {
+        try (InputStream inputStream = Objects.requireNonNull(RedisScript.class.getClassLoader().getResourceAsStream(path),
+                "lua script not found: " + path)) {
+            return new RedisScript(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException("load lua script " + path + " failed", e);
+        }
+    }
+
+    public String getScript() {
+        return script;
+    }
+
+    public String getSha1() {
+        return sha1;
+    }
+
+    /**
+     * 与 Redis SCRIPT LOAD 返回值一致的 SHA1 摘要
+     */
+    private static String sha1Hex(String script) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(script.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -9,6 +9,8 @@ import com.yu.gateway.common.constant.BasicConst;
 import com.yu.gateway.common.utils.*;
 import com.yu.gateway.config.center.api.ConfigCenter;
 import com.yu.gateway.config.center.api.RulesChangeListener;
+import com.yu.gateway.core.filter.GatewayFilterChainFactory;
+import com.yu.gateway.core.helper.AsyncHttpHelper;
 import com.yu.gateway.register.center.api.RegisterCenter;
 import com.yu.gateway.register.center.api.RegisterCenterListener;
 import lombok.extern.slf4j.Slf4j;
@@ -39,13 +41,7 @@ public class BootStrap {
 		});
 
 		//从配置中心获取数据
-		configCenter.init(config.getRegistryAddress(), config.getEnv());
-		configCenter.subscribeRulesChange(new RulesChangeListener() {
-			@Override
-			public void onRulesChange(List<Rule> rules) {
-				DynamicConfigManager.getInstance().putAllRule(rules);
-			}
-		});
+		subscribeRulesChange(config, configCenter);
 
 		//启动容器
 		Container container = new Container(config);
@@ -71,6 +67,20 @@ public class BootStrap {
 
 	}
 
+	/**
+	 * 初始化配置中心并订阅规则变更
+	 */
+	public static void subscribeRulesChange(Config config, ConfigCenter configCenter) {
+		configCenter.init(config.getRegistryAddress(), config.getEnv());
+		configCenter.subscribeRulesChange(new RulesChangeListener() {
+			@Override
+			public void onRulesChange(List<Rule> rules) {
+				DynamicConfigManager.getInstance().putAllRule(rules);
+				GatewayFilterChainFactory.getInstance().refresh(rules);
+			}
+		});
+	}
+
 	/**
 	 * 服务注册和订阅服务变更信息通知, spi 方式实现服务注册
 	 */
@@ -80,7 +90,14 @@ public class BootStrap {
 			log.error("not found RegisterCenter impl");
 			return new RuntimeException("not found RegisterCenter impl");
 		});
+		registerAndSubscribe(config, registerCenter);
+		return registerCenter;
+	}
 
+	/**
+	 * 使用指定的注册中心注册网关并订阅服务变更
+	 */
+	public static void registerAndSubscribe(Config config, RegisterCenter registerCenter) {
 
 		registerCenter.init(config.getRegistryAddress(), config.getEnv());
 
@@ -102,15 +119,17 @@ public class BootStrap {
 
 				//修改发生对应的服务定义
 				manager.putServiceDefinition(serviceDefinition.getUniqueId(), serviceDefinition);
+
+				//维护 h2c 实例的上游连接池
+				AsyncHttpHelper.getInstance().refreshUpstream(serviceDefinition, serviceInstanceSet);
 			}
 		});
-		return registerCenter;
 	}
 
 	/**
 	 * 获取服务定义信息
 	 */
-	private static ServiceDefinition buildGatewayServiceDefinition(Config config) {
+	public static ServiceDefinition buildGatewayServiceDefinition(Config config) {
 		ServiceDefinition definition = new ServiceDefinition();
 		definition.setServiceId(config.getApplicationName());
 		definition.setEnvType(config.getEnv());
@@ -122,7 +141,7 @@ public class BootStrap {
 	/**
 	 * 获取服务实例信息
 	 */
-	private static ServiceInstance buildGatewayServiceInstance(Config config) {
+	public static ServiceInstance buildGatewayServiceInstance(Config config) {
 		String localIp = NetUtil.getLocalIp();
 		int port = config.getPort();
 
@@ -38,20 +38,72 @@ public class Config {
      */
     private boolean whenComplete = true;
 
+    /**
+     * 上游 HTTP/1 客户端：async（AsyncHttpClient）、netty（原生 Netty 客户端，按 EventLoop 维护连接池）
+     * 对冲请求与修改了表单参数、Cookie 的请求始终使用 AsyncHttpClient
+     */
+    private String httpClientType = "async";
+
     // Http Async
     private int httpConnectTimeout = 30 * 1000;
     private int httpRequestTimeout = 30 * 1000;
-    private int httpMaxRetryTimes = 2;
     private int httpMaxConnections = 10000;
     private int httpMaxConnectionsPerHost = 8000;
 
+    /**
+     * AsyncHttpClient 是否强制压缩（附加 Accept-Encoding 并解压下游响应），关闭时下游已压缩的响应体原样透传给客户端
+     */
+    private boolean httpCompressionEnforced = false;
+
     /**
      * 客户端空闲连接超时时间
      */
     private int httpPooledConnectionIdleTimeout = 60 * 1000;
 
     /**
-     * disruptor队列前缀
+     * h2c 上游：每个服务实例的默认连接数（服务定义未指定时使用）
+     */
+    private int http2ConnectionsPerInstance = 2;
+
+    /**
+     * h2c 上游：每个连接的默认最大并发流数（服务定义未指定时使用）
+     */
+    private int http2MaxConcurrentStreams = 512;
+
+    /**
+     * 网关侧响应压缩（gzip/deflate），只压缩未编码、Content-Type 匹配且达到大小阈值的响应
+     */
+    private boolean responseCompression = false;
+    private int responseCompressionLevel = 6;
+    private int responseCompressionMinSize = 1024;
+
+    /**
+     * 可压缩的 Content-Type 前缀，逗号分隔
+     */
+    private String responseCompressionContentTypes = "text/,application/json,application/javascript,application/xml,image/svg+xml";
+
+    /**
+     * 压缩结果缓存的最大字节数，只缓存带强 ETag 的 200 响应，小于等于 0 时不缓存
+     */
+    private long responseCompressionCacheBytes = 16 * 1024 * 1024;
+
+    /**
+     * 响应缓存过滤器的最大缓存字节数（池化直接内存），按响应体大小淘汰
+     */
+    private long responseCacheMaxBytes = 64 * 1024 * 1024;
+
+    /**
+     * 重试预算：重试请求数不超过首次请求数的该比例，防止下游故障时重试放大流量
+     */
+    private double retryBudgetRatio = 0.1;
+
+    /**
+     * 重试预算：流量较低时每秒至少允许的重试次数
+     */
+    private int retryBudgetMinRetriesPerSecond = 10;
+
+    /**
+     * 请求处理模式：parallel（Disruptor 队列）、virtual（虚拟线程），其它值为 Netty 线程直接处理
      */
     private String bufferType = "parallel";
 
@@ -69,4 +121,33 @@ public class Config {
      * 等待策略
      */
     private String waitStrategy = "blocking";
-}
\ No newline at end of file
+
+    /**
+     * 虚拟线程模式下的最大并发请求数
+     */
+    private int virtualThreadMaxConcurrency = 10000;
+
+    /**
+     * 虚拟线程模式下单个服务的最大并发请求数（服务隔离）
+     */
+    private int virtualThreadServiceConcurrency = 2000;
+
+    /**
+     * 异步 Redis 客户端配置，连接建立在 worker 线程组上
+     * 配置文件中读取与 Jedis 连接池相同的 redis.host、redis.port、redis.password、redis.database 配置
+     */
+    private String redisHost = "127.0.0.1";
+    private int redisPort = 6379;
+    private String redisPassword;
+    private int redisDatabase = 0;
+
+    /**
+     * 异步 Redis 客户端连接数，命令按连接轮询并在连接上自动流水线化
+     */
+    private int redisConnections = 2;
+
+    /**
+     * 异步 Redis 命令超时时间（毫秒）
+     */
+    private int redisTimeout = 2000;
+}
@@ -18,6 +18,16 @@ public class ConfigLoader {
     private static final String CONFIG_FILE = "gateway.properties";
     private static final String ENV_PREFIX = "GATEWAY_";
     private static final String JVM_PREFIX = "gateway.";
+
+    /**
+     * 配置文件中 Jedis 连接池使用的 redis.* 配置 —— 对应的配置对象属性，异步 Redis 客户端与 Jedis 使用同一个 Redis
+     */
+    private static final Map<String, String> REDIS_KEYS = Map.of(
+            "redis.host", "redisHost",
+            "redis.port", "redisPort",
+            "redis.password", "redisPassword",
+            "redis.database", "redisDatabase",
+            "redis.timeout", "redisTimeout");
     private static volatile ConfigLoader instance;
     private Config config;
 
@@ -72,6 +82,7 @@ public class ConfigLoader {
 
             try {
                 properties.load(inputStream);
+                mapRedisKeys(properties);
                 PropertiesUtils.propertiesToObject(properties, config);
             } catch (IOException e) {
                 log.warn("load config file {} error", CONFIG_FILE, e);
@@ -85,6 +96,18 @@ public class ConfigLoader {
         }
     }
 
+    /**
+     * 将 JedisPoolUtil 读取的 redis.* 配置映射到异步 Redis 客户端的配置属性
+     */
+    private static void mapRedisKeys(Properties properties) {
+        REDIS_KEYS.forEach((key, property) -> {
+            String value = properties.getProperty(key);
+            if (value != null) {
+                properties.setProperty(property, value.trim());
+            }
+        });
+    }
+
     /**
      * 环境变量加载方式
      */
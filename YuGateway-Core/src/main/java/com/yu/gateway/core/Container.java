@@ -3,9 +3,13 @@ package com.yu.gateway.core;
 import com.yu.gateway.common.constant.GatewayConst;
 import com.yu.gateway.core.netty.NettyHttpClient;
 import com.yu.gateway.core.netty.NettyHttpServer;
+import com.yu.gateway.core.netty.NettyUpstreamClient;
 import com.yu.gateway.core.netty.processor.DisruptorNettyCoreProcessor;
 import com.yu.gateway.core.netty.processor.NettyCoreProcessor;
 import com.yu.gateway.core.netty.processor.NettyProcessor;
+import com.yu.gateway.core.netty.processor.VirtualThreadNettyCoreProcessor;
+import com.yu.gateway.core.redis.NettyRedisClient;
+import com.yu.gateway.core.upstream.Http2UpstreamClient;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -19,6 +23,9 @@ public class Container implements LifeCycle{
     private NettyHttpServer nettyHttpServer;
     private NettyHttpClient nettyHttpClient;
     private NettyProcessor nettyProcessor;
+    private NettyRedisClient nettyRedisClient;
+    private Http2UpstreamClient http2UpstreamClient;
+    private NettyUpstreamClient nettyUpstreamClient;
 
     public Container(Config config) {
         this.config = config;
@@ -31,12 +38,26 @@ public class Container implements LifeCycle{
         // 多生产者多消费者模式
         if (GatewayConst.BUFFER_TYPE_PARALLEL.equals(config.getBufferType())) {
             this.nettyProcessor = new DisruptorNettyCoreProcessor(config, nettyCoreProcessor);
+        } else if (GatewayConst.BUFFER_TYPE_VIRTUAL.equals(config.getBufferType())) {
+            // 虚拟线程模式，每个请求一个虚拟线程
+            this.nettyProcessor = new VirtualThreadNettyCoreProcessor(config, nettyCoreProcessor);
         } else {
             this.nettyProcessor = nettyCoreProcessor;
         }
         this.nettyHttpServer = new NettyHttpServer(config, nettyProcessor);
         // nettyClient、nettyServer 公用相同 work_threadGroup
         this.nettyHttpClient = new NettyHttpClient(config, nettyHttpServer.getEventLoopGroupWorker());
+        // 异步 Redis 客户端同样复用 work_threadGroup
+        this.nettyRedisClient = new NettyRedisClient(config, nettyHttpServer.getEventLoopGroupWorker(),
+                nettyHttpServer.upstreamChannelClass());
+        // h2c 上游连接同样复用 work_threadGroup
+        this.http2UpstreamClient = new Http2UpstreamClient(config, nettyHttpServer.getEventLoopGroupWorker(),
+                nettyHttpServer.upstreamChannelClass());
+        // 原生 Netty 上游客户端，连接池按 worker EventLoop 划分
+        if (GatewayConst.HTTP_CLIENT_NETTY.equals(config.getHttpClientType())) {
+            this.nettyUpstreamClient = new NettyUpstreamClient(config, nettyHttpServer.getEventLoopGroupWorker(),
+                    nettyHttpServer.upstreamChannelClass());
+        }
     }
 
     @Override
@@ -44,6 +65,11 @@ public class Container implements LifeCycle{
         nettyProcessor.start();
         nettyHttpServer.start();
         nettyHttpClient.start();
+        nettyRedisClient.start();
+        http2UpstreamClient.start();
+        if (nettyUpstreamClient != null) {
+            nettyUpstreamClient.start();
+        }
         log.info("api gateway starting!");
     }
 
@@ -51,6 +77,11 @@ public class Container implements LifeCycle{
     public void shutdown() {
         nettyProcessor.shutDown();
         nettyHttpClient.shutdown();
+        nettyRedisClient.shutdown();
+        http2UpstreamClient.shutdown();
+        if (nettyUpstreamClient != null) {
+            nettyUpstreamClient.shutdown();
+        }
         nettyHttpServer.shutdown();
     }
 }
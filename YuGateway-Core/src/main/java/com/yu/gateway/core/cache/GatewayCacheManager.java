@@ -2,6 +2,10 @@ package com.yu.gateway.core.cache;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalListener;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.Weigher;
 
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -38,6 +42,23 @@ public class GatewayCacheManager {
         return (Cache<String, V>) cacheMap.get(cacheId);
     }
 
+    /**
+     * 根据全局缓存 ID 创建一个按权重淘汰、按条目过期的 Caffeine 对象，条目被淘汰、过期、替换或删除时回调 removalListener
+     * 过期条目由系统调度器及时清理，不依赖后续的读写
+     */
+    public <V> Cache<String, V> create(String cacheId, long maximumWeight, Weigher<String, V> weigher,
+                                       Expiry<String, V> expiry, RemovalListener<String, V> removalListener) {
+        Cache<String, V> cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .<String, V>weigher(weigher)
+                .expireAfter(expiry)
+                .scheduler(Scheduler.systemScheduler())
+                .removalListener(removalListener)
+                .build();
+        cacheMap.put(cacheId, cache);
+        return cache;
+    }
+
     /**
      * 根据 CacheID 以及对象 Key 删除对应地 Caffeine 对象
      */
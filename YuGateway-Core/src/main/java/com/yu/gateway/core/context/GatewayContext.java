@@ -2,13 +2,25 @@ package com.yu.gateway.core.context;
 
 import com.yu.gateway.common.config.Rule;
 import com.yu.gateway.common.utils.AssertUtil;
+import com.yu.gateway.core.filter.GatewayFilterChain;
+import com.yu.gateway.core.filter.loadBalance.InstanceStats;
 import com.yu.gateway.core.request.GatewayRequest;
 import com.yu.gateway.core.response.GatewayResponse;
 import io.micrometer.core.instrument.Timer;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.util.ReferenceCountUtil;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  *  网关上下文对象，封装以下：
@@ -17,6 +29,7 @@ import lombok.Setter;
  *  3）请求规则；
  *  4）灰度发布、请求重试次数等；
  */
+@Slf4j
 @Getter
 @Setter
 public class GatewayContext extends BaseContext {
@@ -45,6 +58,41 @@ public class GatewayContext extends BaseContext {
      */
     private int currentRetryTimes;
 
+    /**
+     * 重试时已经尝试过的实例地址，仅在发生重试时创建
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Set<String> attemptedHosts;
+
+    /**
+     * 流式转发，请求体由 NettyHttpStreamHandler 边接收边转发
+     */
+    private boolean streaming;
+
+    /**
+     * 当前请求使用的过滤器链，携带规则对应的过滤器解析配置
+     */
+    private GatewayFilterChain filterChain;
+
+    /**
+     * 负载均衡选中实例的统计信息，请求结束时释放
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final AtomicReference<InstanceStats> instanceStats = new AtomicReference<>();
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private long instanceStartNanos;
+
+    /**
+     * 响应写回客户端前的回调（例如响应缓存），回调中不能释放响应
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private List<Consumer<FullHttpResponse>> responseCallbacks;
+
     /**
      * 记录应用程序中的方法调用或服务请求所花费的时间
      */
@@ -116,10 +164,86 @@ public class GatewayContext extends BaseContext {
         return rules.getFilterConfigById(filterId);
     }
 
+    /**
+     * 获取过滤器链构建时解析好的过滤器配置
+     */
+    public <T> T getParsedFilterConfig(String filterId) {
+        return filterChain == null ? null : filterChain.getParsedConfig(filterId);
+    }
+
+    /**
+     * 获取已经尝试过的实例地址
+     */
+    public Set<String> getAttemptedHosts() {
+        if (attemptedHosts == null) {
+            attemptedHosts = new HashSet<>(4);
+        }
+        return attemptedHosts;
+    }
+
     public String getUniqueId() {
         return request.getUniqueId();
     }
 
+    /**
+     * 绑定选中的服务实例，在途请求数加一
+     */
+    public void bindInstanceStats(InstanceStats stats) {
+        // 重复绑定时（例如重新执行负载均衡）先释放之前的实例
+        releaseInstanceStats(false);
+        stats.begin();
+        instanceStartNanos = System.nanoTime();
+        instanceStats.set(stats);
+    }
+
+    /**
+     * 请求结束，在途请求数减一并记录耗时，多次调用只生效一次
+     */
+    public void releaseInstanceStats(boolean success) {
+        InstanceStats stats = instanceStats.getAndSet(null);
+        if (stats != null) {
+            stats.end(System.nanoTime() - instanceStartNanos, success);
+        }
+    }
+
+    /**
+     * 请求没有发往选中的实例（合并到其他请求的下游调用），释放在途请求数但不记录耗时
+     */
+    public void discardInstanceStats() {
+        InstanceStats stats = instanceStats.getAndSet(null);
+        if (stats != null) {
+            stats.abandon();
+        }
+    }
+
+    /**
+     * 注册响应写回前的回调
+     */
+    public void addResponseCallback(Consumer<FullHttpResponse> callback) {
+        if (responseCallbacks == null) {
+            responseCallbacks = new ArrayList<>(2);
+        }
+        responseCallbacks.add(callback);
+    }
+
+    /**
+     * 响应写回前执行回调，每个回调只执行一次
+     */
+    public void invokeResponseCallbacks(FullHttpResponse response) {
+        List<Consumer<FullHttpResponse>> callbacks = responseCallbacks;
+        if (callbacks == null) {
+            return;
+        }
+        responseCallbacks = null;
+        for (Consumer<FullHttpResponse> callback : callbacks) {
+            try {
+                callback.accept(response);
+            } catch (Exception e) {
+                log.warn("response callback failed, uniqueId: {}", getUniqueId(), e);
+            }
+        }
+    }
+
     /**
      *  资源释放,减少引用计数
      */
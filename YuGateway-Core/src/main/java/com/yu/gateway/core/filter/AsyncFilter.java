@@ -0,0 +1,37 @@
+package com.yu.gateway.core.filter;
+
+import com.yu.gateway.core.context.GatewayContext;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * @author yu
+ * 异步过滤器，适用于需要访问 Redis 等外部资源的过滤器：
+ * 1.返回已完成的 CompletionStage 时过滤器链同步继续执行；
+ * 2.返回未完成的 CompletionStage 时过滤器链挂起，不占用线程，完成后在请求所属的 EventLoop 上执行后续过滤器；
+ * 3.以异常结束时过滤器链终止，与同步过滤器抛出异常的处理方式一致。
+ * @date 2024-06-01
+ */
+public interface AsyncFilter extends Filter {
+
+    /**
+     * 异步执行过滤器
+     */
+    CompletionStage<Void> doFilterAsync(GatewayContext ctx) throws Exception;
+
+    /**
+     * 同步执行时等待异步结果，过滤器链中不会调用该方法
+     */
+    @Override
+    default void doFilter(GatewayContext ctx) throws Exception {
+        try {
+            doFilterAsync(ctx).toCompletableFuture().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.yu.gateway.core.filter;
 
 
+import com.yu.gateway.common.config.Rule;
 import com.yu.gateway.core.context.GatewayContext;
 
 
@@ -25,4 +26,12 @@ public interface Filter {
         }
         return Integer.MAX_VALUE;
     }
+
+    /**
+     * 解析过滤器配置，仅在规则变更、构建过滤器链时执行一次
+     * 请求处理时通过 GatewayContext#getParsedFilterConfig 获取解析结果
+     */
+    default Object parseConfig(Rule rule, Rule.FilterConfig filterConfig) {
+        return null;
+    }
 }
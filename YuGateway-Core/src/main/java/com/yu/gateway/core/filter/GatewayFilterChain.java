@@ -1,10 +1,17 @@
 package com.yu.gateway.core.filter;
 
+import com.yu.gateway.core.context.ContextStatus;
 import com.yu.gateway.core.context.GatewayContext;
+import io.netty.util.concurrent.EventExecutor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * @author yu
@@ -16,6 +23,16 @@ public class GatewayFilterChain {
 
 	private List<Filter> filters = new ArrayList<>();
 
+	/**
+	 * 过滤器解析后的配置  过滤器ID —— 配置对象，构建完成后只读
+	 */
+	private final Map<String, Object> parsedConfigs = new HashMap<>();
+
+	/**
+	 * 构建过滤器链时规则的指纹，规则内容未变化时复用过滤器链
+	 */
+	private String fingerprint;
+
 
 	public GatewayFilterChain addFilter(Filter filter) {
 		filters.add(filter);
@@ -28,21 +45,88 @@ public class GatewayFilterChain {
 	}
 
 
+	public GatewayFilterChain putParsedConfig(String filterId, Object parsedConfig) {
+		if (parsedConfig != null) {
+			parsedConfigs.put(filterId, parsedConfig);
+		}
+		return this;
+	}
+
+	public <T> T getParsedConfig(String filterId) {
+		return (T) parsedConfigs.get(filterId);
+	}
+
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	public void setFingerprint(String fingerprint) {
+		this.fingerprint = fingerprint;
+	}
+
 	/**
-	 * 执行过滤器链
+	 * 执行过滤器链：
+	 * 同步过滤器直接执行，异步过滤器未完成时挂起过滤器链，完成后在请求所属的 EventLoop 上继续执行后续过滤器
+	 * 过滤器写回响应后（上下文不再是 Running 状态）不再执行后续过滤器
+	 *
+	 * @return 全部过滤器执行完成时完成，任一过滤器失败时以该异常结束
 	 */
-	public GatewayContext doFilter(GatewayContext ctx) {
-		if (filters.isEmpty()) {
-			return ctx;
-		}
+	public CompletableFuture<GatewayContext> doFilter(GatewayContext ctx) {
+		CompletableFuture<GatewayContext> result = new CompletableFuture<>();
+		doFilter(ctx, 0, result);
+		return result;
+	}
+
+	private void doFilter(GatewayContext ctx, int index, CompletableFuture<GatewayContext> result) {
 		try {
-			for (Filter filter : filters) {
-				filter.doFilter(ctx);
+			for (int i = index; i < filters.size(); i++) {
+				// 过滤器已直接写回响应（例如缓存命中），终止后续过滤器
+				if (!ctx.judgeContextStatus(ContextStatus.Running)) {
+					break;
+				}
+				Filter filter = filters.get(i);
+				if (!(filter instanceof AsyncFilter asyncFilter)) {
+					filter.doFilter(ctx);
+					continue;
+				}
+				CompletableFuture<Void> future = asyncFilter.doFilterAsync(ctx).toCompletableFuture();
+				if (!future.isDone()) {
+					suspend(ctx, future, i + 1, result);
+					return;
+				}
+				// 已完成的结果直接继续，失败时抛出 CompletionException
+				future.join();
 			}
-		} catch (Exception e) {
-			log.error("执行过滤器发生异常: {}", e.getMessage());
-			throw new RuntimeException(e);
+		} catch (Throwable e) {
+			fail(result, e);
+			return;
 		}
-		return ctx;
+		result.complete(ctx);
+	}
+
+	/**
+	 * 挂起过滤器链，异步结果完成后切换回请求所属的 EventLoop 继续执行
+	 */
+	private void suspend(GatewayContext ctx, CompletableFuture<Void> future, int next, CompletableFuture<GatewayContext> result) {
+		EventExecutor executor = ctx.getNettyContext().executor();
+		future.whenComplete((ignored, e) -> {
+			try {
+				executor.execute(() -> {
+					if (e != null) {
+						fail(result, e);
+					} else {
+						doFilter(ctx, next, result);
+					}
+				});
+			} catch (RejectedExecutionException rejected) {
+				fail(result, rejected);
+			}
+		});
+	}
+
+	private static void fail(CompletableFuture<GatewayContext> result, Throwable e) {
+		Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+		log.error("执行过滤器发生异常: {}", cause.getMessage());
+		result.completeExceptionally(cause);
 	}
 }
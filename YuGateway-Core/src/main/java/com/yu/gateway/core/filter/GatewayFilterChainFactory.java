@@ -1,22 +1,22 @@
 package com.yu.gateway.core.filter;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
+import com.alibaba.fastjson.JSON;
 import com.yu.gateway.common.config.Rule;
 import com.yu.gateway.common.constant.FilterConst;
 import com.yu.gateway.core.context.GatewayContext;
+import com.yu.gateway.core.filter.breaker.CircuitBreakerRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
 
 /**
  * @author yu
  * 过滤器工厂具体实现类
  * 1、根据SPI 动态加载驱动实现的过滤器类对象，并存储到本地内存；
- * 2、根据注册中心配置的规则策略，加载实时可用的过滤器，组装为网关过滤器链。
+ * 2、根据注册中心配置的规则策略，加载实时可用的过滤器，组装为网关过滤器链；
+ * 3、规则推送时按规则预先构建过滤器链并解析过滤器配置，仅规则内容变化时重新构建。
  */
 @Slf4j
 public class GatewayFilterChainFactory implements FilterChainFactory{
@@ -42,10 +42,10 @@ public class GatewayFilterChainFactory implements FilterChainFactory{
 	}
 
 	/**
-	 * 过滤器链缓存（服务ID ——> 过滤器链）
-	 * ruleId —— GatewayFilterChain
+	 * 过滤器链快照（规则ID ——> 过滤器链）
+	 * ruleId —— GatewayFilterChain，规则变更时整体替换
 	 */
-	private Cache<String, GatewayFilterChain> chainCache = Caffeine.newBuilder().recordStats().expireAfterWrite(10, TimeUnit.SECONDS).build();
+	private volatile ConcurrentHashMap<String, GatewayFilterChain> chainMap = new ConcurrentHashMap<>();
 
 	/**
 	 * SPI加载本地过滤器实现类对象
@@ -79,20 +79,41 @@ public class GatewayFilterChainFactory implements FilterChainFactory{
 		// 获取规则ID
 		String ruleId = ctx.getRules().getId();
 
-		// 从缓存中获取过滤器链
-		GatewayFilterChain chain = chainCache.getIfPresent(ruleId);
+		// 从快照中获取过滤器链
+		ConcurrentHashMap<String, GatewayFilterChain> snapshot = chainMap;
+		GatewayFilterChain chain = snapshot.get(ruleId);
 
-		// 如果缓存中没有过滤器链，那么构建一个新的过滤器链
+		// 规则未经过预构建（例如推送与请求并发），那么构建一个新的过滤器链
 		if (chain == null) {
-			chain = doBuildFilterChain(ctx.getRules());
-			// 将新构建的过滤器链添加到缓存中
-			chainCache.put(ruleId, chain);
+			chain = snapshot.computeIfAbsent(ruleId, key -> doBuildFilterChain(ctx.getRules()));
 		}
 
 		// 返回过滤器链
+		ctx.setFilterChain(chain);
 		return chain;
 	}
 
+	/**
+	 * 配置中心推送规则时预先构建全部过滤器链，内容未变化的规则复用原有过滤器链
+	 */
+	public void refresh(List<Rule> rules) {
+		ConcurrentHashMap<String, GatewayFilterChain> previous = chainMap;
+		ConcurrentHashMap<String, GatewayFilterChain> snapshot = new ConcurrentHashMap<>();
+		int rebuilt = 0;
+		for (Rule rule : rules) {
+			String fingerprint = JSON.toJSONString(rule);
+			GatewayFilterChain chain = previous.get(rule.getId());
+			if (chain == null || !fingerprint.equals(chain.getFingerprint())) {
+				chain = doBuildFilterChain(rule, fingerprint);
+				rebuilt++;
+			}
+			snapshot.put(rule.getId(), chain);
+		}
+		chainMap = snapshot;
+		CircuitBreakerRegistry.getInstance().update(rules);
+		log.info("refresh filter chains, rules: {}, rebuilt: {}", rules.size(), rebuilt);
+	}
+
 	/**
 	 * 通过过滤器ID获取过滤器
 	 */
@@ -105,7 +126,12 @@ public class GatewayFilterChainFactory implements FilterChainFactory{
 	 * 构建过滤器链
 	 */
 	public GatewayFilterChain doBuildFilterChain(Rule rule) {
+		return doBuildFilterChain(rule, rule == null ? null : JSON.toJSONString(rule));
+	}
+
+	private GatewayFilterChain doBuildFilterChain(Rule rule, String fingerprint) {
 		GatewayFilterChain chain = new GatewayFilterChain();
+		chain.setFingerprint(fingerprint);
 		List<Filter> contextFilters = new ArrayList<>();
 		if (rule != null) {
 			Set<Rule.FilterConfig> configFilters = rule.getFilterConfigs();
@@ -120,12 +146,26 @@ public class GatewayFilterChainFactory implements FilterChainFactory{
 					Filter filter = processorFilterIdMap.get(filterConfigId);
 					log.info("set filter into filterChain, {} {}", filterConfigId, processFilterIdName.get(filterConfigId));
 					contextFilters.add(filter);
+					// 过滤器配置在构建时解析一次，请求处理时不再解析 JSON
+					try {
+						chain.putParsedConfig(filterConfigId, filter.parseConfig(rule, config));
+					} catch (Exception e) {
+						log.error("parse filter config failed, ruleId: {}, filterId: {}", rule.getId(), filterConfigId, e);
+					}
 				}
 			}
 		}
 
-		// 每个服务请求最终最后需要添加路由过滤器
-		contextFilters.add(processorFilterIdMap.get(FilterConst.ROUTER_FILTER_ID));
+		// 每个服务请求最终最后需要添加路由过滤器，路由过滤器的配置（熔断器）不依赖过滤器配置项
+		Filter routerFilter = processorFilterIdMap.get(FilterConst.ROUTER_FILTER_ID);
+		contextFilters.add(routerFilter);
+		if (rule != null && chain.getParsedConfig(FilterConst.ROUTER_FILTER_ID) == null) {
+			try {
+				chain.putParsedConfig(FilterConst.ROUTER_FILTER_ID, routerFilter.parseConfig(rule, null));
+			} catch (Exception e) {
+				log.error("parse router config failed, ruleId: {}", rule.getId(), e);
+			}
+		}
 		// 过滤器排序
 		contextFilters.sort(Comparator.comparingInt(Filter::getOrder));
 		//添加到链表中
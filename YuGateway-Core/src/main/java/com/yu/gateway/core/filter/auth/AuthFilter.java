@@ -19,7 +19,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author yu
@@ -34,39 +33,33 @@ public class AuthFilter implements Filter {
 
     @Override
 	public void doFilter(GatewayContext ctx) throws Exception {
-		// 遍历所有的过滤器配置
-		for (Rule.FilterConfig config : ctx.getRules().getFilterConfigs()) {
-			// 如果当前的过滤器ID不是我们需要的过滤器ID，那么就跳过这个过滤器配置
-			if (!config.getId().equals(FilterConst.AUTH_FILTER_ID)) {
-				continue;
-			}
-
-
-			// 解析过滤器配置，获取到我们需要的认证路径
-			List<String> authPaths = new ArrayList<>();
-			Map<String, List<String>> configMap = new ConcurrentHashMap<>();
-
-			if (config.getConfig() != null) {
-				configMap = JSON.parseObject(config.getConfig(), Map.class);
-				authPaths = configMap.getOrDefault(FilterConst.AUTH_FILTER_KEY, new ArrayList<>());
-			}
+		// 获取构建过滤器链时解析好的认证路径
+		Set<String> authPaths = ctx.getParsedFilterConfig(FilterConst.AUTH_FILTER_ID);
 
-			// 获取当前请求的路径
-			String curRequestKey = ctx.getRequest().getPath();
+		// 如果当前请求的路径不是我们需要的认证路径，那么就返回，不进行后续的处理
+		if (authPaths == null || !authPaths.contains(ctx.getRequest().getPath())) {
+			return;
+		}
 
-			// 如果当前请求的路径不是我们需要的认证路径，那么就返回，不进行后续的处理
-			if (!authPaths.contains(curRequestKey)) {
-				return;
-			}
+		// 从请求中获取token，如果token不存在，那么就抛出一个未授权的异常
+		String token = Optional.ofNullable(ctx.getRequest().getCookie(FilterConst.COOKIE_KEY))
+				.map(Cookie::value)
+				.orElseThrow(() -> new ResponseException(ResponseCode.UNAUTHORIZED));
 
-			// 从请求中获取token，如果token不存在，那么就抛出一个未授权的异常
-			String token = Optional.ofNullable(ctx.getRequest().getCookie(FilterConst.COOKIE_KEY))
-					.map(Cookie::value)
-					.orElseThrow(() -> new ResponseException(ResponseCode.UNAUTHORIZED));
+		// 对获取到的token进行验证
+		authenticateToken(ctx, token);
+	}
 
-			// 对获取到的token进行验证
-			authenticateToken(ctx, token);
+	/**
+	 * 解析过滤器配置，获取到我们需要的认证路径
+	 */
+	@Override
+	public Object parseConfig(Rule rule, Rule.FilterConfig filterConfig) {
+		if (filterConfig.getConfig() == null) {
+			return Collections.emptySet();
 		}
+		Map<String, List<String>> configMap = JSON.parseObject(filterConfig.getConfig(), Map.class);
+		return new HashSet<>(configMap.getOrDefault(FilterConst.AUTH_FILTER_KEY, new ArrayList<>()));
 	}
 
 	/**
@@ -0,0 +1,273 @@
+package com.yu.gateway.core.filter.breaker;
+
+import com.yu.gateway.common.config.Rule;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author yu
+ * 熔断器，按请求数统计的滑动窗口：
+ * 1.关闭状态下记录最近 N 个请求的结果，请求数达到最小值且失败率或慢调用率达到阈值时熔断；
+ * 2.熔断持续一段时间后进入半开状态，只放行固定数量的探测请求，探测结果决定恢复还是继续熔断；
+ * 3.信号量限制并发请求数，替代线程池隔离，请求不发生线程切换；
+ * 4.状态切换通过 CAS 完成，窗口基于原子数组，全程无锁；
+ * 5.配置变更时原地替换熔断参数，保留当前状态与窗口内的统计。
+ * @date 2024-06-02
+ */
+@Slf4j
+public class CircuitBreaker {
+
+	private static final int RECORDED = 1;
+
+	private static final int FAILURE = 1 << 1;
+
+	private static final int SLOW = 1 << 2;
+
+	private final String name;
+
+	private volatile Rule.HystrixConfig config;
+
+	private final AtomicReference<State> state;
+
+	/**
+	 * 当前并发请求数
+	 */
+	private final AtomicInteger concurrentCalls = new AtomicInteger();
+
+	private volatile Settings settings;
+
+	public CircuitBreaker(String name, Rule.HystrixConfig config) {
+		this.name = name;
+		this.config = config;
+		this.settings = new Settings(config);
+		this.state = new AtomicReference<>(State.closed(settings.slidingWindowSize));
+	}
+
+	/**
+	 * 获取执行许可，熔断中、半开状态探测请求已满或并发数已满时返回 false
+	 * 获取成功后必须调用 onComplete
+	 */
+	public boolean tryAcquire() {
+		Settings current = settings;
+		int calls = concurrentCalls.incrementAndGet();
+		if (current.maxConcurrentCalls > 0 && calls > current.maxConcurrentCalls) {
+			concurrentCalls.decrementAndGet();
+			return false;
+		}
+		if (!isCallPermitted(current)) {
+			concurrentCalls.decrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	private boolean isCallPermitted(Settings current) {
+		while (true) {
+			State s = state.get();
+			switch (s.type) {
+				case CLOSED:
+					return true;
+				case HALF_OPEN:
+					return s.halfOpenPermits.getAndDecrement() > 0;
+				default:
+					if (System.nanoTime() - s.openUntilNanos < 0) {
+						return false;
+					}
+					if (state.compareAndSet(s, State.halfOpen(current.permittedCallsInHalfOpenState))) {
+						log.info("circuit breaker {} half open", name);
+					}
+			}
+		}
+	}
+
+	/**
+	 * 记录请求结果
+	 *
+	 * @param durationNanos 请求耗时
+	 * @param success       是否成功
+	 */
+	public void onComplete(long durationNanos, boolean success) {
+		concurrentCalls.decrementAndGet();
+		Settings current = settings;
+		State s = state.get();
+		if (s.type == Type.OPEN) {
+			return;
+		}
+
+		int outcome = RECORDED | (success ? 0 : FAILURE) | (durationNanos >= current.slowCallNanos ? SLOW : 0);
+		int total = s.window.record(outcome);
+		if (s.type == Type.CLOSED) {
+			if (total >= current.minimumNumberOfCalls && current.exceeds(s.window, total)) {
+				open(s, current);
+			}
+		} else if (total >= current.permittedCallsInHalfOpenState) {
+			if (current.exceeds(s.window, total)) {
+				open(s, current);
+			} else if (state.compareAndSet(s, State.closed(current.slidingWindowSize))) {
+				log.info("circuit breaker {} closed", name);
+			}
+		}
+	}
+
+	private void open(State expected, Settings current) {
+		if (state.compareAndSet(expected, State.open(System.nanoTime() + current.waitNanos))) {
+			log.warn("circuit breaker {} open, failures: {}, slow calls: {}, calls: {}", name,
+					expected.window.failures.get(), expected.window.slowCalls.get(), expected.window.total.get());
+		}
+	}
+
+	/**
+	 * 更新熔断配置，熔断/半开状态保持不变，窗口大小变化时按新大小迁移最近的请求结果
+	 */
+	public void update(Rule.HystrixConfig newConfig) {
+		Settings previous = settings;
+		Settings next = new Settings(newConfig);
+		this.config = newConfig;
+		this.settings = next;
+		if (next.slidingWindowSize != previous.slidingWindowSize) {
+			State s = state.get();
+			if (s.type == Type.CLOSED) {
+				state.compareAndSet(s, State.closed(s.window.resize(next.slidingWindowSize)));
+			}
+		}
+		log.info("circuit breaker {} config updated", name);
+	}
+
+	public Rule.HystrixConfig getConfig() {
+		return config;
+	}
+
+	public long getTimeoutMillis() {
+		return settings.timeoutMillis;
+	}
+
+	public boolean isOpen() {
+		return state.get().type == Type.OPEN;
+	}
+
+	private enum Type {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private static final class State {
+		private final Type type;
+		private final Window window;
+		private final long openUntilNanos;
+		private final AtomicInteger halfOpenPermits;
+
+		private State(Type type, Window window, long openUntilNanos, AtomicInteger halfOpenPermits) {
+			this.type = type;
+			this.window = window;
+			this.openUntilNanos = openUntilNanos;
+			this.halfOpenPermits = halfOpenPermits;
+		}
+
+		private static State closed(int windowSize) {
+			return closed(new Window(windowSize));
+		}
+
+		private static State closed(Window window) {
+			return new State(Type.CLOSED, window, 0, null);
+		}
+
+		private static State open(long openUntilNanos) {
+			return new State(Type.OPEN, null, openUntilNanos, null);
+		}
+
+		private static State halfOpen(int permits) {
+			return new State(Type.HALF_OPEN, new Window(permits), 0, new AtomicInteger(permits));
+		}
+	}
+
+	/**
+	 * 环形窗口，每个槽位保存一个请求的结果，覆盖旧结果时按差值修正计数
+	 */
+	private static final class Window {
+		private final AtomicIntegerArray slots;
+		private final AtomicLong index = new AtomicLong();
+		private final AtomicInteger total = new AtomicInteger();
+		private final AtomicInteger failures = new AtomicInteger();
+		private final AtomicInteger slowCalls = new AtomicInteger();
+
+		private Window(int size) {
+			this.slots = new AtomicIntegerArray(Math.max(1, size));
+		}
+
+		/**
+		 * 记录结果，返回窗口内的请求数
+		 */
+		private int record(int outcome) {
+			int slot = (int) (index.getAndIncrement() % slots.length());
+			int previous = slots.getAndSet(slot, outcome);
+			int failureDelta = bit(outcome, FAILURE) - bit(previous, FAILURE);
+			if (failureDelta != 0) {
+				failures.addAndGet(failureDelta);
+			}
+			int slowDelta = bit(outcome, SLOW) - bit(previous, SLOW);
+			if (slowDelta != 0) {
+				slowCalls.addAndGet(slowDelta);
+			}
+			return (previous & RECORDED) == 0 ? total.incrementAndGet() : total.get();
+		}
+
+		/**
+		 * 按新的大小创建窗口，由旧到新重放最近的请求结果
+		 */
+		private Window resize(int size) {
+			Window resized = new Window(size);
+			long end = index.get();
+			int keep = Math.min(size, slots.length());
+			for (long i = Math.max(0, end - keep); i < end; i++) {
+				int outcome = slots.get((int) (i % slots.length()));
+				if ((outcome & RECORDED) != 0) {
+					resized.record(outcome);
+				}
+			}
+			return resized;
+		}
+
+		private static int bit(int value, int flag) {
+			return (value & flag) == 0 ? 0 : 1;
+		}
+	}
+
+	/**
+	 * 由 HystrixConfig 换算得到的熔断参数
+	 */
+	private static final class Settings {
+		private final long timeoutMillis;
+		private final int maxConcurrentCalls;
+		private final int failureRateThreshold;
+		private final int slowCallRateThreshold;
+		private final long slowCallNanos;
+		private final int slidingWindowSize;
+		private final int minimumNumberOfCalls;
+		private final long waitNanos;
+		private final int permittedCallsInHalfOpenState;
+
+		private Settings(Rule.HystrixConfig config) {
+			this.timeoutMillis = config.getTimeoutInMilliseconds();
+			this.maxConcurrentCalls = config.getCoreThreadSize();
+			this.failureRateThreshold = config.getFailureRateThreshold();
+			this.slowCallRateThreshold = config.getSlowCallRateThreshold();
+			long slowMillis = config.getSlowCallDurationThreshold() > 0 ? config.getSlowCallDurationThreshold() : timeoutMillis;
+			this.slowCallNanos = slowMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(slowMillis) : Long.MAX_VALUE;
+			this.slidingWindowSize = Math.max(1, config.getSlidingWindowSize());
+			this.minimumNumberOfCalls = Math.max(1, Math.min(config.getMinimumNumberOfCalls(), slidingWindowSize));
+			this.waitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, config.getWaitDurationInOpenState()));
+			this.permittedCallsInHalfOpenState = Math.max(1, config.getPermittedCallsInHalfOpenState());
+		}
+
+		private boolean exceeds(Window window, int total) {
+			if (failureRateThreshold > 0 && (long) window.failures.get() * 100 >= (long) failureRateThreshold * total) {
+				return true;
+			}
+			return slowCallRateThreshold < 100 && (long) window.slowCalls.get() * 100 >= (long) slowCallRateThreshold * total;
+		}
+	}
+}
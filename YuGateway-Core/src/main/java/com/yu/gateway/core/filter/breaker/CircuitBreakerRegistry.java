@@ -0,0 +1,75 @@
+package com.yu.gateway.core.filter.breaker;
+
+import com.yu.gateway.common.config.Rule;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author yu
+ * 熔断器注册表：
+ * 1.构建过滤器链时按规则的 HystrixConfig 预先创建熔断器，请求处理时只做一次路径查找；
+ * 2.规则重新推送时复用同一路径的熔断器，配置变化时原地更新参数，熔断状态与统计不会被重置；
+ * 3.规则中已删除的熔断路径随规则的重新构建一起移除，已删除规则的熔断器在规则推送时移除。
+ * @date 2024-06-03
+ */
+public class CircuitBreakerRegistry {
+
+	/**
+	 * 规则ID —— (熔断路径 —— 熔断器)
+	 */
+	private final ConcurrentHashMap<String, Map<String, CircuitBreaker>> ruleBreakers = new ConcurrentHashMap<>();
+
+	private static class SingleInstanceHolder {
+		private static final CircuitBreakerRegistry INSTANCE = new CircuitBreakerRegistry();
+	}
+
+	public static CircuitBreakerRegistry getInstance() {
+		return SingleInstanceHolder.INSTANCE;
+	}
+
+	/**
+	 * 构建规则对应的熔断器表，返回的 Map 构建后只读
+	 */
+	public Map<String, CircuitBreaker> register(Rule rule) {
+		Set<Rule.HystrixConfig> configs = rule.getHystrixConfigs();
+		if (configs == null || configs.isEmpty()) {
+			ruleBreakers.remove(rule.getId());
+			return Collections.emptyMap();
+		}
+
+		Map<String, CircuitBreaker> previous = ruleBreakers.getOrDefault(rule.getId(), Collections.emptyMap());
+		Map<String, CircuitBreaker> breakers = new HashMap<>();
+		for (Rule.HystrixConfig config : configs) {
+			if (config == null || StringUtils.isEmpty(config.getPath()) || breakers.containsKey(config.getPath())) {
+				continue;
+			}
+			CircuitBreaker breaker = previous.get(config.getPath());
+			if (breaker == null) {
+				breaker = new CircuitBreaker(rule.getId() + "." + config.getPath(), config);
+			} else if (!breaker.getConfig().equals(config)) {
+				breaker.update(config);
+			}
+			breakers.put(config.getPath(), breaker);
+		}
+		ruleBreakers.put(rule.getId(), breakers);
+		return breakers;
+	}
+
+	/**
+	 * 配置中心推送规则时调用，移除已删除规则的熔断器
+	 */
+	public void update(Collection<Rule> rules) {
+		Set<String> ruleIds = new HashSet<>(rules.size() * 2);
+		for (Rule rule : rules) {
+			ruleIds.add(rule.getId());
+		}
+		ruleBreakers.keySet().retainAll(ruleIds);
+	}
+}
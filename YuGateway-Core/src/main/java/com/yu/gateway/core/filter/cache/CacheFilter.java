@@ -0,0 +1,204 @@
+package com.yu.gateway.core.filter.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.yu.gateway.common.config.Rule;
+import com.yu.gateway.core.ConfigLoader;
+import com.yu.gateway.core.cache.GatewayCacheManager;
+import com.yu.gateway.core.context.ContextStatus;
+import com.yu.gateway.core.context.GatewayContext;
+import com.yu.gateway.core.filter.AsyncFilter;
+import com.yu.gateway.core.filter.FilterAspect;
+import com.yu.gateway.core.helper.ResponseHelper;
+import com.yu.gateway.core.request.GatewayRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.util.IllegalReferenceCountException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.yu.gateway.common.constant.FilterConst.*;
+
+/**
+ * @author yu
+ * 响应缓存过滤器，仅对配置了该过滤器的规则生效：
+ * 1.GET 请求按 CachePolicy 计算缓存键，命中且未过期时直接写回缓存的响应，不再执行后续过滤器；
+ * 2.客户端的条件请求（If-None-Match / If-Modified-Since）与缓存条目的校验器匹配时返回 304；
+ * 3.同一缓存键同时未命中的请求只有一个转发到下游，其余请求等待该请求的响应，响应不可缓存或等待超时时各自转发；
+ * 4.缓存按响应体大小计算权重，总大小由 responseCacheMaxBytes 限制，条目过期或被淘汰时释放缓存的响应体。
+ * @date 2024-06-12
+ */
+@Slf4j
+@FilterAspect(id = CACHE_FILTER_ID, name = CACHE_FILTER_NAME, order = CACHE_FILTER_ORDER)
+public class CacheFilter implements AsyncFilter {
+
+	private static final CompletableFuture<Void> COMPLETED = CompletableFuture.completedFuture(null);
+
+	private static final String RESPONSE_CACHE_ID = "response_cache";
+
+	private static final class CacheHolder {
+		private static final Cache<String, CachedResponse> CACHE = GatewayCacheManager.getInstance().create(RESPONSE_CACHE_ID,
+				ConfigLoader.getConfig().getResponseCacheMaxBytes(),
+				(key, value) -> value.weight(),
+				new ResponseExpiry(),
+				(key, value, cause) -> {
+					if (value != null) {
+						value.release();
+					}
+				});
+	}
+
+	/**
+	 * 缓存键 —— 正在转发到下游的请求，完成时携带存入缓存的条目，响应不可缓存时为 null
+	 */
+	private final ConcurrentHashMap<String, CompletableFuture<CachedResponse>> inflight = new ConcurrentHashMap<>();
+
+	@Override
+	public CompletionStage<Void> doFilterAsync(GatewayContext ctx) {
+		CachePolicy policy = ctx.getParsedFilterConfig(CACHE_FILTER_ID);
+		GatewayRequest request = ctx.getRequest();
+		if (policy == null || request == null || ctx.isStreaming() || !HttpMethod.GET.equals(request.getMethod())) {
+			return COMPLETED;
+		}
+		HttpHeaders headers = request.getHeaders();
+		if (headers.containsValue(HttpHeaderNames.CACHE_CONTROL, HttpHeaderValues.NO_STORE, true)) {
+			return COMPLETED;
+		}
+
+		String key = policy.key(request);
+		Cache<String, CachedResponse> cache = CacheHolder.CACHE;
+		// 客户端要求重新校验，跳过缓存查找，响应仍然可以更新缓存
+		if (headers.containsValue(HttpHeaderNames.CACHE_CONTROL, HttpHeaderValues.NO_CACHE, true)
+				|| headers.containsValue(HttpHeaderNames.PRAGMA, HttpHeaderValues.NO_CACHE, true)) {
+			store(ctx, policy, key, null);
+			return COMPLETED;
+		}
+		if (serve(ctx, key, cache.getIfPresent(key))) {
+			return COMPLETED;
+		}
+
+		CompletableFuture<CachedResponse> leader = new CompletableFuture<>();
+		CompletableFuture<CachedResponse> existing = inflight.putIfAbsent(key, leader);
+		if (existing == null) {
+			startMiss(ctx, policy, key, leader);
+			return COMPLETED;
+		}
+
+		// 等待同一缓存键的请求返回，超时或不可缓存时自行转发，下游超时时间扣除已等待的时间
+		int requestTimeout = ConfigLoader.getConfig().getHttpRequestTimeout();
+		long waitStart = System.nanoTime();
+		return existing.copy()
+				.completeOnTimeout(null, requestTimeout, TimeUnit.MILLISECONDS)
+				.handleAsync((entry, e) -> {
+					if (!serve(ctx, key, e == null ? entry : null)) {
+						long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStart);
+						request.setRequestTimeout((int) Math.max(1, requestTimeout - waited));
+					}
+					return null;
+				}, ctx.getNettyContext().executor());
+	}
+
+	/**
+	 * 当前请求作为该缓存键唯一转发到下游的请求
+	 */
+	private void startMiss(GatewayContext ctx, CachePolicy policy, String key, CompletableFuture<CachedResponse> leader) {
+		// 请求未写回响应时（例如客户端断开）避免等待者长期挂起
+		leader.completeOnTimeout(null, ConfigLoader.getConfig().getHttpRequestTimeout(), TimeUnit.MILLISECONDS)
+				.whenComplete((entry, e) -> inflight.remove(key, leader));
+
+		// 等待者需要完整的响应，下游的 304 无法为其提供响应体
+		GatewayRequest request = ctx.getRequest();
+		if (request.getHeaders().contains(HttpHeaderNames.IF_NONE_MATCH)) {
+			request.removeHeader(HttpHeaderNames.IF_NONE_MATCH);
+		}
+		if (request.getHeaders().contains(HttpHeaderNames.IF_MODIFIED_SINCE)) {
+			request.removeHeader(HttpHeaderNames.IF_MODIFIED_SINCE);
+		}
+		store(ctx, policy, key, leader);
+	}
+
+	/**
+	 * 响应写回前存入缓存，并唤醒等待同一缓存键的请求
+	 */
+	private void store(GatewayContext ctx, CachePolicy policy, String key, CompletableFuture<CachedResponse> leader) {
+		HttpHeaders requestHeaders = ctx.getRequest().getHeaders();
+		ctx.addResponseCallback(response -> {
+			CachedResponse entry = null;
+			try {
+				long freshness = policy.freshnessMillis(requestHeaders, response);
+				if (freshness > 0 && response.content().readableBytes() <= policy.getMaxBodySize()) {
+					entry = CachedResponse.of(response, requestHeaders, freshness);
+					CacheHolder.CACHE.put(key, entry);
+				}
+			} finally {
+				if (leader != null) {
+					leader.complete(entry);
+				}
+			}
+		});
+	}
+
+	/**
+	 * 使用缓存条目写回响应，条目为空、已过期或 Vary 请求头不一致时返回 false
+	 */
+	private boolean serve(GatewayContext ctx, String key, CachedResponse entry) {
+		if (entry == null) {
+			return false;
+		}
+		try {
+			entry.retain();
+		} catch (IllegalReferenceCountException e) {
+			// 条目已被淘汰并释放
+			return false;
+		}
+		try {
+			long now = System.currentTimeMillis();
+			if (!entry.isFresh(now)) {
+				CacheHolder.CACHE.asMap().remove(key, entry);
+				return false;
+			}
+			HttpHeaders requestHeaders = ctx.getRequest().getHeaders();
+			if (!entry.matchesVary(requestHeaders)) {
+				return false;
+			}
+			ctx.setResponse(entry.isNotModified(requestHeaders) ? entry.toNotModifiedResponse(now) : entry.toResponse(now));
+			ctx.setContextStatus(ContextStatus.Written);
+			ResponseHelper.writeResponse(ctx);
+			return true;
+		} finally {
+			entry.release();
+		}
+	}
+
+	/**
+	 * 条目按响应的有效期过期，替换时使用新条目的有效期，读取不延长有效期
+	 */
+	private static final class ResponseExpiry implements Expiry<String, CachedResponse> {
+
+		@Override
+		public long expireAfterCreate(String key, CachedResponse value, long currentTime) {
+			return value.remainingNanos(System.currentTimeMillis());
+		}
+
+		@Override
+		public long expireAfterUpdate(String key, CachedResponse value, long currentTime, long currentDuration) {
+			return value.remainingNanos(System.currentTimeMillis());
+		}
+
+		@Override
+		public long expireAfterRead(String key, CachedResponse value, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+	}
+
+	@Override
+	public Object parseConfig(Rule rule, Rule.FilterConfig filterConfig) {
+		return CachePolicy.parse(rule, filterConfig);
+	}
+}
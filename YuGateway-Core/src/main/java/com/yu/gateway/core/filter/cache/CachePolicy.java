@@ -0,0 +1,174 @@
+package com.yu.gateway.core.filter.cache;
+
+import com.alibaba.fastjson.JSON;
+import com.yu.gateway.common.config.Rule;
+import com.yu.gateway.core.request.GatewayRequest;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.yu.gateway.common.constant.FilterConst.*;
+
+/**
+ * @author yu
+ * 规则的响应缓存配置，构建过滤器链时解析：
+ * 1.缓存键：服务 + 规则 + 方法 + 路径 + 指定的查询参数（未指定时为完整查询串）+ 指定的请求头；
+ * 2.有效期：s-maxage > max-age > Expires，下游未指定时使用规则的 ttl；
+ * 3.no-store、private、no-cache、Set-Cookie、Vary: * 以及未声明可共享的带认证请求的响应不缓存。
+ * @date 2024-06-12
+ */
+@Getter
+final class CachePolicy {
+
+	private static final int DEFAULT_MAX_BODY_SIZE = 1024 * 1024;
+
+	private final String ruleId;
+
+	/**
+	 * 下游响应未指定有效期时的缓存时间，小于等于 0 时不缓存
+	 */
+	private final long ttlMillis;
+
+	/**
+	 * 参与缓存键的查询参数，null 表示完整查询串
+	 */
+	private final List<String> keyQueries;
+
+	private final List<String> keyHeaders;
+
+	private final int maxBodySize;
+
+	private CachePolicy(String ruleId, long ttlMillis, List<String> keyQueries, List<String> keyHeaders, int maxBodySize) {
+		this.ruleId = ruleId;
+		this.ttlMillis = ttlMillis;
+		this.keyQueries = keyQueries;
+		this.keyHeaders = keyHeaders;
+		this.maxBodySize = maxBodySize;
+	}
+
+	static CachePolicy parse(Rule rule, Rule.FilterConfig filterConfig) {
+		Map<String, Object> map = Map.of();
+		if (filterConfig != null && StringUtils.isNotEmpty(filterConfig.getConfig())) {
+			map = JSON.parseObject(filterConfig.getConfig(), Map.class);
+		}
+		long ttlSeconds = toLong(map.get(CACHE_TTL), 0);
+		int maxBodySize = (int) toLong(map.get(CACHE_MAX_BODY_SIZE), DEFAULT_MAX_BODY_SIZE);
+		Object queries = map.get(CACHE_KEY_QUERIES);
+		return new CachePolicy(rule.getId(), ttlSeconds * 1000, queries == null ? null : toList(queries),
+				toList(map.get(CACHE_KEY_HEADERS)), maxBodySize);
+	}
+
+	private static long toLong(Object value, long defaultValue) {
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(String.valueOf(value).trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	private static List<String> toList(Object value) {
+		if (value == null) {
+			return Collections.emptyList();
+		}
+		if (value instanceof Collection<?> collection) {
+			return collection.stream().map(String::valueOf).map(String::trim).collect(Collectors.toList());
+		}
+		return List.of(StringUtils.stripAll(StringUtils.split(String.valueOf(value), ',')));
+	}
+
+	/**
+	 * 计算请求的缓存键
+	 */
+	String key(GatewayRequest request) {
+		StringBuilder key = new StringBuilder(128)
+				.append(request.getUniqueId()).append(' ')
+				.append(ruleId).append(' ')
+				.append(request.getMethod().name()).append(' ')
+				.append(request.getPath());
+		if (keyQueries == null) {
+			String uri = request.getUri();
+			int queryIndex = uri.indexOf('?');
+			if (queryIndex >= 0) {
+				key.append(uri, queryIndex, uri.length());
+			}
+		} else {
+			for (String name : keyQueries) {
+				List<String> values = request.getQueryParametersMultiple(name);
+				key.append('&').append(name).append('=');
+				if (values != null) {
+					key.append(String.join(",", values));
+				}
+			}
+		}
+		for (String name : keyHeaders) {
+			key.append('|').append(name).append('=').append(StringUtils.defaultString(request.getHeaders().get(name)));
+		}
+		return key.toString();
+	}
+
+	/**
+	 * 响应的缓存有效期（毫秒），不可缓存时返回 -1
+	 */
+	long freshnessMillis(HttpHeaders requestHeaders, FullHttpResponse response) {
+		if (!HttpResponseStatus.OK.equals(response.status())) {
+			return -1;
+		}
+		HttpHeaders headers = response.headers();
+		if (headers.contains(HttpHeaderNames.SET_COOKIE)
+				|| headers.containsValue(HttpHeaderNames.VARY, "*", false)
+				|| headers.containsValue(HttpHeaderNames.CACHE_CONTROL, HttpHeaderValues.NO_STORE, true)
+				|| headers.containsValue(HttpHeaderNames.CACHE_CONTROL, HttpHeaderValues.NO_CACHE, true)
+				|| headers.containsValue(HttpHeaderNames.CACHE_CONTROL, HttpHeaderValues.PRIVATE, true)) {
+			return -1;
+		}
+
+		long sMaxAge = -1;
+		long maxAge = -1;
+		boolean shared = false;
+		for (String cacheControl : headers.getAll(HttpHeaderNames.CACHE_CONTROL)) {
+			for (String directive : StringUtils.split(cacheControl, ',')) {
+				String[] pair = StringUtils.split(directive.trim(), "=", 2);
+				String name = pair[0].trim().toLowerCase();
+				if (HttpHeaderValues.S_MAXAGE.contentEquals(name) && pair.length == 2) {
+					sMaxAge = toLong(StringUtils.strip(pair[1].trim(), "\""), -1);
+				} else if (HttpHeaderValues.MAX_AGE.contentEquals(name) && pair.length == 2) {
+					maxAge = toLong(StringUtils.strip(pair[1].trim(), "\""), -1);
+				} else if (HttpHeaderValues.PUBLIC.contentEquals(name)) {
+					shared = true;
+				}
+			}
+		}
+		// 带认证信息的请求，只有下游明确声明可共享时才缓存
+		if (requestHeaders.contains(HttpHeaderNames.AUTHORIZATION) && !shared && sMaxAge < 0) {
+			return -1;
+		}
+
+		if (sMaxAge >= 0) {
+			return sMaxAge * 1000;
+		}
+		if (maxAge >= 0) {
+			return maxAge * 1000;
+		}
+		String expires = headers.get(HttpHeaderNames.EXPIRES);
+		if (expires != null) {
+			Date date = DateFormatter.parseHttpDate(expires);
+			return date == null ? -1 : date.getTime() - System.currentTimeMillis();
+		}
+		return ttlMillis > 0 ? ttlMillis : -1;
+	}
+}
@@ -0,0 +1,197 @@
+package com.yu.gateway.core.filter.cache;
+
+import com.yu.gateway.core.request.GatewayRequest;
+import com.yu.gateway.core.response.GatewayResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.AbstractReferenceCounted;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author yu
+ * 缓存的下游响应：
+ * 1.响应体复制到池化的直接内存，条目被淘汰、替换时释放；
+ * 2.条目自身带引用计数，读取时先持有条目引用再复制响应体的引用，避免与并发的淘汰同时释放响应体；
+ * 3.记录 Vary 请求头的取值，请求头不一致时视为未命中。
+ * @date 2024-06-12
+ */
+final class CachedResponse extends AbstractReferenceCounted {
+
+	/**
+	 * 估算的响应头占用字节数，参与缓存权重
+	 */
+	private static final int HEADER_WEIGHT = 256;
+
+	private final HttpResponseStatus status;
+
+	private final HttpHeaders headers;
+
+	private final ByteBuf body;
+
+	private final long storedAtMillis;
+
+	private final long expiresAtMillis;
+
+	/**
+	 * Vary 请求头 —— 存储时请求中的取值，响应没有 Vary 时为 null
+	 */
+	private final Map<String, String> varyValues;
+
+	private CachedResponse(HttpResponseStatus status, HttpHeaders headers, ByteBuf body, long storedAtMillis,
+						   long expiresAtMillis, Map<String, String> varyValues) {
+		this.status = status;
+		this.headers = headers;
+		this.body = body;
+		this.storedAtMillis = storedAtMillis;
+		this.expiresAtMillis = expiresAtMillis;
+		this.varyValues = varyValues;
+	}
+
+	/**
+	 * 复制下游响应，不改变原响应的读写索引与引用计数
+	 */
+	static CachedResponse of(FullHttpResponse response, HttpHeaders requestHeaders, long freshnessMillis) {
+		HttpHeaders headers = new DefaultHttpHeaders().add(response.headers());
+		headers.remove(HttpHeaderNames.CONNECTION);
+		headers.remove(GatewayRequest.KEEP_ALIVE);
+		headers.remove(HttpHeaderNames.TRANSFER_ENCODING);
+		headers.remove(HttpHeaderNames.CONTENT_LENGTH);
+		headers.remove(HttpHeaderNames.AGE);
+
+		Map<String, String> varyValues = null;
+		for (String vary : headers.getAll(HttpHeaderNames.VARY)) {
+			for (String name : StringUtils.split(vary, ',')) {
+				if (varyValues == null) {
+					varyValues = new LinkedHashMap<>();
+				}
+				varyValues.put(name.trim(), requestHeaders.get(name.trim()));
+			}
+		}
+
+		ByteBuf content = response.content();
+		int length = content.readableBytes();
+		ByteBuf body = PooledByteBufAllocator.DEFAULT.directBuffer(length, length);
+		body.writeBytes(content, content.readerIndex(), length);
+
+		long now = System.currentTimeMillis();
+		return new CachedResponse(response.status(), headers, body, now, now + freshnessMillis, varyValues);
+	}
+
+	boolean isFresh(long nowMillis) {
+		return nowMillis < expiresAtMillis;
+	}
+
+	/**
+	 * 距离过期的剩余时间（纳秒），用于缓存的按条目过期
+	 */
+	long remainingNanos(long nowMillis) {
+		return TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiresAtMillis - nowMillis));
+	}
+
+	/**
+	 * 请求中 Vary 请求头的取值与存储时一致
+	 */
+	boolean matchesVary(HttpHeaders requestHeaders) {
+		if (varyValues == null) {
+			return true;
+		}
+		for (Map.Entry<String, String> entry : varyValues.entrySet()) {
+			if (!Objects.equals(entry.getValue(), requestHeaders.get(entry.getKey()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 条件请求是否命中：优先比较 If-None-Match 与 ETag（弱比较），否则比较 If-Modified-Since 与 Last-Modified
+	 */
+	boolean isNotModified(HttpHeaders requestHeaders) {
+		String ifNoneMatch = requestHeaders.get(HttpHeaderNames.IF_NONE_MATCH);
+		if (ifNoneMatch != null) {
+			String etag = headers.get(HttpHeaderNames.ETAG);
+			return etag != null && etagMatches(ifNoneMatch, etag);
+		}
+		String ifModifiedSince = requestHeaders.get(HttpHeaderNames.IF_MODIFIED_SINCE);
+		String lastModified = headers.get(HttpHeaderNames.LAST_MODIFIED);
+		if (ifModifiedSince == null || lastModified == null) {
+			return false;
+		}
+		Date since = DateFormatter.parseHttpDate(ifModifiedSince);
+		Date modified = DateFormatter.parseHttpDate(lastModified);
+		return since != null && modified != null && !modified.after(since);
+	}
+
+	private static boolean etagMatches(String ifNoneMatch, String etag) {
+		String opaque = stripWeak(etag);
+		for (String candidate : StringUtils.split(ifNoneMatch, ',')) {
+			String tag = candidate.trim();
+			if ("*".equals(tag) || stripWeak(tag).equals(opaque)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String stripWeak(String etag) {
+		return etag.startsWith("W/") ? etag.substring(2) : etag;
+	}
+
+	/**
+	 * 构造命中时的响应，响应头为副本，响应体共享缓存内容（引用计数 +1），调用方需持有条目引用
+	 */
+	GatewayResponse toResponse(long nowMillis) {
+		HttpHeaders responseHeaders = copyHeaders(nowMillis);
+		responseHeaders.set(HttpHeaderNames.CONTENT_LENGTH, body.readableBytes());
+		return GatewayResponse.buildGatewayResponse(status, responseHeaders, body.retainedDuplicate());
+	}
+
+	/**
+	 * 构造条件请求命中时的 304 响应，只保留校验与缓存相关的响应头
+	 */
+	GatewayResponse toNotModifiedResponse(long nowMillis) {
+		HttpHeaders copied = copyHeaders(nowMillis);
+		HttpHeaders responseHeaders = new DefaultHttpHeaders();
+		for (CharSequence name : new CharSequence[]{HttpHeaderNames.ETAG, HttpHeaderNames.LAST_MODIFIED,
+				HttpHeaderNames.CACHE_CONTROL, HttpHeaderNames.EXPIRES, HttpHeaderNames.VARY, HttpHeaderNames.AGE, HttpHeaderNames.DATE}) {
+			responseHeaders.add(name, copied.getAll(name));
+		}
+		return GatewayResponse.buildGatewayResponse(HttpResponseStatus.NOT_MODIFIED, responseHeaders, Unpooled.EMPTY_BUFFER);
+	}
+
+	private HttpHeaders copyHeaders(long nowMillis) {
+		HttpHeaders copied = headers.copy();
+		copied.set(HttpHeaderNames.AGE, Math.max(0, (nowMillis - storedAtMillis) / 1000));
+		return copied;
+	}
+
+	/**
+	 * 缓存权重：响应体字节数加上估算的响应头大小
+	 */
+	int weight() {
+		return body.readableBytes() + HEADER_WEIGHT;
+	}
+
+	@Override
+	protected void deallocate() {
+		body.release();
+	}
+
+	@Override
+	public CachedResponse touch(Object hint) {
+		return this;
+	}
+}
@@ -1,21 +1,11 @@
 package com.yu.gateway.core.filter.flow;
 
-import com.alibaba.fastjson.JSON;
 import com.yu.gateway.common.config.Rule;
 import com.yu.gateway.common.constant.FilterConst;
-import com.yu.gateway.common.utils.redis.JedisUtil;
-import com.yu.gateway.core.filter.flow.algorithm.SlidingWindowAlgorithm;
-import com.yu.gateway.core.filter.flow.algorithm.StableAlgorithm;
-import com.yu.gateway.core.filter.flow.algorithm.VoteBucketAlgorithm;
-import org.apache.commons.lang3.StringUtils;
 
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
-import static com.yu.gateway.common.constant.FilterConst.FLOW_CTL_LIMIT_DURATION;
-import static com.yu.gateway.common.constant.FilterConst.FLOW_CTL_LIMIT_PERMITS;
-import static com.yu.gateway.core.filter.flow.FlowAlgorithmConstant.*;
-
 /**
  * @author yu
  * @description 根据请求服务获取具体的流控规则过滤器
@@ -50,57 +40,48 @@ public class FlowControlByService implements GatewayFlowControlRule {
 	}
 
 	/**
-	 * 执行流控规则过滤器
+	 * 限流操作
 	 *
-	 * @param flowControlConfig 注册中心限流配置；
-	 * @param serviceId         服务ID
+	 * @param flowControlLimit 解析后的流控配置
 	 */
 	@Override
-	public void doFlowControlFilter(Rule.FlowControlConfig flowControlConfig, String serviceId) {
-		if (flowControlConfig == null || StringUtils.isEmpty(serviceId) || StringUtils.isEmpty(flowControlConfig.getConfig())) {
-			return;
-		}
-
-		//获得当前路径对应的流控次数
-		Map<String, Integer> configMap = JSON.parseObject(flowControlConfig.getConfig(), Map.class);
-
-		//判断是否包含流控规则   FLOW_CTL_LIMIT_DURATION：限流时间单位---秒  FLOW_CTL_LIMIT_PERMITS：限流请求次数---次
-		if (!configMap.containsKey(FLOW_CTL_LIMIT_DURATION) || !configMap.containsKey(FLOW_CTL_LIMIT_PERMITS)) {
+	public void doFlowControlFilter(FlowControlLimit flowControlLimit) {
+		if (flowControlLimit == null) {
 			return;
 		}
-
-		//得到流控时间和时间内限制次数
-		double duration = configMap.get(FLOW_CTL_LIMIT_DURATION);
-		double permits = configMap.get(FLOW_CTL_LIMIT_PERMITS);
+		Rule.FlowControlConfig flowControlConfig = flowControlLimit.getConfig();
 
 		//当前请求是否触发流控标志位
 		boolean flag = false;
-		String key = serviceId;
+		String key = flowControlLimit.getKey();
 
-		//如果是分布式项目 那么我们就需要使用Redis来实现流控  单机则可以直接使用Guava
+		//如果是分布式项目 那么我们就需要使用Redis来实现流控  单机与租约模式则使用本地限流器
 		if (FilterConst.FLOW_CTL_MODE_DISTRIBUTED.equalsIgnoreCase(flowControlConfig.getMode())) {
-			flag = switch (flowControlConfig.getAlgorithm()) {
-				case VOTE_BUCKET_ALGORITHM ->
-						new VoteBucketAlgorithm(new JedisUtil()).executeResp(flowControlConfig, key);
-				case FIXED_WINDOWS_ALGORITHM ->
-						new StableAlgorithm(new JedisUtil()).executeResp(flowControlConfig, key);
-				case MOVE_WINDOWS_ALGORITHM ->
-						new SlidingWindowAlgorithm(new JedisUtil()).executeResp(flowControlConfig, key);
-				default -> new VoteBucketAlgorithm(new JedisUtil()).executeResp(flowControlConfig, key);
-			};
-		}  else {
-			//单机版限流 直接用Guava
-			GuavaCountLimiter guavaCountLimiter = GuavaCountLimiter.getInstance(serviceId, flowControlConfig);
-
-			if (guavaCountLimiter == null) {
-				throw new RuntimeException("获取单机限流工具类为空");
-			}
-
-			double count = Math.ceil(permits / duration);
-			flag = guavaCountLimiter.acquire((int) count);
+			flag = flowControlLimit.getDistributedAlgorithm().executeResp(flowControlLimit, key);
+		} else {
+			//单机版/租约限流 使用构建过滤器链时获取的本地限流器，每个请求消耗一个许可
+			flag = flowControlLimit.getLocalLimiter().tryAcquire();
 		}
 		if (!flag) {
 			throw new RuntimeException(LIMIT_MESSAGE);
 		}
 	}
+
+	/**
+	 * 分布式限流通过异步 Redis 客户端执行，单机与租约模式同步执行
+	 *
+	 * @param flowControlLimit 解析后的流控配置
+	 */
+	@Override
+	public CompletableFuture<Void> doFlowControlFilterAsync(FlowControlLimit flowControlLimit) {
+		if (flowControlLimit == null || flowControlLimit.getDistributedAlgorithm() == null) {
+			return GatewayFlowControlRule.super.doFlowControlFilterAsync(flowControlLimit);
+		}
+		return flowControlLimit.getDistributedAlgorithm().executeRespAsync(flowControlLimit, flowControlLimit.getKey())
+				.thenAccept(flag -> {
+					if (!Boolean.TRUE.equals(flag)) {
+						throw new RuntimeException(LIMIT_MESSAGE);
+					}
+				});
+	}
 }
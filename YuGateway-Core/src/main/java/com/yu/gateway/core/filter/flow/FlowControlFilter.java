@@ -3,11 +3,18 @@ package com.yu.gateway.core.filter.flow;
 import com.yu.gateway.common.config.Rule;
 import com.yu.gateway.common.constant.FilterConst;
 import com.yu.gateway.core.context.GatewayContext;
-import com.yu.gateway.core.filter.Filter;
+import com.yu.gateway.core.filter.AsyncFilter;
 import com.yu.gateway.core.filter.FilterAspect;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * @author yu
@@ -16,41 +23,85 @@ import java.util.Set;
  * 2.支持动态调整限流配置，从配置中心更新限流相关参数；
  * 3.支持按路径/服务实现限流；
  * 4.支持分布式/单机限流；
+ * 5.支持租约限流，各节点从 Redis 批量租用许可，请求处理时不访问 Redis；
+ * 6.分布式限流通过异步 Redis 客户端执行，等待结果期间过滤器链挂起，不占用线程；
  * @date 2024-04-11
  */
 @Slf4j
 @FilterAspect(id = FilterConst.FLOW_CTL_FILTER_ID, name = FilterConst.FLOW_CTL_FILTER_NAME, order = FilterConst.FLOW_CTL_FILTER_ORDER)
-public class FlowControlFilter implements Filter {
+public class FlowControlFilter implements AsyncFilter {
+
+	private static final CompletableFuture<Void> COMPLETED = CompletableFuture.completedFuture(null);
+
 	@Override
-	public void doFilter(GatewayContext ctx) throws Exception {
-		Rule rule = ctx.getRules();
-		if (rule != null) {
-			// 获取配置中心限流规则
-			GatewayFlowControlRule flowControlRule = null;
-			Rule.FlowControlConfig flowControlConfig = null;
-			Set<Rule.FlowControlConfig> flowControlConfigs = rule.getFlowControlConfigs();
-
-			// 根据配置中心获取请求的限流规则
-			for (Rule.FlowControlConfig controlConfig : flowControlConfigs) {
-				flowControlConfig = controlConfig;
-				if (flowControlConfig == null) {
-					continue;
-				}
-				String path = ctx.getRequest().getPath();
-
-				// 根据限流类型进行区分
-				if (flowControlConfig.getType().equalsIgnoreCase(FilterConst.FLOW_CTL_TYPE_PATH)
-						&& path.equals(flowControlConfig.getValue())) {
-					flowControlRule = FlowControlByPathRule.getInstance(rule.getServiceId(), path);
-				} else if (flowControlConfig.getType().equalsIgnoreCase(FilterConst.FLOW_CTL_TYPE_SERVICE)
-						&& rule.getServiceId().equals(flowControlConfig.getValue())) {
-					flowControlRule = FlowControlByService.getInstance(rule.getServiceId());
+	public CompletionStage<Void> doFilterAsync(GatewayContext ctx) {
+		// 获取构建过滤器链时解析好的限流规则
+		FlowControlPlan plan = ctx.getParsedFilterConfig(FilterConst.FLOW_CTL_FILTER_ID);
+		if (plan == null) {
+			return COMPLETED;
+		}
+
+		// 按路径限流，随后按服务限流
+		CompletableFuture<Void> result = COMPLETED;
+		List<FlowControlLimit> pathLimits = plan.getPathLimits().get(ctx.getRequest().getPath());
+		if (pathLimits != null) {
+			result = doFlowControl(result, pathLimits);
+		}
+		return doFlowControl(result, plan.getServiceLimits());
+	}
+
+	/**
+	 * 依次执行限流规则，前一个规则未完成时（分布式限流）在其完成后执行，触发流控时不再执行后续规则
+	 */
+	private static CompletableFuture<Void> doFlowControl(CompletableFuture<Void> previous, List<FlowControlLimit> limits) {
+		CompletableFuture<Void> result = previous;
+		for (FlowControlLimit limit : limits) {
+			if (result.isDone() && !result.isCompletedExceptionally()) {
+				result = limit.getFlowControlRule().doFlowControlFilterAsync(limit);
+			} else {
+				result = result.thenCompose(ignored -> limit.getFlowControlRule().doFlowControlFilterAsync(limit));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 解析配置中心限流规则，按限流类型区分为路径限流与服务限流
+	 */
+	@Override
+	public Object parseConfig(Rule rule, Rule.FilterConfig filterConfig) {
+		FlowControlPlan plan = new FlowControlPlan();
+		String serviceId = rule.getServiceId();
+		for (Rule.FlowControlConfig flowControlConfig : rule.getFlowControlConfigs()) {
+			if (flowControlConfig == null || StringUtils.isEmpty(serviceId) || StringUtils.isEmpty(flowControlConfig.getType())) {
+				continue;
+			}
+			String value = flowControlConfig.getValue();
+
+			// 根据限流类型进行区分
+			if (flowControlConfig.getType().equalsIgnoreCase(FilterConst.FLOW_CTL_TYPE_PATH) && StringUtils.isNotEmpty(value)) {
+				FlowControlLimit limit = FlowControlLimit.parse(flowControlConfig, serviceId + "." + value,
+						FlowControlByPathRule.getInstance(serviceId, value));
+				if (limit != null) {
+					plan.getPathLimits().computeIfAbsent(value, key -> new ArrayList<>()).add(limit);
 				}
-				if (flowControlRule != null) {
-					// 执行具体限流逻辑
-					flowControlRule.doFlowControlFilter(flowControlConfig, rule.getServiceId());
+			} else if (flowControlConfig.getType().equalsIgnoreCase(FilterConst.FLOW_CTL_TYPE_SERVICE) && serviceId.equals(value)) {
+				FlowControlLimit limit = FlowControlLimit.parse(flowControlConfig, serviceId,
+						FlowControlByService.getInstance(serviceId));
+				if (limit != null) {
+					plan.getServiceLimits().add(limit);
 				}
 			}
 		}
+		return plan;
+	}
+
+	/**
+	 * 规则对应的限流配置  请求路径 —— 路径限流配置，以及服务限流配置
+	 */
+	@Getter
+	public static class FlowControlPlan {
+		private final Map<String, List<FlowControlLimit>> pathLimits = new HashMap<>();
+		private final List<FlowControlLimit> serviceLimits = new ArrayList<>();
 	}
 }
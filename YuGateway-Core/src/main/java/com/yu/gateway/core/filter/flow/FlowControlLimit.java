@@ -0,0 +1,103 @@
+package com.yu.gateway.core.filter.flow;
+
+import com.alibaba.fastjson.JSON;
+import com.yu.gateway.common.config.Rule;
+import com.yu.gateway.common.constant.FilterConst;
+import com.yu.gateway.core.filter.flow.algorithm.AbstractExecuteStrategy;
+import com.yu.gateway.core.filter.flow.algorithm.FlowAlgorithmStrategyChoose;
+import com.yu.gateway.core.filter.flow.lease.QuotaLeaseEngine;
+import com.yu.gateway.core.filter.flow.local.LocalFlowControlEngine;
+import com.yu.gateway.core.filter.flow.local.LocalRateLimiter;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Map;
+
+import static com.yu.gateway.common.constant.FilterConst.FLOW_CTL_LIMIT_DURATION;
+import static com.yu.gateway.common.constant.FilterConst.FLOW_CTL_LIMIT_PERMITS;
+
+/**
+ * @author yu
+ * @description 解析后的流控配置，构建过滤器链时由 Rule.FlowControlConfig 解析得到，请求处理时只读
+ * @date 2024-05-24
+ */
+@Getter
+public class FlowControlLimit {
+	/**
+	 * 注册中心限流配置
+	 */
+	private final Rule.FlowControlConfig config;
+
+	/**
+	 * 限流 key，服务ID 或 服务ID.请求路径
+	 */
+	private final String key;
+
+	/**
+	 * 限流时间单位---秒
+	 */
+	private final double duration;
+
+	/**
+	 * 限流请求次数---次
+	 */
+	private final double permits;
+
+	/**
+	 * 执行限流的规则（按路径/按服务）
+	 */
+	private final GatewayFlowControlRule flowControlRule;
+
+	/**
+	 * 单机限流器或租约限流器，分布式模式下为 null
+	 */
+	private final LocalRateLimiter localLimiter;
+
+	/**
+	 * 分布式限流算法，单机模式下为 null
+	 */
+	private final AbstractExecuteStrategy<FlowControlLimit, Boolean> distributedAlgorithm;
+
+	private FlowControlLimit(Rule.FlowControlConfig config, String key, double duration, double permits,
+							 GatewayFlowControlRule flowControlRule) {
+		this.config = config;
+		this.key = key;
+		this.duration = duration;
+		this.permits = permits;
+		this.flowControlRule = flowControlRule;
+		if (FilterConst.FLOW_CTL_MODE_DISTRIBUTED.equalsIgnoreCase(config.getMode())) {
+			this.localLimiter = null;
+			this.distributedAlgorithm = FlowAlgorithmStrategyChoose.getInstance().choose(config.getAlgorithm());
+		} else if (FilterConst.FLOW_CTL_MODE_LEASE.equalsIgnoreCase(config.getMode())) {
+			// 租约模式固定使用 Redis 令牌桶，请求时从本地租约获取许可
+			this.localLimiter = QuotaLeaseEngine.getInstance().getLimiter(key, permits, duration);
+			this.distributedAlgorithm = null;
+		} else {
+			this.localLimiter = LocalFlowControlEngine.getInstance().getLimiter(key, config.getAlgorithm(), permits, duration);
+			this.distributedAlgorithm = null;
+		}
+	}
+
+	/**
+	 * 解析流控配置，配置不完整时返回 null
+	 */
+	public static FlowControlLimit parse(Rule.FlowControlConfig config, String key, GatewayFlowControlRule flowControlRule) {
+		if (config == null || StringUtils.isEmpty(config.getConfig())) {
+			return null;
+		}
+		Map<String, Integer> configMap = JSON.parseObject(config.getConfig(), Map.class);
+
+		//判断是否包含流控规则
+		if (configMap == null || !configMap.containsKey(FLOW_CTL_LIMIT_DURATION) || !configMap.containsKey(FLOW_CTL_LIMIT_PERMITS)) {
+			return null;
+		}
+		return new FlowControlLimit(config, key, configMap.get(FLOW_CTL_LIMIT_DURATION), configMap.get(FLOW_CTL_LIMIT_PERMITS), flowControlRule);
+	}
+
+	/**
+	 * 每秒允许的请求数
+	 */
+	public double getPerSecondRate() {
+		return permits / duration;
+	}
+}
@@ -1,7 +1,6 @@
 package com.yu.gateway.core.filter.flow;
 
-
-import com.yu.gateway.common.config.Rule;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author yu
@@ -13,8 +12,17 @@ public interface GatewayFlowControlRule {
 	/**
 	 * 执行流控规则过滤器
 	 *
-	 * @param flowControlConfig 注册中心限流配置；
-	 * @param serviceId         服务ID
+	 * @param flowControlLimit 解析后的流控配置
+	 */
+	void doFlowControlFilter(FlowControlLimit flowControlLimit);
+
+	/**
+	 * 异步执行流控规则过滤器，触发流控时以异常结束，默认同步执行
+	 *
+	 * @param flowControlLimit 解析后的流控配置
 	 */
-	void doFlowControlFilter(Rule.FlowControlConfig flowControlConfig, String serviceId);
+	default CompletableFuture<Void> doFlowControlFilterAsync(FlowControlLimit flowControlLimit) {
+		doFlowControlFilter(flowControlLimit);
+		return CompletableFuture.completedFuture(null);
+	}
 }
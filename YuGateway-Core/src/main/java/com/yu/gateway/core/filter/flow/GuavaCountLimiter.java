@@ -1,14 +1,9 @@
 package com.yu.gateway.core.filter.flow;
 
-import com.alibaba.fastjson.JSON;
 import com.google.common.util.concurrent.RateLimiter;
-import com.yu.gateway.common.constant.FilterConst;
 import lombok.Getter;
 import lombok.Setter;
-import org.apache.commons.lang3.StringUtils;
-import com.yu.gateway.common.config.Rule;
 
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
@@ -61,36 +56,18 @@ public class GuavaCountLimiter {
 	public static ConcurrentHashMap<String, GuavaCountLimiter> resourceRateLimiterMap = new ConcurrentHashMap<>();
 
 	/**
-	 * 根据服务ID和流控规则获取限流器
+	 * 根据限流 key 和每秒许可数获取限流器，许可数变化时重建限流器
 	 */
-	public static GuavaCountLimiter getInstance(String serviceId, Rule.FlowControlConfig flowControlConfig) {
-		if (StringUtils.isEmpty(serviceId)
-				|| flowControlConfig == null
-				|| StringUtils.isEmpty(flowControlConfig.getValue())
-				|| StringUtils.isEmpty(flowControlConfig.getConfig())
-				|| StringUtils.isEmpty(flowControlConfig.getType())) {
-			return null;
-		}
-
-		String key = serviceId + "." + flowControlConfig.getValue();
+	public static GuavaCountLimiter getInstance(String key, double perSecondRate) {
 		GuavaCountLimiter countLimiter = resourceRateLimiterMap.get(key);
 
-		// 计算当前流控阈值
-		Map<String, Integer> configMap = JSON.parseObject(flowControlConfig.getConfig(), Map.class);
-
-		if (!configMap.containsKey(FilterConst.FLOW_CTL_LIMIT_DURATION) || !configMap.containsKey(FilterConst.FLOW_CTL_LIMIT_PERMITS)) {
-			return null;
-		}
-
-		// 得到流控次数和时间
-		double permits = configMap.get(FilterConst.FLOW_CTL_LIMIT_PERMITS);
-		double duration = configMap.get(FilterConst.FLOW_CTL_LIMIT_DURATION);
-		double perSecondRate = permits / duration;
-
 		// 缓存当前请求流控规则
 		if (countLimiter == null) {
 			countLimiter = new GuavaCountLimiter(perSecondRate);
-			resourceRateLimiterMap.putIfAbsent(key, countLimiter);
+			GuavaCountLimiter previous = resourceRateLimiterMap.putIfAbsent(key, countLimiter);
+			if (previous != null) {
+				countLimiter = previous;
+			}
 		} else if (countLimiter.getMaxPermits() != perSecondRate) {
 			countLimiter = new GuavaCountLimiter(perSecondRate);
 			resourceRateLimiterMap.put(key, countLimiter);
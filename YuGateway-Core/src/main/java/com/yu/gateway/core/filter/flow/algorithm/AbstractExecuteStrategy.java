@@ -1,5 +1,7 @@
 package com.yu.gateway.core.filter.flow.algorithm;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * @author yu
  * @description 策略模式选择器
@@ -27,4 +29,11 @@ public interface AbstractExecuteStrategy<REQUEST, RESPONSE> {
      * 执行策略带返回值
      */
     default RESPONSE executeResp(REQUEST requestParam,String key) {return null;}
+
+    /**
+     * 异步执行策略带返回值，默认在当前线程同步执行
+     */
+    default CompletableFuture<RESPONSE> executeRespAsync(REQUEST requestParam, String key) {
+        return CompletableFuture.completedFuture(executeResp(requestParam, key));
+    }
 }
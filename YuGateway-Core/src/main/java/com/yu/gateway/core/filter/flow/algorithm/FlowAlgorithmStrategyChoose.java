@@ -0,0 +1,55 @@
+package com.yu.gateway.core.filter.flow.algorithm;
+
+import com.yu.gateway.common.utils.redis.JedisUtil;
+import com.yu.gateway.core.filter.flow.FlowAlgorithmConstant;
+import com.yu.gateway.core.filter.flow.FlowControlLimit;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author yu
+ * 分布式限流算法选择器：
+ * 1.每种算法只创建一个实例，共享同一个 JedisUtil（连接池），实例创建时预先加载 Lua 脚本；
+ * 2.根据算法标识选择具体算法，未知标识使用令牌桶算法。
+ * @date 2024-05-27
+ */
+public class FlowAlgorithmStrategyChoose {
+
+	/**
+	 * 算法标识 —— 算法实例，创建完成后只读
+	 */
+	private final Map<String, AbstractExecuteStrategy<FlowControlLimit, Boolean>> strategyMap = new HashMap<>();
+
+	private final AbstractExecuteStrategy<FlowControlLimit, Boolean> defaultStrategy;
+
+	private FlowAlgorithmStrategyChoose() {
+		JedisUtil jedisUtil = new JedisUtil();
+		register(new StableAlgorithm(jedisUtil));
+		register(new SlidingWindowAlgorithm(jedisUtil));
+		register(new VoteBucketAlgorithm(jedisUtil));
+		this.defaultStrategy = strategyMap.get(FlowAlgorithmConstant.VOTE_BUCKET_ALGORITHM);
+	}
+
+	private static class SingletonHolder {
+		private static final FlowAlgorithmStrategyChoose INSTANCE = new FlowAlgorithmStrategyChoose();
+	}
+
+	public static FlowAlgorithmStrategyChoose getInstance() {
+		return SingletonHolder.INSTANCE;
+	}
+
+	private void register(AbstractExecuteStrategy<FlowControlLimit, Boolean> strategy) {
+		strategyMap.put(strategy.mark(), strategy);
+	}
+
+	/**
+	 * 根据算法标识选择限流算法
+	 */
+	public AbstractExecuteStrategy<FlowControlLimit, Boolean> choose(String algorithm) {
+		if (algorithm == null) {
+			return defaultStrategy;
+		}
+		return strategyMap.getOrDefault(algorithm, defaultStrategy);
+	}
+}
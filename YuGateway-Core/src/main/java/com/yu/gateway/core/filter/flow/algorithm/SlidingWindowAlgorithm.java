@@ -1,28 +1,47 @@
 package com.yu.gateway.core.filter.flow.algorithm;
 
-import com.alibaba.fastjson.JSON;
-import com.yu.gateway.common.config.Rule;
-import com.yu.gateway.common.constant.FilterConst;
 import com.yu.gateway.common.utils.redis.JedisUtil;
+import com.yu.gateway.common.utils.redis.RedisScript;
 import com.yu.gateway.core.filter.flow.FlowAlgorithmConstant;
+import com.yu.gateway.core.filter.flow.FlowControlLimit;
+import com.yu.gateway.core.redis.AsyncRedisHelper;
 
-import java.util.Map;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author yu
  * @description 滑动窗口限流算法
  * @date 2024-05-05
  */
-public class SlidingWindowAlgorithm implements AbstractExecuteStrategy<Rule.FlowControlConfig, Boolean> {
+public class SlidingWindowAlgorithm implements AbstractExecuteStrategy<FlowControlLimit, Boolean> {
 
 	private static final String PREFIX = "slidingWindowRateLimiter";
 
+	/**
+	 * 滑动窗口脚本，只从类路径加载一次
+	 */
+	private static final RedisScript SCRIPT = RedisScript.fromClasspath("sliding_window_flow.lua");
+
+	/**
+	 * 当前网关节点标识
+	 */
+	private static final String NODE_ID = UUID.randomUUID().toString().substring(0, 8);
+
+	/**
+	 * 本节点内的请求序号
+	 */
+	private static final AtomicLong SEQUENCE = new AtomicLong();
+
 	protected JedisUtil jedisUtil;
 
 	private static final Long SUCCESS_FLAG = 1L;
 
 	public SlidingWindowAlgorithm(JedisUtil jedisUtil) {
 		this.jedisUtil = jedisUtil;
+		jedisUtil.loadScript(SCRIPT);
 	}
 
 	@Override
@@ -39,36 +58,45 @@ public class SlidingWindowAlgorithm implements AbstractExecuteStrategy<Rule.Flow
 	 * 限流具体操作
 	 */
 	@Override
-	public Boolean executeResp(Rule.FlowControlConfig requestParam,String key) {
-		Map<String, Integer> configMap = JSON.parseObject(requestParam.getConfig(), Map.class);
-		if (!configMap.containsKey(FilterConst.FLOW_CTL_LIMIT_DURATION) || !configMap.containsKey(FilterConst.FLOW_CTL_LIMIT_PERMITS)) {
-			return false;
-		}
-		double duration = configMap.get(FilterConst.FLOW_CTL_LIMIT_DURATION);
-		double permits = configMap.get(FilterConst.FLOW_CTL_LIMIT_PERMITS);
+	public Boolean executeResp(FlowControlLimit requestParam, String key) {
+		double duration = requestParam.getDuration();
+		double permits = requestParam.getPermits();
 
 		return isAllowed(key, (int) permits, (int) duration);
 	}
 
 	/**
+	 * 清理过期记录、计数与记录本次请求在同一个 Lua 脚本中原子执行，一次往返
+	 *
 	 * @param limit      请求限制数量
 	 * @param windowSize 窗口大小
 	 */
 	public boolean isAllowed(String id, int limit, int windowSize) {
-		String windowKey = PREFIX + ":" + id;
-		long now = System.currentTimeMillis();
-		long windowStart = now - windowSize * 1000L;
-
-		// 在zset中添加一个成员，分数是当前时间戳
-		jedisUtil.zadd(windowKey, now, String.valueOf(now));
+		return SUCCESS_FLAG.equals(jedisUtil.executeScript(SCRIPT, List.of(PREFIX + ":" + id), getArgs(limit, windowSize)));
+	}
 
-		// 删除zset中所有分数小于窗口开始时间的成员
-		jedisUtil.zremrangeByScore(windowKey, 0, windowStart);
+	/**
+	 * 通过异步 Redis 客户端执行，不阻塞当前线程
+	 */
+	@Override
+	public CompletableFuture<Boolean> executeRespAsync(FlowControlLimit requestParam, String key) {
+		if (!AsyncRedisHelper.getInstance().isAvailable()) {
+			return AbstractExecuteStrategy.super.executeRespAsync(requestParam, key);
+		}
+		String[] args = getArgs((int) requestParam.getPermits(), (int) requestParam.getDuration());
+		return AsyncRedisHelper.getInstance().evalsha(SCRIPT, List.of(PREFIX + ":" + key), args)
+				.thenApply(SUCCESS_FLAG::equals);
+	}
 
-		// 获取zset的大小
-		long count = jedisUtil.zcard(windowKey);
+	private static String[] getArgs(int limit, int windowSize) {
+		long now = System.currentTimeMillis();
+		return new String[]{String.valueOf(limit), String.valueOf(windowSize * 1000L), String.valueOf(now), nextMember(now)};
+	}
 
-		// 如果zset的大小超过了限制的请求数量，返回false
-		return count <= limit;
+	/**
+	 * zset 成员：时间戳-节点标识-序号，同一毫秒内的多个请求（包括不同网关节点的请求）不会被合并为一个成员
+	 */
+	private static String nextMember(long now) {
+		return now + "-" + NODE_ID + "-" + SEQUENCE.incrementAndGet();
 	}
-}
\ No newline at end of file
+}
@@ -1,28 +1,35 @@
 package com.yu.gateway.core.filter.flow.algorithm;
 
-import com.alibaba.fastjson.JSON;
-import com.yu.gateway.common.config.Rule;
-import com.yu.gateway.common.constant.FilterConst;
 import com.yu.gateway.common.utils.redis.JedisUtil;
+import com.yu.gateway.common.utils.redis.RedisScript;
 import com.yu.gateway.core.filter.flow.FlowAlgorithmConstant;
+import com.yu.gateway.core.filter.flow.FlowControlLimit;
+import com.yu.gateway.core.redis.AsyncRedisHelper;
 
-import java.util.Map;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author yu
  * @description 固定窗口限流算法
  * @date 2024-04-11
  */
-public class StableAlgorithm implements AbstractExecuteStrategy<Rule.FlowControlConfig, Boolean> {
+public class StableAlgorithm implements AbstractExecuteStrategy<FlowControlLimit, Boolean> {
 
 	private static final String PREFIX = "fixedWindowRateLimiter";
 
+	/**
+	 * 固定窗口脚本，只从类路径加载一次
+	 */
+	private static final RedisScript SCRIPT = RedisScript.fromClasspath("fixed_window_flow.lua");
+
 	protected JedisUtil jedisUtil;
 
 	private static final Long SUCCESS_FLAG = 1L;
 
 	public StableAlgorithm(JedisUtil jedisUtil) {
 		this.jedisUtil = jedisUtil;
+		jedisUtil.loadScript(SCRIPT);
 	}
 
 	@Override
@@ -39,39 +46,37 @@ public class StableAlgorithm implements AbstractExecuteStrategy<Rule.FlowControl
 	 * 限流具体操作
 	 */
 	@Override
-	public Boolean executeResp(Rule.FlowControlConfig requestParam,String key) {
-		Map<String, Integer> configMap = JSON.parseObject(requestParam.getConfig(), Map.class);
-		if (!configMap.containsKey(FilterConst.FLOW_CTL_LIMIT_DURATION) || !configMap.containsKey(FilterConst.FLOW_CTL_LIMIT_PERMITS)) {
-			return false;
-		}
-		double duration = configMap.get(FilterConst.FLOW_CTL_LIMIT_DURATION);
-		double permits = configMap.get(FilterConst.FLOW_CTL_LIMIT_PERMITS);
+	public Boolean executeResp(FlowControlLimit requestParam, String key) {
+		double duration = requestParam.getDuration();
+		double permits = requestParam.getPermits();
 
 		return isAllowed(key, (int) permits, (int) duration);
 	}
 
 	/**
+	 * 计数与设置过期时间在同一个 Lua 脚本中原子执行，一次往返且不需要分布式锁
+	 *
 	 * @param limit      请求限制数量
 	 * @param windowSize 窗口大小
 	 */
 	public boolean isAllowed(String id, int limit, int windowSize) {
-		String lockKey = PREFIX + ":" + "LOCK" + ":" + id;
-		// 窗口初始化
-		try {
-			boolean isLock = jedisUtil.getDistributeLock(lockKey, id, windowSize);
-			if (isLock) {
-				String window_key = PREFIX + ":" + id;
-
-				long current = jedisUtil.increment(window_key);
-				if (current == 1) {
-					jedisUtil.setExpire(window_key, windowSize);
-				}
+		String windowKey = PREFIX + ":" + id;
+		Object ans = jedisUtil.executeScript(SCRIPT, List.of(windowKey), String.valueOf(limit), String.valueOf(windowSize));
+		return SUCCESS_FLAG.equals(ans);
+	}
 
-				return current <= limit;
-			}
-		} finally {
-			jedisUtil.releaseDistributeLock(lockKey, id);
+	/**
+	 * 通过异步 Redis 客户端执行，不阻塞当前线程
+	 */
+	@Override
+	public CompletableFuture<Boolean> executeRespAsync(FlowControlLimit requestParam, String key) {
+		if (!AsyncRedisHelper.getInstance().isAvailable()) {
+			return AbstractExecuteStrategy.super.executeRespAsync(requestParam, key);
 		}
-		return false;
+		String windowKey = PREFIX + ":" + key;
+		return AsyncRedisHelper.getInstance()
+				.evalsha(SCRIPT, List.of(windowKey), String.valueOf((int) requestParam.getPermits()),
+						String.valueOf((int) requestParam.getDuration()))
+				.thenApply(SUCCESS_FLAG::equals);
 	}
 }
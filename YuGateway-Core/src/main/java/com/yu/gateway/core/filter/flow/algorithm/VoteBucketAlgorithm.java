@@ -1,16 +1,16 @@
 package com.yu.gateway.core.filter.flow.algorithm;
 
-import com.alibaba.fastjson.JSON;
-import com.yu.gateway.common.config.Rule;
-import com.yu.gateway.common.constant.FilterConst;
 import com.yu.gateway.common.utils.redis.JedisUtil;
+import com.yu.gateway.common.utils.redis.RedisScript;
 import com.yu.gateway.core.filter.flow.FlowAlgorithmConstant;
+import com.yu.gateway.core.filter.flow.FlowControlLimit;
+import com.yu.gateway.core.redis.AsyncRedisHelper;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
 
-import java.io.*;
 import java.time.Instant;
-import java.util.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author yu
@@ -18,13 +18,19 @@ import java.util.*;
  * @date 2024-04-11
  */
 @Slf4j
-public class VoteBucketAlgorithm implements AbstractExecuteStrategy<Rule.FlowControlConfig, Boolean> {
+public class VoteBucketAlgorithm implements AbstractExecuteStrategy<FlowControlLimit, Boolean> {
 	private static final String PREFIX = "voteBucketRateLimiter";
 
+	/**
+	 * 令牌桶脚本，只从类路径加载一次
+	 */
+	private static final RedisScript SCRIPT = RedisScript.fromClasspath("vote_bucket_flow.lua");
+
 	protected JedisUtil jedisUtil;
 
 	public VoteBucketAlgorithm(JedisUtil jedisUtil) {
 		this.jedisUtil = jedisUtil;
+		jedisUtil.loadScript(SCRIPT);
 	}
 
 	/**
@@ -46,13 +52,9 @@ public class VoteBucketAlgorithm implements AbstractExecuteStrategy<Rule.FlowCon
 	 * 限流具体操作
 	 */
 	@Override
-	public Boolean executeResp(Rule.FlowControlConfig requestParam,String key) {
-		Map<String, Integer> configMap = JSON.parseObject(requestParam.getConfig(), Map.class);
-		if (!configMap.containsKey(FilterConst.FLOW_CTL_LIMIT_DURATION) || !configMap.containsKey(FilterConst.FLOW_CTL_LIMIT_PERMITS)) {
-			return false;
-		}
-		double duration = configMap.get(FilterConst.FLOW_CTL_LIMIT_DURATION);
-		double permits = configMap.get(FilterConst.FLOW_CTL_LIMIT_PERMITS);
+	public Boolean executeResp(FlowControlLimit requestParam, String key) {
+		double duration = requestParam.getDuration();
+		double permits = requestParam.getPermits();
 		return isAllowed(key, (int)(permits/duration), (int)permits, 1);
 	}
 
@@ -65,23 +67,32 @@ public class VoteBucketAlgorithm implements AbstractExecuteStrategy<Rule.FlowCon
 	 * @param tokens   需要令牌数
 	 */
 	public boolean isAllowed(String id, int rate, int capacity, int tokens) {
+		return isSuccess(jedisUtil.executeScript(SCRIPT, getKey(id), getArgs(rate, capacity, tokens)));
+	}
 
-		// 读取 lua 脚本
-		BufferedReader reader = new BufferedReader(new InputStreamReader(Objects.requireNonNull(Thread.currentThread().getContextClassLoader().getResourceAsStream("vote_bucket_flow.lua"))));
-
-		StringBuilder builder = new StringBuilder();
-		String line = null;
-		try {
-			while (StringUtils.isNotEmpty(line = reader.readLine())) {
-				builder.append(line);
-			}
-			Object ans = jedisUtil.executeLuaScript(builder.toString(), getKey(id), String.valueOf(rate), String.valueOf(capacity),
-					String.valueOf(Instant.now().getEpochSecond()), String.valueOf(tokens));
-			return SUCCESS_FLAG.equals(ans);
-		} catch (IOException e) {
-			log.error("VoteBucketAlgorithm isAllowed error", e);
+	/**
+	 * 通过异步 Redis 客户端执行，不阻塞当前线程
+	 */
+	@Override
+	public CompletableFuture<Boolean> executeRespAsync(FlowControlLimit requestParam, String key) {
+		if (!AsyncRedisHelper.getInstance().isAvailable()) {
+			return AbstractExecuteStrategy.super.executeRespAsync(requestParam, key);
 		}
-		return false;
+		double permits = requestParam.getPermits();
+		String[] args = getArgs((int) (permits / requestParam.getDuration()), (int) permits, 1);
+		return AsyncRedisHelper.getInstance().evalsha(SCRIPT, getKey(key), args).thenApply(VoteBucketAlgorithm::isSuccess);
+	}
+
+	private static String[] getArgs(int rate, int capacity, int tokens) {
+		return new String[]{String.valueOf(rate), String.valueOf(capacity),
+				String.valueOf(Instant.now().getEpochSecond()), String.valueOf(tokens)};
+	}
+
+	/**
+	 * 脚本返回 {是否允许, 剩余令牌数}
+	 */
+	private static boolean isSuccess(Object ans) {
+		return ans instanceof List<?> result && !result.isEmpty() && SUCCESS_FLAG.equals(result.get(0));
 	}
 
 	/**
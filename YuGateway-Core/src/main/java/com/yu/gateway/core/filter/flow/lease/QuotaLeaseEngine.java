@@ -0,0 +1,86 @@
+package com.yu.gateway.core.filter.flow.lease;
+
+import com.yu.gateway.common.utils.redis.JedisUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author yu
+ * 配额租约限流引擎：
+ * 1.构建过滤器链时获取租约限流器，同一个 key 的速率变化时原地修改；
+ * 2.续租、归还与速率统计都在一个后台线程中执行，请求线程不访问 Redis。
+ * @date 2024-05-30
+ */
+@Slf4j
+public class QuotaLeaseEngine {
+
+	private static final String THREAD_NAME = "gateway-flow-lease";
+
+	/**
+	 * 速率统计周期（毫秒）
+	 */
+	private static final long TICK_MILLIS = 100;
+
+	/**
+	 * 限流 key —— 租约限流器
+	 */
+	private final ConcurrentHashMap<String, QuotaLeaseLimiter> limiterMap = new ConcurrentHashMap<>();
+
+	private final JedisUtil jedisUtil = new JedisUtil();
+
+	private final ScheduledExecutorService scheduler;
+
+	private QuotaLeaseEngine() {
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, THREAD_NAME);
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	private static class SingletonHolder {
+		private static final QuotaLeaseEngine INSTANCE = new QuotaLeaseEngine();
+	}
+
+	public static QuotaLeaseEngine getInstance() {
+		return SingletonHolder.INSTANCE;
+	}
+
+	/**
+	 * 获取租约限流器
+	 *
+	 * @param key      限流 key
+	 * @param permits  时间窗口内全局允许的请求数
+	 * @param duration 时间窗口（秒）
+	 */
+	public QuotaLeaseLimiter getLimiter(String key, double permits, double duration) {
+		QuotaLeaseLimiter limiter = limiterMap.get(key);
+		if (limiter == null) {
+			QuotaLeaseLimiter created = new QuotaLeaseLimiter(key, permits, duration, jedisUtil, scheduler);
+			limiter = limiterMap.putIfAbsent(key, created);
+			if (limiter == null) {
+				// 加载脚本与首次续租在后台线程中执行，不在 ConcurrentHashMap 的锁内访问 Redis
+				created.start();
+				return created;
+			}
+		}
+		limiter.update(permits, duration);
+		return limiter;
+	}
+
+	private void tick() {
+		long now = System.currentTimeMillis();
+		for (QuotaLeaseLimiter limiter : limiterMap.values()) {
+			try {
+				limiter.tick(now);
+			} catch (Exception e) {
+				log.error("flow control lease tick failed", e);
+			}
+		}
+	}
+}
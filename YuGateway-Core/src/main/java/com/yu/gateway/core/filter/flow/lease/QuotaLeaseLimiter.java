@@ -0,0 +1,257 @@
+package com.yu.gateway.core.filter.flow.lease;
+
+import com.yu.gateway.common.utils.redis.JedisUtil;
+import com.yu.gateway.common.utils.redis.RedisScript;
+import com.yu.gateway.core.filter.flow.local.LocalRateLimiter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author yu
+ * 配额租约限流器，全局令牌桶保存在 Redis 中，本节点按批次租用令牌：
+ * 1.请求只从本地租约中 CAS 扣减许可，不访问 Redis；
+ * 2.本地剩余许可低于半个批次时异步续租，Redis 中令牌不足时按剩余数量部分发放；
+ * 3.批次大小按本节点观察到的请求量（包括被拒绝的请求）自适应调整，并且不超过桶容量的固定比例，限制各节点持有未使用许可带来的误差；
+ * 4.租约耗尽而全局令牌未耗尽时（启动、空闲后突增、续租进行中），允许透支不超过一个批次的许可，由下次续租发放的许可抵扣；
+ * 5.空闲一段时间后把超出保留量的剩余许可归还给 Redis，供其他节点使用。
+ * @date 2024-05-30
+ */
+@Slf4j
+public class QuotaLeaseLimiter implements LocalRateLimiter {
+
+	private static final String PREFIX = "leaseBucketRateLimiter";
+
+	private static final RedisScript SCRIPT = RedisScript.fromClasspath("lease_bucket_flow.lua");
+
+	/**
+	 * 一个批次预期支撑的时间（毫秒）
+	 */
+	private static final long LEASE_MILLIS = 100;
+
+	/**
+	 * 单个批次最多占桶容量的比例
+	 */
+	private static final double MAX_BATCH_RATIO = 0.1;
+
+	/**
+	 * 空闲超过该时间（毫秒）归还剩余许可
+	 */
+	private static final long IDLE_RETURN_MILLIS = 1000;
+
+	/**
+	 * 续租失败或令牌不足后，至少等待该时间（毫秒）再续租
+	 */
+	private static final long MIN_RETRY_MILLIS = 10;
+
+	/**
+	 * 本地速率 EWMA 平滑系数
+	 */
+	private static final double ALPHA = 0.3;
+
+	/**
+	 * 空闲归还时保留的许可占桶容量的比例
+	 */
+	private static final double IDLE_RESERVE_RATIO = 0.01;
+
+	private final List<String> keys;
+
+	private final JedisUtil jedisUtil;
+
+	/**
+	 * 续租与归还在该执行器中进行
+	 */
+	private final Executor executor;
+
+	/**
+	 * 本地租约中剩余的许可，透支时为负数
+	 */
+	private final AtomicLong available = new AtomicLong();
+
+	/**
+	 * 是否正在续租或归还，同一时间只有一个 Redis 调用
+	 */
+	private final AtomicBoolean leasing = new AtomicBoolean();
+
+	/**
+	 * 上次统计以来获取成功的许可数
+	 */
+	private final LongAdder acquired = new LongAdder();
+
+	/**
+	 * 上次统计以来因租约耗尽被拒绝的请求数，同样计入需求
+	 */
+	private final LongAdder denied = new LongAdder();
+
+	private volatile double permits;
+
+	private volatile double duration;
+
+	/**
+	 * 当前批次大小
+	 */
+	private volatile long batch = 1;
+
+	/**
+	 * 下次允许续租的时间（毫秒）
+	 */
+	private volatile long retryAt;
+
+	/**
+	 * 最近一次续租时全局令牌不足，此时不允许透支
+	 */
+	private volatile boolean exhausted;
+
+	/**
+	 * 以下字段只在统计线程中访问
+	 */
+	private double localRate;
+
+	private long lastTickMillis = System.currentTimeMillis();
+
+	private long idleMillis;
+
+	QuotaLeaseLimiter(String key, double permits, double duration, JedisUtil jedisUtil, Executor executor) {
+		String prefix = PREFIX + ":" + key;
+		this.keys = Arrays.asList(prefix + ":tokens", prefix + ":timestamp");
+		this.jedisUtil = jedisUtil;
+		this.executor = executor;
+		update(permits, duration);
+	}
+
+	/**
+	 * 在续租执行器中加载脚本并发放首个批次，不阻塞调用线程
+	 */
+	void start() {
+		try {
+			executor.execute(() -> jedisUtil.loadScript(SCRIPT));
+		} catch (RejectedExecutionException e) {
+			log.warn("load lease script rejected, key: {}", keys.get(0));
+		}
+		requestLease();
+	}
+
+	@Override
+	public boolean tryAcquire() {
+		while (true) {
+			long current = available.get();
+			if (current <= -overdraftLimit()) {
+				denied.increment();
+				requestLease();
+				return false;
+			}
+			if (available.compareAndSet(current, current - 1)) {
+				acquired.increment();
+				if (current - 1 <= batch >> 1) {
+					requestLease();
+				}
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * 允许透支的许可数：全局令牌不足时为 0，否则为一个批次
+	 */
+	private long overdraftLimit() {
+		return exhausted ? 0 : batch;
+	}
+
+	@Override
+	public void update(double permits, double duration) {
+		this.permits = permits;
+		this.duration = duration;
+		this.batch = Math.min(batch, maxBatch());
+	}
+
+	/**
+	 * 异步续租，已有续租在进行或处于等待期时直接返回
+	 */
+	private void requestLease() {
+		if (System.currentTimeMillis() < retryAt || !leasing.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			executor.execute(this::lease);
+		} catch (RejectedExecutionException e) {
+			leasing.set(false);
+		}
+	}
+
+	private void lease() {
+		try {
+			// 先抵扣透支的许可，再补足一个批次
+			long requested = batch + Math.max(0, -available.get());
+			long granted = call(requested);
+			if (granted > 0) {
+				available.addAndGet(granted);
+			}
+			exhausted = granted < requested;
+			if (exhausted) {
+				// 全局令牌不足，等待大约补充一个批次所需的时间
+				double rate = permits / duration;
+				long wait = rate > 0 ? (long) (requested * 1000 / rate) : IDLE_RETURN_MILLIS;
+				retryAt = System.currentTimeMillis() + Math.max(MIN_RETRY_MILLIS, wait);
+			}
+		} finally {
+			leasing.set(false);
+		}
+	}
+
+	/**
+	 * 由统计线程定时调用：按请求量（获取成功与被拒绝）更新本地速率与批次大小，空闲时归还保留量以外的剩余许可
+	 */
+	void tick(long now) {
+		long elapsed = Math.max(1, now - lastTickMillis);
+		lastTickMillis = now;
+		long count = acquired.sumThenReset() + denied.sumThenReset();
+
+		double rate = count * 1000.0 / elapsed;
+		localRate = localRate == 0 ? rate : ALPHA * rate + (1 - ALPHA) * localRate;
+		batch = Math.max(1, Math.min(maxBatch(), (long) Math.ceil(localRate * LEASE_MILLIS / 1000)));
+
+		idleMillis = count == 0 ? idleMillis + elapsed : 0;
+		long reserve = idleReserve();
+		if (idleMillis >= IDLE_RETURN_MILLIS && available.get() > reserve && leasing.compareAndSet(false, true)) {
+			try {
+				long rest = available.get() - reserve;
+				// 只归还保留量以外的许可，与并发的扣减竞争失败时等待下次统计
+				if (rest > 0 && available.compareAndSet(rest + reserve, reserve)) {
+					call(-rest);
+				}
+			} finally {
+				leasing.set(false);
+			}
+		}
+	}
+
+	private long maxBatch() {
+		return Math.max(1, (long) (permits * MAX_BATCH_RATIO));
+	}
+
+	/**
+	 * 空闲时保留的许可数，空闲后的首批请求不必等待续租
+	 */
+	private long idleReserve() {
+		return Math.max(1, Math.min(maxBatch(), (long) (permits * IDLE_RESERVE_RATIO)));
+	}
+
+	/**
+	 * 执行租约脚本，返回发放的许可数，Redis 不可用时返回 0
+	 */
+	private long call(long requested) {
+		Object ans = jedisUtil.executeScript(SCRIPT, keys, String.valueOf(permits / duration), String.valueOf(permits),
+				String.valueOf(System.currentTimeMillis()), String.valueOf(requested));
+		if (ans instanceof Long granted) {
+			return granted;
+		}
+		log.warn("lease permits failed, key: {}, requested: {}", keys.get(0), requested);
+		return 0;
+	}
+}
@@ -0,0 +1,55 @@
+package com.yu.gateway.core.filter.flow.local;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author yu
+ * 固定窗口限流器：
+ * 1.窗口内的计数使用 LongAdder 分段累加，高并发下不会在同一个变量上竞争；
+ * 2.窗口过期时通过 CAS 替换为新窗口，每个窗口只分配一次；
+ * 3.修改速率时当前窗口的计数保留。
+ * @date 2024-05-29
+ */
+public class FixedWindowLimiter implements LocalRateLimiter {
+
+	private final AtomicReference<Window> current = new AtomicReference<>();
+
+	private volatile long permits;
+
+	private volatile long durationNanos;
+
+	public FixedWindowLimiter(double permits, double duration) {
+		update(permits, duration);
+		current.set(new Window(System.nanoTime()));
+	}
+
+	@Override
+	public boolean tryAcquire() {
+		long now = System.nanoTime();
+		Window window = current.get();
+		if (now - window.start >= durationNanos) {
+			Window next = new Window(now);
+			window = current.compareAndSet(window, next) ? next : current.get();
+		}
+		window.count.increment();
+		return window.count.sum() <= permits;
+	}
+
+	@Override
+	public void update(double permits, double duration) {
+		this.permits = (long) permits;
+		this.durationNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) * duration));
+	}
+
+	private static final class Window {
+		private final long start;
+
+		private final LongAdder count = new LongAdder();
+
+		private Window(long start) {
+			this.start = start;
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package com.yu.gateway.core.filter.flow.local;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.yu.gateway.core.filter.flow.FlowAlgorithmConstant.*;
+
+/**
+ * @author yu
+ * 单机限流引擎，管理各限流 key 对应的限流器：
+ * 1.构建过滤器链时获取限流器并保存在解析后的流控配置中，请求处理时不再查表；
+ * 2.同一个 key 的速率变化时原地修改限流器参数，算法变化时才重建。
+ * @date 2024-05-29
+ */
+@Slf4j
+public class LocalFlowControlEngine {
+
+	/**
+	 * 限流 key —— 限流器
+	 */
+	private final ConcurrentHashMap<String, Entry> limiterMap = new ConcurrentHashMap<>();
+
+	private static class SingletonHolder {
+		private static final LocalFlowControlEngine INSTANCE = new LocalFlowControlEngine();
+	}
+
+	public static LocalFlowControlEngine getInstance() {
+		return SingletonHolder.INSTANCE;
+	}
+
+	/**
+	 * 获取限流器
+	 *
+	 * @param key       限流 key
+	 * @param algorithm 限流算法，为空或不支持时使用令牌桶
+	 * @param permits   时间窗口内允许的请求数
+	 * @param duration  时间窗口（秒）
+	 */
+	public LocalRateLimiter getLimiter(String key, String algorithm, double permits, double duration) {
+		String type = normalize(algorithm);
+		return limiterMap.compute(key, (k, entry) -> {
+			if (entry == null || !entry.type.equals(type)) {
+				return new Entry(type, newLimiter(type, permits, duration), permits, duration);
+			}
+			if (entry.permits != permits || entry.duration != duration) {
+				log.info("update local flow control rate, key: {}, permits: {}, duration: {}", key, permits, duration);
+				entry.limiter.update(permits, duration);
+				return new Entry(type, entry.limiter, permits, duration);
+			}
+			return entry;
+		}).limiter;
+	}
+
+	private static String normalize(String algorithm) {
+		if (FIXED_WINDOWS_ALGORITHM.equals(algorithm) || MOVE_WINDOWS_ALGORITHM.equals(algorithm)) {
+			return algorithm;
+		}
+		return VOTE_BUCKET_ALGORITHM;
+	}
+
+	private static LocalRateLimiter newLimiter(String type, double permits, double duration) {
+		return switch (type) {
+			case FIXED_WINDOWS_ALGORITHM -> new FixedWindowLimiter(permits, duration);
+			case MOVE_WINDOWS_ALGORITHM -> new SlidingWindowLimiter(permits, duration);
+			default -> new TokenBucketLimiter(permits, duration);
+		};
+	}
+
+	private static final class Entry {
+		private final String type;
+		private final LocalRateLimiter limiter;
+		private final double permits;
+		private final double duration;
+
+		private Entry(String type, LocalRateLimiter limiter, double permits, double duration) {
+			this.type = type;
+			this.limiter = limiter;
+			this.permits = permits;
+			this.duration = duration;
+		}
+	}
+}
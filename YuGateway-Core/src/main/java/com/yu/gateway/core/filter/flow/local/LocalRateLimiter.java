@@ -0,0 +1,24 @@
+package com.yu.gateway.core.filter.flow.local;
+
+/**
+ * @author yu
+ * @description 单机限流器，每次请求获取一个许可，支持运行时修改速率且不丢失已有状态
+ * @date 2024-05-29
+ */
+public interface LocalRateLimiter {
+
+	/**
+	 * 尝试获取一个许可
+	 *
+	 * @return 是否获取成功
+	 */
+	boolean tryAcquire();
+
+	/**
+	 * 修改限流速率
+	 *
+	 * @param permits  时间窗口内允许的请求数
+	 * @param duration 时间窗口（秒）
+	 */
+	void update(double permits, double duration);
+}
@@ -0,0 +1,65 @@
+package com.yu.gateway.core.filter.flow.local;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author yu
+ * 滑动窗口限流器（双窗口加权估算）：
+ * 1.只保存当前窗口与上一个窗口的计数，不记录每个请求的时间戳；
+ * 2.估算值 = 上一个窗口计数 × 上一个窗口仍在滑动区间内的比例 + 当前窗口计数；
+ * 3.计数使用 LongAdder 分段累加，窗口切换通过 CAS 完成。
+ * @date 2024-05-29
+ */
+public class SlidingWindowLimiter implements LocalRateLimiter {
+
+	private final AtomicReference<Window> current = new AtomicReference<>();
+
+	private volatile long permits;
+
+	private volatile long durationNanos;
+
+	public SlidingWindowLimiter(double permits, double duration) {
+		update(permits, duration);
+		current.set(new Window(System.nanoTime(), 0));
+	}
+
+	@Override
+	public boolean tryAcquire() {
+		long now = System.nanoTime();
+		long duration = durationNanos;
+		Window window = current.get();
+		long elapsed = now - window.start;
+		if (elapsed >= duration) {
+			// 相邻窗口保留上一个窗口的计数，间隔超过一个窗口则清零
+			long windows = elapsed / duration;
+			Window next = new Window(window.start + windows * duration, windows == 1 ? window.count.sum() : 0);
+			window = current.compareAndSet(window, next) ? next : current.get();
+			elapsed = now - window.start;
+		}
+
+		double previousWeight = Math.max(0, 1 - (double) elapsed / duration);
+		window.count.increment();
+		return window.previousCount * previousWeight + window.count.sum() <= permits;
+	}
+
+	@Override
+	public void update(double permits, double duration) {
+		this.permits = (long) permits;
+		this.durationNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) * duration));
+	}
+
+	private static final class Window {
+		private final long start;
+
+		private final long previousCount;
+
+		private final LongAdder count = new LongAdder();
+
+		private Window(long start, long previousCount) {
+			this.start = start;
+			this.previousCount = previousCount;
+		}
+	}
+}
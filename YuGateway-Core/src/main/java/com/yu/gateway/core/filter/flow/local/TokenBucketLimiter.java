@@ -0,0 +1,66 @@
+package com.yu.gateway.core.filter.flow.local;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author yu
+ * 令牌桶限流器（GCRA 实现）：
+ * 1.只保存下一个许可的理论到达时间（TAT），获取许可是一次 CAS，不需要定时补充令牌；
+ * 2.桶容量等于一个时间窗口内的许可数，允许该数量的突发请求；
+ * 3.修改速率时只替换参数，TAT 保留，已消耗的令牌不会被重置。
+ * @date 2024-05-29
+ */
+public class TokenBucketLimiter implements LocalRateLimiter {
+
+	/**
+	 * 理论到达时间（纳秒）
+	 */
+	private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+	private volatile Params params;
+
+	public TokenBucketLimiter(double permits, double duration) {
+		update(permits, duration);
+	}
+
+	@Override
+	public boolean tryAcquire() {
+		Params current = params;
+		long now = System.nanoTime();
+		while (true) {
+			long tat = theoreticalArrival.get();
+			long next = Math.max(tat, now) + current.intervalNanos;
+			// 超出突发容量，拒绝且不修改状态
+			if (next - now > current.burstNanos) {
+				return false;
+			}
+			if (theoreticalArrival.compareAndSet(tat, next)) {
+				return true;
+			}
+		}
+	}
+
+	@Override
+	public void update(double permits, double duration) {
+		long intervalNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) * duration / permits));
+		params = new Params(intervalNanos, intervalNanos * Math.max(1L, (long) permits));
+	}
+
+	private static final class Params {
+		/**
+		 * 两个许可之间的间隔
+		 */
+		private final long intervalNanos;
+
+		/**
+		 * 突发容量对应的时间
+		 */
+		private final long burstNanos;
+
+		private Params(long intervalNanos, long burstNanos) {
+			this.intervalNanos = intervalNanos;
+			this.burstNanos = burstNanos;
+		}
+	}
+}
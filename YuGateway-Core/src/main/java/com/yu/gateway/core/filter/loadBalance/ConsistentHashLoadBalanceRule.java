@@ -0,0 +1,241 @@
+package com.yu.gateway.core.filter.loadBalance;
+
+import com.yu.gateway.common.config.DynamicConfigManager;
+import com.yu.gateway.common.config.ServiceInstance;
+import com.yu.gateway.common.config.ServiceInstanceSnapshot;
+import com.yu.gateway.common.enums.ResponseCode;
+import com.yu.gateway.common.exception.ResponseException;
+import com.yu.gateway.core.context.GatewayContext;
+import com.yu.gateway.core.request.GatewayRequest;
+import io.netty.handler.codec.http.cookie.Cookie;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @author yu
+ * 负载均衡策略 -- 一致性哈希（有界负载）
+ * 1.按配置的请求属性（请求头、Cookie、查询参数或认证得到的 userId）计算哈希，相同的键落在同一实例上，便于后端复用本地缓存；
+ * 2.哈希环由每个实例的虚拟节点组成，虚拟节点哈希按实例ID缓存，实例上下线时只有约 1/n 的键发生迁移；
+ * 3.有界负载：实例在途请求数超过平均值的 loadFactor 倍时，沿哈希环顺时针寻找下一个实例；
+ * 4.请求中没有哈希键时使用客户端IP；
+ * 5.实例下线时移除其虚拟节点哈希，服务没有实例时移除其哈希环。
+ * @date 2024-05-28
+ */
+@Slf4j
+public class ConsistentHashLoadBalanceRule implements LoadBalanceRule {
+
+	/**
+	 * 每个实例的虚拟节点数
+	 */
+	private static final int VIRTUAL_NODES = 160;
+
+	private static final double DEFAULT_LOAD_FACTOR = 1.25;
+
+	private static final String KEY_TYPE_HEADER = "header";
+	private static final String KEY_TYPE_COOKIE = "cookie";
+	private static final String KEY_TYPE_QUERY = "query";
+	private static final String KEY_TYPE_USER_ID = "userId";
+
+	/**
+	 * 服务实例ID——虚拟节点哈希，实例变更时无需重新计算已有实例的哈希
+	 */
+	private static final ConcurrentHashMap<String, long[]> virtualNodeHashMap = new ConcurrentHashMap<>();
+
+	/**
+	 * 服务唯一ID——哈希环，实例快照变更时重建
+	 */
+	private static final ConcurrentHashMap<String, Ring> ringMap = new ConcurrentHashMap<>();
+
+	private static final ConcurrentHashMap<String, Ring> grayRingMap = new ConcurrentHashMap<>();
+
+	static {
+		DynamicConfigManager.getInstance().addInstanceRemovedListener((uniqueId, serviceInstanceIds, serviceRemoved) -> {
+			serviceInstanceIds.forEach(virtualNodeHashMap::remove);
+			if (serviceRemoved) {
+				ringMap.remove(uniqueId);
+				grayRingMap.remove(uniqueId);
+			}
+		});
+	}
+
+	private final String serviceId;
+
+	/**
+	 * 哈希键类型及名称
+	 */
+	private final String keyType;
+
+	private final String keyName;
+
+	private final double loadFactor;
+
+	public ConsistentHashLoadBalanceRule(String serviceId, String hashKey, double loadFactor) {
+		this.serviceId = serviceId;
+		int index = hashKey == null ? -1 : hashKey.indexOf(':');
+		this.keyType = index < 0 ? StringUtils.defaultIfEmpty(hashKey, KEY_TYPE_USER_ID) : hashKey.substring(0, index);
+		this.keyName = index < 0 ? null : hashKey.substring(index + 1);
+		this.loadFactor = loadFactor > 1 ? loadFactor : DEFAULT_LOAD_FACTOR;
+	}
+
+	/**
+	 * 未配置哈希键时按 userId 计算
+	 */
+	public static ConsistentHashLoadBalanceRule getInstance(String serviceId) {
+		return new ConsistentHashLoadBalanceRule(serviceId, KEY_TYPE_USER_ID, DEFAULT_LOAD_FACTOR);
+	}
+
+	/**
+	 * 根据过滤器配置构建，构建过滤器链时执行
+	 */
+	public static ConsistentHashLoadBalanceRule getInstance(String serviceId, Object hashKey, Object loadFactor) {
+		double factor = loadFactor == null ? DEFAULT_LOAD_FACTOR : Double.parseDouble(loadFactor.toString());
+		return new ConsistentHashLoadBalanceRule(serviceId, hashKey == null ? null : hashKey.toString(), factor);
+	}
+
+	@Override
+	public ServiceInstance choose(GatewayContext ctx, boolean gray) {
+		return select(ctx.getUniqueId(), gray, hash(hashKeyOf(ctx.getRequest())));
+	}
+
+	/**
+	 * 没有请求上下文时随机选择哈希环上的位置
+	 */
+	@Override
+	public ServiceInstance chooseByServiceId(String serviceId, boolean gray) {
+		return select(serviceId, gray, ThreadLocalRandom.current().nextLong());
+	}
+
+	private ServiceInstance select(String uniqueId, boolean gray, long hash) {
+		ServiceInstanceSnapshot snapshot = DynamicConfigManager.getInstance().getServiceInstanceSnapshot(uniqueId, gray);
+		if (snapshot.isEmpty()) {
+			log.warn("serviceId {} don't match any serviceInstance", uniqueId);
+			throw new ResponseException(ResponseCode.SERVICE_INVOKER_NOT_FOUND);
+		}
+		return getRing(uniqueId, gray, snapshot).select(hash, loadFactor);
+	}
+
+	private static Ring getRing(String uniqueId, boolean gray, ServiceInstanceSnapshot snapshot) {
+		ConcurrentHashMap<String, Ring> map = gray ? grayRingMap : ringMap;
+		Ring ring = map.get(uniqueId);
+		if (ring == null || ring.snapshot != snapshot) {
+			ring = new Ring(snapshot);
+			map.put(uniqueId, ring);
+		}
+		return ring;
+	}
+
+	/**
+	 * 获取请求中的哈希键
+	 */
+	private String hashKeyOf(GatewayRequest request) {
+		String key = null;
+		switch (keyType) {
+			case KEY_TYPE_HEADER -> key = request.getHeaders().get(keyName);
+			case KEY_TYPE_COOKIE -> {
+				Cookie cookie = request.getCookie(keyName);
+				key = cookie == null ? null : cookie.value();
+			}
+			case KEY_TYPE_QUERY -> {
+				List<String> values = request.getQueryParametersMultiple(keyName);
+				key = values == null || values.isEmpty() ? null : values.get(0);
+			}
+			case KEY_TYPE_USER_ID -> key = request.getUserId() == 0 ? null : String.valueOf(request.getUserId());
+			default -> log.warn("unknown hash key type {} for service {}", keyType, serviceId);
+		}
+		return StringUtils.isEmpty(key) ? request.getClientIp() : key;
+	}
+
+	/**
+	 * 64 位 FNV-1a 哈希，再经过 MurmurHash3 的混淆函数使分布更均匀
+	 */
+	private static long hash(String key) {
+		long h = 0xcbf29ce484222325L;
+		byte[] bytes = key == null ? new byte[0] : key.getBytes(StandardCharsets.UTF_8);
+		for (byte b : bytes) {
+			h ^= b;
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	private static long[] virtualNodeHashes(ServiceInstance instance) {
+		return virtualNodeHashMap.computeIfAbsent(instance.getServiceInstanceId(), id -> {
+			long[] hashes = new long[VIRTUAL_NODES];
+			for (int i = 0; i < VIRTUAL_NODES; i++) {
+				hashes[i] = hash(id + "#" + i);
+			}
+			return hashes;
+		});
+	}
+
+	/**
+	 * 不可变的哈希环，与实例快照一一对应
+	 */
+	private static class Ring {
+		private final ServiceInstanceSnapshot snapshot;
+
+		/**
+		 * 按哈希值升序排列的虚拟节点及其所属实例在快照中的下标
+		 */
+		private final long[] hashes;
+
+		private final int[] owners;
+
+		private Ring(ServiceInstanceSnapshot snapshot) {
+			this.snapshot = snapshot;
+			int size = snapshot.size();
+			long[][] nodes = new long[size * VIRTUAL_NODES][];
+			for (int i = 0; i < size; i++) {
+				long[] instanceHashes = virtualNodeHashes(snapshot.get(i));
+				for (int j = 0; j < VIRTUAL_NODES; j++) {
+					nodes[i * VIRTUAL_NODES + j] = new long[]{instanceHashes[j], i};
+				}
+			}
+			Arrays.sort(nodes, Comparator.comparingLong(node -> node[0]));
+			this.hashes = new long[nodes.length];
+			this.owners = new int[nodes.length];
+			for (int i = 0; i < nodes.length; i++) {
+				hashes[i] = nodes[i][0];
+				owners[i] = (int) nodes[i][1];
+			}
+		}
+
+		private ServiceInstance select(long hash, double loadFactor) {
+			int size = snapshot.size();
+			int index = Arrays.binarySearch(hashes, hash);
+			if (index < 0) {
+				index = -index - 1;
+			}
+			if (size == 1) {
+				return snapshot.get(0);
+			}
+
+			// 在途请求上限 = ceil(loadFactor * (总在途请求 + 1) / 实例数)
+			long total = 0;
+			for (int i = 0; i < size; i++) {
+				total += InstanceStats.of(snapshot.get(i)).getOutstanding();
+			}
+			long capacity = (long) Math.ceil(loadFactor * (total + 1) / size);
+
+			for (int i = 0; i < hashes.length; i++) {
+				ServiceInstance instance = snapshot.get(owners[(index + i) % hashes.length]);
+				if (InstanceStats.of(instance).getOutstanding() < capacity) {
+					return instance;
+				}
+			}
+			return snapshot.get(owners[index % hashes.length]);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package com.yu.gateway.core.filter.loadBalance;
+
+import com.yu.gateway.common.config.DynamicConfigManager;
+import com.yu.gateway.common.config.ServiceInstance;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author yu
+ * 服务实例的运行时统计，供最少请求、P2C 等负载均衡策略使用：
+ * 1.在途请求数：负载均衡过滤器选中实例时加一，路由过滤器收到响应时减一；
+ * 2.响应时间的指数加权移动平均（EWMA），按时间衰减，长时间没有请求的实例会逐渐恢复；
+ * 3.请求失败时按惩罚延迟记录，避免快速失败的实例吸引更多流量；
+ * 4.实例下线时移除其统计，仍在进行中的请求继续使用已绑定的统计对象。
+ * @date 2024-05-28
+ */
+public class InstanceStats {
+
+	/**
+	 * 服务实例ID——统计信息，实例信息变更时对象会重建，按实例ID共享统计
+	 */
+	private static final ConcurrentHashMap<String, InstanceStats> STATS_MAP = new ConcurrentHashMap<>();
+
+	static {
+		DynamicConfigManager.getInstance().addInstanceRemovedListener(
+				(uniqueId, serviceInstanceIds, serviceRemoved) -> serviceInstanceIds.forEach(STATS_MAP::remove));
+	}
+
+	/**
+	 * EWMA 衰减时间常数
+	 */
+	private static final double DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+	/**
+	 * 失败请求记录的最小延迟
+	 */
+	private static final long FAILURE_LATENCY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	/**
+	 * 尚无延迟样本但已有在途请求时的代价，保证新实例在首个响应返回前不会被集中选中
+	 */
+	private static final double PENALTY = Integer.MAX_VALUE;
+
+	private final AtomicInteger outstanding = new AtomicInteger();
+
+	private double ewmaNanos;
+
+	private long lastUpdateNanos;
+
+	public static InstanceStats of(ServiceInstance instance) {
+		InstanceStats stats = STATS_MAP.get(instance.getServiceInstanceId());
+		if (stats == null) {
+			stats = STATS_MAP.computeIfAbsent(instance.getServiceInstanceId(), key -> new InstanceStats());
+		}
+		return stats;
+	}
+
+	/**
+	 * 请求开始
+	 */
+	public void begin() {
+		outstanding.incrementAndGet();
+	}
+
+	/**
+	 * 请求结束
+	 *
+	 * @param latencyNanos 请求耗时
+	 * @param success      是否成功收到响应
+	 */
+	public void end(long latencyNanos, boolean success) {
+		outstanding.decrementAndGet();
+		long rtt = success ? latencyNanos : Math.max(latencyNanos, FAILURE_LATENCY_NANOS);
+		long now = System.nanoTime();
+		synchronized (this) {
+			if (lastUpdateNanos == 0) {
+				ewmaNanos = rtt;
+			} else {
+				double weight = Math.exp(-Math.max(now - lastUpdateNanos, 0) / DECAY_NANOS);
+				ewmaNanos = ewmaNanos * weight + rtt * (1 - weight);
+			}
+			lastUpdateNanos = now;
+		}
+	}
+
+	/**
+	 * 请求没有实际发往该实例（例如合并到其他请求的下游调用），只减少在途请求数，不记录延迟样本
+	 */
+	public void abandon() {
+		outstanding.decrementAndGet();
+	}
+
+	public int getOutstanding() {
+		return outstanding.get();
+	}
+
+	/**
+	 * 负载代价：衰减后的 EWMA 延迟 ×（在途请求数 + 1）
+	 */
+	public double getCost(long now) {
+		int active = outstanding.get();
+		double ewma;
+		long last;
+		synchronized (this) {
+			ewma = ewmaNanos;
+			last = lastUpdateNanos;
+		}
+		if (last == 0) {
+			return active == 0 ? 0 : PENALTY + active;
+		}
+		ewma *= Math.exp(-Math.max(now - last, 0) / DECAY_NANOS);
+		return ewma * (active + 1);
+	}
+}
@@ -0,0 +1,66 @@
+package com.yu.gateway.core.filter.loadBalance;
+
+import com.yu.gateway.common.config.DynamicConfigManager;
+import com.yu.gateway.common.config.ServiceInstance;
+import com.yu.gateway.common.config.ServiceInstanceSnapshot;
+import com.yu.gateway.common.enums.ResponseCode;
+import com.yu.gateway.common.exception.ResponseException;
+import com.yu.gateway.core.context.GatewayContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @author yu
+ * 负载均衡策略 -- 最少在途请求
+ * 选择在途请求数最少的实例，从随机位置开始遍历，在途请求数相同时不会总是选中同一个实例。
+ * @date 2024-05-28
+ */
+@Slf4j
+public class LeastRequestsLoadBalanceRule implements LoadBalanceRule {
+
+	private static final ConcurrentHashMap<String, LeastRequestsLoadBalanceRule> loadBalanceMap = new ConcurrentHashMap<>();
+
+	private final String serviceId;
+
+	public LeastRequestsLoadBalanceRule(String serviceId) {
+		this.serviceId = serviceId;
+	}
+
+	public static LeastRequestsLoadBalanceRule getInstance(String serviceId) {
+		return loadBalanceMap.computeIfAbsent(serviceId, LeastRequestsLoadBalanceRule::new);
+	}
+
+	@Override
+	public ServiceInstance choose(GatewayContext ctx, boolean gray) {
+		// 实例快照按服务唯一ID（服务ID:版本）存放
+		return chooseByServiceId(ctx.getUniqueId(), gray);
+	}
+
+	@Override
+	public ServiceInstance chooseByServiceId(String serviceId, boolean gray) {
+		ServiceInstanceSnapshot snapshot = DynamicConfigManager.getInstance().getServiceInstanceSnapshot(serviceId, gray);
+		if (snapshot.isEmpty()) {
+			log.warn("serviceId {} don't match any serviceInstance", serviceId);
+			throw new ResponseException(ResponseCode.SERVICE_INVOKER_NOT_FOUND);
+		}
+
+		int size = snapshot.size();
+		int start = size == 1 ? 0 : ThreadLocalRandom.current().nextInt(size);
+		ServiceInstance selected = null;
+		int least = Integer.MAX_VALUE;
+		for (int i = 0; i < size; i++) {
+			ServiceInstance instance = snapshot.get((start + i) % size);
+			int outstanding = InstanceStats.of(instance).getOutstanding();
+			if (outstanding < least) {
+				least = outstanding;
+				selected = instance;
+				if (outstanding == 0) {
+					break;
+				}
+			}
+		}
+		return selected;
+	}
+}
@@ -25,6 +25,11 @@ import java.util.Set;
 @FilterAspect(id = FilterConst.LOAD_BALANCE_FILTER_ID, name = FilterConst.LOAD_BALANCE_FILTER_NAME, order = FilterConst.LOAD_BALANCE_FILTER_ORDER)
 public class LoadBalanceFilter implements Filter {
 
+	/**
+	 * 重试时避开已尝试实例的最大选择次数
+	 */
+	private static final int RESELECT_ATTEMPTS = 3;
+
 	private final Logger logger = LoggerFactory.getLogger(LoadBalanceFilter.class);
 
 	@Override
@@ -46,7 +51,7 @@ public class LoadBalanceFilter implements Filter {
 		}
 
 		// 选取服务实例，重新构造 Request 请求头
-		ServiceInstance instance = gatewayRule.chooseByServiceId(serviceId, ctx.isGray());
+		ServiceInstance instance = gatewayRule.choose(ctx, ctx.isGray());
 
 		// 日志记录优化
 		if (instance != null) {
@@ -56,49 +61,93 @@ public class LoadBalanceFilter implements Filter {
 			throw new NotFoundException(ResponseCode.SERVICE_INSTANCE_NOT_FOUND);
 		}
 
+		bindInstance(ctx, instance);
+	}
+
+	/**
+	 * 重试时重新选择服务实例，多次选择以避开已经尝试过的实例，均未避开时使用最后一次选择的实例
+	 * 规则未配置负载均衡时不重新选择
+	 */
+	public void reselect(GatewayContext ctx, Set<String> attemptedHosts) {
+		LoadBalanceRule gatewayRule = ctx.getParsedFilterConfig(FilterConst.LOAD_BALANCE_FILTER_ID);
+		if (gatewayRule == null) {
+			return;
+		}
+
+		ServiceInstance instance = null;
+		for (int i = 0; i < RESELECT_ATTEMPTS; i++) {
+			instance = gatewayRule.choose(ctx, ctx.isGray());
+			if (instance == null || !attemptedHosts.contains(instance.getIp() + ":" + instance.getPort())) {
+				break;
+			}
+		}
+		if (instance == null) {
+			throw new NotFoundException(ResponseCode.SERVICE_INSTANCE_NOT_FOUND);
+		}
+		logger.info("reselect ServiceInstance ip:{}, port:{}", instance.getIp(), instance.getPort());
+		bindInstance(ctx, instance);
+	}
+
+	/**
+	 * 选择一个不在排除列表中的服务实例（对冲请求使用），不修改请求的目标地址，没有其它实例时返回 null
+	 */
+	public ServiceInstance chooseExcluding(GatewayContext ctx, Set<String> excludedHosts) {
+		LoadBalanceRule gatewayRule = ctx.getParsedFilterConfig(FilterConst.LOAD_BALANCE_FILTER_ID);
+		if (gatewayRule == null) {
+			return null;
+		}
+		for (int i = 0; i < RESELECT_ATTEMPTS; i++) {
+			ServiceInstance instance = gatewayRule.choose(ctx, ctx.isGray());
+			if (instance != null && !excludedHosts.contains(instance.getIp() + ":" + instance.getPort())) {
+				return instance;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 修改请求的目标地址，并记录实例在途请求，路由过滤器收到响应时释放（流式转发不经过路由过滤器）
+	 */
+	private static void bindInstance(GatewayContext ctx, ServiceInstance instance) {
 		GatewayRequest gatewayRequest = ctx.getRequest();
 		if (gatewayRequest != null) {
 			String modifyHost = instance.getIp() + ":" + instance.getPort();
 			gatewayRequest.setModifyHost(modifyHost);
 		}
+
+		if (!ctx.isStreaming()) {
+			ctx.bindInstanceStats(InstanceStats.of(instance));
+		}
 	}
 
 	/**
 	 * 获取负载均衡策略
 	 */
 	public LoadBalanceRule getLoadBalanceRule(GatewayContext context) {
-		LoadBalanceRule balanceRule = null;
-		Rule rule = context.getRules();
-
-		if (rule != null) {
-			Set<Rule.FilterConfig> configFilters = rule.getFilterConfigs();
-			for (Rule.FilterConfig filterConfig : configFilters) {
-				if (filterConfig == null) {
-					continue;
-				}
-				String filterId = filterConfig.getId();
-
-				// 解析Rule配置的过滤器属性，获取过滤器类型描述
-				if (filterId.equals(FilterConst.LOAD_BALANCE_FILTER_ID)) {
-					balanceRule = parseLoadBalanceConfig(filterConfig.getConfig(), rule.getServiceId());
-					// 找到负载均衡配置后即退出循环
-					break;
-				}
-			}
+		LoadBalanceRule balanceRule = context.getParsedFilterConfig(FilterConst.LOAD_BALANCE_FILTER_ID);
+		if (balanceRule == null && context.getRules() != null) {
+			balanceRule = getLoadBalanceRuleByStrategy(FilterConst.LOAD_BALANCE_STRATEGY_RANDOM, context.getRules().getServiceId());
 		}
 		return balanceRule;
 	}
 
 	/**
-	 * 解析负载均衡配置
+	 * 解析负载均衡配置，构建过滤器链时执行
 	 */
-	private LoadBalanceRule parseLoadBalanceConfig(String config, String serviceId) {
+	@Override
+	public Object parseConfig(Rule rule, Rule.FilterConfig filterConfig) {
 		String strategy = FilterConst.LOAD_BALANCE_STRATEGY_RANDOM;
-		if (StringUtils.isNotEmpty(config)) {
-			Map<String, String> map = JSON.parseObject(config, Map.class);
-			strategy = map.getOrDefault(FilterConst.LOAD_BALANCE_KEY, strategy);
+		Map<String, Object> map = Map.of();
+		if (StringUtils.isNotEmpty(filterConfig.getConfig())) {
+			map = JSON.parseObject(filterConfig.getConfig(), Map.class);
+			strategy = String.valueOf(map.getOrDefault(FilterConst.LOAD_BALANCE_KEY, strategy));
+		}
+		// 一致性哈希需要按规则配置哈希键
+		if (FilterConst.LOAD_BALANCE_STRATEGY_CONSISTENT_HASH.equals(strategy)) {
+			return ConsistentHashLoadBalanceRule.getInstance(rule.getServiceId(),
+					map.get(FilterConst.LOAD_BALANCE_HASH_KEY), map.get(FilterConst.LOAD_BALANCE_HASH_LOAD_FACTOR));
 		}
-		return getLoadBalanceRuleByStrategy(strategy, serviceId);
+		return getLoadBalanceRuleByStrategy(strategy, rule.getServiceId());
 	}
 
 	/**
@@ -109,6 +158,10 @@ public class LoadBalanceFilter implements Filter {
 			case FilterConst.LOAD_BALANCE_STRATEGY_RANDOM -> RandomLoadBalanceRule.getInstance(serviceId);
 			case FilterConst.LOAD_BALANCE_STRATEGY_ROUND_ROBIN -> RoundRobinLoadBalanceRule.getInstance(serviceId);
 			case FilterConst.LOAD_BALANCE_STRATEGY_WEIGHT_RANDOM -> WeightedRoundRobinLoadBalanceRule.getInstance(serviceId);
+			case FilterConst.LOAD_BALANCE_STRATEGY_SMOOTH_WEIGHTED_ROUND_ROBIN -> SmoothWeightedRoundRobinLoadBalanceRule.getInstance(serviceId);
+			case FilterConst.LOAD_BALANCE_STRATEGY_LEAST_REQUESTS -> LeastRequestsLoadBalanceRule.getInstance(serviceId);
+			case FilterConst.LOAD_BALANCE_STRATEGY_P2C_EWMA -> P2CEwmaLoadBalanceRule.getInstance(serviceId);
+			case FilterConst.LOAD_BALANCE_STRATEGY_CONSISTENT_HASH -> ConsistentHashLoadBalanceRule.getInstance(serviceId);
 			default -> {
 				logger.warn("No load balance rule can be loaded for service={}, using default strategy: {}", serviceId, strategy);
 				yield RandomLoadBalanceRule.getInstance(serviceId);
@@ -0,0 +1,68 @@
+package com.yu.gateway.core.filter.loadBalance;
+
+import com.yu.gateway.common.config.DynamicConfigManager;
+import com.yu.gateway.common.config.ServiceInstance;
+import com.yu.gateway.common.config.ServiceInstanceSnapshot;
+import com.yu.gateway.common.enums.ResponseCode;
+import com.yu.gateway.common.exception.ResponseException;
+import com.yu.gateway.core.context.GatewayContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @author yu
+ * 负载均衡策略 -- P2C（power of two choices）
+ * 随机取两个不同的实例，选择负载代价（EWMA 延迟 × 在途请求数）较小的一个，
+ * 变慢或过载的实例自动分到更少的流量，选择开销为 O(1)。
+ * @date 2024-05-28
+ */
+@Slf4j
+public class P2CEwmaLoadBalanceRule implements LoadBalanceRule {
+
+	private static final ConcurrentHashMap<String, P2CEwmaLoadBalanceRule> loadBalanceMap = new ConcurrentHashMap<>();
+
+	private final String serviceId;
+
+	public P2CEwmaLoadBalanceRule(String serviceId) {
+		this.serviceId = serviceId;
+	}
+
+	public static P2CEwmaLoadBalanceRule getInstance(String serviceId) {
+		return loadBalanceMap.computeIfAbsent(serviceId, P2CEwmaLoadBalanceRule::new);
+	}
+
+	@Override
+	public ServiceInstance choose(GatewayContext ctx, boolean gray) {
+		// 实例快照按服务唯一ID（服务ID:版本）存放
+		return chooseByServiceId(ctx.getUniqueId(), gray);
+	}
+
+	@Override
+	public ServiceInstance chooseByServiceId(String serviceId, boolean gray) {
+		ServiceInstanceSnapshot snapshot = DynamicConfigManager.getInstance().getServiceInstanceSnapshot(serviceId, gray);
+		if (snapshot.isEmpty()) {
+			log.warn("serviceId {} don't match any serviceInstance", serviceId);
+			throw new ResponseException(ResponseCode.SERVICE_INVOKER_NOT_FOUND);
+		}
+
+		int size = snapshot.size();
+		if (size == 1) {
+			return snapshot.get(0);
+		}
+
+		// 在 [0, size) 中取两个不同的下标
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int first = random.nextInt(size);
+		int second = random.nextInt(size - 1);
+		if (second >= first) {
+			second++;
+		}
+
+		ServiceInstance a = snapshot.get(first);
+		ServiceInstance b = snapshot.get(second);
+		long now = System.nanoTime();
+		return InstanceStats.of(a).getCost(now) <= InstanceStats.of(b).getCost(now) ? a : b;
+	}
+}
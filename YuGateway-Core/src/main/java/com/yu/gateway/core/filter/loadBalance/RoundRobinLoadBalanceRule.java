@@ -1,18 +1,14 @@
 package com.yu.gateway.core.filter.loadBalance;
 
 import com.yu.gateway.common.config.DynamicConfigManager;
-import com.yu.gateway.common.config.Rule;
 import com.yu.gateway.common.config.ServiceInstance;
+import com.yu.gateway.common.config.ServiceInstanceSnapshot;
 import com.yu.gateway.common.enums.ResponseCode;
 import com.yu.gateway.common.exception.ResponseException;
 import com.yu.gateway.core.context.GatewayContext;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.collections.CollectionUtils;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -51,9 +47,8 @@ public class RoundRobinLoadBalanceRule implements LoadBalanceRule{
      */
     @Override
     public ServiceInstance choose(GatewayContext ctx, boolean gray) {
-        // 获取上下文 Rule 对象
-        Rule rule = ctx.getRules();
-        return chooseByServiceId(rule.getServiceId(), gray);
+        // 实例快照按服务唯一ID（服务ID:版本）存放
+        return chooseByServiceId(ctx.getUniqueId(), gray);
     }
 
     /**
@@ -61,14 +56,14 @@ public class RoundRobinLoadBalanceRule implements LoadBalanceRule{
      */
     @Override
     public ServiceInstance chooseByServiceId(String serviceId, boolean gray) {
-        // 根据服务ID获取服务实例集合
-        Set<ServiceInstance> serviceSets = DynamicConfigManager.getInstance().getServiceInstanceByUniqueId(serviceId, gray);
-        if (CollectionUtils.isEmpty(serviceSets)) {
+        // 根据服务ID获取服务实例快照
+        ServiceInstanceSnapshot snapshot = DynamicConfigManager.getInstance().getServiceInstanceSnapshot(serviceId, gray);
+        if (snapshot.isEmpty()) {
             log.warn("serviceId {} don't match any serviceInstance", serviceId);
             throw new ResponseException(ResponseCode.SERVICE_INVOKER_NOT_FOUND);
         }
-        List<ServiceInstance> serviceLists = new ArrayList<>(serviceSets);
-        int pos = Math.abs(position.incrementAndGet());
-        return serviceLists.get(pos % serviceLists.size());
+        // 计数溢出后清除符号位，保证下标非负
+        int pos = position.incrementAndGet() & Integer.MAX_VALUE;
+        return snapshot.get(pos % snapshot.size());
     }
 }
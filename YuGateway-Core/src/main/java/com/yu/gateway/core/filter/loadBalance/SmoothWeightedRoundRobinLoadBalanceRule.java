@@ -0,0 +1,97 @@
+package com.yu.gateway.core.filter.loadBalance;
+
+import com.yu.gateway.common.config.DynamicConfigManager;
+import com.yu.gateway.common.config.ServiceInstance;
+import com.yu.gateway.common.config.ServiceInstanceSnapshot;
+import com.yu.gateway.common.enums.ResponseCode;
+import com.yu.gateway.common.exception.ResponseException;
+import com.yu.gateway.core.context.GatewayContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author yu
+ * 负载均衡策略 -- 平滑加权轮询（nginx 算法）
+ * 每次选择时所有实例的当前权重加上各自的权重，选中当前权重最大的实例并减去总权重，
+ * 权重 {5, 1, 1} 的选择序列为 a a b a c a a，不会把连续的请求集中发往同一个实例。
+ * @date 2024-05-28
+ */
+@Slf4j
+public class SmoothWeightedRoundRobinLoadBalanceRule implements LoadBalanceRule {
+
+	private static final ConcurrentHashMap<String, SmoothWeightedRoundRobinLoadBalanceRule> loadBalanceMap = new ConcurrentHashMap<>();
+
+	private final String serviceId;
+
+	/**
+	 * 普通流量与灰度流量各自维护一份轮询状态
+	 */
+	private volatile State state = new State(ServiceInstanceSnapshot.EMPTY);
+
+	private volatile State grayState = new State(ServiceInstanceSnapshot.EMPTY);
+
+	public SmoothWeightedRoundRobinLoadBalanceRule(String serviceId) {
+		this.serviceId = serviceId;
+	}
+
+	public static SmoothWeightedRoundRobinLoadBalanceRule getInstance(String serviceId) {
+		return loadBalanceMap.computeIfAbsent(serviceId, SmoothWeightedRoundRobinLoadBalanceRule::new);
+	}
+
+	@Override
+	public ServiceInstance choose(GatewayContext ctx, boolean gray) {
+		// 实例快照按服务唯一ID（服务ID:版本）存放
+		return chooseByServiceId(ctx.getUniqueId(), gray);
+	}
+
+	@Override
+	public ServiceInstance chooseByServiceId(String serviceId, boolean gray) {
+		ServiceInstanceSnapshot snapshot = DynamicConfigManager.getInstance().getServiceInstanceSnapshot(serviceId, gray);
+		if (snapshot.isEmpty()) {
+			log.warn("serviceId {} don't match any serviceInstance", serviceId);
+			throw new ResponseException(ResponseCode.SERVICE_INVOKER_NOT_FOUND);
+		}
+
+		// 实例变更后快照对象会被替换，此时重置轮询状态
+		State current = gray ? grayState : state;
+		if (current.snapshot != snapshot) {
+			current = new State(snapshot);
+			if (gray) {
+				grayState = current;
+			} else {
+				state = current;
+			}
+		}
+		return current.next();
+	}
+
+	/**
+	 * 轮询状态，与实例快照一一对应
+	 */
+	private static class State {
+		private final ServiceInstanceSnapshot snapshot;
+
+		private final long[] currentWeights;
+
+		private State(ServiceInstanceSnapshot snapshot) {
+			this.snapshot = snapshot;
+			this.currentWeights = new long[snapshot.size()];
+		}
+
+		private synchronized ServiceInstance next() {
+			long total = 0;
+			int selected = 0;
+			for (int i = 0; i < currentWeights.length; i++) {
+				long weight = snapshot.getWeight(i);
+				currentWeights[i] += weight;
+				total += weight;
+				if (currentWeights[i] > currentWeights[selected]) {
+					selected = i;
+				}
+			}
+			currentWeights[selected] -= total;
+			return snapshot.get(selected);
+		}
+	}
+}
@@ -1,15 +1,13 @@
 package com.yu.gateway.core.filter.loadBalance;
 
 import com.yu.gateway.common.config.DynamicConfigManager;
-import com.yu.gateway.common.config.Rule;
 import com.yu.gateway.common.config.ServiceInstance;
+import com.yu.gateway.common.config.ServiceInstanceSnapshot;
 import com.yu.gateway.common.enums.ResponseCode;
 import com.yu.gateway.common.exception.ResponseException;
 import com.yu.gateway.core.context.GatewayContext;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.collections.CollectionUtils;
 
-import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -59,8 +57,8 @@ public class WeightedRoundRobinLoadBalanceRule implements LoadBalanceRule {
      */
     @Override
     public ServiceInstance choose(GatewayContext ctx, boolean gray) {
-        Rule rule = ctx.getRules();
-        return chooseByServiceId(rule.getServiceId(), gray);
+        // 实例快照按服务唯一ID（服务ID:版本）存放
+        return chooseByServiceId(ctx.getUniqueId(), gray);
     }
 
     /**
@@ -68,32 +66,16 @@ public class WeightedRoundRobinLoadBalanceRule implements LoadBalanceRule {
      */
     @Override
     public ServiceInstance chooseByServiceId(String serviceId, boolean gray) {
-        // 获取服务实例集合
-        Set<ServiceInstance> serviceSets = DynamicConfigManager.getInstance().getServiceInstanceByUniqueId(serviceId, gray);
-        // 如果服务实例集合为空，则抛出异常
-        if (CollectionUtils.isEmpty(serviceSets)) {
+        // 获取服务实例快照
+        ServiceInstanceSnapshot snapshot = DynamicConfigManager.getInstance().getServiceInstanceSnapshot(serviceId, gray);
+        // 如果服务实例快照为空，则抛出异常
+        if (snapshot.isEmpty()) {
             log.warn("serviceId {} don't match any serviceInstance", serviceId);
             throw new ResponseException(ResponseCode.SERVICE_INVOKER_NOT_FOUND);
         }
-        // 将服务实例集合转换为列表
-        List<ServiceInstance> serviceLists = new ArrayList<>(serviceSets);
 
-        // 计算总权重
-        int totalWeight = serviceLists.stream().mapToInt(ServiceInstance::getWeight).sum();
-        int currentWeight = 0;
-
-        // 计算当前位置
-        int index = position.getAndIncrement() % totalWeight;
-
-        // 遍历服务实例列表，根据权重和当前位置选择服务实例
-        for (ServiceInstance instance : serviceLists) {
-            currentWeight += instance.getWeight();
-            if (currentWeight > index) {
-                return instance;
-            }
-        }
-
-        // 如果没有找到合适的服务实例，则返回列表中的第一个
-        return serviceLists.get(0);
+        // 当前位置落在累计权重的哪个区间，即选中哪个实例
+        long index = (position.getAndIncrement() & Integer.MAX_VALUE) % snapshot.getWeightBound();
+        return snapshot.getByWeight(index);
     }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import com.yu.gateway.core.ConfigLoader;
 import com.yu.gateway.core.context.GatewayContext;
 import com.yu.gateway.core.filter.Filter;
 import com.yu.gateway.core.filter.FilterAspect;
+import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Timer;
 import io.micrometer.prometheus.PrometheusConfig;
 import io.micrometer.prometheus.PrometheusMeterRegistry;
@@ -40,6 +41,8 @@ public class MonitorEndFilter implements Filter {
 	public MonitorEndFilter() {
 		// 创建 PrometheusMeterRegistry 实例，使用默认配置，用于存储和管理 Prometheus 监控指标的注册表
 		this.prometheusMeterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+		// 加入全局注册表，其它组件通过 Metrics 注册的指标（例如对冲请求计数）一并暴露
+		Metrics.addRegistry(prometheusMeterRegistry);
 
 		try {
 			// 创建一个新的HTTP服务器监听配置中指定的端口
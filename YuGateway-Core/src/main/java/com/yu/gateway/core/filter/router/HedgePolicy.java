@@ -0,0 +1,141 @@
+package com.yu.gateway.core.filter.router;
+
+import com.yu.gateway.common.config.Rule;
+import com.yu.gateway.core.request.GatewayRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.netty.handler.codec.http.HttpMethod;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author yu
+ * 对冲请求策略，构建过滤器链时由 Rule.HedgeConfig 解析得到：
+ * 1.只对 GET、HEAD、OPTIONS 请求发送对冲请求；
+ * 2.对冲延迟可以固定配置，也可以取规则最近观测到的 p95 延迟；
+ * 3.按窗口统计请求数与对冲数，对冲比例超过 maxHedgeRatio 时不再对冲，避免下游整体变慢时流量翻倍；
+ * 4.延迟统计与对冲计数按规则ID共享，规则重新推送时不会丢失。
+ * @date 2024-06-05
+ */
+public class HedgePolicy {
+
+	private static final Set<HttpMethod> HEDGEABLE_METHODS = Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS);
+
+	/**
+	 * 规则ID —— 对冲统计
+	 */
+	private static final ConcurrentHashMap<String, HedgeStats> STATS_MAP = new ConcurrentHashMap<>();
+
+	private static final double QUANTILE = 0.95;
+
+	private final long delayMillis;
+
+	private final long minDelayMicros;
+
+	private final int maxHedgeRatio;
+
+	private final HedgeStats stats;
+
+	private HedgePolicy(Rule.HedgeConfig config, HedgeStats stats) {
+		this.delayMillis = config.getDelayMillis();
+		this.minDelayMicros = TimeUnit.MILLISECONDS.toMicros(Math.max(0, config.getMinDelayMillis()));
+		this.maxHedgeRatio = config.getMaxHedgeRatio();
+		this.stats = stats;
+	}
+
+	/**
+	 * 解析对冲配置，未开启时返回 null
+	 */
+	public static HedgePolicy of(Rule rule) {
+		Rule.HedgeConfig config = rule.getHedgeConfig();
+		if (config == null || !config.isEnabled() || config.getMaxHedgeRatio() <= 0) {
+			STATS_MAP.remove(rule.getId());
+			return null;
+		}
+		return new HedgePolicy(config, STATS_MAP.computeIfAbsent(rule.getId(), HedgeStats::new));
+	}
+
+	public boolean isHedgeable(GatewayRequest request) {
+		return HEDGEABLE_METHODS.contains(request.getMethod());
+	}
+
+	/**
+	 * 对冲延迟（微秒），使用 p95 且样本不足时返回 -1，表示本次请求不对冲
+	 */
+	public long delayMicros() {
+		if (delayMillis > 0) {
+			return TimeUnit.MILLISECONDS.toMicros(delayMillis);
+		}
+		long p95 = stats.latency.quantileMicros();
+		return p95 < 0 ? -1 : Math.max(p95, minDelayMicros);
+	}
+
+	/**
+	 * 记录一次请求，用于计算对冲比例
+	 */
+	public void onRequest() {
+		stats.rotate();
+		stats.requests.incrementAndGet();
+	}
+
+	/**
+	 * 记录成功响应的耗时
+	 */
+	public void recordLatency(long nanos) {
+		stats.latency.record(nanos);
+	}
+
+	/**
+	 * 申请发送一次对冲请求，超过对冲比例时返回 false
+	 */
+	public boolean tryHedge() {
+		long hedges = stats.hedges.incrementAndGet();
+		if (hedges * 100 > (long) maxHedgeRatio * stats.requests.get()) {
+			stats.hedges.decrementAndGet();
+			stats.rejected.increment();
+			return false;
+		}
+		stats.sent.increment();
+		return true;
+	}
+
+	/**
+	 * 对冲请求先于首个请求返回
+	 */
+	public void onHedgeWin() {
+		stats.won.increment();
+	}
+
+	/**
+	 * 规则的延迟统计、对冲比例窗口与监控指标
+	 */
+	private static final class HedgeStats {
+		private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+		private final LatencyHistogram latency = new LatencyHistogram(QUANTILE);
+		private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+		private final AtomicLong requests = new AtomicLong();
+		private final AtomicLong hedges = new AtomicLong();
+		private final Counter sent;
+		private final Counter won;
+		private final Counter rejected;
+
+		private HedgeStats(String ruleId) {
+			this.sent = Metrics.counter("gateway_hedge_requests", "ruleId", ruleId, "result", "sent");
+			this.won = Metrics.counter("gateway_hedge_requests", "ruleId", ruleId, "result", "won");
+			this.rejected = Metrics.counter("gateway_hedge_requests", "ruleId", ruleId, "result", "rejected");
+		}
+
+		private void rotate() {
+			long now = System.nanoTime();
+			long start = windowStart.get();
+			if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+				requests.set(0);
+				hedges.set(0);
+			}
+		}
+	}
+}
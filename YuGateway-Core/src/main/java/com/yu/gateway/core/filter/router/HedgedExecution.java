@@ -0,0 +1,141 @@
+package com.yu.gateway.core.filter.router;
+
+import com.yu.gateway.common.config.ServiceInstance;
+import com.yu.gateway.common.constant.FilterConst;
+import com.yu.gateway.core.context.GatewayContext;
+import com.yu.gateway.core.filter.GatewayFilterChainFactory;
+import com.yu.gateway.core.filter.loadBalance.InstanceStats;
+import com.yu.gateway.core.filter.loadBalance.LoadBalanceFilter;
+import com.yu.gateway.core.helper.AsyncHttpHelper;
+import com.yu.gateway.core.response.GatewayResponse;
+import io.netty.util.ReferenceCountUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.asynchttpclient.Request;
+import org.asynchttpclient.RequestBuilder;
+import org.asynchttpclient.uri.Uri;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author yu
+ * 一次对冲执行：
+ * 1.首个请求超过对冲延迟仍未完成时，由负载均衡策略选择另一个实例发送相同请求，定时由请求所属的 EventLoop 触发；
+ * 2.取先成功返回的响应，并取消另一个请求（HTTP/1 中断连接，h2c 重置流），迟到的响应体直接释放；
+ * 3.两个请求都失败时以最后一个异常结束，由路由过滤器决定是否重试；
+ * 4.需要取消落后的请求，始终使用 AsyncHttpClient（或 h2c）发送，不使用原生 Netty 上游客户端。
+ * @date 2024-06-05
+ */
+@Slf4j
+class HedgedExecution {
+
+	private final HedgePolicy policy;
+
+	private final long startNanos;
+
+	private final CompletableFuture<GatewayResponse> result = new CompletableFuture<>();
+
+	/**
+	 * 未完成的请求数
+	 */
+	private final AtomicInteger pending = new AtomicInteger(1);
+
+	private volatile CompletableFuture<GatewayResponse> primary;
+
+	private volatile CompletableFuture<GatewayResponse> hedge;
+
+	private HedgedExecution(HedgePolicy policy) {
+		this.policy = policy;
+		this.startNanos = System.nanoTime();
+	}
+
+	/**
+	 * 执行请求，满足对冲条件时在延迟后发送对冲请求
+	 */
+	static CompletableFuture<GatewayResponse> execute(GatewayContext ctx, HedgePolicy policy, Request request) {
+		policy.onRequest();
+		long delayMicros = policy.delayMicros();
+		if (delayMicros < 0) {
+			long start = System.nanoTime();
+			CompletableFuture<GatewayResponse> future = AsyncHttpHelper.getInstance().executeRequest(request);
+			future.whenComplete((response, throwable) -> {
+				if (throwable == null) {
+					policy.recordLatency(System.nanoTime() - start);
+				}
+			});
+			return future;
+		}
+
+		HedgedExecution execution = new HedgedExecution(policy);
+		execution.primary = execution.send(request, false, null);
+		ScheduledFuture<?> timer = ctx.getNettyContext().executor().schedule(
+				() -> execution.sendHedge(ctx, request), delayMicros, TimeUnit.MICROSECONDS);
+		execution.result.whenComplete((response, throwable) -> timer.cancel(false));
+		return execution.result;
+	}
+
+	private CompletableFuture<GatewayResponse> send(Request request, boolean hedged, InstanceStats stats) {
+		long sentNanos = System.nanoTime();
+		CompletableFuture<GatewayResponse> future = AsyncHttpHelper.getInstance().executeCancellableRequest(request);
+		future.whenComplete((response, throwable) -> {
+			if (stats != null) {
+				stats.end(System.nanoTime() - sentNanos, throwable == null);
+			}
+			onComplete(response, throwable, hedged);
+		});
+		return future;
+	}
+
+	/**
+	 * 向另一个实例发送对冲请求，没有其它可用实例或超过对冲比例时放弃
+	 */
+	private void sendHedge(GatewayContext ctx, Request request) {
+		if (result.isDone() || !policy.tryHedge()) {
+			return;
+		}
+		try {
+			LoadBalanceFilter loadBalanceFilter = (LoadBalanceFilter) GatewayFilterChainFactory.getInstance().getFilterInfo(FilterConst.LOAD_BALANCE_FILTER_ID);
+			ServiceInstance instance = loadBalanceFilter == null ? null
+					: loadBalanceFilter.chooseExcluding(ctx, Set.of(ctx.getRequest().getModifyHost()));
+			if (instance == null) {
+				return;
+			}
+
+			Uri uri = request.getUri();
+			Request hedgeRequest = new RequestBuilder(request)
+					.setUri(new Uri(uri.getScheme(), uri.getUserInfo(), instance.getIp(), instance.getPort(), uri.getPath(), uri.getQuery()))
+					.build();
+			InstanceStats stats = InstanceStats.of(instance);
+			stats.begin();
+			pending.incrementAndGet();
+			hedge = send(hedgeRequest, true, stats);
+		} catch (Exception e) {
+			log.warn("send hedge request failed, uniqueId: {}", ctx.getUniqueId(), e);
+		}
+	}
+
+	private void onComplete(GatewayResponse response, Throwable throwable, boolean hedged) {
+		if (throwable == null) {
+			if (result.complete(response)) {
+				policy.recordLatency(System.nanoTime() - startNanos);
+				if (hedged) {
+					policy.onHedgeWin();
+				}
+				cancel(hedged ? primary : hedge);
+			} else {
+				ReferenceCountUtil.release(response.getBody());
+			}
+		} else if (pending.decrementAndGet() == 0) {
+			result.completeExceptionally(throwable);
+		}
+	}
+
+	private static void cancel(CompletableFuture<GatewayResponse> loser) {
+		if (loser != null && !loser.isDone()) {
+			loser.cancel(true);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package com.yu.gateway.core.filter.router;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author yu
+ * 延迟分位数统计：
+ * 1.以微秒计，按 2 的幂划分区间，每个区间再均分为 8 个子区间，相对误差不超过 12.5%；
+ * 2.当前窗口与上一窗口交替使用，分位数由两个窗口合并计算，只反映最近一段时间的延迟；
+ * 3.分位数计算结果缓存一小段时间，请求处理时只读取缓存值，记录延迟只有一次原子自增。
+ * @date 2024-06-05
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 3;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+	private static final long REFRESH_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	/**
+	 * 计算分位数所需的最少样本数
+	 */
+	private static final long MIN_SAMPLES = 20;
+
+	private final double quantile;
+
+	private volatile AtomicLongArray current = new AtomicLongArray(BUCKETS);
+
+	private volatile AtomicLongArray previous = new AtomicLongArray(BUCKETS);
+
+	private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+
+	private final AtomicLong refreshAt = new AtomicLong(System.nanoTime());
+
+	private volatile long cachedMicros = -1;
+
+	public LatencyHistogram(double quantile) {
+		this.quantile = quantile;
+	}
+
+	/**
+	 * 记录一次请求耗时
+	 */
+	public void record(long nanos) {
+		rotate(System.nanoTime());
+		current.incrementAndGet(index(Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos))));
+	}
+
+	/**
+	 * 获取分位数延迟（微秒），样本不足时返回 -1
+	 */
+	public long quantileMicros() {
+		long now = System.nanoTime();
+		long next = refreshAt.get();
+		if (now - next >= 0 && refreshAt.compareAndSet(next, now + REFRESH_NANOS)) {
+			rotate(now);
+			cachedMicros = compute();
+		}
+		return cachedMicros;
+	}
+
+	private void rotate(long now) {
+		long start = windowStart.get();
+		if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+			previous = current;
+			current = new AtomicLongArray(BUCKETS);
+		}
+	}
+
+	private long compute() {
+		AtomicLongArray recent = current;
+		AtomicLongArray older = previous;
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += recent.get(i) + older.get(i);
+		}
+		if (total < MIN_SAMPLES) {
+			return -1;
+		}
+		long rank = (long) Math.ceil(total * quantile);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += recent.get(i) + older.get(i);
+			if (seen >= rank) {
+				// 取区间上界，宁可晚一点发送对冲请求
+				return lowerBound(i + 1);
+			}
+		}
+		return lowerBound(BUCKETS);
+	}
+
+	private static int index(long micros) {
+		if (micros < SUB_BUCKETS) {
+			return (int) micros;
+		}
+		int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(micros)) - SUB_BUCKET_BITS;
+		int sub = (int) (micros >>> shift) & (SUB_BUCKETS - 1);
+		return (shift + 1) * SUB_BUCKETS + sub;
+	}
+
+	private static long lowerBound(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long sub = index % SUB_BUCKETS;
+		return shift >= Long.SIZE - SUB_BUCKET_BITS - 1 ? Long.MAX_VALUE : (SUB_BUCKETS | sub) << shift;
+	}
+}
@@ -0,0 +1,91 @@
+package com.yu.gateway.core.filter.router;
+
+import com.yu.gateway.core.Config;
+import com.yu.gateway.core.ConfigLoader;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author yu
+ * 服务级别的重试预算，防止下游故障时重试请求放大流量：
+ * 1.每个首次请求按 retryBudgetRatio 存入额度，每次重试消耗一个完整额度，重试数因此不超过首次请求数的固定比例；
+ * 2.额度最多累积最近 MAX_DEPOSITS 个请求的存入量，避免长时间的正常流量攒下大量重试；
+ * 3.流量较低时每秒额外保留 retryBudgetMinRetriesPerSecond 次重试，保证少量请求也能重试；
+ * 4.各网关节点按自身流量独立计算，整个集群的重试比例同样受该比例约束。
+ * @date 2024-06-04
+ */
+public class RetryBudget {
+
+	/**
+	 * 服务唯一ID —— 重试预算
+	 */
+	private static final ConcurrentHashMap<String, RetryBudget> BUDGET_MAP = new ConcurrentHashMap<>();
+
+	/**
+	 * 额度精度，一次重试消耗 SCALE
+	 */
+	private static final long SCALE = 1000;
+
+	private static final long MAX_DEPOSITS = 1000;
+
+	private final AtomicLong balance = new AtomicLong();
+
+	private final AtomicLong reserveSecond = new AtomicLong();
+
+	private final AtomicInteger reserveUsed = new AtomicInteger();
+
+	public static RetryBudget of(String uniqueId) {
+		RetryBudget budget = BUDGET_MAP.get(uniqueId);
+		if (budget == null) {
+			budget = BUDGET_MAP.computeIfAbsent(uniqueId, key -> new RetryBudget());
+		}
+		return budget;
+	}
+
+	/**
+	 * 首次请求存入额度
+	 */
+	public void deposit() {
+		long amount = (long) (ConfigLoader.getConfig().getRetryBudgetRatio() * SCALE);
+		if (amount <= 0) {
+			return;
+		}
+		long max = amount * MAX_DEPOSITS;
+		long current;
+		do {
+			current = balance.get();
+			if (current >= max) {
+				return;
+			}
+		} while (!balance.compareAndSet(current, Math.min(max, current + amount)));
+	}
+
+	/**
+	 * 申请一次重试，额度不足且每秒保留次数已用完时返回 false
+	 */
+	public boolean tryWithdraw() {
+		long current;
+		while ((current = balance.get()) >= SCALE) {
+			if (balance.compareAndSet(current, current - SCALE)) {
+				return true;
+			}
+		}
+		return tryReserve(ConfigLoader.getConfig());
+	}
+
+	private boolean tryReserve(Config config) {
+		int perSecond = config.getRetryBudgetMinRetriesPerSecond();
+		if (perSecond <= 0) {
+			return false;
+		}
+		long second = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+		long window = reserveSecond.get();
+		if (window != second && reserveSecond.compareAndSet(window, second)) {
+			reserveUsed.set(0);
+		}
+		return reserveUsed.incrementAndGet() <= perSecond;
+	}
+}
@@ -0,0 +1,100 @@
+package com.yu.gateway.core.filter.router;
+
+import com.yu.gateway.common.config.Rule;
+import com.yu.gateway.core.request.GatewayRequest;
+import com.yu.gateway.core.response.GatewayResponse;
+import io.netty.handler.codec.http.HttpMethod;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * @author yu
+ * 重试策略，构建过滤器链时由 Rule.RetryConfig 解析得到，请求处理时只读：
+ * 1.连接建立失败时请求尚未发出，任何请求都可以重试；
+ * 2.IO 异常、超时以及配置的响应状态码只对幂等请求重试，非幂等请求需开启 retryNonIdempotent 或携带 Idempotency-Key 请求头；
+ * 3.退避时间按指数增长并取 [0, 上限] 内的随机值（full jitter），避免重试请求同时到达下游。
+ * @date 2024-06-04
+ */
+public class RetryPolicy {
+
+	private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+	private static final Set<HttpMethod> IDEMPOTENT_METHODS = Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS,
+			HttpMethod.PUT, HttpMethod.DELETE, HttpMethod.TRACE);
+
+	private final int maxRetries;
+
+	private final long backoffMillis;
+
+	private final long maxBackoffMillis;
+
+	private final boolean retryNonIdempotent;
+
+	private final Set<Integer> retryStatusCodes;
+
+	private RetryPolicy(Rule.RetryConfig config) {
+		this.maxRetries = config.getTimes();
+		this.backoffMillis = Math.max(0, config.getBackoffMillis());
+		this.maxBackoffMillis = Math.max(backoffMillis, config.getMaxBackoffMillis());
+		this.retryNonIdempotent = config.isRetryNonIdempotent();
+		this.retryStatusCodes = config.getRetryStatusCodes() == null ? Set.of() : Set.copyOf(config.getRetryStatusCodes());
+	}
+
+	/**
+	 * 解析重试配置，未配置重试次数时返回 null
+	 */
+	public static RetryPolicy of(Rule.RetryConfig config) {
+		if (config == null || config.getTimes() <= 0) {
+			return null;
+		}
+		return new RetryPolicy(config);
+	}
+
+	/**
+	 * 已重试次数未达到上限
+	 */
+	public boolean canRetry(int retryTimes) {
+		return retryTimes < maxRetries;
+	}
+
+	/**
+	 * 请求异常是否可以重试
+	 */
+	public boolean isRetryable(GatewayRequest request, Throwable throwable) {
+		if (throwable instanceof ConnectException) {
+			return true;
+		}
+		boolean transientError = throwable instanceof IOException
+				|| throwable instanceof TimeoutException
+				|| throwable instanceof io.netty.handler.timeout.TimeoutException;
+		return transientError && isIdempotent(request);
+	}
+
+	/**
+	 * 下游响应是否需要重试
+	 */
+	public boolean isRetryable(GatewayRequest request, GatewayResponse response) {
+		return retryStatusCodes.contains(response.getHttpResponseStatus().code()) && isIdempotent(request);
+	}
+
+	private boolean isIdempotent(GatewayRequest request) {
+		return retryNonIdempotent
+				|| IDEMPOTENT_METHODS.contains(request.getMethod())
+				|| request.getHeaders().contains(IDEMPOTENCY_KEY);
+	}
+
+	/**
+	 * 第 retryTimes 次重试前的退避时间
+	 */
+	public long backoffMillis(int retryTimes) {
+		if (backoffMillis == 0) {
+			return 0;
+		}
+		long ceiling = Math.min(maxBackoffMillis, backoffMillis << Math.min(Math.max(retryTimes - 1, 0), 20));
+		return ThreadLocalRandom.current().nextLong(ceiling + 1);
+	}
+}
@@ -1,10 +1,8 @@
 package com.yu.gateway.core.filter.router;
 
-import com.netflix.hystrix.*;
-import com.netflix.hystrix.exception.HystrixTimeoutException;
-import com.netflix.hystrix.strategy.properties.HystrixPropertiesFactory;
 import com.yu.gateway.common.config.Rule;
 import com.yu.gateway.common.enums.ResponseCode;
+import com.yu.gateway.common.exception.BaseException;
 import com.yu.gateway.common.exception.ConnectException;
 import com.yu.gateway.common.exception.ResponseException;
 import com.yu.gateway.core.ConfigLoader;
@@ -12,21 +10,26 @@ import com.yu.gateway.core.context.ContextStatus;
 import com.yu.gateway.core.context.GatewayContext;
 import com.yu.gateway.core.filter.Filter;
 import com.yu.gateway.core.filter.FilterAspect;
+import com.yu.gateway.core.filter.GatewayFilterChainFactory;
+import com.yu.gateway.core.filter.breaker.CircuitBreaker;
+import com.yu.gateway.core.filter.breaker.CircuitBreakerRegistry;
+import com.yu.gateway.core.filter.loadBalance.LoadBalanceFilter;
 import com.yu.gateway.core.helper.AsyncHttpHelper;
 import com.yu.gateway.core.helper.ResponseHelper;
 import com.yu.gateway.core.response.GatewayResponse;
-import io.netty.handler.timeout.TimeoutException;
+import io.netty.util.ReferenceCountUtil;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
-import org.asynchttpclient.Request;
-import org.asynchttpclient.Response;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.BiConsumer;
 
 import static com.yu.gateway.common.constant.FilterConst.*;
@@ -36,9 +39,11 @@ import static com.yu.gateway.common.constant.FilterConst.*;
  * @author yu
  * 路由过滤器 执行路由转发操作
  * 1.最终的过滤器组件，用于向下游服务转发请求；
- * 2.请求异常重试；
+ * 2.请求异常重试：按幂等性判断能否重试，指数退避并由请求所属的 EventLoop 定时执行，受服务级重试预算约束，每次重试重新选择实例；
  * 3.服务熔断降级；
- * 4.以上配置均支持配置中心动态更新。
+ * 4.对冲请求：只读请求超过对冲延迟未响应时向另一个实例发送相同请求，取先返回的响应；
+ * 5.请求合并：同时进行中的相同 GET 请求只向下游发送一次，响应体以 retainedDuplicate 分发给所有等待的请求；
+ * 6.以上配置均支持配置中心动态更新。
  * @date 2024-04-10
  */
 @Slf4j
@@ -46,146 +51,264 @@ import static com.yu.gateway.common.constant.FilterConst.*;
 public class RouterFilter implements Filter {
 
 	/**
-	 * 熔断降级的配置
+	 * 执行过滤器
 	 */
-	private ConcurrentHashMap<String, RouterHystrixCommand> commandMap = new ConcurrentHashMap<>();
+	@Override
+	public void doFilter(GatewayContext gatewayContext) throws Exception {
+		// 流式请求的转发由 NettyHttpStreamHandler 在过滤器链执行完毕后完成
+		if (gatewayContext.isStreaming()) {
+			return;
+		}
+
+		// 获取构建过滤器链时解析好的熔断器、重试策略、对冲策略与请求合并
+		RoutePlan plan = gatewayContext.getParsedFilterConfig(ROUTER_FILTER_ID);
+		if (plan == null) {
+			plan = RoutePlan.EMPTY;
+		}
+		if (plan.getRetryPolicy() != null) {
+			RetryBudget.of(gatewayContext.getUniqueId()).deposit();
+		}
+		route(gatewayContext, plan);
+	}
 
 	/**
-	 * 执行过滤器
+	 * 按规则的熔断配置预先创建熔断器，并解析重试策略、对冲策略与请求合并
 	 */
 	@Override
-	public void doFilter(GatewayContext gatewayContext) throws Exception {
-		//首先获取熔断降级的配置
-		Optional<Rule.HystrixConfig> hystrixConfig = getHystrixConfig(gatewayContext);
+	public Object parseConfig(Rule rule, Rule.FilterConfig filterConfig) {
+		return new RoutePlan(CircuitBreakerRegistry.getInstance().register(rule), RetryPolicy.of(rule.getRetryConfig()),
+				HedgePolicy.of(rule), SingleFlight.of(rule));
+	}
 
-		//如果存在对应配置就走熔断降级的逻辑
-		if (hystrixConfig.isPresent()) {
-			routeWithHystrix(gatewayContext, hystrixConfig.get());
+	/**
+	 * 执行一次下游请求，规则开启请求合并时相同的进行中请求共用一次下游调用，
+	 * 只有发起调用的请求获取熔断许可并记录熔断与实例统计，合并的请求只共享结果
+	 */
+	private void route(GatewayContext gatewayContext, RoutePlan plan) {
+		CircuitBreaker breaker = plan.getBreakers().get(gatewayContext.getRequest().getPath());
+		SingleFlight singleFlight = plan.getSingleFlight();
+
+		// 执行 HTTP 请求，响应体以池化 ByteBuf 直接转发
+		CompletableFuture<GatewayResponse> future;
+		if (singleFlight != null && singleFlight.isCoalescible(gatewayContext.getRequest())) {
+			future = singleFlight.execute(gatewayContext, () -> call(gatewayContext, plan, breaker));
 		} else {
-			route(gatewayContext);
+			future = call(gatewayContext, plan, breaker);
 		}
+
+		whenComplete(future, (response, throwable) -> onResult(response, unwrap(throwable), gatewayContext, plan, breaker));
 	}
 
 	/**
-	 * 获取 hystrix 的配置
-	 * 对比请求路径和注册中心注册的路径参数，判断当前请求是否需要走熔断策略分支
+	 * 发起一次下游调用，请求路径存在对应熔断器时先获取熔断许可，并在调用结束时记录熔断统计
 	 */
-	private static Optional<Rule.HystrixConfig> getHystrixConfig(GatewayContext gatewayContext) {
-		Rule rule = gatewayContext.getRules();
+	private static CompletableFuture<GatewayResponse> call(GatewayContext gatewayContext, RoutePlan plan, CircuitBreaker breaker) {
+		if (breaker == null) {
+			return execute(gatewayContext, plan);
+		}
+		if (!breaker.tryAcquire()) {
+			return CompletableFuture.failedFuture(new CallNotPermittedException());
+		}
+
+		long start = System.nanoTime();
+		return withTimeout(gatewayContext, execute(gatewayContext, plan), breaker.getTimeoutMillis())
+				.whenComplete((response, cause) -> {
+					Throwable throwable = unwrap(cause);
+					boolean success = throwable == null && response.getHttpResponseStatus().code() < 500;
+					breaker.onComplete(System.nanoTime() - start, success);
+				});
+	}
 
-		return rule.getHystrixConfigs().stream()
-				.filter(config -> StringUtils.equals(config.getPath(), gatewayContext.getRequest().getPath()))
-				.findFirst();
+	/**
+	 * 发送下游请求，规则开启对冲且请求可对冲时走对冲执行，否则由 AsyncHttpHelper 选择上游客户端
+	 */
+	private static CompletableFuture<GatewayResponse> execute(GatewayContext gatewayContext, RoutePlan plan) {
+		HedgePolicy hedgePolicy = plan.getHedgePolicy();
+		if (hedgePolicy != null && hedgePolicy.isHedgeable(gatewayContext.getRequest())) {
+			return HedgedExecution.execute(gatewayContext, hedgePolicy, gatewayContext.getRequest().build());
+		}
+		return AsyncHttpHelper.getInstance().executeRequest(gatewayContext);
 	}
 
 	/**
-	 * 默认路由逻辑：
+	 * 单异步/双异步模型：
 	 * 根据 whenComplete 判断执行回调的线程是否阻塞执行
 	 * whenComplete 		当异步操作完成时（无论成功还是失败），会立即执行回调函数
 	 * whenCompleteAsync 	当异步操作完成时，会创建一个新的异步任务来执行回调函数
 	 */
-	private CompletableFuture<Response> route(GatewayContext gatewayContext) {
-		// 执行 HTTP 请求，并返回一个 CompletableFuture 对象
-		Request request = gatewayContext.getRequest().build();
-		CompletableFuture<Response> future = AsyncHttpHelper.getInstance().executeRequest(request);
-
-		boolean whenComplete = ConfigLoader.getConfig().isWhenComplete();
-
-		// 单异步/双异步模型
-		if (whenComplete) {
-			future.whenComplete(new BiConsumer<Response, Throwable>() {
-				@Override
-				public void accept(Response response, Throwable throwable) {
-					complete(request, response, throwable, gatewayContext);
-				}
-			});
+	private static <T> void whenComplete(CompletableFuture<T> future, BiConsumer<T, Throwable> action) {
+		if (ConfigLoader.getConfig().isWhenComplete()) {
+			future.whenComplete(action);
 		} else {
-			future.whenCompleteAsync(new BiConsumer<Response, Throwable>() {
-				@Override
-				public void accept(Response response, Throwable throwable) {
-					complete(request, response, throwable, gatewayContext);
-				}
-			});
+			future.whenCompleteAsync(action);
 		}
+	}
 
-		return future;
+	private static Throwable unwrap(Throwable throwable) {
+		return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
 	}
 
 	/**
 	 * 熔断降级请求策略：
-	 * 1.命令执行超过配置超时时间；
-	 * 2.命令执行出现异常或错误；
-	 * 3.连续失败率达到配置的阈值；
+	 * 1.熔断中或并发请求数已满时直接返回降级响应；
+	 * 2.请求超过配置的超时时间时返回超时降级响应，超时由请求所属的 EventLoop 定时触发；
+	 * 3.请求结果（异常、5xx 响应、慢调用）计入熔断器的滑动窗口，重试请求同样需要获取熔断器许可。
 	 */
-	private void routeWithHystrix(GatewayContext gatewayContext, Rule.HystrixConfig hystrixConfig) {
-		String key = gatewayContext.getUniqueId() + "." + gatewayContext.getRequest().getPath();
-		RouterHystrixCommand proxyCommand = null;
+	private void onResult(GatewayResponse response, Throwable throwable, GatewayContext gatewayContext, RoutePlan plan,
+						  CircuitBreaker breaker) {
+		if (breaker != null && throwable instanceof CallNotPermittedException) {
+			// 请求没有发往选中的实例
+			gatewayContext.discardInstanceStats();
+			fallback(gatewayContext, breaker.getConfig(), false);
+		} else if (breaker != null && throwable instanceof TimeoutException) {
+			fallback(gatewayContext, breaker.getConfig(), true);
+		} else {
+			complete(response, throwable, gatewayContext, plan);
+		}
+	}
 
+	/**
+	 * 为下游请求增加超时，超时后释放迟到的响应体
+	 */
+	private static CompletableFuture<GatewayResponse> withTimeout(GatewayContext gatewayContext,
+																  CompletableFuture<GatewayResponse> upstream, long timeoutMillis) {
+		if (timeoutMillis <= 0) {
+			return upstream;
+		}
+		CompletableFuture<GatewayResponse> guarded = new CompletableFuture<>();
+		ScheduledFuture<?> timer = gatewayContext.getNettyContext().executor().schedule(
+				() -> guarded.completeExceptionally(new TimeoutException("circuit breaker timeout " + timeoutMillis + "ms")),
+				timeoutMillis, TimeUnit.MILLISECONDS);
+
+		upstream.whenComplete((response, throwable) -> {
+			timer.cancel(false);
+			boolean completed = throwable == null ? guarded.complete(response) : guarded.completeExceptionally(throwable);
+			if (!completed && response != null) {
+				ReferenceCountUtil.release(response.getBody());
+			}
+		});
+		return guarded;
+	}
 
-		if (commandMap.containsKey(key)) {
-			proxyCommand = commandMap.get(key);
-			if (!hystrixConfig.equals(commandMap.get(key))) {
-				log.info("previous HystrixCommand instance hashCode: {}", proxyCommand.hashCode());
-				proxyCommand.updateHystrixCommandProperties(proxyCommand.getCommandKey().name());
-				proxyCommand = new RouterHystrixCommand(gatewayContext, hystrixConfig);
+	/**
+	 * 熔断降级响应
+	 */
+	private void fallback(GatewayContext gatewayContext, Rule.HystrixConfig hystrixConfig, boolean timeout) {
+		gatewayContext.releaseInstanceStats(false);
+		if (timeout) {
+			// 针对超时的异常处理
+			gatewayContext.setResponse(GatewayResponse.buildGatewayResponse(ResponseCode.GATEWAY_FALLBACK_TIMEOUT));
+		} else {
+			// 熔断中或并发数已满
+			gatewayContext.setResponse(GatewayResponse.buildGatewayResponse(ResponseCode.GATEWAY_FALLBACK_ERROR, hystrixConfig.getFallbackResponse()));
+		}
+		gatewayContext.setContextStatus(ContextStatus.Written);
+		ResponseHelper.writeResponse(gatewayContext);
+	}
 
-				log.info("after HystrixCommand instance hashCode: {}", proxyCommand.hashCode());
-				commandMap.put(key, proxyCommand);
+	/**
+	 * 响应回调处理，需要重试时丢弃本次结果并调度重试，否则写回响应
+	 */
+	private void complete(GatewayResponse response, Throwable throwable, GatewayContext gatewayContext, RoutePlan plan) {
+		if (shouldRetry(gatewayContext, plan.getRetryPolicy(), response, throwable)) {
+			if (Objects.nonNull(response)) {
+				ReferenceCountUtil.release(response.getBody());
 			}
-		} else {
-			proxyCommand = new RouterHystrixCommand(gatewayContext, hystrixConfig);
-			commandMap.put(key, proxyCommand);
+			scheduleRetry(gatewayContext, plan);
+			return;
 		}
-		proxyCommand.execute();
+
+		gatewayContext.releaseInstanceStats(throwable == null);
+		handleResponse(response, throwable, gatewayContext);
 	}
 
 	/**
-	 * 响应回调处理
+	 * 判断是否重试：配置了重试、未达到重试次数、结果可重试且重试预算充足
 	 */
-	private void complete(Request request, Response response, Throwable throwable, GatewayContext gatewayContext) {
-		// 请求已经处理完毕 释放请求资源
-		gatewayContext.releaseRequest();
-
-		// 获取上下文请求配置规则
-		Rule rule = gatewayContext.getRules();
-
-		// 获取重试次数
-		int currentRetryTimes = gatewayContext.getCurrentRetryTimes();
-		int confRetryTimes = rule.getRetryConfig().getTimes();
-
-		// 异常重试
-		if ((throwable instanceof TimeoutException
-				|| throwable instanceof IOException)
-				&& currentRetryTimes <= confRetryTimes) {
-			doRetry(gatewayContext, currentRetryTimes);
+	private static boolean shouldRetry(GatewayContext gatewayContext, RetryPolicy retryPolicy, GatewayResponse response, Throwable throwable) {
+		if (retryPolicy == null
+				|| !retryPolicy.canRetry(gatewayContext.getCurrentRetryTimes())
+				|| gatewayContext.judgeContextStatus(ContextStatus.Completed)) {
+			return false;
+		}
+		boolean retryable = throwable != null
+				? retryPolicy.isRetryable(gatewayContext.getRequest(), throwable)
+				: retryPolicy.isRetryable(gatewayContext.getRequest(), response);
+		if (!retryable) {
+			return false;
+		}
+		if (!RetryBudget.of(gatewayContext.getUniqueId()).tryWithdraw()) {
+			log.warn("retry budget exhausted, uniqueId: {}", gatewayContext.getUniqueId());
+			return false;
 		}
+		return true;
+	}
 
-		// 处理响应
-		handleResponse(request, response, throwable, gatewayContext);
+	/**
+	 * 退避后在请求所属的 EventLoop 上执行重试，不占用回调线程
+	 */
+	private void scheduleRetry(GatewayContext gatewayContext, RoutePlan plan) {
+		int retryTimes = gatewayContext.getCurrentRetryTimes() + 1;
+		gatewayContext.setCurrentRetryTimes(retryTimes);
+		gatewayContext.releaseInstanceStats(false);
+		gatewayContext.getAttemptedHosts().add(gatewayContext.getRequest().getModifyHost());
+
+		long backoff = plan.getRetryPolicy().backoffMillis(retryTimes);
+		log.info("当前请求重试次数为{}, 退避{}ms", retryTimes, backoff);
+		gatewayContext.getNettyContext().executor().schedule(() -> retry(gatewayContext, plan), backoff, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 重新选择实例并再次发送请求
+	 */
+	private void retry(GatewayContext gatewayContext, RoutePlan plan) {
+		try {
+			LoadBalanceFilter loadBalanceFilter = (LoadBalanceFilter) GatewayFilterChainFactory.getInstance().getFilterInfo(LOAD_BALANCE_FILTER_ID);
+			if (loadBalanceFilter != null) {
+				loadBalanceFilter.reselect(gatewayContext, gatewayContext.getAttemptedHosts());
+			}
+			route(gatewayContext, plan);
+		} catch (Exception e) {
+			log.warn("重试请求失败, uniqueId={}", gatewayContext.getUniqueId(), e);
+			gatewayContext.releaseInstanceStats(false);
+			ResponseCode code = e instanceof BaseException baseException ? baseException.getCode() : ResponseCode.INTERNAL_ERROR;
+			gatewayContext.setThrowable(e);
+			gatewayContext.setResponse(GatewayResponse.buildGatewayResponse(code));
+			gatewayContext.setContextStatus(ContextStatus.Written);
+			ResponseHelper.writeResponse(gatewayContext);
+		}
 	}
 
 	/**
 	 * 处理HTTP响应
 	 */
-	private void handleResponse(Request request, Response response, Throwable throwable, GatewayContext gatewayContext) {
-		String url = request.getUrl();
+	private void handleResponse(GatewayResponse response, Throwable throwable, GatewayContext gatewayContext) {
+		String url = gatewayContext.getRequest().getFinalUrl();
+
+		// 响应已经写回客户端，释放迟到的下游响应体
+		if (gatewayContext.judgeContextStatus(ContextStatus.Completed)) {
+			if (Objects.nonNull(response)) {
+				ReferenceCountUtil.release(response.getBody());
+			}
+			return;
+		}
 
 		try {
 			if (Objects.nonNull(throwable)) {
 				// 如果是超时异常
-				if (throwable instanceof TimeoutException) {
+				if (throwable instanceof TimeoutException || throwable instanceof io.netty.handler.timeout.TimeoutException) {
 					log.warn("complete timeout {}", url);
 
 					gatewayContext.setThrowable(throwable);
 					gatewayContext.setResponse(GatewayResponse.buildGatewayResponse(ResponseCode.REQUEST_TIMEOUT));
-				} else if (throwable instanceof IOException) {
-					log.warn("complete io exception {}", url);
+				} else {
+					log.warn("complete {} exception {}", throwable instanceof IOException ? "io" : "unknown", url);
 
 					gatewayContext.setThrowable(new ConnectException(throwable, gatewayContext.getUniqueId(), url, ResponseCode.HTTP_RESPONSE_ERROR));
 					gatewayContext.setResponse(GatewayResponse.buildGatewayResponse(ResponseCode.HTTP_RESPONSE_ERROR));
 				}
 			} else {
-				gatewayContext.setResponse(GatewayResponse.buildGatewayResponse(response));
+				gatewayContext.setResponse(response);
 			}
 		} catch (Exception e) {
 			gatewayContext.setThrowable(new ResponseException(ResponseCode.INTERNAL_ERROR));
@@ -198,86 +321,32 @@ public class RouterFilter implements Filter {
 	}
 
 	/**
-	 * 重试策略
+	 * 熔断中或并发请求数已满，未发起下游调用
 	 */
-	private void doRetry(GatewayContext gatewayContext, int retryTimes) {
-		gatewayContext.setCurrentRetryTimes(retryTimes + 1);
-
-		log.info("当前请求重试次数为{}", gatewayContext.getCurrentRetryTimes());
-
-		try {
-			// 重新执行过滤器逻辑
-			doFilter(gatewayContext);
-		} catch (Exception e) {
-			log.warn("重试请求失败, requestId={}", gatewayContext.getUniqueId(), e);
-			throw new RuntimeException(e);
+	private static final class CallNotPermittedException extends RuntimeException {
+		private CallNotPermittedException() {
+			super("circuit breaker call not permitted", null, false, false);
 		}
 	}
 
-	private class RouterHystrixCommand extends HystrixCommand<Object> {
-		private GatewayContext context;
-		private Rule.HystrixConfig config;
-
-		public RouterHystrixCommand(GatewayContext context, Rule.HystrixConfig config) {
-			super(Setter.withGroupKey(HystrixCommandGroupKey.Factory.asKey(context.getUniqueId()))
-					.andCommandKey(HystrixCommandKey.Factory.asKey(context.getRequest().getPath()))
-					.andThreadPoolPropertiesDefaults(HystrixThreadPoolProperties.Setter()
-							// 核心线程数
-							.withCoreSize(config.getCoreThreadSize()))
-					.andCommandPropertiesDefaults(HystrixCommandProperties.Setter()
-							// 线程隔离类型
-							.withExecutionIsolationStrategy(HystrixCommandProperties.ExecutionIsolationStrategy.THREAD)
-							// 命令执行超时
-							.withExecutionTimeoutInMilliseconds(config.getTimeoutInMilliseconds())
-							// 超时中断
-							.withExecutionIsolationThreadInterruptOnTimeout(true)
-							.withExecutionTimeoutEnabled(true)));
-
-			this.config = config;
-			this.context = context;
-		}
-
-		@Override
-		protected Object run() throws Exception {
-			// 实际路由操作
-			route(context);
-			return null;
-		}
-
-		/**
-		 * 熔断降级操作
-		 */
-		@Override
-		protected Object getFallback() {
-			// 是否是超时引发的熔断
-			if (isFailedExecution() || getExecutionException() instanceof HystrixTimeoutException) {
-				// 针对超时的异常处理
-				context.setResponse(GatewayResponse.buildGatewayResponse(ResponseCode.GATEWAY_FALLBACK_TIMEOUT));
-			} else {
-				// 其它类型异常熔断处理
-				context.setResponse(GatewayResponse.buildGatewayResponse(ResponseCode.GATEWAY_FALLBACK_ERROR, config.getFallbackResponse()));
-			}
-			context.setContextStatus(ContextStatus.Written);
-			return null;
-		}
-
-		/**
-		 * 动态更新 CommandProperties 配置
-		 * 1.因为 Hystrix 内部使用了缓存，如果仅仅修改 HystrixCommand.Setter 是没有用的；
-		 * 2.利用反射获取 HystrixPropertiesFactory 的 commandProperties 字段，并更新
-		 */
-		protected void updateHystrixCommandProperties(String commandKey) {
-			try {
-				Field field = HystrixPropertiesFactory.class.getDeclaredField("commandProperties");
-				field.setAccessible(true);
-				ConcurrentHashMap<String, HystrixCommandProperties> commandProperties = (ConcurrentHashMap<String, HystrixCommandProperties>) field.get(null);
-
-				log.info("before update HystrixCommandProperties: {}", commandProperties.get(commandKey));
-				commandProperties.remove(commandKey);
-			} catch (NoSuchFieldException | IllegalAccessException e) {
-				log.error("Remove cache in HystrixCommandFactory failed, commandKey: {}", commandKey, e);
-			}
+	/**
+	 * 规则对应的路由配置  熔断路径 —— 熔断器，以及重试策略、对冲策略、请求合并（未配置时为 null）
+	 */
+	@Getter
+	public static class RoutePlan {
+		private static final RoutePlan EMPTY = new RoutePlan(Collections.emptyMap(), null, null, null);
+
+		private final Map<String, CircuitBreaker> breakers;
+		private final RetryPolicy retryPolicy;
+		private final HedgePolicy hedgePolicy;
+		private final SingleFlight singleFlight;
+
+		public RoutePlan(Map<String, CircuitBreaker> breakers, RetryPolicy retryPolicy, HedgePolicy hedgePolicy,
+						 SingleFlight singleFlight) {
+			this.breakers = breakers;
+			this.retryPolicy = retryPolicy;
+			this.hedgePolicy = hedgePolicy;
+			this.singleFlight = singleFlight;
 		}
 	}
-
 }
@@ -0,0 +1,201 @@
+package com.yu.gateway.core.filter.router;
+
+import com.yu.gateway.common.config.Rule;
+import com.yu.gateway.core.context.GatewayContext;
+import com.yu.gateway.core.request.GatewayRequest;
+import com.yu.gateway.core.response.GatewayResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.util.AsciiString;
+import io.netty.util.ReferenceCountUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * @author yu
+ * 请求合并（single-flight），构建过滤器链时由 Rule.CoalesceConfig 解析得到：
+ * 1.同一规则下同时进行中的相同 GET 请求只向下游发送一次，后到的请求等待该次调用的结果；
+ * 2.合并键：服务 + 方法 + 路径 + 查询串 + 用户ID + 认证、协商类请求头 + 配置的请求头，不同用户、不同条件的请求不会合并；
+ * 3.下游响应体不复制，每个等待的请求得到响应头副本与共享同一内存的 retainedDuplicate，全部分发后释放原始响应体；
+ * 4.调用结束即移除，不缓存响应，之后到达的请求重新向下游发送；
+ * 5.熔断许可、熔断统计与实例统计只由发起调用的请求记录，合并的请求释放已绑定的实例且不记录延迟样本。
+ * @date 2024-06-14
+ */
+public class SingleFlight {
+
+	/**
+	 * 始终参与合并键的请求头，避免不同用户或不同协商结果的响应被共享
+	 */
+	private static final List<AsciiString> BUILTIN_KEY_HEADERS = List.of(HttpHeaderNames.AUTHORIZATION, HttpHeaderNames.COOKIE,
+			HttpHeaderNames.ACCEPT, HttpHeaderNames.ACCEPT_ENCODING, HttpHeaderNames.RANGE,
+			HttpHeaderNames.IF_NONE_MATCH, HttpHeaderNames.IF_MODIFIED_SINCE);
+
+	/**
+	 * 规则ID —— 进行中的调用与监控指标
+	 */
+	private static final ConcurrentHashMap<String, Flights> FLIGHTS_MAP = new ConcurrentHashMap<>();
+
+	private final List<String> keyHeaders;
+
+	private final Flights flights;
+
+	private SingleFlight(Rule.CoalesceConfig config, Flights flights) {
+		this.keyHeaders = config.getKeyHeaders() == null ? Collections.emptyList() : config.getKeyHeaders();
+		this.flights = flights;
+	}
+
+	/**
+	 * 解析请求合并配置，未开启时返回 null
+	 */
+	public static SingleFlight of(Rule rule) {
+		Rule.CoalesceConfig config = rule.getCoalesceConfig();
+		if (config == null || !config.isEnabled()) {
+			FLIGHTS_MAP.remove(rule.getId());
+			return null;
+		}
+		return new SingleFlight(config, FLIGHTS_MAP.computeIfAbsent(rule.getId(), Flights::new));
+	}
+
+	public boolean isCoalescible(GatewayRequest request) {
+		return HttpMethod.GET.equals(request.getMethod());
+	}
+
+	/**
+	 * 执行下游调用，存在相同的进行中调用时等待其结果，否则由 call 发起调用
+	 */
+	public CompletableFuture<GatewayResponse> execute(GatewayContext ctx, Supplier<CompletableFuture<GatewayResponse>> call) {
+		String key = key(ctx.getRequest());
+		CompletableFuture<GatewayResponse> result = new CompletableFuture<>();
+		Flight created = new Flight();
+		Flight existing = flights.inflight.putIfAbsent(key, created);
+		if (existing != null) {
+			if (existing.join(result)) {
+				// 不向负载均衡选中的实例发送请求
+				ctx.discardInstanceStats();
+				flights.coalesced.increment();
+				return result;
+			}
+			// 调用刚刚结束、尚未移除，单独发送
+			return call.get();
+		}
+
+		created.join(result);
+		flights.leaders.increment();
+		CompletableFuture<GatewayResponse> upstream;
+		try {
+			upstream = call.get();
+		} catch (Throwable e) {
+			flights.inflight.remove(key, created);
+			created.finish(null, e);
+			return result;
+		}
+		upstream.whenComplete((response, throwable) -> {
+			flights.inflight.remove(key, created);
+			created.finish(response, throwable);
+		});
+		return result;
+	}
+
+	private String key(GatewayRequest request) {
+		StringBuilder key = new StringBuilder(128)
+				.append(request.getUniqueId()).append(' ')
+				.append(request.getMethod().name()).append(' ')
+				.append(request.getModifyPath());
+		String uri = request.getUri();
+		int queryIndex = uri.indexOf('?');
+		if (queryIndex >= 0) {
+			key.append(uri, queryIndex, uri.length());
+		}
+		key.append(' ').append(request.getUserId());
+		HttpHeaders headers = request.getHeaders();
+		for (AsciiString name : BUILTIN_KEY_HEADERS) {
+			appendHeader(key, name, headers);
+		}
+		for (String name : keyHeaders) {
+			appendHeader(key, name, headers);
+		}
+		return key.toString();
+	}
+
+	private static void appendHeader(StringBuilder key, CharSequence name, HttpHeaders headers) {
+		String value = headers.get(name);
+		if (value != null) {
+			key.append('|').append(name).append('=').append(value);
+		}
+	}
+
+	/**
+	 * 一次进行中的下游调用及等待其结果的请求
+	 */
+	private static final class Flight {
+
+		private final List<CompletableFuture<GatewayResponse>> waiters = new ArrayList<>(4);
+
+		private boolean finished;
+
+		/**
+		 * 加入本次调用，调用已结束时返回 false
+		 */
+		synchronized boolean join(CompletableFuture<GatewayResponse> waiter) {
+			if (finished) {
+				return false;
+			}
+			waiters.add(waiter);
+			return true;
+		}
+
+		/**
+		 * 分发调用结果，每个请求得到独立的响应头与共享内存的响应体，分发完成后释放原始响应体
+		 */
+		void finish(GatewayResponse response, Throwable throwable) {
+			List<CompletableFuture<GatewayResponse>> joined;
+			synchronized (this) {
+				finished = true;
+				joined = new ArrayList<>(waiters);
+				waiters.clear();
+			}
+			if (throwable != null) {
+				joined.forEach(waiter -> waiter.completeExceptionally(throwable));
+				return;
+			}
+			if (response.getBody() == null) {
+				// 没有池化响应体（非零拷贝的响应），共享同一个响应对象
+				joined.forEach(waiter -> waiter.complete(response));
+				return;
+			}
+			try {
+				for (CompletableFuture<GatewayResponse> waiter : joined) {
+					GatewayResponse shared = GatewayResponse.buildGatewayResponse(response.getHttpResponseStatus(),
+							response.getResponseHeaders().copy(), response.getBody().retainedDuplicate());
+					if (!waiter.complete(shared)) {
+						ReferenceCountUtil.release(shared.getBody());
+					}
+				}
+			} finally {
+				ReferenceCountUtil.release(response.getBody());
+			}
+		}
+	}
+
+	/**
+	 * 规则进行中的调用与监控指标
+	 */
+	private static final class Flights {
+		private final ConcurrentHashMap<String, Flight> inflight = new ConcurrentHashMap<>();
+		private final Counter leaders;
+		private final Counter coalesced;
+
+		private Flights(String ruleId) {
+			this.leaders = Metrics.counter("gateway_coalesced_requests", "ruleId", ruleId, "result", "leader");
+			this.coalesced = Metrics.counter("gateway_coalesced_requests", "ruleId", ruleId, "result", "coalesced");
+		}
+	}
+}
@@ -6,13 +6,16 @@ import com.yu.gateway.common.utils.cipher.CryptoHelper;
 import com.yu.gateway.common.utils.jwt.JWTUtil;
 import com.yu.gateway.common.utils.redis.JedisUtil;
 import com.yu.gateway.core.context.GatewayContext;
-import com.yu.gateway.core.filter.Filter;
+import com.yu.gateway.core.filter.AsyncFilter;
 import com.yu.gateway.core.filter.FilterAspect;
+import com.yu.gateway.core.redis.AsyncRedisHelper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.LinkedMultiValueMap;
 
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import static com.yu.gateway.common.constant.FilterConst.*;
 
@@ -23,33 +26,35 @@ import static com.yu.gateway.common.constant.FilterConst.*;
  */
 @Slf4j
 @FilterAspect(id = CRYPTO_FILTER_ID, name = CRYPTO_FILTER_NAME, order = CRYPTO_FILTER_ORDER)
-public class CryptoFilter implements Filter {
+public class CryptoFilter implements AsyncFilter {
 	@Override
-	public void doFilter(GatewayContext ctx) throws Exception {
-		// 遍历所有的过滤器配置，查找ID为CRYPTO_FILTER_ID的配置
-		for (Rule.FilterConfig config : ctx.getRules().getFilterConfigs()) {
-			if (!config.getId().equalsIgnoreCase(CRYPTO_FILTER_ID)) {
-				continue;
-			}
-
-			// 解析配置的JSON字符串，获取白名单列表
-			Map<String, List<String>> configMap = JSON.parseObject(config.getConfig(), Map.class);
-			List<String> white_lists = configMap.get(WHITE_LIST_KEY);
-
-			// 如果请求的路径在白名单中，那么直接返回，不进行后续的处理
-			if (white_lists.contains(ctx.getRequest().getPath())) {
-				return;
-			}
+	public CompletionStage<Void> doFilterAsync(GatewayContext ctx) {
+		// 获取构建过滤器链时解析好的白名单，如果请求的路径在白名单中，那么直接返回，不进行后续的处理
+		Set<String> whiteLists = ctx.getParsedFilterConfig(CRYPTO_FILTER_ID);
+		if (whiteLists != null && whiteLists.contains(ctx.getRequest().getPath())) {
+			return CompletableFuture.completedFuture(null);
 		}
 
-		// 从Redis中获取对称密钥
-		JedisUtil jedis = new JedisUtil();
+		// 从Redis中获取所有的对称密钥，获取期间过滤器链挂起
 		String userId = (String) JWTUtil.getClaimByToken(ctx.getRequest().getCookie(COOKIE_KEY).value(), TOKEN_SECRET).get(TOKEN_USERID_KEY);
 		String securityKey = SECURITY_KEY_PREFIX + ":" + userId;
-		String symmetricPublicKey = null;
+		return listSecurityKeys(securityKey).thenAccept(securityKeyLists -> decrypt(ctx, securityKeyLists));
+	}
+
+	/**
+	 * 获取用户的全部密钥，异步 Redis 客户端未初始化时使用 JedisUtil
+	 */
+	static CompletableFuture<? extends Collection<String>> listSecurityKeys(String securityKey) {
+		AsyncRedisHelper helper = AsyncRedisHelper.getInstance();
+		if (helper.isAvailable()) {
+			return helper.zrange(securityKey, 0, -1);
+		}
+		Set<String> keys = new JedisUtil().listScoreSetString(securityKey, 0, -1, true);
+		return CompletableFuture.completedFuture(keys == null ? Collections.emptySet() : keys);
+	}
 
-		// 获取所有的对称密钥
-		Set<String> securityKeyLists = jedis.listScoreSetString(securityKey, 0, -1, true);
+	private void decrypt(GatewayContext ctx, Collection<String> securityKeyLists) {
+		String symmetricPublicKey = null;
 		for (String key : securityKeyLists) {
 			if (key.startsWith(SYMMETRIC_KEY_PREFIX)) {
 				symmetricPublicKey = key;
@@ -85,4 +90,16 @@ public class CryptoFilter implements Filter {
 		String decryptQueryParams = CryptoHelper.decryptUrl(signature.replace(" ", "+"), symmetricPublicKey);
 		ctx.getRequest().setModifyPath(ctx.getRequest().getQueryStringDecoder().path() + "?" + decryptQueryParams);
 	}
+
+	/**
+	 * 解析配置的JSON字符串，获取白名单列表
+	 */
+	@Override
+	public Object parseConfig(Rule rule, Rule.FilterConfig filterConfig) {
+		Map<String, List<String>> configMap = JSON.parseObject(filterConfig.getConfig(), Map.class);
+		if (configMap == null || configMap.get(WHITE_LIST_KEY) == null) {
+			return Collections.emptySet();
+		}
+		return new HashSet<>(configMap.get(WHITE_LIST_KEY));
+	}
 }
@@ -4,14 +4,18 @@ import com.yu.gateway.common.utils.cipher.RSAUtil;
 import com.yu.gateway.common.utils.jwt.JWTUtil;
 import com.yu.gateway.common.utils.redis.JedisUtil;
 import com.yu.gateway.core.context.GatewayContext;
-import com.yu.gateway.core.filter.Filter;
+import com.yu.gateway.core.filter.AsyncFilter;
 import com.yu.gateway.core.filter.FilterAspect;
+import com.yu.gateway.core.redis.AsyncRedisHelper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 
+import java.util.Collection;
 import java.util.Objects;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 
 import static com.yu.gateway.common.constant.FilterConst.*;
 
@@ -22,57 +26,83 @@ import static com.yu.gateway.common.constant.FilterConst.*;
  */
 @Slf4j
 @FilterAspect(id = SYMMETRIC_KEY_FILTER_ID, name = SYMMETRIC_KEY_FILTER_NAME, order = SYMMETRIC_KEY_FILTER_ORDER)
-public class SymmetricKeyFilter implements Filter {
+public class SymmetricKeyFilter implements AsyncFilter {
 
 	@Override
-	public void doFilter(GatewayContext ctx) throws Exception {
+	public CompletionStage<Void> doFilterAsync(GatewayContext ctx) {
 		// 从请求头中获取对称密钥并保存到 Redis 中
 		String encryptSymmetricKey = ctx.getRequest().getHeaders().get(SYMMETRIC_KEY_PUBLIC_KEY);
-		if (encryptSymmetricKey != null) {
-			try {
-				JedisUtil jedis = new JedisUtil();
-				String userId = getUserId(ctx);
-				String securityKey = SECURITY_KEY_PREFIX + ":" + userId;
+		if (encryptSymmetricKey == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+		try {
+			String userId = getUserId(ctx);
+			String securityKey = SECURITY_KEY_PREFIX + ":" + userId;
+
+			// 从 Redis 中获取所有的密钥，Redis 调用期间过滤器链挂起
+			return CryptoFilter.listSecurityKeys(securityKey)
+					.thenCompose(keys -> saveSymmetricKey(securityKey, keys, encryptSymmetricKey))
+					.exceptionally(e -> {
+						Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+						throw new RuntimeException("SymmetricFilter decrypt symmetric failed, throws: " + cause.getMessage());
+					});
+		} catch (Exception e) {
+			throw new RuntimeException("SymmetricFilter decrypt symmetric failed, throws: " + e.getMessage());
+		}
+	}
 
-				// 从 Redis 中获取所有的密钥
-				Set<String> keys = jedis.listScoreSetString(securityKey, 0, -1, true);
-				String privateKey = null;
+	private CompletableFuture<Void> saveSymmetricKey(String securityKey, Collection<String> keys, String encryptSymmetricKey) {
+		String privateKey = null;
+
+		// 寻找私钥
+		for (String key : keys) {
+			if (key.startsWith(RSA_PRIVATE_KEY_PREFIX)) {
+				privateKey = key.substring(RSA_PRIVATE_KEY_PREFIX.length() + 1);
+			}
+		}
+		log.info("Get rsa-privateKey from redis {}", privateKey);
 
-				// 寻找私钥
-				for (String key : keys) {
-					if (key.startsWith(RSA_PRIVATE_KEY_PREFIX)) {
-						privateKey = key.substring(RSA_PRIVATE_KEY_PREFIX.length() + 1);
-					}
-				}
-				log.info("Get rsa-privateKey from redis {}", privateKey);
+		// 如果私钥为空，则抛出异常
+		if (StringUtils.isEmpty(privateKey)) {
+			throw new RuntimeException("PrivateKey is empty in SymmetricKeyFilter");
+		}
 
-				// 如果私钥为空，则抛出异常
-				if (StringUtils.isEmpty(privateKey)) {
-					throw new RuntimeException("PrivateKey is empty in SymmetricKeyFilter");
-				}
+		// 解密 RSA 并获取 AES 密钥
+		String symmetricPublicKey = RSAUtil.decryptPrivateKey(encryptSymmetricKey, privateKey);
+		log.info("After decryptSymmetric, symmetric: {}", symmetricPublicKey);
 
-				// 解密 RSA 并获取 AES 密钥
-				String symmetricPublicKey = RSAUtil.decryptPrivateKey(encryptSymmetricKey, privateKey);
-				log.info("After decryptSymmetric, symmetric: {}", symmetricPublicKey);
+		// 将 AES 密钥保存到 Redis 中
+		// security:key:{userId}    symmetric:key:{symmetricKey}     {symmetric-expireTime}
+		String symmetricKey = SYMMETRIC_KEY_PREFIX + ":" + symmetricPublicKey;
+		AsyncRedisHelper helper = AsyncRedisHelper.getInstance();
+		if (!helper.isAvailable()) {
+			saveSymmetricKey(new JedisUtil(), securityKey, symmetricKey);
+			return CompletableFuture.completedFuture(null);
+		}
 
-				// 将 AES 密钥保存到 Redis 中
-				// security:key:{userId}    symmetric:key:{symmetricKey}     {symmetric-expireTime}
-				String symmetricKey = SYMMETRIC_KEY_PREFIX + ":" + symmetricPublicKey;
+		// 检查 AES 密钥的过期时间，如果需要则创建新的
+		return helper.zscore(securityKey, symmetricKey).thenCompose(expireTime -> {
+			if (expireTime != null && expireTime.longValue() > System.currentTimeMillis()) {
+				return CompletableFuture.completedFuture(null);
+			}
+			return helper.zadd(securityKey, System.currentTimeMillis() + SYMMETRIC_KEY_EXPIRE_TIME, symmetricKey)
+					.thenAccept(added -> {});
+		});
+	}
 
-				// 检查 AES 密钥的过期时间，如果需要则创建新的
-				if (jedis.isExistScoreSet(securityKey, symmetricKey)) {
-					long expireTime = (long) jedis.getScore(securityKey, symmetricKey).doubleValue();
-					if (expireTime > System.currentTimeMillis()) {
-						return;
-					}
-				}
-				if (!jedis.addScoreSet(securityKey, symmetricKey, System.currentTimeMillis() + SYMMETRIC_KEY_EXPIRE_TIME)) {
-					throw new RuntimeException("save symmetricKey into redis failed");
-				}
-			} catch (Exception e) {
-				throw new RuntimeException("SymmetricFilter decrypt symmetric failed, throws: " + e.getMessage());
+	/**
+	 * 异步 Redis 客户端未初始化时使用 JedisUtil 保存
+	 */
+	private void saveSymmetricKey(JedisUtil jedis, String securityKey, String symmetricKey) {
+		if (jedis.isExistScoreSet(securityKey, symmetricKey)) {
+			long expireTime = (long) jedis.getScore(securityKey, symmetricKey).doubleValue();
+			if (expireTime > System.currentTimeMillis()) {
+				return;
 			}
 		}
+		if (!jedis.addScoreSet(securityKey, symmetricKey, System.currentTimeMillis() + SYMMETRIC_KEY_EXPIRE_TIME)) {
+			throw new RuntimeException("save symmetricKey into redis failed");
+		}
 	}
 
 	/**
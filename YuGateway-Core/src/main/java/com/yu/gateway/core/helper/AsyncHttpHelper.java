@@ -1,8 +1,20 @@
 package com.yu.gateway.core.helper;
 
+import com.yu.gateway.common.config.ServiceDefinition;
+import com.yu.gateway.common.config.ServiceInstance;
+import com.yu.gateway.common.constant.BasicConst;
+import com.yu.gateway.core.context.GatewayContext;
+import com.yu.gateway.core.netty.NettyUpstreamClient;
+import com.yu.gateway.core.request.GatewayRequest;
+import com.yu.gateway.core.response.GatewayResponse;
+import com.yu.gateway.core.upstream.Http2UpstreamClient;
+import io.netty.util.ReferenceCountUtil;
 import org.asynchttpclient.*;
 
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 
 /**
@@ -30,16 +42,93 @@ public class AsyncHttpHelper {
 
 	private AsyncHttpClient asyncHttpClient;
 
+	private Http2UpstreamClient http2UpstreamClient;
+
+	private NettyUpstreamClient nettyUpstreamClient;
+
 	public void initialized(AsyncHttpClient asyncHttpClient) {
 		this.asyncHttpClient = asyncHttpClient;
 	}
 
+	public void initialized(Http2UpstreamClient http2UpstreamClient) {
+		this.http2UpstreamClient = http2UpstreamClient;
+	}
+
+	public void initialized(NettyUpstreamClient nettyUpstreamClient) {
+		this.nettyUpstreamClient = nettyUpstreamClient;
+	}
+
 	/**
-	 * 执行 HTTP 请求，并返回一个 CompletableFuture 对象
+	 * 服务实例变更时维护 h2c 上游连接池
 	 */
-	public CompletableFuture<Response> executeRequest(Request request) {
-		ListenableFuture<Response> future = asyncHttpClient.executeRequest(request);
-		return future.toCompletableFuture();
+	public void refreshUpstream(ServiceDefinition definition, Set<ServiceInstance> instances) {
+		if (http2UpstreamClient != null) {
+			http2UpstreamClient.refresh(definition, instances);
+		}
+	}
+
+	/**
+	 * 目标实例使用 h2c 时通过多路复用连接发送，否则返回 null
+	 */
+	private CompletableFuture<GatewayResponse> executeH2c(Request request) {
+		return http2UpstreamClient == null ? null : http2UpstreamClient.execute(request);
+	}
+
+	/**
+	 * 转发网关请求：启用了原生 Netty 客户端时，在客户端连接所属的 EventLoop 上直接转发由 FullHttpRequest 构造的请求，
+	 * 目标为 h2c 实例、https 或修改了表单参数、Cookie 的请求仍构造 AsyncHttpClient 的 Request 执行；
+	 * 开启对冲的路由不经过该方法，由 HedgedExecution 通过 executeCancellableRequest 使用 AsyncHttpClient（或 h2c）发送，
+	 * 原生 Netty 客户端不支持取消已发出的请求
+	 */
+	public CompletableFuture<GatewayResponse> executeRequest(GatewayContext ctx) {
+		GatewayRequest request = ctx.getRequest();
+		if (nettyUpstreamClient != null
+				&& !request.isRequestBuilderRequired()
+				&& BasicConst.HTTP_PREFIX_SEPARATOR.equals(request.getModifyScheme())
+				&& (http2UpstreamClient == null || !http2UpstreamClient.isH2c(request.getModifyHost()))) {
+			return nettyUpstreamClient.execute(ctx.getNettyContext().channel().eventLoop(), request.getModifyHost(),
+					request.buildHttpRequest(), request.getRequestTimeout());
+		}
+		return executeRequest(request.build());
+	}
+
+	/**
+	 * 执行 HTTP 请求，响应体以池化 ByteBuf 的形式直接转发，并返回一个 CompletableFuture 对象
+	 * 客户端使用 LAZY 方式构造响应分块，不能再通过 Response.getResponseBodyAsByteBuffer 读取响应体
+	 */
+	public CompletableFuture<GatewayResponse> executeRequest(Request request) {
+		CompletableFuture<GatewayResponse> h2c = executeH2c(request);
+		return h2c != null ? h2c : executeRequest(request, new RelayAsyncHandler());
+	}
+
+	/**
+	 * 执行 HTTP 请求，返回可取消的 CompletableFuture，取消时中断下游请求（h2c 为重置流）并释放迟到的响应体
+	 */
+	public CompletableFuture<GatewayResponse> executeCancellableRequest(Request request) {
+		CompletableFuture<GatewayResponse> h2c = executeH2c(request);
+		if (h2c != null) {
+			return h2c;
+		}
+		ListenableFuture<GatewayResponse> future = asyncHttpClient.executeRequest(request, new RelayAsyncHandler());
+		CompletableFuture<GatewayResponse> result = new CompletableFuture<>();
+		future.addListener(() -> {
+			try {
+				GatewayResponse response = future.get();
+				if (!result.complete(response)) {
+					ReferenceCountUtil.release(response.getBody());
+				}
+			} catch (ExecutionException e) {
+				result.completeExceptionally(e.getCause());
+			} catch (Exception e) {
+				result.completeExceptionally(e);
+			}
+		}, Runnable::run);
+		result.whenComplete((response, throwable) -> {
+			if (throwable instanceof CancellationException) {
+				future.cancel(true);
+			}
+		});
+		return result;
 	}
 
 	/**
@@ -0,0 +1,93 @@
+package com.yu.gateway.core.helper;
+
+import com.yu.gateway.core.response.GatewayResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.EmptyHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.ReferenceCountUtil;
+import org.asynchttpclient.AsyncHandler;
+import org.asynchttpclient.HttpResponseBodyPart;
+import org.asynchttpclient.HttpResponseHeaders;
+import org.asynchttpclient.netty.LazyResponseBodyPart;
+
+/**
+ * @author yu
+ * 响应零拷贝转发处理器：
+ * 1.直接持有下游服务响应的池化 ByteBuf（引用计数 +1），多个分块通过 CompositeByteBuf 组合，不做堆内存拷贝；
+ * 2.响应头直接复用解码得到的 HttpHeaders 对象；
+ * 3.最终得到的 GatewayResponse 写回客户端时由 Netty 释放响应体。
+ * @date 2024-05-22
+ */
+public class RelayAsyncHandler implements AsyncHandler<GatewayResponse> {
+
+	/**
+	 * CompositeByteBuf 最大组件数，超过后 Netty 会合并组件（产生拷贝）
+	 */
+	private static final int MAX_COMPONENTS = 1024;
+
+	private HttpResponseStatus status;
+
+	private HttpHeaders headers = EmptyHttpHeaders.INSTANCE;
+
+	/**
+	 * 响应体，单个分块时直接持有该分块，多个分块时为 CompositeByteBuf
+	 */
+	private ByteBuf body;
+
+	@Override
+	public State onStatusReceived(org.asynchttpclient.HttpResponseStatus responseStatus) throws Exception {
+		this.status = HttpResponseStatus.valueOf(responseStatus.getStatusCode());
+		return State.CONTINUE;
+	}
+
+	@Override
+	public State onHeadersReceived(HttpResponseHeaders responseHeaders) throws Exception {
+		this.headers = responseHeaders.getHeaders();
+		return State.CONTINUE;
+	}
+
+	@Override
+	public State onBodyPartReceived(HttpResponseBodyPart bodyPart) throws Exception {
+		ByteBuf part;
+		if (bodyPart instanceof LazyResponseBodyPart lazyBodyPart) {
+			// 分块回调结束后 AsyncHttpClient 会释放该 ByteBuf，这里增加引用计数延长其生命周期
+			part = lazyBodyPart.getBuf().retain();
+		} else {
+			part = Unpooled.wrappedBuffer(bodyPart.getBodyByteBuffer());
+		}
+
+		if (!part.isReadable()) {
+			part.release();
+			return State.CONTINUE;
+		}
+
+		if (body == null) {
+			body = part;
+		} else if (body instanceof CompositeByteBuf composite) {
+			composite.addComponent(true, part);
+		} else {
+			CompositeByteBuf composite = PooledByteBufAllocator.DEFAULT.compositeBuffer(MAX_COMPONENTS);
+			composite.addComponent(true, body);
+			composite.addComponent(true, part);
+			body = composite;
+		}
+		return State.CONTINUE;
+	}
+
+	@Override
+	public void onThrowable(Throwable t) {
+		if (body != null) {
+			ReferenceCountUtil.release(body);
+			body = null;
+		}
+	}
+
+	@Override
+	public GatewayResponse onCompleted() throws Exception {
+		return GatewayResponse.buildGatewayResponse(status, headers, body == null ? Unpooled.EMPTY_BUFFER : body);
+	}
+}
@@ -96,20 +96,18 @@ public class RequestHelper {
      * 解析请求 url 对应的规则匹配
      */
     private static Rule getRule(GatewayRequest request, String serviceId) {
-        // 拼接服务ID + 请求路径
-        String encryptRequestPath = request.getPath();
-        if (encryptRequestPath.contains("/encrypt")) {
-            encryptRequestPath = encryptRequestPath.substring(0, encryptRequestPath.indexOf("/encrypt"));
-        }
+        return getRule(serviceId, request.getPath());
+    }
 
-        String key = serviceId + "." + encryptRequestPath;
-        Rule rule = DynamicConfigManager.getInstance().getRulePath(key);
-        if (rule != null) {
-            return rule;
+    /**
+     * 根据服务ID和请求路径匹配规则，流式转发在请求头到达时即需确定规则
+     */
+    public static Rule getRule(String serviceId, String path) {
+        // 路由索引依次尝试精确路径、路径模板、/encrypt 截断与最长前缀匹配
+        Rule rule = DynamicConfigManager.getInstance().matchRule(serviceId, path);
+        if (rule == null) {
+            throw new ResponseException(ResponseCode.PATH_NO_MATCHED);
         }
-        return DynamicConfigManager.getInstance().getRuleByServiceId(serviceId).stream()
-                .filter(r -> request.getPath().startsWith(r.getPrefix()))
-                .findAny()
-                .orElseThrow(() -> new ResponseException(ResponseCode.PATH_NO_MATCHED));
+        return rule;
     }
 }
@@ -0,0 +1,254 @@
+package com.yu.gateway.core.helper;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.yu.gateway.core.Config;
+import com.yu.gateway.core.ConfigLoader;
+import com.yu.gateway.core.context.GatewayContext;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.ZlibCodecFactory;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * @author yu
+ * 网关侧响应压缩：
+ * 1.按客户端的 Accept-Encoding 选择 gzip 或 deflate，下游已编码的响应、no-transform、206 等响应原样透传；
+ * 2.只压缩 Content-Type 匹配且达到大小阈值的响应，压缩后追加 Vary: Accept-Encoding，强 ETag 降为弱 ETag；
+ * 3.带强 ETag 的 200 响应按 服务 + URI + ETag + 编码 缓存压缩结果，热点静态响应命中后不再重复压缩。
+ * @date 2024-06-10
+ */
+@Slf4j
+public class ResponseCompressor {
+
+	/**
+	 * 压缩后没有变小的标记，命中时直接返回原始响应
+	 */
+	private static final byte[] NOT_COMPRESSIBLE = new byte[0];
+
+	private static final String WEAK_ETAG_PREFIX = "W/";
+
+	private static final class SingletonHolder {
+		private static final ResponseCompressor INSTANCE = new ResponseCompressor(ConfigLoader.getConfig());
+	}
+
+	public static ResponseCompressor getInstance() {
+		return SingletonHolder.INSTANCE;
+	}
+
+	private final boolean enabled;
+
+	private final int level;
+
+	private final int minSize;
+
+	/**
+	 * 可压缩的 Content-Type 前缀（小写）
+	 */
+	private final String[] contentTypes;
+
+	/**
+	 * 压缩结果缓存，未开启时为 null
+	 */
+	private final Cache<String, byte[]> cache;
+
+	private ResponseCompressor(Config config) {
+		this.enabled = config.isResponseCompression();
+		this.level = config.getResponseCompressionLevel();
+		this.minSize = config.getResponseCompressionMinSize();
+		this.contentTypes = Arrays.stream(StringUtils.split(StringUtils.defaultString(config.getResponseCompressionContentTypes()), ','))
+				.map(type -> type.trim().toLowerCase(Locale.ROOT))
+				.filter(StringUtils::isNotEmpty)
+				.toArray(String[]::new);
+		this.cache = config.getResponseCompressionCacheBytes() <= 0 ? null : Caffeine.newBuilder()
+				.maximumWeight(config.getResponseCompressionCacheBytes())
+				.<String, byte[]>weigher((key, value) -> key.length() + value.length)
+				.build();
+	}
+
+	/**
+	 * 压缩响应，不满足压缩条件时返回原响应；压缩成功时原响应体被释放
+	 */
+	public FullHttpResponse compress(GatewayContext context, FullHttpResponse response) {
+		if (!enabled || context.getRequest() == null || !isCompressible(response)) {
+			return response;
+		}
+		HttpHeaders headers = response.headers();
+		addVary(headers);
+
+		ZlibWrapper wrapper = selectWrapper(context.getRequest().getHeaders().get(HttpHeaderNames.ACCEPT_ENCODING));
+		if (wrapper == null) {
+			return response;
+		}
+		String encoding = (wrapper == ZlibWrapper.GZIP ? HttpHeaderValues.GZIP : HttpHeaderValues.DEFLATE).toString();
+
+		String etag = headers.get(HttpHeaderNames.ETAG);
+		String cacheKey = cache != null && response.status().code() == 200 && etag != null && !etag.startsWith(WEAK_ETAG_PREFIX)
+				? encoding + ' ' + context.getUniqueId() + ' ' + context.getRequest().getUri() + ' ' + etag
+				: null;
+
+		ByteBuf compressed;
+		byte[] cached = cacheKey == null ? null : cache.getIfPresent(cacheKey);
+		if (cached == NOT_COMPRESSIBLE) {
+			return response;
+		} else if (cached != null) {
+			compressed = Unpooled.wrappedBuffer(cached);
+		} else {
+			compressed = deflate(response.content(), wrapper);
+			if (compressed == null) {
+				return response;
+			}
+			if (compressed.readableBytes() >= response.content().readableBytes()) {
+				compressed.release();
+				if (cacheKey != null) {
+					cache.put(cacheKey, NOT_COMPRESSIBLE);
+				}
+				return response;
+			}
+			if (cacheKey != null) {
+				byte[] bytes = ByteBufUtil.getBytes(compressed);
+				compressed.release();
+				cache.put(cacheKey, bytes);
+				compressed = Unpooled.wrappedBuffer(bytes);
+			}
+		}
+
+		headers.set(HttpHeaderNames.CONTENT_ENCODING, encoding);
+		headers.set(HttpHeaderNames.CONTENT_LENGTH, compressed.readableBytes());
+		headers.remove(HttpHeaderNames.TRANSFER_ENCODING);
+		// 压缩后的表示与原表示字节不同，强 ETag 降为弱 ETag
+		if (etag != null && !etag.startsWith(WEAK_ETAG_PREFIX)) {
+			headers.set(HttpHeaderNames.ETAG, WEAK_ETAG_PREFIX + etag);
+		}
+		FullHttpResponse compressedResponse = new DefaultFullHttpResponse(response.protocolVersion(), response.status(),
+				compressed, headers, response.trailingHeaders());
+		response.release();
+		return compressedResponse;
+	}
+
+	/**
+	 * 响应是否可以由网关压缩
+	 */
+	private boolean isCompressible(FullHttpResponse response) {
+		int code = response.status().code();
+		if (code < 200 || code == 204 || code == 206 || code == 304) {
+			return false;
+		}
+		HttpHeaders headers = response.headers();
+		String contentEncoding = headers.get(HttpHeaderNames.CONTENT_ENCODING);
+		// 下游已编码的响应原样透传
+		if (contentEncoding != null && !HttpHeaderValues.IDENTITY.contentEqualsIgnoreCase(contentEncoding)) {
+			return false;
+		}
+		if (headers.contains(HttpHeaderNames.CONTENT_RANGE)
+				|| headers.containsValue(HttpHeaderNames.CACHE_CONTROL, HttpHeaderValues.NO_TRANSFORM, true)
+				|| response.content().readableBytes() < minSize) {
+			return false;
+		}
+		String contentType = headers.get(HttpHeaderNames.CONTENT_TYPE);
+		if (contentType == null) {
+			return false;
+		}
+		contentType = contentType.toLowerCase(Locale.ROOT);
+		for (String type : contentTypes) {
+			if (contentType.startsWith(type)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void addVary(HttpHeaders headers) {
+		for (String vary : headers.getAll(HttpHeaderNames.VARY)) {
+			for (String value : StringUtils.split(vary, ',')) {
+				String name = value.trim();
+				if ("*".equals(name) || HttpHeaderNames.ACCEPT_ENCODING.contentEqualsIgnoreCase(name)) {
+					return;
+				}
+			}
+		}
+		headers.add(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+	}
+
+	/**
+	 * 根据 Accept-Encoding 的权重选择编码，gzip 优先，客户端不接受压缩时返回 null
+	 */
+	private static ZlibWrapper selectWrapper(String acceptEncoding) {
+		if (StringUtils.isEmpty(acceptEncoding)) {
+			return null;
+		}
+		float gzipQ = -1f;
+		float deflateQ = -1f;
+		float starQ = -1f;
+		for (String part : StringUtils.split(acceptEncoding, ',')) {
+			float q = 1.0f;
+			String name = part;
+			int paramIndex = part.indexOf(';');
+			if (paramIndex >= 0) {
+				name = part.substring(0, paramIndex);
+				int qIndex = part.indexOf('=', paramIndex);
+				if (qIndex >= 0) {
+					try {
+						q = Float.parseFloat(part.substring(qIndex + 1).trim());
+					} catch (NumberFormatException e) {
+						q = 0f;
+					}
+				}
+			}
+			name = name.trim();
+			if (HttpHeaderValues.GZIP.contentEqualsIgnoreCase(name)) {
+				gzipQ = Math.max(gzipQ, q);
+			} else if (HttpHeaderValues.DEFLATE.contentEqualsIgnoreCase(name)) {
+				deflateQ = Math.max(deflateQ, q);
+			} else if ("*".equals(name)) {
+				starQ = Math.max(starQ, q);
+			}
+		}
+		if (gzipQ < 0 && deflateQ < 0 && starQ > 0) {
+			gzipQ = starQ;
+		}
+		if (gzipQ <= 0 && deflateQ <= 0) {
+			return null;
+		}
+		return gzipQ >= deflateQ ? ZlibWrapper.GZIP : ZlibWrapper.ZLIB;
+	}
+
+	/**
+	 * 使用 Netty 的 zlib 编码器压缩，输入不会被释放，失败时返回 null
+	 */
+	private ByteBuf deflate(ByteBuf content, ZlibWrapper wrapper) {
+		EmbeddedChannel encoder = new EmbeddedChannel(ZlibCodecFactory.newZlibEncoder(wrapper, level));
+		CompositeByteBuf out = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+		try {
+			encoder.writeOutbound(content.retainedDuplicate());
+			encoder.finish();
+			ByteBuf buf;
+			while ((buf = encoder.readOutbound()) != null) {
+				if (buf.isReadable()) {
+					out.addComponent(true, buf);
+				} else {
+					buf.release();
+				}
+			}
+			return out;
+		} catch (Exception e) {
+			log.warn("compress response failed", e);
+			out.release();
+			encoder.finishAndReleaseAll();
+			return null;
+		}
+	}
+}
@@ -3,6 +3,7 @@ package com.yu.gateway.core.helper;
 import com.yu.gateway.common.constant.BasicConst;
 import com.yu.gateway.common.enums.ResponseCode;
 import com.yu.gateway.core.context.ContextStatus;
+import com.yu.gateway.core.context.GatewayContext;
 import com.yu.gateway.core.context.IContext;
 import com.yu.gateway.core.response.GatewayResponse;
 import io.netty.buffer.ByteBuf;
@@ -53,6 +54,13 @@ public class ResponseHelper {
         if (context.judgeContextStatus(ContextStatus.Written)) {
             FullHttpResponse response = getHttpResponse(context, (GatewayResponse) context.getResponse());
 
+            if (context instanceof GatewayContext gatewayContext) {
+                // 响应写回前的回调（例如响应缓存），在压缩之前执行，得到的是未编码的响应
+                gatewayContext.invokeResponseCallbacks(response);
+                // 网关侧响应压缩
+                response = ResponseCompressor.getInstance().compress(gatewayContext, response);
+            }
+
             // 如果不是保持连接的情况，响应后关闭通道
             if (!context.isKeepAlive()) {
                 context.getNettyContext().writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
@@ -75,7 +83,20 @@ public class ResponseHelper {
     /**
      * 构造 FullHttpResponse 对象   GatewayResponse -> FullHttpResponse
      */
-    private static FullHttpResponse getHttpResponse(IContext context, GatewayResponse gatewayResponse) {
+    public static FullHttpResponse getHttpResponse(IContext context, GatewayResponse gatewayResponse) {
+        // 零拷贝转发：直接复用下游服务的响应头与池化响应体，不做任何拷贝
+        if (Objects.nonNull(gatewayResponse.getBody())) {
+            HttpHeaders headers = gatewayResponse.getResponseHeaders();
+            if (!gatewayResponse.getExtraResponseHeaders().isEmpty()) {
+                headers.add(gatewayResponse.getExtraResponseHeaders());
+            }
+            return new DefaultFullHttpResponse(HttpVersion.HTTP_1_1,
+                    gatewayResponse.getHttpResponseStatus(),
+                    gatewayResponse.getBody(),
+                    headers,
+                    EmptyHttpHeaders.INSTANCE);
+        }
+
         ByteBuf content;
         // 检查 gatewayResponse 是否有 FutureResponse，如果有，使用其响应体作为 content
         if (Objects.nonNull(gatewayResponse.getFutureResponse())) {
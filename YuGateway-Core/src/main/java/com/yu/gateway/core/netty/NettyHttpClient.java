@@ -7,6 +7,7 @@ import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.EventLoopGroup;
 import lombok.extern.slf4j.Slf4j;
 import org.asynchttpclient.AsyncHttpClient;
+import org.asynchttpclient.AsyncHttpClientConfig;
 import org.asynchttpclient.DefaultAsyncHttpClient;
 import org.asynchttpclient.DefaultAsyncHttpClientConfig;
 
@@ -59,12 +60,14 @@ public class NettyHttpClient implements LifeCycle {
                 .setConnectTimeout(config.getHttpConnectTimeout())
                 // 设置请求超时时间，单位是毫秒
                 .setRequestTimeout(config.getHttpRequestTimeout())
-                // 设置最大重试请求次数，如果请求失败，客户端会尝试重新发送请求
-                .setMaxRequestRetry(config.getHttpMaxRetryTimes())
+                // 关闭客户端内部重试，重试统一由路由过滤器按规则的重试配置与重试预算执行
+                .setMaxRequestRetry(0)
                 // 设置 ByteBuf 分配器，这里使用的是池化的分配器，可以提高内存利用率
                 .setAllocator(PooledByteBufAllocator.DEFAULT)
-                // 设置是否强制使用压缩，如果设置为 true，那么请求和响应都将被压缩
-                .setCompressionEnforced(true)
+                // 响应分块直接引用连接上的 ByteBuf，不拷贝为 byte[]，由 RelayAsyncHandler 负责转发
+                .setResponseBodyPartFactory(AsyncHttpClientConfig.ResponseBodyPartFactory.LAZY)
+                // 默认不强制压缩，下游已压缩的响应体原样透传，由网关侧按需压缩
+                .setCompressionEnforced(config.isHttpCompressionEnforced())
                 // 设置最大连接数，这是客户端可以同时打开的最大连接数
                 .setMaxConnections(config.getHttpMaxConnections())
                 // 设置每个主机的最大连接数，这是客户端可以同时打开到每个主机的最大连接数
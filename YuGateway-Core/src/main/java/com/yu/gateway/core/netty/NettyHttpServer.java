@@ -12,8 +12,10 @@ import io.netty.channel.EventLoopGroup;
 import io.netty.channel.epoll.Epoll;
 import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.codec.http.HttpServerExpectContinueHandler;
@@ -92,6 +94,13 @@ public class NettyHttpServer implements LifeCycle {
 		return RemotingUtil.isIsLinuxPlatform() && Epoll.isAvailable();
 	}
 
+	/**
+	 * 上游连接使用的 Channel 类型，与 worker 线程组保持一致以便复用同一 EventLoop
+	 */
+	public Class<? extends Channel> upstreamChannelClass() {
+		return useEpoll() ? EpollSocketChannel.class : NioSocketChannel.class;
+	}
+
 	/**
 	 * 启动服务器，监听端口并开始接收请求
 	 */
@@ -121,6 +130,7 @@ public class NettyHttpServer implements LifeCycle {
 						// 配置管道中的处理器，如编解码器和自定义处理器
 						channel.pipeline().addLast(
 								new HttpServerCodec(), // 处理HTTP请求的编解码器
+								new NettyHttpStreamHandler(config, upstreamChannelClass()), // 流式转发，开启的规则不经过聚合
 								new HttpObjectAggregator(config.getMaxContentLength()), // 聚合HTTP请求
 								new HttpServerExpectContinueHandler(), // 处理 HTTP 请求
 								new NettyHttpServerHandler(processor), // 自定义的处理器
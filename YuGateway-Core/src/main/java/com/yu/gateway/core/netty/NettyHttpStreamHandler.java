@@ -0,0 +1,310 @@
+package com.yu.gateway.core.netty;
+
+import com.yu.gateway.common.config.DynamicConfigManager;
+import com.yu.gateway.common.config.Rule;
+import com.yu.gateway.common.config.ServiceDefinition;
+import com.yu.gateway.common.constant.BasicConst;
+import com.yu.gateway.common.constant.GatewayConst;
+import com.yu.gateway.common.enums.ResponseCode;
+import com.yu.gateway.common.exception.BaseException;
+import com.yu.gateway.core.Config;
+import com.yu.gateway.core.context.GatewayContext;
+import com.yu.gateway.core.filter.FilterChainFactory;
+import com.yu.gateway.core.filter.GatewayFilterChainFactory;
+import com.yu.gateway.core.helper.RequestHelper;
+import com.yu.gateway.core.helper.ResponseHelper;
+import com.yu.gateway.core.request.GatewayRequest;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.*;
+import io.netty.handler.codec.http.*;
+import io.netty.util.ReferenceCountUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * @author yu
+ * 流式转发处理器，位于 HttpServerCodec 与 HttpObjectAggregator 之间：
+ * 1.请求头到达时匹配规则，未开启流式转发的请求原样交给 HttpObjectAggregator 聚合；
+ * 2.开启流式转发的请求执行过滤器链后直接连接下游服务，请求体分块到达即转发，不在网关内聚合；
+ * 3.通过 autoRead 实现双向背压，上游不可写时暂停读取客户端，客户端不可写时暂停读取上游。
+ * @date 2024-05-20
+ */
+@Slf4j
+public class NettyHttpStreamHandler extends ChannelInboundHandlerAdapter {
+
+	private final Config config;
+
+	/**
+	 * 上游连接的 Channel 类型，需与 worker 线程组的类型（Epoll/NIO）一致
+	 */
+	private final Class<? extends Channel> upstreamChannelClass;
+
+	/**
+	 * 过滤器链工厂
+	 */
+	private final FilterChainFactory chainFactory = GatewayFilterChainFactory.getInstance();
+
+	/**
+	 * 上游连接建立前已到达的请求体
+	 */
+	private final Queue<HttpContent> pending = new ArrayDeque<>();
+
+	/**
+	 * 当前流式请求对应的上游连接
+	 */
+	private Channel upstream;
+
+	/**
+	 * 上游连接是否建立完成
+	 */
+	private boolean connected;
+
+	/**
+	 * 当前请求是否处于流式转发中
+	 */
+	private boolean streaming;
+
+	/**
+	 * 当前请求已失败，丢弃剩余的请求体
+	 */
+	private boolean discarding;
+
+	public NettyHttpStreamHandler(Config config, Class<? extends Channel> upstreamChannelClass) {
+		this.config = config;
+		this.upstreamChannelClass = upstreamChannelClass;
+	}
+
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		if (msg instanceof HttpRequest request && !(msg instanceof FullHttpRequest)) {
+			discarding = false;
+			Rule rule = matchStreamRule(request);
+			if (rule == null) {
+				streaming = false;
+				ctx.fireChannelRead(msg);
+				return;
+			}
+			startStreaming(ctx, request);
+			return;
+		}
+
+		if (msg instanceof HttpContent content) {
+			if (discarding) {
+				if (content instanceof LastHttpContent) {
+					discarding = false;
+				}
+				ReferenceCountUtil.release(content);
+				return;
+			}
+			if (streaming) {
+				relayContent(ctx, content);
+				return;
+			}
+		}
+		ctx.fireChannelRead(msg);
+	}
+
+	/**
+	 * 根据请求头匹配规则，仅返回开启了流式转发的规则
+	 */
+	private Rule matchStreamRule(HttpRequest request) {
+		String uniqueId = request.headers().get(GatewayConst.UNIQUE_ID);
+		if (StringUtils.isEmpty(uniqueId)) {
+			return null;
+		}
+		ServiceDefinition definition = DynamicConfigManager.getInstance().getServiceDefinition(uniqueId);
+		if (definition == null) {
+			return null;
+		}
+		try {
+			Rule rule = RequestHelper.getRule(definition.getServiceId(), new QueryStringDecoder(request.uri()).path());
+			if (rule.getStreamConfig() != null && rule.getStreamConfig().isEnabled()) {
+				return rule;
+			}
+		} catch (BaseException e) {
+			// 匹配失败交由聚合路径统一返回错误响应
+			log.debug("stream rule not matched, uri: {}", request.uri());
+		}
+		return null;
+	}
+
+	/**
+	 * 执行过滤器链（路由过滤器除外），随后连接下游服务开始转发
+	 */
+	private void startStreaming(ChannelHandlerContext ctx, HttpRequest request) {
+		// 过滤器只依赖请求头，使用空请求体构造网关上下文
+		FullHttpRequest headRequest = new DefaultFullHttpRequest(request.protocolVersion(), request.method(),
+				request.uri(), Unpooled.EMPTY_BUFFER, request.headers(), EmptyHttpHeaders.INSTANCE);
+
+		streaming = true;
+		connected = false;
+
+		// 过滤器链执行期间（包括异步过滤器挂起期间）暂停读取客户端，已读取的请求体暂存在 pending 中
+		ctx.channel().config().setAutoRead(false);
+
+		try {
+			GatewayContext gatewayContext = RequestHelper.doContext(headRequest, ctx);
+			gatewayContext.setStreaming(true);
+			chainFactory.buildFilterChain(gatewayContext).doFilter(gatewayContext).whenComplete((context, e) -> {
+				if (e != null) {
+					failStreaming(ctx, e);
+					return;
+				}
+				// 由网关直接答复 100-continue，避免上游的中间响应被当作最终响应转发
+				if (HttpUtil.is100ContinueExpected(request)) {
+					request.headers().remove(HttpHeaderNames.EXPECT);
+					ctx.writeAndFlush(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.CONTINUE));
+				}
+
+				// 上游连接建立前保持暂停读取客户端，避免请求体堆积在网关内存中
+				connectUpstream(ctx, context.getRequest(), buildUpstreamRequest(context.getRequest(), request),
+						HttpUtil.isKeepAlive(request));
+			});
+		} catch (Throwable t) {
+			failStreaming(ctx, t);
+		}
+	}
+
+	private void failStreaming(ChannelHandlerContext ctx, Throwable t) {
+		if (t instanceof BaseException e) {
+			log.error("处理错误 {} {}", e.getCode().getCode(), e.getCode().getMessage());
+			failRequest(ctx, e.getCode());
+		} else {
+			log.error("处理未知错误", t);
+			failRequest(ctx, ResponseCode.INTERNAL_ERROR);
+		}
+	}
+
+	/**
+	 * 构造转发给下游服务的请求头
+	 */
+	private HttpRequest buildUpstreamRequest(GatewayRequest gatewayRequest, HttpRequest request) {
+		String uri = gatewayRequest.getModifyPath();
+		int queryIndex = request.uri().indexOf(BasicConst.QUESTION_SEPARATOR);
+		if (!uri.contains(BasicConst.QUESTION_SEPARATOR) && queryIndex >= 0) {
+			uri = uri + request.uri().substring(queryIndex);
+		}
+
+		HttpHeaders headers = request.headers();
+		headers.set(HttpHeaderNames.HOST, gatewayRequest.getModifyHost());
+		// 设置用户id 用于下游的服务使用
+		headers.set("userId", String.valueOf(gatewayRequest.getUserId()));
+		return new DefaultHttpRequest(request.protocolVersion(), request.method(), uri, headers);
+	}
+
+	/**
+	 * 在当前连接所属的 EventLoop 上建立下游连接，转发与响应回写均不发生线程切换
+	 */
+	private void connectUpstream(ChannelHandlerContext ctx, GatewayRequest gatewayRequest, HttpRequest upstreamRequest, boolean keepAlive) {
+		String modifyHost = gatewayRequest.getModifyHost();
+		int index = modifyHost.lastIndexOf(BasicConst.COLON_SEPARATOR);
+		String host = index > 0 ? modifyHost.substring(0, index) : modifyHost;
+		int port = index > 0 ? Integer.parseInt(modifyHost.substring(index + 1)) : 80;
+
+		Channel downstream = ctx.channel();
+		Bootstrap bootstrap = new Bootstrap()
+				.group(downstream.eventLoop())
+				.channel(upstreamChannelClass)
+				.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, config.getHttpConnectTimeout())
+				.option(ChannelOption.TCP_NODELAY, true)
+				.handler(new ChannelInitializer<Channel>() {
+					@Override
+					protected void initChannel(Channel channel) throws Exception {
+						channel.pipeline().addLast(
+								new HttpClientCodec(),
+								new NettyStreamRelayHandler(downstream, keepAlive)
+						);
+					}
+				});
+
+		ChannelFuture connectFuture = bootstrap.connect(host, port);
+		upstream = connectFuture.channel();
+		connectFuture.addListener((ChannelFutureListener) future -> {
+			// 请求已失败或连接已关闭，忽略过期的回调
+			if (future.channel() != upstream) {
+				return;
+			}
+			if (!future.isSuccess()) {
+				log.warn("stream upstream connect failed {}", modifyHost, future.cause());
+				failRequest(ctx, ResponseCode.SERVICE_UNAVAILABLE);
+				return;
+			}
+			connected = true;
+			Channel channel = future.channel();
+			channel.write(upstreamRequest);
+			HttpContent content;
+			while ((content = pending.poll()) != null) {
+				channel.write(content);
+			}
+			channel.flush();
+			downstream.config().setAutoRead(channel.isWritable());
+		});
+	}
+
+	/**
+	 * 转发请求体，上游写缓冲区满时暂停读取客户端
+	 */
+	private void relayContent(ChannelHandlerContext ctx, HttpContent content) {
+		if (content instanceof LastHttpContent) {
+			streaming = false;
+		}
+		if (!connected) {
+			pending.add(content);
+			return;
+		}
+		upstream.writeAndFlush(content);
+		if (!upstream.isWritable()) {
+			ctx.channel().config().setAutoRead(false);
+		}
+	}
+
+	/**
+	 * 请求失败时返回错误响应并关闭连接，剩余请求体直接丢弃
+	 */
+	private void failRequest(ChannelHandlerContext ctx, ResponseCode code) {
+		discarding = streaming;
+		streaming = false;
+		releasePending();
+		closeUpstream();
+		ctx.channel().config().setAutoRead(true);
+		ctx.writeAndFlush(ResponseHelper.getHttpResponse(code)).addListener(ChannelFutureListener.CLOSE);
+	}
+
+	private void closeUpstream() {
+		Channel channel = upstream;
+		upstream = null;
+		connected = false;
+		if (channel != null) {
+			channel.close();
+		}
+	}
+
+	private void releasePending() {
+		HttpContent content;
+		while ((content = pending.poll()) != null) {
+			ReferenceCountUtil.release(content);
+		}
+	}
+
+	/**
+	 * 客户端可写状态变化时，同步恢复或暂停读取上游响应
+	 */
+	@Override
+	public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+		if (upstream != null && upstream.isActive()) {
+			upstream.config().setAutoRead(ctx.channel().isWritable());
+		}
+		ctx.fireChannelWritabilityChanged();
+	}
+
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		releasePending();
+		closeUpstream();
+		ctx.fireChannelInactive();
+	}
+}
@@ -25,7 +25,7 @@ public class NettyServerConnectManagerHandler extends ChannelDuplexHandler {
 	@Override
 	public void channelRegistered(ChannelHandlerContext ctx) throws Exception {
 		// 获取远程客户端的地址
-		final String remoteAddress = RemotingHelper.parseChannelRemoteAddress(ctx.channel());
+		final String remoteAddress = RemotingHelper.parseChannelRemoteAddr(ctx.channel());
 		log.debug("netty server pipeline: channelRegistered {}", remoteAddress);
 
 		// 调用父类方法继续处理注册事件
@@ -39,7 +39,7 @@ public class NettyServerConnectManagerHandler extends ChannelDuplexHandler {
 	 */
 	@Override
 	public void channelUnregistered(ChannelHandlerContext ctx) throws Exception {
-		final String remoteAddress = RemotingHelper.parseChannelRemoteAddress(ctx.channel());
+		final String remoteAddress = RemotingHelper.parseChannelRemoteAddr(ctx.channel());
 		log.debug("netty server pipeline: channelUnregistered {}", remoteAddress);
 
 		super.channelUnregistered(ctx);
@@ -52,7 +52,7 @@ public class NettyServerConnectManagerHandler extends ChannelDuplexHandler {
 	 */
 	@Override
 	public void channelActive(ChannelHandlerContext ctx) throws Exception {
-		final String remoteAddress = RemotingHelper.parseChannelRemoteAddress(ctx.channel());
+		final String remoteAddress = RemotingHelper.parseChannelRemoteAddr(ctx.channel());
 		log.debug("netty server pipeline: channelActive {}", remoteAddress);
 
 		super.channelActive(ctx);
@@ -65,7 +65,7 @@ public class NettyServerConnectManagerHandler extends ChannelDuplexHandler {
 	 */
 	@Override
 	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
-		final String remoteAddress = RemotingHelper.parseChannelRemoteAddress(ctx.channel());
+		final String remoteAddress = RemotingHelper.parseChannelRemoteAddr(ctx.channel());
 		log.debug("netty server pipeline: channelInactive {}", remoteAddress);
 
 		super.channelInactive(ctx);
@@ -83,7 +83,7 @@ public class NettyServerConnectManagerHandler extends ChannelDuplexHandler {
 		if (evt instanceof IdleStateEvent event) {
 			// 如果是所有类型的空闲事件，则关闭通道
 			if (event.state().equals(IdleState.ALL_IDLE)) {
-				final String remoteAddress = RemotingHelper.parseChannelRemoteAddress(ctx.channel());
+				final String remoteAddress = RemotingHelper.parseChannelRemoteAddr(ctx.channel());
 				log.warn("netty server pipeline: userEventTriggered: idle {}", remoteAddress);
 
 				ctx.channel().close();
@@ -102,7 +102,7 @@ public class NettyServerConnectManagerHandler extends ChannelDuplexHandler {
 	 */
 	@Override
 	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
-		final String remoteAddress = RemotingHelper.parseChannelRemoteAddress(ctx.channel());
+		final String remoteAddress = RemotingHelper.parseChannelRemoteAddr(ctx.channel());
 
 		// 记录警告信息和异常堆栈
 		log.warn("netty server pipeline: remoteAddress： {}, exceptionCaught {}", remoteAddress, cause.getMessage());
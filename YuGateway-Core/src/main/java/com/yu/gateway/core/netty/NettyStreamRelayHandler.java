@@ -0,0 +1,95 @@
+package com.yu.gateway.core.netty;
+
+import com.yu.gateway.common.utils.RemotingHelper;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.LastHttpContent;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * @author yu
+ * 流式转发的上游响应处理器，将下游服务返回的响应分块原样写回客户端
+ * @date 2024-05-20
+ */
+@Slf4j
+public class NettyStreamRelayHandler extends ChannelInboundHandlerAdapter {
+
+	/**
+	 * 客户端连接
+	 */
+	private final Channel downstream;
+
+	/**
+	 * 客户端是否保持长连接
+	 */
+	private final boolean keepAlive;
+
+	/**
+	 * 响应是否已完整写回
+	 */
+	private boolean completed;
+
+	public NettyStreamRelayHandler(Channel downstream, boolean keepAlive) {
+		this.downstream = downstream;
+		this.keepAlive = keepAlive;
+	}
+
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		if (msg instanceof HttpResponse response) {
+			response.headers().set(HttpHeaderNames.CONNECTION, keepAlive ? HttpHeaderValues.KEEP_ALIVE : HttpHeaderValues.CLOSE);
+		}
+
+		ChannelFuture future = downstream.writeAndFlush(msg);
+		if (msg instanceof LastHttpContent) {
+			completed = true;
+			// 上游连接仅服务当前请求，响应结束后关闭并恢复客户端读取
+			ctx.close();
+			downstream.config().setAutoRead(true);
+			if (!keepAlive) {
+				future.addListener(ChannelFutureListener.CLOSE);
+			}
+			return;
+		}
+
+		// 客户端写缓冲区满时暂停读取上游
+		if (!downstream.isWritable()) {
+			ctx.channel().config().setAutoRead(false);
+		}
+	}
+
+	/**
+	 * 上游可写状态变化时，同步恢复或暂停读取客户端请求体
+	 */
+	@Override
+	public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+		if (!completed) {
+			downstream.config().setAutoRead(ctx.channel().isWritable());
+		}
+		ctx.fireChannelWritabilityChanged();
+	}
+
+	/**
+	 * 响应未写完上游连接即断开，只能关闭客户端连接
+	 */
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		if (!completed) {
+			log.warn("stream upstream closed before response completed: {}", RemotingHelper.parseChannelRemoteAddr(ctx.channel()));
+			downstream.close();
+		}
+		ctx.fireChannelInactive();
+	}
+
+	@Override
+	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+		log.warn("stream upstream exceptionCaught: {}", cause.getMessage());
+		ctx.close();
+	}
+}
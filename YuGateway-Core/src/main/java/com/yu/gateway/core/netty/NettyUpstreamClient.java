@@ -0,0 +1,320 @@
+package com.yu.gateway.core.netty;
+
+import com.yu.gateway.common.constant.BasicConst;
+import com.yu.gateway.core.Config;
+import com.yu.gateway.core.LifeCycle;
+import com.yu.gateway.core.helper.AsyncHttpHelper;
+import com.yu.gateway.core.response.GatewayResponse;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.util.ReferenceCountUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * @author yu
+ * 原生 Netty 上游客户端（httpClientType=netty），与 AsyncHttpClient 并存：
+ * 1.下游请求由客户端请求的 FullHttpRequest 直接构造，响应以 FullHttpResponse 的状态、头与池化 ByteBuf 直接转发，不经过 AsyncHttpClient 的对象模型转换；
+ * 2.每个 EventLoop 维护独立的连接池，请求在客户端连接所属的 EventLoop 上获取上游连接、写出请求并处理响应，没有线程切换，连接池无需加锁；
+ * 3.空闲连接按后进先出复用，空闲超时的连接由所属 EventLoop 定时关闭；
+ * 4.请求超时由上游连接所属的 EventLoop 定时触发，超时、异常或对端要求关闭的连接不再复用。
+ * @date 2024-06-08
+ */
+@Slf4j
+public class NettyUpstreamClient implements LifeCycle {
+
+	private final Config config;
+
+	private final EventLoopGroup eventLoopGroupWorker;
+
+	/**
+	 * 上游连接的 Channel 类型，需与 worker 线程组的类型（Epoll/NIO）一致
+	 */
+	private final Class<? extends Channel> channelClass;
+
+	private Bootstrap bootstrap;
+
+	/**
+	 * EventLoop —— 该 EventLoop 上的连接池
+	 */
+	private final ConcurrentHashMap<EventLoop, LoopPool> pools = new ConcurrentHashMap<>();
+
+	public NettyUpstreamClient(Config config, EventLoopGroup eventLoopGroupWorker, Class<? extends Channel> channelClass) {
+		this.config = config;
+		this.eventLoopGroupWorker = eventLoopGroupWorker;
+		this.channelClass = channelClass;
+		init();
+	}
+
+	@Override
+	public void init() {
+		this.bootstrap = new Bootstrap()
+				.group(eventLoopGroupWorker)
+				.channel(channelClass)
+				.option(ChannelOption.TCP_NODELAY, true)
+				.option(ChannelOption.SO_KEEPALIVE, true)
+				.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, config.getHttpConnectTimeout())
+				.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+				.handler(new ChannelInitializer<Channel>() {
+					@Override
+					protected void initChannel(Channel ch) {
+						ch.pipeline().addLast(
+								new HttpClientCodec(),
+								new HttpObjectAggregator(config.getMaxContentLength()),
+								new UpstreamHandler());
+					}
+				});
+	}
+
+	/**
+	 * 在指定的 EventLoop（客户端连接所属）上向 address（ip:port）转发请求，请求对象的引用由本方法负责释放
+	 *
+	 * @param requestTimeout 请求超时时间（毫秒），小于等于 0 时使用全局配置
+	 */
+	public CompletableFuture<GatewayResponse> execute(EventLoop eventLoop, String address, FullHttpRequest request, int requestTimeout) {
+		CompletableFuture<GatewayResponse> future = new CompletableFuture<>();
+		LoopPool pool = pools.computeIfAbsent(eventLoop, LoopPool::new);
+		int timeout = requestTimeout > 0 ? requestTimeout : config.getHttpRequestTimeout();
+		if (eventLoop.inEventLoop()) {
+			pool.send(address, request, timeout, future);
+		} else {
+			// Disruptor、虚拟线程模式下过滤器链不在 EventLoop 上执行，切回客户端连接所属的 EventLoop
+			eventLoop.execute(() -> pool.send(address, request, timeout, future));
+		}
+		return future;
+	}
+
+	@Override
+	public void start() {
+		AsyncHttpHelper.getInstance().initialized(this);
+	}
+
+	@Override
+	public void shutdown() {
+		pools.values().forEach(LoopPool::close);
+		pools.clear();
+	}
+
+	/**
+	 * 单个 EventLoop 上的连接池，所有方法只在该 EventLoop 上执行
+	 */
+	private final class LoopPool {
+
+		private final EventLoop eventLoop;
+
+		private final Bootstrap loopBootstrap;
+
+		/**
+		 * 上游地址 —— 空闲连接，队首为最近归还的连接
+		 */
+		private final Map<String, ArrayDeque<Channel>> idleChannels = new HashMap<>();
+
+		private final ScheduledFuture<?> evictionTask;
+
+		LoopPool(EventLoop eventLoop) {
+			this.eventLoop = eventLoop;
+			this.loopBootstrap = bootstrap.clone(eventLoop);
+			long period = Math.max(1000, config.getHttpPooledConnectionIdleTimeout() / 2);
+			this.evictionTask = eventLoop.scheduleAtFixedRate(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+		}
+
+		void send(String address, FullHttpRequest request, int timeout, CompletableFuture<GatewayResponse> future) {
+			Channel channel = pollIdle(address);
+			if (channel != null) {
+				write(channel, address, request, timeout, future);
+				return;
+			}
+
+			int index = address.lastIndexOf(BasicConst.COLON_SEPARATOR);
+			String host = index > 0 ? address.substring(0, index) : address;
+			int port = index > 0 ? Integer.parseInt(address.substring(index + 1)) : 80;
+			loopBootstrap.connect(host, port).addListener((ChannelFutureListener) f -> {
+				if (f.isSuccess()) {
+					write(f.channel(), address, request, timeout, future);
+				} else {
+					ReferenceCountUtil.release(request);
+					future.completeExceptionally(f.cause());
+				}
+			});
+		}
+
+		private Channel pollIdle(String address) {
+			ArrayDeque<Channel> idle = idleChannels.get(address);
+			if (idle == null) {
+				return null;
+			}
+			Channel channel;
+			while ((channel = idle.pollFirst()) != null) {
+				if (channel.isActive()) {
+					return channel;
+				}
+			}
+			return null;
+		}
+
+		private void write(Channel channel, String address, FullHttpRequest request, int timeout,
+						   CompletableFuture<GatewayResponse> future) {
+			UpstreamHandler handler = channel.pipeline().get(UpstreamHandler.class);
+			handler.begin(this, address, timeout, future);
+			channel.writeAndFlush(request).addListener(f -> {
+				if (!f.isSuccess()) {
+					handler.fail(future, f.cause());
+				}
+			});
+		}
+
+		/**
+		 * 归还连接，超过单地址的空闲连接上限时直接关闭
+		 */
+		void release(String address, Channel channel) {
+			ArrayDeque<Channel> idle = idleChannels.computeIfAbsent(address, k -> new ArrayDeque<>());
+			if (!channel.isActive() || idle.size() >= config.getHttpMaxConnectionsPerHost()) {
+				channel.close();
+				return;
+			}
+			idle.offerFirst(channel);
+		}
+
+		/**
+		 * 从队尾（最久未使用）开始关闭空闲超时或已断开的连接
+		 */
+		private void evictIdle() {
+			long now = System.nanoTime();
+			long idleNanos = TimeUnit.MILLISECONDS.toNanos(config.getHttpPooledConnectionIdleTimeout());
+			for (ArrayDeque<Channel> idle : idleChannels.values()) {
+				Channel channel;
+				while ((channel = idle.peekLast()) != null) {
+					if (channel.isActive() && now - channel.pipeline().get(UpstreamHandler.class).idleSince < idleNanos) {
+						break;
+					}
+					idle.pollLast();
+					channel.close();
+				}
+			}
+		}
+
+		void close() {
+			eventLoop.execute(() -> {
+				evictionTask.cancel(false);
+				idleChannels.values().forEach(idle -> idle.forEach(Channel::close));
+				idleChannels.clear();
+			});
+		}
+	}
+
+	/**
+	 * 上游连接的响应处理器，每个连接一个实例，同一时刻只承载一个请求
+	 */
+	private final class UpstreamHandler extends SimpleChannelInboundHandler<FullHttpResponse> {
+
+		private ChannelHandlerContext ctx;
+
+		private LoopPool pool;
+
+		private String address;
+
+		private CompletableFuture<GatewayResponse> future;
+
+		private ScheduledFuture<?> timeout;
+
+		/**
+		 * 归还连接池的时间
+		 */
+		private long idleSince;
+
+		@Override
+		public void handlerAdded(ChannelHandlerContext ctx) {
+			this.ctx = ctx;
+		}
+
+		void begin(LoopPool pool, String address, int requestTimeout, CompletableFuture<GatewayResponse> future) {
+			this.pool = pool;
+			this.address = address;
+			this.future = future;
+			this.timeout = ctx.executor().schedule(
+					() -> fail(future, new TimeoutException("upstream request timeout " + requestTimeout + "ms: " + address)),
+					requestTimeout, TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse msg) {
+			CompletableFuture<GatewayResponse> current = future;
+			if (current == null) {
+				// 没有进行中的请求（已超时），丢弃响应
+				ctx.close();
+				return;
+			}
+			reset();
+
+			GatewayResponse response = GatewayResponse.buildGatewayResponse(msg.status(), msg.headers(), msg.content().retain());
+			// 先归还连接再完成请求，回调中的重试可以直接复用该连接
+			if (HttpUtil.isKeepAlive(msg)) {
+				idleSince = System.nanoTime();
+				pool.release(address, ctx.channel());
+			} else {
+				ctx.close();
+			}
+			if (!current.complete(response)) {
+				ReferenceCountUtil.release(response.getBody());
+			}
+		}
+
+		/**
+		 * 请求失败，关闭连接不再复用；仅处理仍在进行中的同一个请求
+		 */
+		void fail(CompletableFuture<GatewayResponse> expected, Throwable cause) {
+			if (expected == null || future != expected) {
+				return;
+			}
+			reset();
+			ctx.close();
+			expected.completeExceptionally(cause);
+		}
+
+		private void reset() {
+			future = null;
+			if (timeout != null) {
+				timeout.cancel(false);
+				timeout = null;
+			}
+		}
+
+		@Override
+		public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+			fail(future, new IOException("upstream connection closed: " + address));
+			super.channelInactive(ctx);
+		}
+
+		@Override
+		public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+			log.warn("upstream exceptionCaught {}: {}", address, cause.getMessage());
+			if (future != null) {
+				fail(future, cause);
+			} else {
+				ctx.close();
+			}
+		}
+	}
+}
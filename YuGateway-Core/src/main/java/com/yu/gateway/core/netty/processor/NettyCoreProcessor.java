@@ -36,25 +36,67 @@ public class NettyCoreProcessor implements NettyProcessor {
 	 */
 	@Override
 	public void process(HttpRequestWrapper wrapper) {
+		process(wrapper, null);
+	}
+
+	/**
+	 * 处理传入的 HTTP 请求，onCompleted 在响应（包括异常响应）写回客户端时执行一次
+	 */
+	public void process(HttpRequestWrapper wrapper, Runnable onCompleted) {
 		FullHttpRequest request = wrapper.getRequest();
 		ChannelHandlerContext ctx = wrapper.getCtx();
 
+		GatewayContext gatewayContext = null;
 		try {
 			// 创建并填充 GatewayContext 以保存有关传入请求的信息
-			GatewayContext gatewayContext = RequestHelper.doContext(request, ctx);
+			gatewayContext = RequestHelper.doContext(request, ctx);
+			if (onCompleted != null) {
+				gatewayContext.addResponseCallback(response -> onCompleted.run());
+			}
 
-			// 组装过滤器并执行过滤操作
-			chainFactory.buildFilterChain(gatewayContext).doFilter(gatewayContext);
-		} catch (BaseException e) {
+			// 组装过滤器并执行过滤操作，异步过滤器挂起时在其完成后处理异常
+			GatewayContext context = gatewayContext;
+			chainFactory.buildFilterChain(gatewayContext).doFilter(gatewayContext).whenComplete((ignored, e) -> {
+				if (e != null) {
+					handleException(ctx, request, context, e, onCompleted);
+				}
+			});
+		} catch (Throwable t) {
+			handleException(ctx, request, gatewayContext, t, onCompleted);
+		}
+	}
+
+	/**
+	 * 过滤器链异常终止，返回错误响应
+	 */
+	private void handleException(ChannelHandlerContext ctx, FullHttpRequest request, GatewayContext gatewayContext, Throwable t,
+								 Runnable onCompleted) {
+		FullHttpResponse httpResponse;
+		if (t instanceof BaseException e) {
 			// 通过记录日志并发送适当的 HTTP 响应处理已知异常
 			log.error("处理错误 {} {}", e.getCode().getCode(), e.getCode().getMessage());
-			FullHttpResponse httpResponse = ResponseHelper.getHttpResponse(e.getCode());
-			doWriteAndRelease(ctx, request, httpResponse);
-		} catch (Throwable t) {
+			httpResponse = ResponseHelper.getHttpResponse(e.getCode());
+		} else {
 			// 通过记录日志并发送内部服务器错误响应处理未知异常。
 			log.error("处理未知错误", t);
-			FullHttpResponse httpResponse = ResponseHelper.getHttpResponse(ResponseCode.INTERNAL_ERROR);
-			doWriteAndRelease(ctx, request, httpResponse);
+			httpResponse = ResponseHelper.getHttpResponse(ResponseCode.INTERNAL_ERROR);
+		}
+		releaseInstanceStats(gatewayContext);
+		if (gatewayContext != null) {
+			// 通知等待响应的回调（例如合并回源的缓存请求）
+			gatewayContext.invokeResponseCallbacks(httpResponse);
+		} else if (onCompleted != null) {
+			onCompleted.run();
+		}
+		doWriteAndRelease(ctx, request, httpResponse);
+	}
+
+	/**
+	 * 过滤器链异常终止时释放已选中实例的在途请求
+	 */
+	private void releaseInstanceStats(GatewayContext gatewayContext) {
+		if (gatewayContext != null) {
+			gatewayContext.releaseInstanceStats(false);
 		}
 	}
 
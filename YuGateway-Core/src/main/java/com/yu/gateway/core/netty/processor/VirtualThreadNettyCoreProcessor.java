@@ -0,0 +1,178 @@
+package com.yu.gateway.core.netty.processor;
+
+import com.yu.gateway.common.config.DynamicConfigManager;
+import com.yu.gateway.common.constant.GatewayConst;
+import com.yu.gateway.common.enums.ResponseCode;
+import com.yu.gateway.core.Config;
+import com.yu.gateway.core.context.HttpRequestWrapper;
+import com.yu.gateway.core.helper.ResponseHelper;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.util.ReferenceCountUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author yu
+ * 虚拟线程处理 HTTP 请求：
+ * 1.每个请求在独立的虚拟线程中执行过滤器链，过滤器中阻塞的 Redis 调用不会占满固定大小的工作线程池；
+ * 2.全局并发上限与按服务的并发上限（服务隔离），超过上限的请求直接返回服务不可用；
+ *   许可在响应写回客户端时释放，限制的是进行中（包括等待下游响应）的请求数，而不只是过滤器链的执行；
+ * 3.运行环境不支持虚拟线程时退化为平台线程池。
+ * @date 2024-05-25
+ */
+@Slf4j
+public class VirtualThreadNettyCoreProcessor implements NettyProcessor {
+	/**
+	 * 线程前缀（仅平台线程池使用）
+	 */
+	private static final String THREAD_NAME_PREFIX = "gateway-virtual-";
+
+	private final Config config;
+
+	/**
+	 * 虚拟线程中依然使用 Netty 核心处理器执行过滤器链
+	 */
+	private final NettyCoreProcessor nettyCoreProcessor;
+
+	/**
+	 * 全局并发许可
+	 */
+	private final Semaphore globalPermits;
+
+	/**
+	 * 服务并发许可  服务ID —— 许可
+	 */
+	private final ConcurrentHashMap<String, Semaphore> servicePermits = new ConcurrentHashMap<>();
+
+	private ExecutorService executor;
+
+	public VirtualThreadNettyCoreProcessor(Config config, NettyCoreProcessor nettyCoreProcessor) {
+		this.config = config;
+		this.nettyCoreProcessor = nettyCoreProcessor;
+		this.globalPermits = new Semaphore(config.getVirtualThreadMaxConcurrency());
+	}
+
+	@Override
+	public void process(HttpRequestWrapper wrapper) {
+		Semaphore bulkhead = getServicePermits(wrapper.getRequest());
+
+		if (!globalPermits.tryAcquire()) {
+			reject(wrapper);
+			return;
+		}
+		if (bulkhead != null && !bulkhead.tryAcquire()) {
+			globalPermits.release();
+			reject(wrapper);
+			return;
+		}
+
+		Runnable releaser = releaseOnce(bulkhead);
+		try {
+			executor.execute(() -> {
+				try {
+					nettyCoreProcessor.process(wrapper, releaser);
+				} catch (Throwable t) {
+					releaser.run();
+					throw t;
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			releaser.run();
+			reject(wrapper);
+		}
+	}
+
+	/**
+	 * 请求结束时释放许可，只释放一次
+	 */
+	private Runnable releaseOnce(Semaphore bulkhead) {
+		AtomicBoolean released = new AtomicBoolean();
+		return () -> {
+			if (released.compareAndSet(false, true)) {
+				release(bulkhead);
+			}
+		};
+	}
+
+	/**
+	 * 获取服务并发许可，仅为已注册的服务创建，避免任意请求头撑大缓存
+	 */
+	private Semaphore getServicePermits(FullHttpRequest request) {
+		String uniqueId = request.headers().get(GatewayConst.UNIQUE_ID);
+		if (uniqueId == null) {
+			return null;
+		}
+		Semaphore semaphore = servicePermits.get(uniqueId);
+		if (semaphore == null && DynamicConfigManager.getInstance().getServiceDefinition(uniqueId) != null) {
+			semaphore = servicePermits.computeIfAbsent(uniqueId, key -> new Semaphore(config.getVirtualThreadServiceConcurrency()));
+		}
+		return semaphore;
+	}
+
+	private void release(Semaphore bulkhead) {
+		if (bulkhead != null) {
+			bulkhead.release();
+		}
+		globalPermits.release();
+	}
+
+	/**
+	 * 超过并发上限，直接返回服务不可用
+	 */
+	private void reject(HttpRequestWrapper wrapper) {
+		FullHttpRequest request = wrapper.getRequest();
+		ChannelHandlerContext context = wrapper.getCtx();
+		log.warn("request rejected by concurrency limit, uri: {}", request.uri());
+
+		FullHttpResponse response = ResponseHelper.getHttpResponse(ResponseCode.SERVICE_UNAVAILABLE);
+		if (!HttpUtil.isKeepAlive(request)) {
+			context.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+		} else {
+			response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+			context.writeAndFlush(response);
+		}
+		ReferenceCountUtil.release(request);
+	}
+
+	@Override
+	public void start() {
+		this.executor = newVirtualThreadExecutor();
+	}
+
+	@Override
+	public void shutDown() {
+		if (executor != null) {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * 项目按 JDK 19 编译，通过反射创建虚拟线程执行器，JDK 21 及以上运行时生效
+	 */
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			ExecutorService executorService = (ExecutorService) method.invoke(null);
+			log.info("VirtualThreadNettyCoreProcessor use virtual threads");
+			return executorService;
+		} catch (ReflectiveOperationException | UnsupportedOperationException e) {
+			log.warn("virtual threads are not available, fallback to platform threads: {}", e.toString());
+			AtomicInteger index = new AtomicInteger();
+			return Executors.newCachedThreadPool(runnable -> {
+				Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + index.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+}
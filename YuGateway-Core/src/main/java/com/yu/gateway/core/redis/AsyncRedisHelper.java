@@ -0,0 +1,111 @@
+package com.yu.gateway.core.redis;
+
+import com.yu.gateway.common.utils.redis.RedisScript;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * @author yu
+ * @description 异步的 Redis 辅助类，基于 NettyRedisClient 提供常用命令
+ * @date 2024-05-31
+ */
+public class AsyncRedisHelper {
+
+	private static final String NO_SCRIPT_ERROR = "NOSCRIPT";
+
+	/**
+	 * 使用静态内部类实现单例模式
+	 */
+	private static final class SingletonHolder {
+		private static final AsyncRedisHelper INSTANCE = new AsyncRedisHelper();
+	}
+
+	private AsyncRedisHelper() {}
+
+	public static AsyncRedisHelper getInstance() {
+		return SingletonHolder.INSTANCE;
+	}
+
+	private NettyRedisClient redisClient;
+
+	public void initialized(NettyRedisClient redisClient) {
+		this.redisClient = redisClient;
+	}
+
+	/**
+	 * 客户端是否已经初始化，未初始化时（例如单独使用过滤器）调用方应使用同步的 JedisUtil
+	 */
+	public boolean isAvailable() {
+		return redisClient != null;
+	}
+
+	public CompletableFuture<Object> execute(String... args) {
+		return redisClient.execute(args);
+	}
+
+	/**
+	 * 通过 EVALSHA 执行脚本，Redis 中没有该脚本时改用 EVAL（同时会缓存脚本）
+	 */
+	public CompletableFuture<Object> evalsha(RedisScript script, List<String> keys, String... args) {
+		return redisClient.execute(scriptArgs("EVALSHA", script.getSha1(), keys, args))
+				.exceptionallyCompose(e -> {
+					Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+					if (cause instanceof RedisCommandException && cause.getMessage() != null
+							&& cause.getMessage().startsWith(NO_SCRIPT_ERROR)) {
+						return redisClient.execute(scriptArgs("EVAL", script.getScript(), keys, args));
+					}
+					return CompletableFuture.failedFuture(cause);
+				});
+	}
+
+	/**
+	 * 有序集合按下标范围获取成员
+	 */
+	public CompletableFuture<List<String>> zrange(String key, int start, int end) {
+		return redisClient.execute("ZRANGE", key, String.valueOf(start), String.valueOf(end))
+				.thenApply(AsyncRedisHelper::toStringList);
+	}
+
+	/**
+	 * 获取有序集合成员的分数，成员不存在时为 null
+	 */
+	public CompletableFuture<Double> zscore(String key, String member) {
+		return redisClient.execute("ZSCORE", key, member)
+				.thenApply(result -> result == null ? null : Double.valueOf((String) result));
+	}
+
+	/**
+	 * 添加有序集合成员，返回是否为新增成员
+	 */
+	public CompletableFuture<Boolean> zadd(String key, double score, String member) {
+		return redisClient.execute("ZADD", key, String.valueOf(score), member)
+				.thenApply(result -> result instanceof Long count && count > 0);
+	}
+
+	private static String[] scriptArgs(String command, String script, List<String> keys, String... args) {
+		String[] result = new String[3 + keys.size() + args.length];
+		result[0] = command;
+		result[1] = script;
+		result[2] = String.valueOf(keys.size());
+		for (int i = 0; i < keys.size(); i++) {
+			result[3 + i] = keys.get(i);
+		}
+		System.arraycopy(args, 0, result, 3 + keys.size(), args.length);
+		return result;
+	}
+
+	private static List<String> toStringList(Object result) {
+		if (!(result instanceof List<?> list)) {
+			return Collections.emptyList();
+		}
+		List<String> members = new ArrayList<>(list.size());
+		for (Object member : list) {
+			members.add((String) member);
+		}
+		return members;
+	}
+}
@@ -0,0 +1,103 @@
+package com.yu.gateway.core.redis;
+
+import com.yu.gateway.core.Config;
+import com.yu.gateway.core.LifeCycle;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.handler.codec.redis.RedisArrayAggregator;
+import io.netty.handler.codec.redis.RedisBulkStringAggregator;
+import io.netty.handler.codec.redis.RedisDecoder;
+import io.netty.handler.codec.redis.RedisEncoder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author yu
+ * 基于 Netty 的异步 Redis 客户端：
+ * 1.与网关共用 worker 线程组，不额外创建线程，请求线程不会因为 Redis 阻塞；
+ * 2.固定数量的长连接，命令按连接轮询，同一连接上的命令自动流水线化；
+ * 3.所有命令返回 CompletableFuture，超时后以 TimeoutException 结束。
+ * @date 2024-05-31
+ */
+@Slf4j
+public class NettyRedisClient implements LifeCycle {
+
+	private final Config config;
+
+	private final EventLoopGroup eventLoopGroupWorker;
+
+	private final Class<? extends Channel> channelClass;
+
+	private RedisConnection[] connections;
+
+	private final AtomicInteger index = new AtomicInteger();
+
+	public NettyRedisClient(Config config, EventLoopGroup eventLoopGroupWorker, Class<? extends Channel> channelClass) {
+		this.config = config;
+		this.eventLoopGroupWorker = eventLoopGroupWorker;
+		this.channelClass = channelClass;
+		init();
+	}
+
+	@Override
+	public void init() {
+		Bootstrap bootstrap = new Bootstrap()
+				.group(eventLoopGroupWorker)
+				.channel(channelClass)
+				.option(ChannelOption.TCP_NODELAY, true)
+				.option(ChannelOption.SO_KEEPALIVE, true)
+				.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, config.getRedisTimeout())
+				.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+				.handler(new ChannelInitializer<Channel>() {
+					@Override
+					protected void initChannel(Channel ch) {
+						ch.pipeline().addLast(
+								new RedisDecoder(),
+								new RedisBulkStringAggregator(),
+								new RedisArrayAggregator(),
+								new RedisEncoder(),
+								new RedisCommandHandler());
+					}
+				});
+
+		int size = Math.max(1, config.getRedisConnections());
+		this.connections = new RedisConnection[size];
+		for (int i = 0; i < size; i++) {
+			connections[i] = new RedisConnection(bootstrap, config.getRedisHost(), config.getRedisPort(),
+					config.getRedisPassword(), config.getRedisDatabase());
+		}
+	}
+
+	/**
+	 * 执行一条 Redis 命令
+	 *
+	 * @param args 命令及参数，例如 "ZSCORE", key, member
+	 */
+	public CompletableFuture<Object> execute(String... args) {
+		CompletableFuture<Object> future = new CompletableFuture<>();
+		RedisConnection connection = connections[(index.getAndIncrement() & Integer.MAX_VALUE) % connections.length];
+		connection.send(new RedisCommand(args, future));
+		return future.orTimeout(config.getRedisTimeout(), TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void start() {
+		AsyncRedisHelper.getInstance().initialized(this);
+	}
+
+	@Override
+	public void shutdown() {
+		if (connections != null) {
+			for (RedisConnection connection : connections) {
+				connection.close();
+			}
+		}
+	}
+}
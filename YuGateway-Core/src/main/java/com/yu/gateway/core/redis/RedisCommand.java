@@ -0,0 +1,43 @@
+package com.yu.gateway.core.redis;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.redis.ArrayRedisMessage;
+import io.netty.handler.codec.redis.FullBulkStringRedisMessage;
+import io.netty.handler.codec.redis.RedisMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author yu
+ * @description 待发送的 Redis 命令及其结果
+ * @date 2024-05-31
+ */
+final class RedisCommand {
+
+	private final String[] args;
+
+	private final CompletableFuture<Object> future;
+
+	RedisCommand(String[] args, CompletableFuture<Object> future) {
+		this.args = args;
+		this.future = future;
+	}
+
+	CompletableFuture<Object> getFuture() {
+		return future;
+	}
+
+	/**
+	 * 编码为 RESP 数组，参数按 UTF-8 写入池化 ByteBuf
+	 */
+	RedisMessage encode(ByteBufAllocator allocator) {
+		List<RedisMessage> children = new ArrayList<>(args.length);
+		for (String arg : args) {
+			children.add(new FullBulkStringRedisMessage(ByteBufUtil.writeUtf8(allocator, arg)));
+		}
+		return new ArrayRedisMessage(children);
+	}
+}
@@ -0,0 +1,13 @@
+package com.yu.gateway.core.redis;
+
+/**
+ * @author yu
+ * @description Redis 返回的错误响应，例如 NOSCRIPT、WRONGTYPE
+ * @date 2024-05-31
+ */
+public class RedisCommandException extends RuntimeException {
+
+	public RedisCommandException(String message) {
+		super(message);
+	}
+}
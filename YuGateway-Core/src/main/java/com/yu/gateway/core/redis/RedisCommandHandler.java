@@ -0,0 +1,107 @@
+package com.yu.gateway.core.redis;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.redis.*;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author yu
+ * Redis 命令处理器：
+ * 1.写出命令时按顺序记录其结果，Redis 按请求顺序返回响应，依次完成对应的结果；
+ * 2.响应转换为 Java 对象：简单字符串/批量字符串为 String，整数为 Long，数组为 List，错误为 RedisCommandException；
+ * 3.连接断开时所有未完成的命令以异常结束。
+ * @date 2024-05-31
+ */
+@Slf4j
+class RedisCommandHandler extends ChannelDuplexHandler {
+
+	/**
+	 * 已写出、等待响应的命令，只在连接所属的 EventLoop 中访问
+	 */
+	private final ArrayDeque<CompletableFuture<Object>> pending = new ArrayDeque<>();
+
+	@Override
+	public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+		if (msg instanceof RedisCommand command) {
+			pending.add(command.getFuture());
+			ctx.write(command.encode(ctx.alloc()), promise);
+		} else {
+			ctx.write(msg, promise);
+		}
+	}
+
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) {
+		try {
+			CompletableFuture<Object> future = pending.poll();
+			if (future == null) {
+				log.warn("unexpected redis response: {}", msg);
+				return;
+			}
+			Object result = convert((RedisMessage) msg);
+			if (result instanceof RedisCommandException e) {
+				future.completeExceptionally(e);
+			} else {
+				future.complete(result);
+			}
+		} finally {
+			ReferenceCountUtil.release(msg);
+		}
+	}
+
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		failPending(new IOException("redis connection closed"));
+		super.channelInactive(ctx);
+	}
+
+	@Override
+	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+		log.warn("redis connection error: {}", cause.getMessage());
+		failPending(cause);
+		ctx.close();
+	}
+
+	private void failPending(Throwable cause) {
+		CompletableFuture<Object> future;
+		while ((future = pending.poll()) != null) {
+			future.completeExceptionally(cause);
+		}
+	}
+
+	private static Object convert(RedisMessage msg) {
+		if (msg instanceof SimpleStringRedisMessage simpleString) {
+			return simpleString.content();
+		}
+		if (msg instanceof ErrorRedisMessage error) {
+			return new RedisCommandException(error.content());
+		}
+		if (msg instanceof IntegerRedisMessage integer) {
+			return integer.value();
+		}
+		if (msg instanceof FullBulkStringRedisMessage bulkString) {
+			return bulkString.isNull() ? null : bulkString.content().toString(CharsetUtil.UTF_8);
+		}
+		if (msg instanceof ArrayRedisMessage array) {
+			if (array.isNull()) {
+				return null;
+			}
+			List<Object> result = new ArrayList<>(array.children().size());
+			for (RedisMessage child : array.children()) {
+				result.add(convert(child));
+			}
+			return result;
+		}
+		throw new IllegalArgumentException("unknown redis message: " + msg);
+	}
+}
@@ -0,0 +1,138 @@
+package com.yu.gateway.core.redis;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author yu
+ * 单个 Redis 连接，命令自动流水线化：
+ * 1.任意线程提交的命令先进入队列，由连接所属的 EventLoop 批量写出后只 flush 一次；
+ * 2.连接断开后在下一次提交命令时重新建立连接，建立连接后先发送 AUTH / SELECT。
+ * @date 2024-05-31
+ */
+@Slf4j
+final class RedisConnection {
+
+	private final Bootstrap bootstrap;
+
+	private final String host;
+
+	private final int port;
+
+	private final String password;
+
+	private final int database;
+
+	/**
+	 * 待写出的命令
+	 */
+	private final Queue<RedisCommand> queue = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * 是否已经提交了写出任务
+	 */
+	private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+	private volatile Channel channel;
+
+	private ChannelFuture connectFuture;
+
+	RedisConnection(Bootstrap bootstrap, String host, int port, String password, int database) {
+		this.bootstrap = bootstrap;
+		this.host = host;
+		this.port = port;
+		this.password = password;
+		this.database = database;
+	}
+
+	void send(RedisCommand command) {
+		queue.add(command);
+		Channel current = channel;
+		if (current != null && current.isActive()) {
+			scheduleDrain(current);
+			return;
+		}
+		connect().addListener(future -> {
+			if (future.isSuccess()) {
+				scheduleDrain(channel);
+			} else {
+				failQueued(future.cause());
+			}
+		});
+	}
+
+	private void scheduleDrain(Channel current) {
+		if (drainScheduled.compareAndSet(false, true)) {
+			current.eventLoop().execute(() -> drain(current));
+		}
+	}
+
+	/**
+	 * 在 EventLoop 中写出队列中的全部命令并 flush 一次
+	 */
+	private void drain(Channel current) {
+		// 先重置标记再取队列，之后提交的命令会触发新的写出任务
+		drainScheduled.set(false);
+		if (!current.isActive()) {
+			failQueued(new IOException("redis connection closed"));
+			return;
+		}
+		RedisCommand command;
+		boolean written = false;
+		while ((command = queue.poll()) != null) {
+			current.write(command, current.voidPromise());
+			written = true;
+		}
+		if (written) {
+			current.flush();
+		}
+	}
+
+	private synchronized ChannelFuture connect() {
+		if (connectFuture != null && (!connectFuture.isDone() || (connectFuture.isSuccess() && connectFuture.channel().isActive()))) {
+			return connectFuture;
+		}
+		ChannelFuture future = bootstrap.connect(host, port);
+		// 第一个监听器，AUTH / SELECT 先于其他命令写出
+		future.addListener(f -> {
+			if (!f.isSuccess()) {
+				log.warn("connect redis {}:{} failed: {}", host, port, f.cause().getMessage());
+				return;
+			}
+			Channel connected = future.channel();
+			if (StringUtils.isNotEmpty(password)) {
+				connected.write(new RedisCommand(new String[]{"AUTH", password}, new CompletableFuture<>()));
+			}
+			if (database != 0) {
+				connected.write(new RedisCommand(new String[]{"SELECT", String.valueOf(database)}, new CompletableFuture<>()));
+			}
+			connected.flush();
+			channel = connected;
+		});
+		connectFuture = future;
+		return future;
+	}
+
+	private void failQueued(Throwable cause) {
+		RedisCommand command;
+		while ((command = queue.poll()) != null) {
+			command.getFuture().completeExceptionally(cause);
+		}
+	}
+
+	void close() {
+		Channel current = channel;
+		if (current != null) {
+			current.close();
+		}
+	}
+}
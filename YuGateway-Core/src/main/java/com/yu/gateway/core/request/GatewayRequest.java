@@ -7,6 +7,7 @@ import com.yu.gateway.common.utils.TimeUtil;
 import io.netty.buffer.ByteBuf;
 import io.netty.handler.codec.http.*;
 import io.netty.handler.codec.http.cookie.ServerCookieDecoder;
+import io.netty.util.AsciiString;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -25,6 +26,11 @@ import java.util.*;
 @Data
 public class GatewayRequest implements IGatewayRequest{
 
+    /**
+     * Keep-Alive 逐跳请求头（HttpHeaderNames.KEEP_ALIVE 已废弃）
+     */
+    public static final AsciiString KEEP_ALIVE = AsciiString.cached("keep-alive");
+
     /**
      * 服务ID
      */
@@ -121,6 +127,23 @@ public class GatewayRequest implements IGatewayRequest{
      */
     private final RequestBuilder requestBuilder;
 
+    /**
+     * 修改后的请求头与新增的查询参数，原生 Netty 客户端据此构造下游请求，未修改时为 null
+     */
+    private HttpHeaders modifyHeaders;
+
+    private Map<String, List<String>> modifyQueryParams;
+
+    /**
+     * 本次请求的下游超时时间（毫秒），0 表示使用全局配置
+     */
+    private int requestTimeout;
+
+    /**
+     * 修改了表单参数或 Cookie，只能通过 requestBuilder 构造下游请求
+     */
+    private boolean requestBuilderRequired;
+
     /**
      * 构造器
      */
@@ -176,9 +199,12 @@ public class GatewayRequest implements IGatewayRequest{
         if(cookieMap == null){
             cookieMap = new HashMap<String,io.netty.handler.codec.http.cookie.Cookie>();
             String cookieStr = getHeaders().get(HttpHeaderNames.COOKIE);
+            if (cookieStr == null) {
+                return null;
+            }
             Set<io.netty.handler.codec.http.cookie.Cookie> cookies = ServerCookieDecoder.STRICT.decode(cookieStr);
             for(io.netty.handler.codec.http.cookie.Cookie cookie: cookies){
-                cookieMap.put(name,cookie);
+                cookieMap.put(cookie.name(),cookie);
             }
         }
         return cookieMap.get(name);
@@ -241,32 +267,57 @@ public class GatewayRequest implements IGatewayRequest{
     @Override
     public void addHeader(CharSequence name, String value) {
         requestBuilder.addHeader(name,value);
+        if(modifyHeaders == null){
+            modifyHeaders = headers.copy();
+        }
+        modifyHeaders.add(name,value);
     }
 
     @Override
     public void setHeader(CharSequence name, String value) {
         requestBuilder.setHeader(name,value);
+        if(modifyHeaders == null){
+            modifyHeaders = headers.copy();
+        }
+        modifyHeaders.set(name,value);
+    }
+
+    @Override
+    public void removeHeader(CharSequence name) {
+        if(modifyHeaders == null){
+            modifyHeaders = headers.copy();
+        }
+        modifyHeaders.remove(name);
+        // RequestBuilder 不支持删除单个请求头，整体替换为修改后的请求头
+        requestBuilder.setHeaders(modifyHeaders.copy());
     }
 
     @Override
     public void addQueryParam(String name, String value) {
         requestBuilder.addQueryParam(name,value);
+        if(modifyQueryParams == null){
+            modifyQueryParams = new LinkedHashMap<>();
+        }
+        modifyQueryParams.computeIfAbsent(name, k -> new ArrayList<>()).add(value);
     }
 
     @Override
     public void addFormParam(String name, String value) {
         if(isFormPost()){
             requestBuilder.addFormParam(name,value);
+            requestBuilderRequired = true;
         }
     }
 
     @Override
     public void addOrReplaceCookie(org.asynchttpclient.cookie.Cookie cookie) {
         requestBuilder.addOrReplaceCookie(cookie);
+        requestBuilderRequired = true;
     }
 
     @Override
     public void setRequestTimeout(int requestTimeout) {
+        this.requestTimeout = requestTimeout;
         requestBuilder.setRequestTimeout(requestTimeout);
     }
 
@@ -279,11 +330,60 @@ public class GatewayRequest implements IGatewayRequest{
     public Request build() {
         requestBuilder.setUrl(getFinalUrl());
 
-        //设置用户id 用于下游的服务使用
-        requestBuilder.addHeader("userId", String.valueOf(userId));
+        //设置用户id 用于下游的服务使用，重试时会再次构建请求，使用 set 避免重复添加
+        requestBuilder.setHeader("userId", String.valueOf(userId));
         return requestBuilder.build();
     }
 
+    /**
+     * 构造原生 Netty 客户端转发的下游请求，请求体共享客户端请求的 ByteBuf（引用计数 +1），写出后由 Netty 释放
+     * 重试时会再次构建请求，每次都复制请求头
+     */
+    public FullHttpRequest buildHttpRequest() {
+        HttpHeaders upstreamHeaders = (modifyHeaders != null ? modifyHeaders : headers).copy();
+        upstreamHeaders.set(HttpHeaderNames.HOST, modifyHost);
+        //设置用户id 用于下游的服务使用
+        upstreamHeaders.set("userId", String.valueOf(userId));
+        // 上游连接由网关复用，不跟随客户端连接的 keep-alive 语义；请求体已聚合，不再分块传输
+        upstreamHeaders.remove(HttpHeaderNames.CONNECTION);
+        upstreamHeaders.remove(KEEP_ALIVE);
+        upstreamHeaders.remove(HttpHeaderNames.TRANSFER_ENCODING);
+
+        ByteBuf content = fullHttpRequest.content().retainedDuplicate();
+        if (content.isReadable() || upstreamHeaders.contains(HttpHeaderNames.CONTENT_LENGTH)) {
+            upstreamHeaders.setInt(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
+        }
+        return new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, method, buildUpstreamUri(), content,
+                upstreamHeaders, EmptyHttpHeaders.INSTANCE);
+    }
+
+    /**
+     * 下游请求的 URI：修改后的路径 + 原始查询串 + 新增的查询参数
+     */
+    private String buildUpstreamUri() {
+        StringBuilder upstreamUri = new StringBuilder(modifyPath);
+        boolean hasQuery = modifyPath.contains(BasicConst.QUESTION_SEPARATOR);
+        int queryIndex = uri.indexOf(BasicConst.QUESTION_SEPARATOR);
+        if (!hasQuery && queryIndex >= 0) {
+            upstreamUri.append(uri, queryIndex, uri.length());
+            hasQuery = true;
+        }
+        if (modifyQueryParams != null) {
+            QueryStringEncoder encoder = new QueryStringEncoder("", charset);
+            modifyQueryParams.forEach((name, values) -> values.forEach(value -> encoder.addParam(name, value)));
+            // 编码结果以 ? 开头
+            String query = encoder.toString();
+            char last = upstreamUri.charAt(upstreamUri.length() - 1);
+            if (!hasQuery) {
+                upstreamUri.append('?');
+            } else if (last != '?' && last != '&') {
+                upstreamUri.append('&');
+            }
+            upstreamUri.append(query, 1, query.length());
+        }
+        return upstreamUri.toString();
+    }
+
     public  boolean isFormPost(){
         return HttpMethod.POST.equals(method) &&
                 (contentType.startsWith(HttpHeaderValues.FORM_DATA.toString()) ||
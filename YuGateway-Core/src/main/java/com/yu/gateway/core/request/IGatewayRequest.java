@@ -42,6 +42,11 @@ public interface IGatewayRequest {
 	 */
 	void setHeader(CharSequence name, String value);
 
+	/**
+	 * 删除请求头信息
+	 */
+	void removeHeader(CharSequence name);
+
 	/**
 	 * Get 请求参数
 	 */
@@ -3,6 +3,7 @@ package com.yu.gateway.core.response;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.yu.gateway.common.enums.ResponseCode;
 import com.yu.gateway.common.utils.JSONUtil;
+import io.netty.buffer.ByteBuf;
 import io.netty.handler.codec.http.*;
 import lombok.Data;
 import org.asynchttpclient.Response;
@@ -35,6 +36,11 @@ public class GatewayResponse {
 	 */
 	private Response futureResponse;
 
+	/**
+	 * 下游服务响应体，直接持有下游连接上的池化 ByteBuf，写回客户端后由 Netty 释放
+	 */
+	private ByteBuf body;
+
 	/**
 	 * 响应返回码
 	 */
@@ -62,6 +68,17 @@ public class GatewayResponse {
 		return response;
 	}
 
+	/**
+	 * 构建零拷贝转发的响应对象，直接复用下游服务的响应头与响应体
+	 */
+	public static GatewayResponse buildGatewayResponse(HttpResponseStatus status, HttpHeaders headers, ByteBuf body) {
+		GatewayResponse response = new GatewayResponse();
+		response.setHttpResponseStatus(status);
+		response.setResponseHeaders(headers);
+		response.setBody(body);
+		return response;
+	}
+
 	/**
 	 * 处理返回json对象，失败时调用
 	 */
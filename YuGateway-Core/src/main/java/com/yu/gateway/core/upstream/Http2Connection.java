@@ -0,0 +1,188 @@
+package com.yu.gateway.core.upstream;
+
+import com.yu.gateway.core.response.GatewayResponse;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamChannelBootstrap;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author yu
+ * 到单个服务实例的一条 h2c 连接，请求以独立的流在连接上多路复用：
+ * 1.先占用流配额再发送请求，流关闭时归还，占满 maxStreams 后由连接池选择其它连接；
+ * 2.连接断开后在下一次占用时重新建立连接；
+ * 3.空闲超时或所属连接池下线时，在没有进行中的流的前提下关闭连接。
+ * @date 2024-06-06
+ */
+@Slf4j
+final class Http2Connection {
+
+	/**
+	 * 连接关闭中，不再分配流
+	 */
+	private static final int CLOSING = Integer.MIN_VALUE / 2;
+
+	private final Bootstrap bootstrap;
+
+	private final String host;
+
+	private final int port;
+
+	private final int maxStreams;
+
+	private final int maxContentLength;
+
+	private final AtomicInteger activeStreams = new AtomicInteger();
+
+	private volatile long lastActiveNanos = System.nanoTime();
+
+	private volatile Channel channel;
+
+	private ChannelFuture connectFuture;
+
+	Http2Connection(Bootstrap bootstrap, String host, int port, int maxStreams, int maxContentLength) {
+		this.bootstrap = bootstrap;
+		this.host = host;
+		this.port = port;
+		this.maxStreams = maxStreams;
+		this.maxContentLength = maxContentLength;
+	}
+
+	/**
+	 * 占用一个流配额，成功后必须调用 execute
+	 */
+	boolean tryReserve() {
+		int streams;
+		do {
+			streams = activeStreams.get();
+			if (streams < 0 || streams >= maxStreams) {
+				return false;
+			}
+		} while (!activeStreams.compareAndSet(streams, streams + 1));
+		lastActiveNanos = System.nanoTime();
+		return true;
+	}
+
+	private void releaseStream() {
+		activeStreams.decrementAndGet();
+		lastActiveNanos = System.nanoTime();
+	}
+
+	/**
+	 * 在新的流上发送请求，请求对象的引用由本方法负责释放
+	 */
+	void execute(FullHttpRequest request, CompletableFuture<GatewayResponse> future) {
+		Channel current = channel;
+		if (current != null && current.isActive()) {
+			openStream(current, request, future);
+			return;
+		}
+		ChannelFuture connecting = connect();
+		connecting.addListener(f -> {
+			if (f.isSuccess()) {
+				openStream(connecting.channel(), request, future);
+			} else {
+				ReferenceCountUtil.release(request);
+				releaseStream();
+				future.completeExceptionally(f.cause());
+			}
+		});
+	}
+
+	private void openStream(Channel parent, FullHttpRequest request, CompletableFuture<GatewayResponse> future) {
+		Future<Http2StreamChannel> opening = new Http2StreamChannelBootstrap(parent)
+				.handler(new ChannelInitializer<Http2StreamChannel>() {
+					@Override
+					protected void initChannel(Http2StreamChannel ch) {
+						ch.pipeline().addLast(
+								new Http2StreamFrameToHttpObjectCodec(false),
+								new HttpObjectAggregator(maxContentLength),
+								new Http2ResponseHandler(future));
+					}
+				})
+				.open();
+		opening.addListener(f -> {
+			if (!f.isSuccess()) {
+				ReferenceCountUtil.release(request);
+				releaseStream();
+				future.completeExceptionally(f.cause());
+				return;
+			}
+			Http2StreamChannel stream = opening.getNow();
+			stream.closeFuture().addListener(closed -> releaseStream());
+			// 超时或被取消（对冲请求落败）时重置流
+			future.whenComplete((response, throwable) -> {
+				if (throwable != null) {
+					stream.close();
+				}
+			});
+			stream.writeAndFlush(request).addListener(written -> {
+				if (!written.isSuccess()) {
+					future.completeExceptionally(written.cause());
+					stream.close();
+				}
+			});
+		});
+	}
+
+	/**
+	 * 建立连接，已有可用连接或连接建立中时直接返回
+	 */
+	synchronized ChannelFuture connect() {
+		if (connectFuture != null && (!connectFuture.isDone() || (connectFuture.isSuccess() && connectFuture.channel().isActive()))) {
+			return connectFuture;
+		}
+		ChannelFuture future = bootstrap.connect(host, port);
+		future.addListener(f -> {
+			if (f.isSuccess()) {
+				channel = future.channel();
+			} else {
+				log.warn("connect h2c upstream {}:{} failed: {}", host, port, f.cause().getMessage());
+			}
+		});
+		connectFuture = future;
+		return future;
+	}
+
+	/**
+	 * 没有进行中的流且空闲超时（或要求立即关闭）时关闭连接，关闭完成后可以重新建立
+	 */
+	void closeIfIdle(long nowNanos, long idleNanos, boolean force) {
+		Channel current = channel;
+		if (current == null || !current.isActive()) {
+			return;
+		}
+		if (!force && nowNanos - lastActiveNanos < idleNanos) {
+			return;
+		}
+		if (activeStreams.compareAndSet(0, CLOSING)) {
+			current.close().addListener(f -> activeStreams.set(0));
+		}
+	}
+
+	/**
+	 * 连接已关闭且没有进行中的流
+	 */
+	boolean isClosed() {
+		Channel current = channel;
+		return (current == null || !current.isActive()) && activeStreams.get() <= 0;
+	}
+
+	void close() {
+		Channel current = channel;
+		if (current != null) {
+			current.close();
+		}
+	}
+}
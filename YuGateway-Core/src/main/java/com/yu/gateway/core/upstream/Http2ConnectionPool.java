@@ -0,0 +1,75 @@
+package com.yu.gateway.core.upstream;
+
+import io.netty.bootstrap.Bootstrap;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author yu
+ * @description 单个服务实例的 h2c 连接池，固定数量的连接，请求按轮询选择仍有流配额的连接
+ * @date 2024-06-06
+ */
+final class Http2ConnectionPool {
+
+	private final Http2Connection[] connections;
+
+	private final int maxStreams;
+
+	private final AtomicInteger index = new AtomicInteger();
+
+	Http2ConnectionPool(Bootstrap bootstrap, String host, int port, int size, int maxStreams, int maxContentLength) {
+		this.maxStreams = maxStreams;
+		this.connections = new Http2Connection[size];
+		for (int i = 0; i < size; i++) {
+			connections[i] = new Http2Connection(bootstrap, host, port, maxStreams, maxContentLength);
+		}
+	}
+
+	/**
+	 * 选择一个连接并占用流配额，全部连接的流都已占满时返回 null
+	 */
+	Http2Connection acquire() {
+		int start = index.getAndIncrement() & Integer.MAX_VALUE;
+		for (int i = 0; i < connections.length; i++) {
+			Http2Connection connection = connections[(start + i) % connections.length];
+			if (connection.tryReserve()) {
+				return connection;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 预热，提前建立全部连接
+	 */
+	void prewarm() {
+		for (Http2Connection connection : connections) {
+			connection.connect();
+		}
+	}
+
+	void evictIdle(long nowNanos, long idleNanos, boolean force) {
+		for (Http2Connection connection : connections) {
+			connection.closeIfIdle(nowNanos, idleNanos, force);
+		}
+	}
+
+	boolean isClosed() {
+		for (Http2Connection connection : connections) {
+			if (!connection.isClosed()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	boolean sameSize(int size, int maxStreams) {
+		return connections.length == size && this.maxStreams == maxStreams;
+	}
+
+	void close() {
+		for (Http2Connection connection : connections) {
+			connection.close();
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package com.yu.gateway.core.upstream;
+
+import com.yu.gateway.core.response.GatewayResponse;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http2.HttpConversionUtil;
+import io.netty.util.ReferenceCountUtil;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author yu
+ * @description HTTP/2 流上的响应处理器，每个流一个实例，聚合后的响应体直接转发，不做拷贝
+ * @date 2024-06-06
+ */
+class Http2ResponseHandler extends SimpleChannelInboundHandler<FullHttpResponse> {
+
+	private final CompletableFuture<GatewayResponse> future;
+
+	Http2ResponseHandler(CompletableFuture<GatewayResponse> future) {
+		this.future = future;
+	}
+
+	@Override
+	protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse msg) {
+		// 去掉 HTTP/2 转换时附加的扩展头，避免转发给客户端
+		msg.headers().remove(HttpConversionUtil.ExtensionHeaderNames.STREAM_ID.text());
+		GatewayResponse response = GatewayResponse.buildGatewayResponse(msg.status(), msg.headers(), msg.content().retain());
+		if (!future.complete(response)) {
+			ReferenceCountUtil.release(response.getBody());
+		}
+		ctx.close();
+	}
+
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		future.completeExceptionally(new IOException("http2 stream closed before response"));
+		super.channelInactive(ctx);
+	}
+
+	@Override
+	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+		future.completeExceptionally(cause);
+		ctx.close();
+	}
+}
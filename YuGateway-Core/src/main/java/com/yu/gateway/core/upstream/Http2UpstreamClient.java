@@ -0,0 +1,261 @@
+package com.yu.gateway.core.upstream;
+
+import com.yu.gateway.common.config.ServiceDefinition;
+import com.yu.gateway.common.config.ServiceInstance;
+import com.yu.gateway.common.constant.BasicConst;
+import com.yu.gateway.common.constant.GatewayConst;
+import com.yu.gateway.core.Config;
+import com.yu.gateway.core.LifeCycle;
+import com.yu.gateway.core.helper.AsyncHttpHelper;
+import com.yu.gateway.core.response.GatewayResponse;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2Settings;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.asynchttpclient.Request;
+import org.asynchttpclient.uri.Uri;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author yu
+ * h2c 上游客户端，按服务定义的 upstreamProtocol 选择：
+ * 1.每个服务实例固定数量的 HTTP/2 明文连接（prior knowledge），请求以流的形式多路复用，连接数不随并发增长；
+ * 2.连接数与每个连接的最大并发流数可以按服务定义配置；
+ * 3.注册中心推送实例时预先建立连接，下线实例的连接池在进行中的流结束后关闭；
+ * 4.与网关共用 worker 线程组，定时关闭空闲超时的连接。
+ * @date 2024-06-06
+ */
+@Slf4j
+public class Http2UpstreamClient implements LifeCycle {
+
+	private final Config config;
+
+	private final EventLoopGroup eventLoopGroupWorker;
+
+	private final Class<? extends Channel> channelClass;
+
+	private Bootstrap bootstrap;
+
+	/**
+	 * 实例地址 ip:port —— 连接池
+	 */
+	private final ConcurrentHashMap<String, Http2ConnectionPool> pools = new ConcurrentHashMap<>();
+
+	/**
+	 * 服务唯一ID —— 使用 h2c 的实例地址
+	 */
+	private final Map<String, Set<String>> serviceAddresses = new ConcurrentHashMap<>();
+
+	/**
+	 * 已下线、等待进行中的流结束后关闭的连接池
+	 */
+	private final Queue<Http2ConnectionPool> drainingPools = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * 是否存在 h2c 实例，不存在时请求不做地址查找
+	 */
+	private volatile boolean enabled;
+
+	private ScheduledFuture<?> evictionTask;
+
+	public Http2UpstreamClient(Config config, EventLoopGroup eventLoopGroupWorker, Class<? extends Channel> channelClass) {
+		this.config = config;
+		this.eventLoopGroupWorker = eventLoopGroupWorker;
+		this.channelClass = channelClass;
+		init();
+	}
+
+	@Override
+	public void init() {
+		this.bootstrap = new Bootstrap()
+				.group(eventLoopGroupWorker)
+				.channel(channelClass)
+				.option(ChannelOption.TCP_NODELAY, true)
+				.option(ChannelOption.SO_KEEPALIVE, true)
+				.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, config.getHttpConnectTimeout())
+				.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+				.handler(new ChannelInitializer<Channel>() {
+					@Override
+					protected void initChannel(Channel ch) {
+						ch.pipeline().addLast(
+								Http2FrameCodecBuilder.forClient()
+										.initialSettings(Http2Settings.defaultSettings().pushEnabled(false))
+										.build(),
+								// 已关闭服务端推送，不会有对端发起的流
+								new Http2MultiplexHandler(new ChannelInboundHandlerAdapter()));
+					}
+				});
+	}
+
+	/**
+	 * 通过 h2c 发送请求，目标地址不是 h2c 实例时返回 null
+	 */
+	public CompletableFuture<GatewayResponse> execute(Request request) {
+		if (!enabled) {
+			return null;
+		}
+		Uri uri = request.getUri();
+		Http2ConnectionPool pool = pools.get(uri.getHost() + BasicConst.COLON_SEPARATOR + uri.getExplicitPort());
+		if (pool == null) {
+			return null;
+		}
+
+		CompletableFuture<GatewayResponse> future = new CompletableFuture<>();
+		Http2Connection connection = pool.acquire();
+		if (connection == null) {
+			future.completeExceptionally(new IOException("h2c streams exhausted: " + uri.getHost() + ":" + uri.getExplicitPort()));
+			return future;
+		}
+		connection.execute(toHttpRequest(request), future);
+		int requestTimeout = request.getRequestTimeout() > 0 ? request.getRequestTimeout() : config.getHttpRequestTimeout();
+		return future.orTimeout(requestTimeout, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 目标地址（ip:port）是否为 h2c 实例
+	 */
+	public boolean isH2c(String address) {
+		return enabled && pools.containsKey(address);
+	}
+
+	/**
+	 * 转换为 HTTP/1 请求对象，由流上的 Http2StreamFrameToHttpObjectCodec 编码为 HTTP/2 帧
+	 * 请求体直接包装原始请求的内存，原始请求在响应写回客户端后才释放
+	 */
+	private static FullHttpRequest toHttpRequest(Request request) {
+		Uri uri = request.getUri();
+		ByteBuf body;
+		ByteBuffer byteBuffer = request.getByteBufferData();
+		if (byteBuffer != null) {
+			body = Unpooled.wrappedBuffer(byteBuffer.duplicate());
+		} else if (request.getByteData() != null) {
+			body = Unpooled.wrappedBuffer(request.getByteData());
+		} else if (request.getStringData() != null) {
+			body = Unpooled.copiedBuffer(request.getStringData(), request.getCharset() == null ? StandardCharsets.UTF_8 : request.getCharset());
+		} else {
+			body = Unpooled.EMPTY_BUFFER;
+		}
+
+		FullHttpRequest httpRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.valueOf(request.getMethod()),
+				uri.toRelativeUrl(), body);
+		httpRequest.headers().set(request.getHeaders());
+		if (!httpRequest.headers().contains(HttpHeaderNames.HOST)) {
+			httpRequest.headers().set(HttpHeaderNames.HOST, uri.getHost() + BasicConst.COLON_SEPARATOR + uri.getExplicitPort());
+		}
+		if (body.isReadable()) {
+			httpRequest.headers().setInt(HttpHeaderNames.CONTENT_LENGTH, body.readableBytes());
+		}
+		return httpRequest;
+	}
+
+	/**
+	 * 服务实例变更，维护 h2c 实例的连接池并预热新实例的连接
+	 */
+	public synchronized void refresh(ServiceDefinition definition, Set<ServiceInstance> instances) {
+		String uniqueId = definition.getUniqueId();
+		int size = definition.getUpstreamConnections() > 0 ? definition.getUpstreamConnections() : config.getHttp2ConnectionsPerInstance();
+		int maxStreams = definition.getUpstreamMaxStreams() > 0 ? definition.getUpstreamMaxStreams() : config.getHttp2MaxConcurrentStreams();
+
+		Set<String> addresses = new HashSet<>();
+		if (GatewayConst.UPSTREAM_PROTOCOL_H2C.equalsIgnoreCase(StringUtils.trimToEmpty(definition.getUpstreamProtocol())) && instances != null) {
+			for (ServiceInstance instance : instances) {
+				addresses.add(instance.getIp() + BasicConst.COLON_SEPARATOR + instance.getPort());
+			}
+		}
+
+		// 下线的实例
+		for (String address : serviceAddresses.getOrDefault(uniqueId, Collections.emptySet())) {
+			if (!addresses.contains(address)) {
+				drain(pools.remove(address));
+			}
+		}
+
+		// 新增的实例或连接池配置变化的实例
+		for (String address : addresses) {
+			Http2ConnectionPool pool = pools.get(address);
+			if (pool != null && pool.sameSize(Math.max(1, size), Math.max(1, maxStreams))) {
+				continue;
+			}
+			int separator = address.lastIndexOf(BasicConst.COLON_SEPARATOR);
+			Http2ConnectionPool created = new Http2ConnectionPool(bootstrap, address.substring(0, separator),
+					Integer.parseInt(address.substring(separator + 1)), Math.max(1, size), Math.max(1, maxStreams), config.getMaxContentLength());
+			created.prewarm();
+			drain(pools.put(address, created));
+			log.info("h2c upstream pool ready, uniqueId: {}, address: {}, connections: {}, maxStreams: {}", uniqueId, address, size, maxStreams);
+		}
+
+		if (addresses.isEmpty()) {
+			serviceAddresses.remove(uniqueId);
+		} else {
+			serviceAddresses.put(uniqueId, addresses);
+		}
+		enabled = !pools.isEmpty();
+	}
+
+	private void drain(Http2ConnectionPool pool) {
+		if (pool != null) {
+			drainingPools.add(pool);
+		}
+	}
+
+	/**
+	 * 关闭空闲超时的连接，以及已下线连接池中没有进行中的流的连接
+	 */
+	private void evictIdle() {
+		long now = System.nanoTime();
+		long idleNanos = TimeUnit.MILLISECONDS.toNanos(config.getHttpPooledConnectionIdleTimeout());
+		for (Http2ConnectionPool pool : pools.values()) {
+			pool.evictIdle(now, idleNanos, false);
+		}
+		for (Http2ConnectionPool pool : drainingPools) {
+			pool.evictIdle(now, idleNanos, true);
+			if (pool.isClosed()) {
+				drainingPools.remove(pool);
+			}
+		}
+	}
+
+	@Override
+	public void start() {
+		long period = Math.max(1000, config.getHttpPooledConnectionIdleTimeout() / 2);
+		this.evictionTask = eventLoopGroupWorker.next().scheduleAtFixedRate(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+		AsyncHttpHelper.getInstance().initialized(this);
+	}
+
+	@Override
+	public void shutdown() {
+		if (evictionTask != null) {
+			evictionTask.cancel(false);
+		}
+		pools.values().forEach(Http2ConnectionPool::close);
+		drainingPools.forEach(Http2ConnectionPool::close);
+	}
+}
@@ -0,0 +1,17 @@
+-- 获取固定窗口计数key --
+local window_key = KEYS[1]
+
+-- 获取请求限制数量、窗口大小（秒） --
+local limit = tonumber(ARGV[1])
+local window_size = tonumber(ARGV[2])
+
+-- 窗口内请求数加一，窗口第一个请求设置过期时间 --
+local current = redis.call("incr", window_key)
+if current == 1 or redis.call("ttl", window_key) == -1 then
+    redis.call("expire", window_key, window_size)
+end
+
+if current <= limit then
+    return 1
+end
+return 0
@@ -0,0 +1,43 @@
+-- 获取限流资源令牌数key、时间戳key --
+local tokens_key = KEYS[1]
+local timestamp_key = KEYS[2]
+
+-- 获取填充速率（每秒）、令牌桶容量、当前时间戳（毫秒）、申请的令牌数（负数表示归还） --
+local rate = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local now = tonumber(ARGV[3])
+local requested = tonumber(ARGV[4])
+
+-- 计算出失效时间，预估设置为令牌桶填满时间两倍 --
+local ttl = math.ceil(capacity / rate * 2)
+
+-- 获取剩余令牌数与上次更新时间，为空说明刚刚初始化 --
+local last_tokens = tonumber(redis.call("get", tokens_key))
+if last_tokens == nil then
+    last_tokens = capacity
+end
+local last_refreshed = tonumber(redis.call("get", timestamp_key))
+if last_refreshed == nil then
+    last_refreshed = now
+end
+
+-- 按时间间隔补充令牌 --
+local delta = math.max(0, now - last_refreshed)
+local filled_tokens = math.min(capacity, last_tokens + delta * rate / 1000)
+
+-- 归还未使用的令牌，或者按剩余令牌数部分发放 --
+local granted = 0
+local new_tokens = filled_tokens
+if requested < 0 then
+    new_tokens = math.min(capacity, filled_tokens - requested)
+else
+    granted = math.min(requested, math.floor(filled_tokens))
+    new_tokens = filled_tokens - granted
+end
+
+if ttl > 0 then
+    redis.call("setex", tokens_key, ttl, new_tokens)
+    redis.call("setex", timestamp_key, ttl, now)
+end
+
+return granted
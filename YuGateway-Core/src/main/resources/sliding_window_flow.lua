@@ -0,0 +1,20 @@
+-- 获取滑动窗口zset key --
+local window_key = KEYS[1]
+
+-- 获取请求限制数量、窗口大小（毫秒）、当前时间戳（毫秒）、本次请求的唯一成员 --
+local limit = tonumber(ARGV[1])
+local window_size = tonumber(ARGV[2])
+local now = tonumber(ARGV[3])
+local member = ARGV[4]
+
+-- 删除窗口开始时间之前的请求记录 --
+redis.call("zremrangebyscore", window_key, 0, now - window_size)
+
+-- 窗口内请求数未达到上限时记录本次请求，被拒绝的请求不占用窗口 --
+local count = redis.call("zcard", window_key)
+if count < limit then
+    redis.call("zadd", window_key, now, member)
+    redis.call("pexpire", window_key, window_size)
+    return 1
+end
+return 0
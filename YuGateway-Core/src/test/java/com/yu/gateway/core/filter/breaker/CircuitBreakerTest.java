@@ -0,0 +1,143 @@
+package com.yu.gateway.core.filter.breaker;
+
+import com.yu.gateway.common.config.Rule;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author yu
+ * 熔断器状态切换：关闭 -> 熔断 -> 半开 -> 关闭 / 熔断
+ * @date 2024-06-20
+ */
+public class CircuitBreakerTest {
+
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private static Rule.HystrixConfig config(int waitDurationInOpenState) {
+		Rule.HystrixConfig config = new Rule.HystrixConfig();
+		config.setPath("/test");
+		config.setTimeoutInMilliseconds(1000);
+		config.setSlidingWindowSize(4);
+		config.setMinimumNumberOfCalls(4);
+		config.setFailureRateThreshold(50);
+		config.setWaitDurationInOpenState(waitDurationInOpenState);
+		config.setPermittedCallsInHalfOpenState(2);
+		return config;
+	}
+
+	private static void call(CircuitBreaker breaker, boolean success) {
+		assertTrue(breaker.tryAcquire());
+		breaker.onComplete(FAST, success);
+	}
+
+	@Test
+	public void staysClosedBelowMinimumNumberOfCalls() {
+		CircuitBreaker breaker = new CircuitBreaker("test", config(60_000));
+		for (int i = 0; i < 3; i++) {
+			call(breaker, false);
+		}
+		assertFalse(breaker.isOpen());
+		assertTrue(breaker.tryAcquire());
+	}
+
+	@Test
+	public void opensWhenFailureRateReached() {
+		CircuitBreaker breaker = new CircuitBreaker("test", config(60_000));
+		call(breaker, true);
+		call(breaker, true);
+		call(breaker, false);
+		call(breaker, false);
+		assertTrue(breaker.isOpen());
+		assertFalse(breaker.tryAcquire());
+	}
+
+	@Test
+	public void staysClosedBelowFailureRate() {
+		CircuitBreaker breaker = new CircuitBreaker("test", config(60_000));
+		call(breaker, true);
+		call(breaker, true);
+		call(breaker, true);
+		call(breaker, false);
+		assertFalse(breaker.isOpen());
+	}
+
+	@Test
+	public void opensOnSlowCallRate() {
+		Rule.HystrixConfig config = config(60_000);
+		config.setSlowCallDurationThreshold(10);
+		config.setSlowCallRateThreshold(50);
+		CircuitBreaker breaker = new CircuitBreaker("test", config);
+		long slow = TimeUnit.MILLISECONDS.toNanos(20);
+		for (int i = 0; i < 4; i++) {
+			assertTrue(breaker.tryAcquire());
+			breaker.onComplete(i < 2 ? slow : FAST, true);
+		}
+		assertTrue(breaker.isOpen());
+	}
+
+	@Test
+	public void halfOpenPermitsOnlyProbeCallsAndClosesOnSuccess() {
+		CircuitBreaker breaker = new CircuitBreaker("test", config(0));
+		for (int i = 0; i < 4; i++) {
+			call(breaker, false);
+		}
+		assertTrue(breaker.isOpen());
+
+		// 熔断时间已过，进入半开状态，只放行两个探测请求
+		assertTrue(breaker.tryAcquire());
+		assertTrue(breaker.tryAcquire());
+		assertFalse(breaker.isOpen());
+		assertFalse(breaker.tryAcquire());
+
+		breaker.onComplete(FAST, true);
+		breaker.onComplete(FAST, true);
+		assertFalse(breaker.isOpen());
+		for (int i = 0; i < 4; i++) {
+			call(breaker, true);
+		}
+		assertFalse(breaker.isOpen());
+	}
+
+	@Test
+	public void halfOpenReopensOnProbeFailure() {
+		CircuitBreaker breaker = new CircuitBreaker("test", config(0));
+		for (int i = 0; i < 4; i++) {
+			call(breaker, false);
+		}
+
+		assertTrue(breaker.tryAcquire());
+		assertTrue(breaker.tryAcquire());
+		breaker.onComplete(FAST, true);
+		assertFalse(breaker.isOpen());
+		breaker.onComplete(FAST, false);
+		assertTrue(breaker.isOpen());
+	}
+
+	@Test
+	public void limitsConcurrentCalls() {
+		Rule.HystrixConfig config = config(60_000);
+		config.setCoreThreadSize(1);
+		CircuitBreaker breaker = new CircuitBreaker("test", config);
+		assertTrue(breaker.tryAcquire());
+		assertFalse(breaker.tryAcquire());
+		breaker.onComplete(FAST, true);
+		assertTrue(breaker.tryAcquire());
+	}
+
+	@Test
+	public void updateKeepsOpenState() {
+		CircuitBreaker breaker = new CircuitBreaker("test", config(60_000));
+		for (int i = 0; i < 4; i++) {
+			call(breaker, false);
+		}
+		Rule.HystrixConfig updated = config(60_000);
+		updated.setSlidingWindowSize(8);
+		breaker.update(updated);
+		assertTrue(breaker.isOpen());
+		assertFalse(breaker.tryAcquire());
+	}
+}
@@ -0,0 +1,100 @@
+package com.yu.gateway.core.filter.cache;
+
+import com.yu.gateway.common.config.Rule;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author yu
+ * 缓存有效期优先级：s-maxage > max-age > Expires > 规则 ttl
+ * @date 2024-06-20
+ */
+public class CachePolicyTest {
+
+	private static final HttpHeaders NO_HEADERS = new DefaultHttpHeaders();
+
+	private static CachePolicy policy(long ttlSeconds) {
+		Rule rule = new Rule();
+		rule.setId("rule");
+		Rule.FilterConfig filterConfig = new Rule.FilterConfig();
+		filterConfig.setId("cache_filter");
+		filterConfig.setConfig("{\"ttl\": " + ttlSeconds + "}");
+		return CachePolicy.parse(rule, filterConfig);
+	}
+
+	private static FullHttpResponse response(HttpResponseStatus status, String... headers) {
+		FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, Unpooled.EMPTY_BUFFER);
+		for (int i = 0; i < headers.length; i += 2) {
+			response.headers().add(headers[i], headers[i + 1]);
+		}
+		return response;
+	}
+
+	private static FullHttpResponse ok(String... headers) {
+		return response(HttpResponseStatus.OK, headers);
+	}
+
+	private static String httpDate(long millis) {
+		return DateFormatter.format(new Date(millis));
+	}
+
+	@Test
+	public void sMaxAgeTakesPrecedence() {
+		FullHttpResponse response = ok(HttpHeaderNames.CACHE_CONTROL.toString(), "max-age=10, s-maxage=20",
+				HttpHeaderNames.EXPIRES.toString(), httpDate(System.currentTimeMillis() + 300_000));
+		assertEquals(20_000, policy(60).freshnessMillis(NO_HEADERS, response));
+	}
+
+	@Test
+	public void maxAgeTakesPrecedenceOverExpires() {
+		FullHttpResponse response = ok(HttpHeaderNames.CACHE_CONTROL.toString(), "max-age=10",
+				HttpHeaderNames.EXPIRES.toString(), httpDate(System.currentTimeMillis() + 300_000));
+		assertEquals(10_000, policy(60).freshnessMillis(NO_HEADERS, response));
+	}
+
+	@Test
+	public void expiresTakesPrecedenceOverRuleTtl() {
+		FullHttpResponse response = ok(HttpHeaderNames.EXPIRES.toString(), httpDate(System.currentTimeMillis() + 300_000));
+		long freshness = policy(60).freshnessMillis(NO_HEADERS, response);
+		// HTTP 日期精确到秒
+		assertTrue(freshness > 298_000 && freshness <= 300_000);
+	}
+
+	@Test
+	public void ruleTtlWhenUpstreamDoesNotSpecify() {
+		assertEquals(60_000, policy(60).freshnessMillis(NO_HEADERS, ok()));
+		assertEquals(-1, policy(0).freshnessMillis(NO_HEADERS, ok()));
+	}
+
+	@Test
+	public void uncacheableResponses() {
+		CachePolicy policy = policy(60);
+		assertEquals(-1, policy.freshnessMillis(NO_HEADERS, response(HttpResponseStatus.NOT_FOUND)));
+		assertEquals(-1, policy.freshnessMillis(NO_HEADERS, ok(HttpHeaderNames.CACHE_CONTROL.toString(), "no-store")));
+		assertEquals(-1, policy.freshnessMillis(NO_HEADERS, ok(HttpHeaderNames.CACHE_CONTROL.toString(), "private, max-age=10")));
+		assertEquals(-1, policy.freshnessMillis(NO_HEADERS, ok(HttpHeaderNames.SET_COOKIE.toString(), "a=b")));
+		assertEquals(-1, policy.freshnessMillis(NO_HEADERS, ok(HttpHeaderNames.VARY.toString(), "*")));
+	}
+
+	@Test
+	public void authorizedRequestRequiresSharedResponse() {
+		CachePolicy policy = policy(60);
+		HttpHeaders authorized = new DefaultHttpHeaders().add(HttpHeaderNames.AUTHORIZATION, "Bearer token");
+		assertEquals(-1, policy.freshnessMillis(authorized, ok(HttpHeaderNames.CACHE_CONTROL.toString(), "max-age=10")));
+		assertEquals(10_000, policy.freshnessMillis(authorized, ok(HttpHeaderNames.CACHE_CONTROL.toString(), "public, max-age=10")));
+		assertEquals(20_000, policy.freshnessMillis(authorized, ok(HttpHeaderNames.CACHE_CONTROL.toString(), "s-maxage=20")));
+	}
+}
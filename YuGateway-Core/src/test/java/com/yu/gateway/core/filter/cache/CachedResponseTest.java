@@ -0,0 +1,131 @@
+package com.yu.gateway.core.filter.cache;
+
+import com.yu.gateway.core.response.GatewayResponse;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.CharsetUtil;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author yu
+ * 缓存条目的条件请求（ETag / If-Modified-Since）与 304 响应
+ * @date 2024-06-20
+ */
+public class CachedResponseTest {
+
+	private static final long LAST_MODIFIED = 1_700_000_000_000L;
+
+	private CachedResponse entry;
+
+	private static CachedResponse entry(String... headers) {
+		FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+				Unpooled.copiedBuffer("hello", CharsetUtil.UTF_8));
+		for (int i = 0; i < headers.length; i += 2) {
+			response.headers().add(headers[i], headers[i + 1]);
+		}
+		try {
+			return CachedResponse.of(response, new DefaultHttpHeaders(), 60_000);
+		} finally {
+			response.release();
+		}
+	}
+
+	private static HttpHeaders request(CharSequence name, String value) {
+		return new DefaultHttpHeaders().add(name, value);
+	}
+
+	private static String httpDate(long millis) {
+		return DateFormatter.format(new Date(millis));
+	}
+
+	@After
+	public void release() {
+		if (entry != null) {
+			entry.release();
+		}
+	}
+
+	@Test
+	public void etagMatches() {
+		entry = entry(HttpHeaderNames.ETAG.toString(), "\"v1\"");
+		assertTrue(entry.isNotModified(request(HttpHeaderNames.IF_NONE_MATCH, "\"v1\"")));
+		assertTrue(entry.isNotModified(request(HttpHeaderNames.IF_NONE_MATCH, "\"v0\", W/\"v1\"")));
+		assertTrue(entry.isNotModified(request(HttpHeaderNames.IF_NONE_MATCH, "*")));
+		assertFalse(entry.isNotModified(request(HttpHeaderNames.IF_NONE_MATCH, "\"v2\"")));
+	}
+
+	@Test
+	public void ifNoneMatchTakesPrecedenceOverIfModifiedSince() {
+		entry = entry(HttpHeaderNames.ETAG.toString(), "\"v1\"",
+				HttpHeaderNames.LAST_MODIFIED.toString(), httpDate(LAST_MODIFIED));
+		HttpHeaders headers = request(HttpHeaderNames.IF_NONE_MATCH, "\"v2\"")
+				.add(HttpHeaderNames.IF_MODIFIED_SINCE, httpDate(LAST_MODIFIED));
+		assertFalse(entry.isNotModified(headers));
+	}
+
+	@Test
+	public void ifModifiedSince() {
+		entry = entry(HttpHeaderNames.LAST_MODIFIED.toString(), httpDate(LAST_MODIFIED));
+		assertTrue(entry.isNotModified(request(HttpHeaderNames.IF_MODIFIED_SINCE, httpDate(LAST_MODIFIED))));
+		assertTrue(entry.isNotModified(request(HttpHeaderNames.IF_MODIFIED_SINCE, httpDate(LAST_MODIFIED + 60_000))));
+		assertFalse(entry.isNotModified(request(HttpHeaderNames.IF_MODIFIED_SINCE, httpDate(LAST_MODIFIED - 60_000))));
+		assertFalse(entry.isNotModified(new DefaultHttpHeaders()));
+	}
+
+	@Test
+	public void notModifiedResponseKeepsOnlyValidators() {
+		entry = entry(HttpHeaderNames.ETAG.toString(), "\"v1\"", HttpHeaderNames.CACHE_CONTROL.toString(), "max-age=60",
+				HttpHeaderNames.CONTENT_TYPE.toString(), "text/plain");
+		GatewayResponse response = entry.toNotModifiedResponse(System.currentTimeMillis());
+		assertEquals(HttpResponseStatus.NOT_MODIFIED, response.getHttpResponseStatus());
+		assertEquals("\"v1\"", response.getResponseHeaders().get(HttpHeaderNames.ETAG));
+		assertEquals("max-age=60", response.getResponseHeaders().get(HttpHeaderNames.CACHE_CONTROL));
+		assertFalse(response.getResponseHeaders().contains(HttpHeaderNames.CONTENT_TYPE));
+		assertEquals(0, response.getBody().readableBytes());
+	}
+
+	@Test
+	public void responseSharesBodyAndStripsHopByHopHeaders() {
+		entry = entry(HttpHeaderNames.CONNECTION.toString(), "keep-alive", "Keep-Alive", "timeout=5");
+		GatewayResponse response = entry.toResponse(System.currentTimeMillis());
+		try {
+			assertEquals("hello", response.getBody().toString(CharsetUtil.UTF_8));
+			assertEquals("5", response.getResponseHeaders().get(HttpHeaderNames.CONTENT_LENGTH));
+			assertFalse(response.getResponseHeaders().contains(HttpHeaderNames.CONNECTION));
+			assertFalse(response.getResponseHeaders().contains("Keep-Alive"));
+		} finally {
+			response.getBody().release();
+		}
+		// 释放命中的响应体不影响缓存的响应体
+		GatewayResponse again = entry.toResponse(System.currentTimeMillis());
+		try {
+			assertEquals("hello", again.getBody().toString(CharsetUtil.UTF_8));
+		} finally {
+			again.getBody().release();
+		}
+		assertEquals(1, entry.refCnt());
+	}
+
+	@Test
+	public void freshness() {
+		entry = entry();
+		long now = System.currentTimeMillis();
+		assertTrue(entry.isFresh(now));
+		assertFalse(entry.isFresh(now + 61_000));
+		assertEquals(0, entry.remainingNanos(now + 61_000));
+	}
+}
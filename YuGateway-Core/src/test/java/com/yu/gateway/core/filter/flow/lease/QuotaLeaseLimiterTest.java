@@ -0,0 +1,130 @@
+package com.yu.gateway.core.filter.flow.lease;
+
+import com.yu.gateway.common.utils.redis.JedisUtil;
+import com.yu.gateway.common.utils.redis.RedisScript;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author yu
+ * 配额租约限流器：全局令牌耗尽、续租期间透支与空闲归还
+ * @date 2024-06-20
+ */
+public class QuotaLeaseLimiterTest {
+
+	/**
+	 * 内存中的全局令牌桶，不补充令牌
+	 */
+	private static final class FakeBucket extends JedisUtil {
+		private long tokens;
+		private long granted;
+		private long returned;
+
+		private FakeBucket(long tokens) {
+			this.tokens = tokens;
+		}
+
+		@Override
+		public boolean loadScript(RedisScript script) {
+			return true;
+		}
+
+		@Override
+		public synchronized Object executeScript(RedisScript script, List<String> keys, String... args) {
+			long requested = Long.parseLong(args[3]);
+			if (requested < 0) {
+				tokens -= requested;
+				returned -= requested;
+				return 0L;
+			}
+			long grant = Math.min(requested, tokens);
+			tokens -= grant;
+			granted += grant;
+			return grant;
+		}
+	}
+
+	/**
+	 * 手动执行的续租执行器，模拟进行中的续租
+	 */
+	private static final class QueuedExecutor implements Executor {
+		private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+		@Override
+		public void execute(Runnable command) {
+			tasks.add(command);
+		}
+
+		private void runAll() {
+			Runnable task;
+			while ((task = tasks.poll()) != null) {
+				task.run();
+			}
+		}
+	}
+
+	private static int acquire(QuotaLeaseLimiter limiter, int times) {
+		int acquired = 0;
+		for (int i = 0; i < times; i++) {
+			if (limiter.tryAcquire()) {
+				acquired++;
+			}
+		}
+		return acquired;
+	}
+
+	@Test
+	public void admitsNoMoreThanGlobalTokens() {
+		FakeBucket bucket = new FakeBucket(10);
+		QuotaLeaseLimiter limiter = new QuotaLeaseLimiter("exhausted", 100, 1, bucket, Runnable::run);
+		limiter.start();
+		assertEquals(10, acquire(limiter, 100));
+		assertFalse(limiter.tryAcquire());
+	}
+
+	@Test
+	public void overdraftsOneBatchWhileLeasePending() {
+		FakeBucket bucket = new FakeBucket(100);
+		QueuedExecutor executor = new QueuedExecutor();
+		QuotaLeaseLimiter limiter = new QuotaLeaseLimiter("overdraft", 100, 1, bucket, executor);
+		limiter.start();
+
+		// 首个批次尚未发放，允许透支一个批次
+		assertTrue(limiter.tryAcquire());
+		assertFalse(limiter.tryAcquire());
+
+		// 续租先抵扣透支的许可
+		executor.runAll();
+		assertEquals(2, bucket.granted);
+		assertTrue(limiter.tryAcquire());
+	}
+
+	@Test
+	public void idleReturnKeepsReserve() {
+		FakeBucket bucket = new FakeBucket(100_000);
+		QueuedExecutor executor = new QueuedExecutor();
+		QuotaLeaseLimiter limiter = new QuotaLeaseLimiter("idle", 1000, 1, bucket, executor);
+		limiter.start();
+		executor.runAll();
+
+		// 高请求量把批次放大到上限（桶容量的 10%）
+		int admitted = acquire(limiter, 1000);
+		long now = System.currentTimeMillis();
+		limiter.tick(now + 100);
+		executor.runAll();
+		assertTrue(bucket.granted - admitted > 10);
+
+		// 空闲后归还剩余许可，只保留桶容量的 1%
+		limiter.tick(now + 1100);
+		assertTrue(bucket.returned > 0);
+		assertEquals(10, bucket.granted - bucket.returned - admitted);
+	}
+}
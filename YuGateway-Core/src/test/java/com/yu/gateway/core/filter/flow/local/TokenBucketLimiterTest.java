@@ -0,0 +1,59 @@
+package com.yu.gateway.core.filter.flow.local;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author yu
+ * GCRA 令牌桶：突发容量、许可恢复与修改速率
+ * @date 2024-06-20
+ */
+public class TokenBucketLimiterTest {
+
+	private static int acquire(TokenBucketLimiter limiter, int times) {
+		int acquired = 0;
+		for (int i = 0; i < times; i++) {
+			if (limiter.tryAcquire()) {
+				acquired++;
+			}
+		}
+		return acquired;
+	}
+
+	@Test
+	public void allowsBurstUpToPermits() {
+		// 每 20 秒一个许可，测试期间不会恢复
+		TokenBucketLimiter limiter = new TokenBucketLimiter(5, 100);
+		assertEquals(5, acquire(limiter, 10));
+		assertFalse(limiter.tryAcquire());
+	}
+
+	@Test
+	public void recoversAfterInterval() throws InterruptedException {
+		// 每 10 毫秒一个许可
+		TokenBucketLimiter limiter = new TokenBucketLimiter(10, 0.1);
+		assertEquals(10, acquire(limiter, 10));
+		assertFalse(limiter.tryAcquire());
+		Thread.sleep(30);
+		assertTrue(limiter.tryAcquire());
+	}
+
+	@Test
+	public void updateKeepsConsumedPermits() {
+		TokenBucketLimiter limiter = new TokenBucketLimiter(5, 100);
+		assertEquals(5, acquire(limiter, 5));
+		// 间隔不变、容量增加一个，已消耗的许可保留
+		limiter.update(6, 120);
+		assertEquals(1, acquire(limiter, 5));
+	}
+
+	@Test
+	public void updateRaisesBurst() {
+		TokenBucketLimiter limiter = new TokenBucketLimiter(5, 100);
+		limiter.update(10, 200);
+		assertEquals(10, acquire(limiter, 20));
+	}
+}
@@ -0,0 +1,167 @@
+package com.yu.gateway.core.filter.router;
+
+import com.yu.gateway.common.config.Rule;
+import com.yu.gateway.common.config.ServiceInstance;
+import com.yu.gateway.core.context.GatewayContext;
+import com.yu.gateway.core.filter.loadBalance.InstanceStats;
+import com.yu.gateway.core.request.GatewayRequest;
+import com.yu.gateway.core.response.GatewayResponse;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.CharsetUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author yu
+ * 请求合并：响应体分发后的引用计数、等待者取消、调用失败与实例统计
+ * @date 2024-06-20
+ */
+public class SingleFlightTest {
+
+	private SingleFlight singleFlight;
+
+	private final AtomicInteger calls = new AtomicInteger();
+
+	private final CompletableFuture<GatewayResponse> upstream = new CompletableFuture<>();
+
+	@Before
+	public void setUp() {
+		Rule rule = new Rule();
+		rule.setId(UUID.randomUUID().toString());
+		Rule.CoalesceConfig config = new Rule.CoalesceConfig();
+		config.setEnabled(true);
+		rule.setCoalesceConfig(config);
+		singleFlight = SingleFlight.of(rule);
+	}
+
+	private static GatewayContext context(String uri) {
+		DefaultFullHttpRequest fullHttpRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri);
+		GatewayRequest request = new GatewayRequest("service", StandardCharsets.UTF_8, "127.0.0.1", "localhost", uri,
+				HttpMethod.GET, null, new DefaultHttpHeaders(), fullHttpRequest);
+		return new GatewayContext("http", true, null, request, null, 0);
+	}
+
+	private CompletableFuture<GatewayResponse> execute(GatewayContext ctx) {
+		return singleFlight.execute(ctx, () -> {
+			calls.incrementAndGet();
+			return upstream;
+		});
+	}
+
+	private static GatewayResponse response(ByteBuf body) {
+		return GatewayResponse.buildGatewayResponse(HttpResponseStatus.OK, new DefaultHttpHeaders().add("X-Test", "1"), body);
+	}
+
+	@Test
+	public void fansOutSharedBody() {
+		CompletableFuture<GatewayResponse> first = execute(context("/a?x=1"));
+		CompletableFuture<GatewayResponse> second = execute(context("/a?x=1"));
+		CompletableFuture<GatewayResponse> third = execute(context("/a?x=1"));
+		assertEquals(1, calls.get());
+
+		ByteBuf body = Unpooled.copiedBuffer("hello", CharsetUtil.UTF_8);
+		upstream.complete(response(body));
+
+		// 每个请求持有一个引用，原始引用在分发后释放
+		assertEquals(3, body.refCnt());
+		GatewayResponse[] results = {first.join(), second.join(), third.join()};
+		for (GatewayResponse result : results) {
+			assertNotSame(body, result.getBody());
+			assertEquals("hello", result.getBody().toString(CharsetUtil.UTF_8));
+			assertEquals("1", result.getResponseHeaders().get("X-Test"));
+		}
+		assertNotSame(results[0].getResponseHeaders(), results[1].getResponseHeaders());
+
+		for (GatewayResponse result : results) {
+			result.getBody().release();
+		}
+		assertEquals(0, body.refCnt());
+	}
+
+	@Test
+	public void releasesShareOfCancelledWaiter() {
+		CompletableFuture<GatewayResponse> first = execute(context("/a"));
+		CompletableFuture<GatewayResponse> second = execute(context("/a"));
+		CompletableFuture<GatewayResponse> cancelled = execute(context("/a"));
+		cancelled.cancel(false);
+
+		ByteBuf body = Unpooled.copiedBuffer("hello", CharsetUtil.UTF_8);
+		upstream.complete(response(body));
+
+		assertEquals(2, body.refCnt());
+		first.join().getBody().release();
+		second.join().getBody().release();
+		assertEquals(0, body.refCnt());
+	}
+
+	@Test
+	public void differentRequestsAreNotCoalesced() {
+		execute(context("/a?x=1"));
+		execute(context("/a?x=2"));
+		assertEquals(2, calls.get());
+	}
+
+	@Test
+	public void failurePropagatesToAllWaiters() {
+		CompletableFuture<GatewayResponse> first = execute(context("/a"));
+		CompletableFuture<GatewayResponse> second = execute(context("/a"));
+		IllegalStateException failure = new IllegalStateException("upstream failed");
+		upstream.completeExceptionally(failure);
+
+		assertTrue(first.isCompletedExceptionally());
+		assertTrue(second.isCompletedExceptionally());
+		first.handle((response, throwable) -> {
+			assertSame(failure, throwable);
+			return null;
+		}).join();
+	}
+
+	@Test
+	public void finishedFlightIsNotJoined() {
+		CompletableFuture<GatewayResponse> first = execute(context("/a"));
+		upstream.complete(response(Unpooled.copiedBuffer("hello", CharsetUtil.UTF_8)));
+		first.join().getBody().release();
+
+		execute(context("/a"));
+		assertEquals(2, calls.get());
+	}
+
+	@Test
+	public void followerReleasesBoundInstance() {
+		ServiceInstance instance = new ServiceInstance();
+		instance.setServiceInstanceId(UUID.randomUUID().toString());
+		InstanceStats stats = InstanceStats.of(instance);
+
+		GatewayContext leader = context("/a");
+		leader.bindInstanceStats(stats);
+		GatewayContext follower = context("/a");
+		follower.bindInstanceStats(stats);
+		assertEquals(2, stats.getOutstanding());
+
+		execute(leader);
+		execute(follower);
+		// 合并的请求不发往实例，只有发起调用的请求计入在途请求
+		assertEquals(1, stats.getOutstanding());
+
+		upstream.complete(response(null));
+		leader.releaseInstanceStats(true);
+		follower.releaseInstanceStats(true);
+		assertEquals(0, stats.getOutstanding());
+	}
+}